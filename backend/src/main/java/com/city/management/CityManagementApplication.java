@@ -2,12 +2,18 @@ package com.city.management;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class CityManagementApplication {
 
+    private static final int STARTUP_STEPS = 10_000;
+
     public static void main(String[] args) {
-        SpringApplication.run(CityManagementApplication.class, args);
+        SpringApplication application = new SpringApplication(CityManagementApplication.class);
+        // Records how long every bean takes to create, reported by /api/system/startup
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+        application.run(args);
         System.out.println("\n===========================================");
         System.out.println("Sustainable City Management Backend Started");
         System.out.println("===========================================");
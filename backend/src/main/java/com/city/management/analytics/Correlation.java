@@ -0,0 +1,201 @@
+package com.city.management.analytics;
+
+import java.util.stream.IntStream;
+
+/**
+ * Correlation kernels over hourly columns. Each query first gathers the hours where both series
+ * have a value into dense arrays, then reduces them with branch-free loops unrolled four ways
+ * with independent accumulators, which the JIT turns into SIMD code. Lags are computed in
+ * parallel on the common fork-join pool.
+ */
+public final class Correlation {
+
+    private Correlation() {
+    }
+
+    public record Sample(double coefficient, int samples) {
+    }
+
+    public record Split(double meanWith, int hoursWith, double meanWithout, int hoursWithout, double welchT) {
+    }
+
+    /**
+     * Pearson correlation of x[i] against y[i + lag], over the hours where both have a value.
+     * The coefficient is NaN with fewer than three pairs or a constant series.
+     */
+    public static Sample pearson(double[] x, double[] y, int lag) {
+        double[] a = new double[x.length];
+        double[] b = new double[x.length];
+        int n = gather(x, y, lag, a, b);
+        return new Sample(n < 3 ? Double.NaN : coefficient(a, b, n), n);
+    }
+
+    /**
+     * Correlation at every lag from {@code -maxLag} to {@code maxLag}, in that order.
+     */
+    public static Sample[] crossCorrelation(double[] x, double[] y, int maxLag) {
+        Sample[] samples = new Sample[2 * maxLag + 1];
+        IntStream.rangeClosed(-maxLag, maxLag).parallel()
+                .forEach(lag -> samples[lag + maxLag] = pearson(x, y, lag));
+        return samples;
+    }
+
+    /**
+     * Pairwise correlations of all columns at lag 0, each pair computed in parallel.
+     */
+    public static Sample[][] matrix(double[][] columns) {
+        int k = columns.length;
+        Sample[][] result = new Sample[k][k];
+        IntStream.range(0, k * k).parallel().forEach(cell -> {
+            int i = cell / k;
+            int j = cell % k;
+            if (i < j) {
+                Sample sample = pearson(columns[i], columns[j], 0);
+                result[i][j] = sample;
+                result[j][i] = sample;
+            } else if (i == j) {
+                result[i][j] = new Sample(1.0, count(columns[i]));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Mean of y[i + lag] over hours where x[i] is above the threshold versus at or below it,
+     * with Welch's t statistic for the difference.
+     */
+    public static Split split(double[] x, double[] y, int lag, double threshold) {
+        double[] a = new double[x.length];
+        double[] b = new double[x.length];
+        int n = gather(x, y, lag, a, b);
+
+        double sumWith = 0;
+        double sumWithout = 0;
+        int with = 0;
+        for (int i = 0; i < n; i++) {
+            if (a[i] > threshold) {
+                sumWith += b[i];
+                with++;
+            } else {
+                sumWithout += b[i];
+            }
+        }
+        int without = n - with;
+        double meanWith = with > 0 ? sumWith / with : Double.NaN;
+        double meanWithout = without > 0 ? sumWithout / without : Double.NaN;
+
+        double ssWith = 0;
+        double ssWithout = 0;
+        for (int i = 0; i < n; i++) {
+            if (a[i] > threshold) {
+                ssWith += (b[i] - meanWith) * (b[i] - meanWith);
+            } else {
+                ssWithout += (b[i] - meanWithout) * (b[i] - meanWithout);
+            }
+        }
+        double t = Double.NaN;
+        if (with > 1 && without > 1) {
+            double se = Math.sqrt(ssWith / (with - 1) / with + ssWithout / (without - 1) / without);
+            t = se > 0 ? (meanWith - meanWithout) / se : Double.NaN;
+        }
+        return new Split(meanWith, with, meanWithout, without, t);
+    }
+
+    public static double mean(double[] x) {
+        double sum = 0;
+        int n = 0;
+        for (double value : x) {
+            if (!Double.isNaN(value)) {
+                sum += value;
+                n++;
+            }
+        }
+        return n > 0 ? sum / n : Double.NaN;
+    }
+
+    private static int count(double[] x) {
+        int n = 0;
+        for (double value : x) {
+            if (!Double.isNaN(value)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    // Copies the pairs (x[i], y[i + lag]) where both are present into a and b; returns the count
+    private static int gather(double[] x, double[] y, int lag, double[] a, double[] b) {
+        int start = Math.max(0, -lag);
+        int end = Math.min(x.length, y.length - lag);
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            double xi = x[i];
+            double yi = y[i + lag];
+            if (!Double.isNaN(xi) && !Double.isNaN(yi)) {
+                a[n] = xi;
+                b[n] = yi;
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static double coefficient(double[] a, double[] b, int n) {
+        int tail = n & ~3;
+
+        double sa0 = 0, sa1 = 0, sa2 = 0, sa3 = 0;
+        double sb0 = 0, sb1 = 0, sb2 = 0, sb3 = 0;
+        for (int i = 0; i < tail; i += 4) {
+            sa0 += a[i];
+            sa1 += a[i + 1];
+            sa2 += a[i + 2];
+            sa3 += a[i + 3];
+            sb0 += b[i];
+            sb1 += b[i + 1];
+            sb2 += b[i + 2];
+            sb3 += b[i + 3];
+        }
+        double sa = sa0 + sa1 + sa2 + sa3;
+        double sb = sb0 + sb1 + sb2 + sb3;
+        for (int i = tail; i < n; i++) {
+            sa += a[i];
+            sb += b[i];
+        }
+        double ma = sa / n;
+        double mb = sb / n;
+
+        // Second pass on centred values keeps the sums accurate for large, similar values
+        double aa0 = 0, aa1 = 0, aa2 = 0, aa3 = 0;
+        double bb0 = 0, bb1 = 0, bb2 = 0, bb3 = 0;
+        double ab0 = 0, ab1 = 0, ab2 = 0, ab3 = 0;
+        for (int i = 0; i < tail; i += 4) {
+            double a0 = a[i] - ma, a1 = a[i + 1] - ma, a2 = a[i + 2] - ma, a3 = a[i + 3] - ma;
+            double b0 = b[i] - mb, b1 = b[i + 1] - mb, b2 = b[i + 2] - mb, b3 = b[i + 3] - mb;
+            aa0 += a0 * a0;
+            aa1 += a1 * a1;
+            aa2 += a2 * a2;
+            aa3 += a3 * a3;
+            bb0 += b0 * b0;
+            bb1 += b1 * b1;
+            bb2 += b2 * b2;
+            bb3 += b3 * b3;
+            ab0 += a0 * b0;
+            ab1 += a1 * b1;
+            ab2 += a2 * b2;
+            ab3 += a3 * b3;
+        }
+        double saa = aa0 + aa1 + aa2 + aa3;
+        double sbb = bb0 + bb1 + bb2 + bb3;
+        double sab = ab0 + ab1 + ab2 + ab3;
+        for (int i = tail; i < n; i++) {
+            double ai = a[i] - ma;
+            double bi = b[i] - mb;
+            saa += ai * ai;
+            sbb += bi * bi;
+            sab += ai * bi;
+        }
+
+        double denominator = Math.sqrt(saa * sbb);
+        return denominator > 0 ? sab / denominator : Double.NaN;
+    }
+}
@@ -0,0 +1,57 @@
+package com.city.management.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Hourly means of one indicator series over a fixed retention, held column-wise in a ring of
+ * primitive arrays: the sum and count of each hour plus the hour the slot currently holds.
+ * Hours older than the retention are overwritten as newer ones arrive.
+ */
+public class HourlySeries {
+
+    private final int capacity;
+    private final long[] hours;
+    private final double[] sums;
+    private final int[] counts;
+    private long latestHour = Long.MIN_VALUE;
+
+    public HourlySeries(int capacity) {
+        this.capacity = capacity;
+        this.hours = new long[capacity];
+        this.sums = new double[capacity];
+        this.counts = new int[capacity];
+        Arrays.fill(hours, Long.MIN_VALUE);
+    }
+
+    public synchronized void add(long hour, double value) {
+        if (latestHour != Long.MIN_VALUE && hour <= latestHour - capacity) {
+            return;
+        }
+        latestHour = Math.max(latestHour, hour);
+        int slot = (int) Math.floorMod(hour, (long) capacity);
+        if (hours[slot] != hour) {
+            hours[slot] = hour;
+            sums[slot] = 0;
+            counts[slot] = 0;
+        }
+        sums[slot] += value;
+        counts[slot]++;
+    }
+
+    public synchronized long getLatestHour() {
+        return latestHour;
+    }
+
+    /**
+     * Means for hours {@code from} to {@code to} inclusive, NaN where the hour has no readings.
+     */
+    public synchronized double[] means(long from, long to) {
+        double[] means = new double[(int) (to - from + 1)];
+        for (int i = 0; i < means.length; i++) {
+            long hour = from + i;
+            int slot = (int) Math.floorMod(hour, (long) capacity);
+            means[i] = hours[slot] == hour && counts[slot] > 0 ? sums[slot] / counts[slot] : Double.NaN;
+        }
+        return means;
+    }
+}
@@ -0,0 +1,18 @@
+package com.city.management.audit;
+
+/**
+ * Actions that leave a record in the audit log. The ordinal is what the segment files store,
+ * so new actions go at the end.
+ */
+public enum AuditAction {
+    LOGIN,
+    LOGOUT,
+    REGISTER,
+    USER_CREATE,
+    USER_IMPORT,
+    USER_UPDATE,
+    USER_DELETE,
+    SIMULATION_RUN,
+    SIMULATION_DERIVE,
+    SIMULATION_DELETE
+}
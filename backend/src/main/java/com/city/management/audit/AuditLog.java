@@ -0,0 +1,339 @@
+package com.city.management.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only audit log. Request threads publish events into an {@link AuditRing} and return
+ * at once; a single writer thread drains the ring, encodes everything available into one buffer
+ * and writes it to the current segment with a single fsync, so a burst costs one disk flush.
+ * While the disk is slow the ring fills up and further events are dropped and counted rather
+ * than holding up requests.
+ *
+ * Segments are named after the epoch millisecond they were opened and rotated when they reach
+ * the size or age limit; the oldest are deleted beyond the retention count. A segment is an
+ * 8-byte header followed by records of length, CRC-32C and payload, so a record torn by a crash
+ * ends the segment instead of corrupting what follows.
+ */
+public class AuditLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    static final int MAGIC = 0x41554454;
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".log";
+    private static final int MAX_FIELD_CHARS = 256;
+    private static final int MAX_RECORD_BYTES = 4 + 4 + 8 + 1 + 1 + 4 * (2 + 3 * MAX_FIELD_CHARS);
+    private static final AuditAction[] ACTIONS = AuditAction.values();
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final long maxSegmentMillis;
+    private final int maxSegments;
+    private final boolean fsync;
+    private final long idleNanos;
+
+    private final AuditRing ring;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    private final CRC32C crc = new CRC32C();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private FileChannel segment;
+    private long segmentOpenedAt;
+    private long segmentBytes;
+    private long lastSegmentName;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+
+    public AuditLog(Path directory, int ringCapacity, long maxSegmentBytes, long maxSegmentMillis, int maxSegments,
+                    boolean fsync, long idleMillis) throws IOException {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentMillis = maxSegmentMillis;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.fsync = fsync;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleMillis));
+        this.ring = new AuditRing(ringCapacity);
+        Files.createDirectories(directory);
+        List<Path> existing = segments();
+        this.lastSegmentName = existing.isEmpty() ? 0 : openedAt(existing.get(existing.size() - 1));
+        this.writer = new Thread(this::run, "audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues an event for writing; returns false if the ring was full and it was dropped.
+     */
+    public boolean append(long timeMillis, AuditAction action, boolean success, String actor, String target,
+                          String remoteAddress, String detail) {
+        return ring.publish(timeMillis, action, success, actor, target, remoteAddress, detail);
+    }
+
+    /**
+     * Up to {@code limit} written events, newest first, read from the newest segments back until
+     * the limit is reached or the segments start before {@code from}. Null filters match
+     * everything; times are inclusive epoch milliseconds.
+     */
+    public Query query(AuditAction action, String actor, long from, long to, int limit) throws IOException {
+        List<Path> files = segments();
+        List<Entry> entries = new ArrayList<>();
+        int scanned = 0;
+        for (int i = files.size() - 1; i >= 0 && entries.size() < limit; i--) {
+            List<Entry> matches;
+            try {
+                matches = read(files.get(i), action, actor, from, to);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            scanned++;
+            for (int m = matches.size() - 1; m >= 0 && entries.size() < limit; m--) {
+                entries.add(matches.get(m));
+            }
+            // Every record in an older segment was written, and so stamped, before this one opened
+            if (openedAt(files.get(i)) < from) {
+                break;
+            }
+        }
+        return new Query(entries, scanned);
+    }
+
+    public Map<String, Object> getMetrics() throws IOException {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("published", ring.getPublished());
+        metrics.put("dropped", ring.getDropped());
+        metrics.put("written", written.sum());
+        metrics.put("lost", lost.sum());
+        metrics.put("batches", batches.sum());
+        metrics.put("rotations", rotations.sum());
+        metrics.put("segments", segments().size());
+        metrics.put("ringCapacity", ring.capacity());
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            if (writeBatch() == 0) {
+                LockSupport.parkNanos(idleNanos);
+            }
+        }
+        while (writeBatch() > 0) {
+            // Drain what was published before shutdown
+        }
+        closeSegment();
+    }
+
+    private int writeBatch() {
+        buffer.clear();
+        int count = ring.drain(this::encode);
+        if (count == 0) {
+            return 0;
+        }
+        buffer.flip();
+        try {
+            long now = System.currentTimeMillis();
+            if (segment == null || segmentBytes >= maxSegmentBytes || now - segmentOpenedAt >= maxSegmentMillis) {
+                rotate(now);
+            }
+            while (buffer.hasRemaining()) {
+                segmentBytes += segment.write(buffer);
+            }
+            if (fsync) {
+                segment.force(false);
+            }
+            written.add(count);
+            batches.increment();
+        } catch (IOException e) {
+            // The batch is lost; the next one starts a fresh segment
+            log.warn("Audit write of {} events failed: {}", count, e.getMessage());
+            lost.add(count);
+            closeSegment();
+        }
+        return count;
+    }
+
+    private boolean encode(AuditRing.Slot slot) {
+        if (buffer.remaining() < MAX_RECORD_BYTES) {
+            return false;
+        }
+        int start = buffer.position();
+        buffer.position(start + 8);
+        buffer.putLong(slot.timeMillis)
+                .put((byte) slot.action.ordinal())
+                .put((byte) (slot.success ? 1 : 0));
+        putString(slot.actor);
+        putString(slot.target);
+        putString(slot.remoteAddress);
+        putString(slot.detail);
+        int end = buffer.position();
+
+        crc.reset();
+        crc.update(buffer.duplicate().position(start + 8).limit(end));
+        buffer.putInt(start, end - start - 8).putInt(start + 4, (int) crc.getValue());
+        return true;
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        String text = value.length() > MAX_FIELD_CHARS ? value.substring(0, MAX_FIELD_CHARS) : value;
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private void rotate(long now) throws IOException {
+        closeSegment();
+        long name = Math.max(now, lastSegmentName + 1);
+        Path path = directory.resolve(PREFIX + String.format("%013d", name) + SUFFIX);
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segment.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip());
+        segmentBytes = HEADER_BYTES;
+        segmentOpenedAt = now;
+        lastSegmentName = name;
+        rotations.increment();
+
+        List<Path> files = segments();
+        for (int i = 0; i < files.size() - maxSegments; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            if (fsync) {
+                segment.force(false);
+            }
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Closing audit segment failed: {}", e.getMessage());
+        }
+        segment = null;
+    }
+
+    // Oldest first; the zero-padded names sort by opening time
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(AuditLog::isSegment).sorted().toList();
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX)
+                && name.substring(PREFIX.length(), name.length() - SUFFIX.length()).chars().allMatch(Character::isDigit);
+    }
+
+    private static long openedAt(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static List<Entry> read(Path path, AuditAction action, String actor, long from, long to) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE - 8));
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // Read up to the size seen on opening; the writer may still be appending
+            }
+        }
+        data.flip();
+        if (data.remaining() < HEADER_BYTES || data.getInt() != MAGIC || data.getInt() != VERSION) {
+            return List.of();
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        CRC32C check = new CRC32C();
+        while (data.remaining() >= 8) {
+            int length = data.getInt();
+            int expected = data.getInt();
+            if (length <= 0 || length > data.remaining()) {
+                break;
+            }
+            ByteBuffer payload = data.slice(data.position(), length);
+            check.reset();
+            check.update(payload.duplicate());
+            if ((int) check.getValue() != expected) {
+                break;
+            }
+            data.position(data.position() + length);
+
+            try {
+                long time = payload.getLong();
+                int ordinal = payload.get();
+                boolean success = payload.get() != 0;
+                if (time < from || time > to || ordinal < 0 || ordinal >= ACTIONS.length
+                        || (action != null && ACTIONS[ordinal] != action)) {
+                    continue;
+                }
+                String recordActor = getString(payload);
+                if (actor != null && !actor.equals(recordActor)) {
+                    continue;
+                }
+                entries.add(new Entry(time, ACTIONS[ordinal], success, recordActor, getString(payload),
+                        getString(payload), getString(payload)));
+            } catch (BufferUnderflowException e) {
+                break;
+            }
+        }
+        return entries;
+    }
+
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public record Entry(long timeMillis, AuditAction action, boolean success, String actor, String target,
+                        String remoteAddress, String detail) {
+    }
+
+    public record Query(List<Entry> entries, int segmentsScanned) {
+    }
+}
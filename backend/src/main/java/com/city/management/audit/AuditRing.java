@@ -0,0 +1,132 @@
+package com.city.management.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Preallocated ring of audit events with many producers and one consumer. Producers never wait:
+ * when the ring is full the event is dropped and counted, otherwise the producer takes the next
+ * sequence number and the slot it maps to.
+ *
+ * Every slot has a turn that says which sequence it is waiting for. A producer holding sequence
+ * s reserves the slot by moving its turn from s to "being written", fills it and marks it
+ * published. The consumer reads published slots in sequence order and hands each one to the
+ * sequence a lap later. A producer that got a sequence but finds its slot still taken, because
+ * others passed the fullness check at the same moment, gives up and leaves its sequence behind.
+ * The consumer skips that sequence once the slot comes round to it, and a producer that arrives
+ * after such a skip finds its turn gone and drops its event too.
+ */
+class AuditRing {
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLongArray turns;
+    private final AtomicLongArray abandoned;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    AuditRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new Slot[size];
+        turns = new AtomicLongArray(size);
+        abandoned = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            turns.set(i, i);
+            abandoned.set(i, -1);
+        }
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Publishes an event; returns false if the ring was full and it was dropped.
+     */
+    boolean publish(long timeMillis, AuditAction action, boolean success, String actor, String target,
+                    String remoteAddress, String detail) {
+        // A full ring drops without taking a sequence, so the consumer has none to skip; only
+        // producers racing past this check can end up abandoning theirs
+        if (claimed.get() - consumed.get() >= slots.length) {
+            dropped.increment();
+            return false;
+        }
+        long sequence = claimed.getAndIncrement();
+        int index = (int) sequence & mask;
+        if (!turns.compareAndSet(index, sequence, writing(sequence))) {
+            abandoned.accumulateAndGet(index, sequence, Math::max);
+            dropped.increment();
+            return false;
+        }
+        Slot slot = slots[index];
+        slot.timeMillis = timeMillis;
+        slot.action = action;
+        slot.success = success;
+        slot.actor = actor;
+        slot.target = target;
+        slot.remoteAddress = remoteAddress;
+        slot.detail = detail;
+        turns.set(index, sequence + 1);
+        published.increment();
+        return true;
+    }
+
+    /**
+     * Hands the published events that follow the last one consumed to {@code consumer}, in
+     * order, until it declines one or an event is still being written. Consumer thread only.
+     */
+    int drain(SlotConsumer consumer) {
+        int count = 0;
+        long next = consumed.get();
+        while (true) {
+            int index = (int) next & mask;
+            long turn = turns.get(index);
+            if (turn == next + 1) {
+                Slot slot = slots[index];
+                if (!consumer.accept(slot)) {
+                    break;
+                }
+                slot.actor = slot.target = slot.remoteAddress = slot.detail = null;
+                turns.set(index, next + slots.length);
+                count++;
+            } else if (turn != next || abandoned.get(index) < next
+                    || !turns.compareAndSet(index, next, next + slots.length)) {
+                break;
+            }
+            next++;
+        }
+        consumed.lazySet(next);
+        return count;
+    }
+
+    long getPublished() {
+        return published.sum();
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    private static long writing(long sequence) {
+        return -sequence - 1;
+    }
+
+    interface SlotConsumer {
+        boolean accept(Slot slot);
+    }
+
+    static final class Slot {
+        long timeMillis;
+        AuditAction action;
+        boolean success;
+        String actor;
+        String target;
+        String remoteAddress;
+        String detail;
+    }
+}
@@ -0,0 +1,33 @@
+package com.city.management.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterMessage {
+    public static final String GET = "GET";
+    public static final String PUT = "PUT";
+    public static final String PUT_ALL = "PUT_ALL";
+    public static final String PUT_IF_ABSENT = "PUT_IF_ABSENT";
+    public static final String PUT_ALL_IF_ABSENT = "PUT_ALL_IF_ABSENT";
+    public static final String REMOVE = "REMOVE";
+    public static final String VALUES = "VALUES";
+
+    private String op;
+    private String store;
+    private String key;
+    private JsonNode value;
+    private List<String> keys;
+    private List<JsonNode> values;
+    private boolean found;
+
+    public static ClusterMessage request(String op, String store, String key, JsonNode value) {
+        return new ClusterMessage(op, store, key, value, null, null, false);
+    }
+}
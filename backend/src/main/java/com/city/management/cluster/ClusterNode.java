@@ -0,0 +1,164 @@
+package com.city.management.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Static cluster membership read from {@code cluster.nodes}. Owns the hash ring, the transport
+ * and the registry of clustered stores that remote requests are dispatched to.
+ */
+@Component
+public class ClusterNode {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterNode.class);
+
+    @Value("${cluster.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cluster.node-id:node-1}")
+    private String nodeId;
+
+    @Value("${cluster.nodes:}")
+    private String nodes;
+
+    @Value("${cluster.transport:http}")
+    private String transportType;
+
+    @Value("${cluster.secret:}")
+    private String secret;
+
+    @Value("${cluster.virtual-nodes:64}")
+    private int virtualNodes;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, ClusteredStateStore<?>> stores = new ConcurrentHashMap<>();
+    private final Map<String, String> nodeUrls = new LinkedHashMap<>();
+    private final List<String> peers = new ArrayList<>();
+    private ConsistentHashRing ring;
+    private ClusterTransport transport;
+    private ExecutorService fanout;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        // Peers can read and overwrite every replicated store, users included
+        if (secret.isBlank()) {
+            throw new IllegalStateException("cluster.secret must be set when cluster.enabled is true");
+        }
+
+        for (String entry : nodes.split(",")) {
+            String[] parts = entry.trim().split("=", 2);
+            nodeUrls.put(parts[0].trim(), parts.length > 1 ? parts[1].trim() : "");
+        }
+        nodeUrls.putIfAbsent(nodeId, "");
+        nodeUrls.keySet().stream().filter(id -> !id.equals(nodeId)).sorted().forEach(peers::add);
+
+        ring = new ConsistentHashRing(nodeUrls.keySet(), virtualNodes);
+        if ("local".equals(transportType)) {
+            transport = new LocalClusterTransport();
+            LocalClusterTransport.register(this);
+        } else {
+            transport = new HttpClusterTransport(nodeUrls, secret, objectMapper);
+        }
+        fanout = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "cluster-fanout-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Cluster node {} started with peers {} over {} transport", nodeId, peers, transportType);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            LocalClusterTransport.unregister(this);
+            fanout.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getNodeIndex() {
+        return nodeUrls.keySet().stream().sorted().toList().indexOf(nodeId);
+    }
+
+    public List<String> getPeers() {
+        return peers;
+    }
+
+    public boolean isLocal(String owner) {
+        return nodeId.equals(owner);
+    }
+
+    public String ownerOf(String key) {
+        return ring.ownerOf(key);
+    }
+
+    public boolean checkSecret(String presented) {
+        if (secret.isBlank() || presented == null) {
+            return false;
+        }
+        // Constant-time, so response times do not give the secret away a byte at a time
+        return MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void register(ClusteredStateStore<?> store) {
+        if (stores.putIfAbsent(store.name, store) != null) {
+            throw new IllegalStateException("Duplicate state store " + store.name);
+        }
+    }
+
+    ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    ClusterMessage send(String target, ClusterMessage message) {
+        return transport.send(target, message);
+    }
+
+    void broadcast(ClusterMessage message) {
+        for (String peer : peers) {
+            fanout.execute(() -> {
+                try {
+                    transport.send(peer, message);
+                } catch (RuntimeException e) {
+                    log.warn("Fan-out of {} {} to {} failed: {}", message.getOp(), message.getStore(), peer, e.getMessage());
+                }
+            });
+        }
+    }
+
+    public ClusterMessage handle(ClusterMessage message) {
+        ClusteredStateStore<?> store = stores.get(message.getStore());
+        if (store == null) {
+            throw new IllegalArgumentException("Unknown state store " + message.getStore());
+        }
+        return store.handle(message);
+    }
+}
@@ -0,0 +1,90 @@
+package com.city.management.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+abstract class ClusteredStateStore<V> implements StateStore<V> {
+
+    protected final String name;
+    protected final ClusterNode node;
+    protected final Map<String, V> local = new ConcurrentHashMap<>();
+    private final Class<V> type;
+    private final ObjectMapper objectMapper;
+    private volatile Consumer<String> remotePutListener = key -> {
+    };
+
+    ClusteredStateStore(String name, Class<V> type, ClusterNode node, ObjectMapper objectMapper) {
+        this.name = name;
+        this.type = type;
+        this.node = node;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void onRemotePut(Consumer<String> listener) {
+        remotePutListener = listener;
+    }
+
+    ClusterMessage handle(ClusterMessage message) {
+        ClusterMessage response = ClusterMessage.request(message.getOp(), name, message.getKey(), null);
+        switch (message.getOp()) {
+            case ClusterMessage.GET -> {
+                V value = local.get(message.getKey());
+                response.setFound(value != null);
+                response.setValue(value != null ? toJson(value) : null);
+            }
+            case ClusterMessage.PUT -> {
+                local.put(message.getKey(), fromJson(message.getValue()));
+                remotePutListener.accept(message.getKey());
+            }
+            case ClusterMessage.PUT_ALL -> {
+                for (int i = 0; i < message.getKeys().size(); i++) {
+                    local.put(message.getKeys().get(i), fromJson(message.getValues().get(i)));
+                    remotePutListener.accept(message.getKeys().get(i));
+                }
+            }
+            case ClusterMessage.PUT_IF_ABSENT -> {
+                boolean stored = local.putIfAbsent(message.getKey(), fromJson(message.getValue())) == null;
+                response.setFound(!stored);
+                if (stored) {
+                    remotePutListener.accept(message.getKey());
+                }
+            }
+            case ClusterMessage.PUT_ALL_IF_ABSENT -> {
+                // Answers with the keys that were already present
+                List<String> present = new ArrayList<>();
+                for (int i = 0; i < message.getKeys().size(); i++) {
+                    String key = message.getKeys().get(i);
+                    if (local.putIfAbsent(key, fromJson(message.getValues().get(i))) == null) {
+                        remotePutListener.accept(key);
+                    } else {
+                        present.add(key);
+                    }
+                }
+                response.setKeys(present);
+            }
+            case ClusterMessage.REMOVE -> response.setFound(local.remove(message.getKey()) != null);
+            case ClusterMessage.VALUES -> {
+                List<JsonNode> values = new ArrayList<>(local.size());
+                local.values().forEach(value -> values.add(toJson(value)));
+                response.setValues(values);
+            }
+            default -> throw new IllegalArgumentException("Unsupported cluster operation " + message.getOp());
+        }
+        return response;
+    }
+
+    protected JsonNode toJson(V value) {
+        return objectMapper.valueToTree(value);
+    }
+
+    protected V fromJson(JsonNode json) {
+        return objectMapper.convertValue(json, type);
+    }
+}
@@ -0,0 +1,39 @@
+package com.city.management.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ConsistentHashRing {
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> nodeIds, int virtualNodes) {
+        for (String nodeId : nodeIds) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(nodeId + "#" + i), nodeId);
+            }
+        }
+    }
+
+    public String ownerOf(String key) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    static long hash(String key) {
+        // FNV-1a followed by the murmur3 finalizer to spread short, sequential keys such as ids
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
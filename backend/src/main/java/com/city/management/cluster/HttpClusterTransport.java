@@ -0,0 +1,56 @@
+package com.city.management.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+public class HttpClusterTransport implements ClusterTransport {
+
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private final Map<String, String> nodeUrls;
+    private final String secret;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    public HttpClusterTransport(Map<String, String> nodeUrls, String secret, ObjectMapper objectMapper) {
+        this.nodeUrls = nodeUrls;
+        this.secret = secret;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ClusterMessage send(String nodeId, ClusterMessage message) {
+        String url = nodeUrls.get(nodeId);
+        if (url == null) {
+            throw new IllegalStateException("Unknown cluster node " + nodeId);
+        }
+
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/internal/cluster"))
+                    .timeout(Duration.ofSeconds(5))
+                    .header("Content-Type", "application/json")
+                    .header(SECRET_HEADER, secret)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(message)))
+                    .build();
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Cluster node " + nodeId + " answered " + response.statusCode());
+            }
+            return objectMapper.readValue(response.body(), ClusterMessage.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cluster node " + nodeId + " is not reachable", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling cluster node " + nodeId, e);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.city.management.cluster;
+
+public interface IdGenerator {
+
+    long nextId();
+}
@@ -0,0 +1,78 @@
+package com.city.management.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Cluster-unique ids without coordination: node {@code i} of at most {@code maxNodes} hands
+ * out {@code initialValue + n * maxNodes + i}, so the nodes draw from disjoint residue classes.
+ * The records behind a node's ids outlive it on the peers that own them, so the sequence must
+ * not start over on restart: it is reserved {@code blockSize} at a time and the end of the
+ * reserved block is written to {@code state} before any id from it is handed out. A restart
+ * skips the rest of the block it was in.
+ */
+public class InterleavedIdGenerator implements IdGenerator {
+
+    private final long initialValue;
+    private final int nodeIndex;
+    private final int maxNodes;
+    private final Path state;
+    private final int blockSize;
+    private long sequence;
+    private long reserved;
+
+    public InterleavedIdGenerator(long initialValue, int nodeIndex, int maxNodes, Path state, int blockSize) {
+        if (nodeIndex < 0 || nodeIndex >= maxNodes) {
+            throw new IllegalArgumentException("Node index " + nodeIndex + " outside 0.." + (maxNodes - 1));
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Id block size must be positive");
+        }
+        this.initialValue = initialValue;
+        this.nodeIndex = nodeIndex;
+        this.maxNodes = maxNodes;
+        this.state = state;
+        this.blockSize = blockSize;
+        this.sequence = readHighWaterMark();
+        this.reserved = sequence;
+    }
+
+    @Override
+    public synchronized long nextId() {
+        if (sequence == reserved) {
+            writeHighWaterMark(reserved + blockSize);
+            reserved += blockSize;
+        }
+        return initialValue + sequence++ * maxNodes + nodeIndex;
+    }
+
+    private long readHighWaterMark() {
+        try {
+            if (!Files.exists(state)) {
+                return 0;
+            }
+            return Long.parseLong(Files.readString(state, StandardCharsets.UTF_8).trim());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read id high-water mark " + state, e);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Corrupt id high-water mark " + state, e);
+        }
+    }
+
+    private void writeHighWaterMark(long value) {
+        try {
+            if (state.getParent() != null) {
+                Files.createDirectories(state.getParent());
+            }
+            Path temp = state.resolveSibling(state.getFileName() + ".tmp");
+            Files.writeString(temp, Long.toString(value), StandardCharsets.UTF_8);
+            Files.move(temp, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot save id high-water mark " + state, e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.city.management.cluster;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-JVM transport: nodes started in the same process (for example several application
+ * contexts in one test) reach each other through a static registry instead of the network.
+ */
+public class LocalClusterTransport implements ClusterTransport {
+
+    private static final Map<String, ClusterNode> NODES = new ConcurrentHashMap<>();
+
+    static void register(ClusterNode node) {
+        NODES.put(node.getNodeId(), node);
+    }
+
+    static void unregister(ClusterNode node) {
+        NODES.remove(node.getNodeId(), node);
+    }
+
+    @Override
+    public ClusterMessage send(String nodeId, ClusterMessage message) {
+        ClusterNode node = NODES.get(nodeId);
+        if (node == null) {
+            throw new IllegalStateException("Cluster node " + nodeId + " is not reachable");
+        }
+        return node.handle(message);
+    }
+}
@@ -0,0 +1,17 @@
+package com.city.management.cluster;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LocalIdGenerator implements IdGenerator {
+
+    private final AtomicLong next;
+
+    public LocalIdGenerator(long initialValue) {
+        this.next = new AtomicLong(initialValue);
+    }
+
+    @Override
+    public long nextId() {
+        return next.getAndIncrement();
+    }
+}
@@ -0,0 +1,48 @@
+package com.city.management.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class LocalStateStore<V> implements StateStore<V> {
+
+    private final Map<String, V> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<V> get(String key) {
+        return Optional.ofNullable(entries.get(key));
+    }
+
+    @Override
+    public void put(String key, V value) {
+        entries.put(key, value);
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, V value) {
+        return entries.putIfAbsent(key, value) == null;
+    }
+
+    @Override
+    public boolean remove(String key) {
+        return entries.remove(key) != null;
+    }
+
+    @Override
+    public List<V> values() {
+        return new ArrayList<>(entries.values());
+    }
+
+    @Override
+    public void putAll(Map<String, V> batch) {
+        entries.putAll(batch);
+    }
+
+    @Override
+    public void forEach(Consumer<V> action) {
+        entries.values().forEach(action);
+    }
+}
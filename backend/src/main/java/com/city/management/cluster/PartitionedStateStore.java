@@ -0,0 +1,133 @@
+package com.city.management.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Each key lives on exactly one node, chosen by the consistent hash ring. Values returned for
+ * remote keys are copies, so callers must {@link #put} after mutating them.
+ */
+public class PartitionedStateStore<V> extends ClusteredStateStore<V> {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionedStateStore.class);
+
+    PartitionedStateStore(String name, Class<V> type, ClusterNode node, ObjectMapper objectMapper) {
+        super(name, type, node, objectMapper);
+    }
+
+    @Override
+    public Optional<V> get(String key) {
+        String owner = node.ownerOf(key);
+        if (node.isLocal(owner)) {
+            return Optional.ofNullable(local.get(key));
+        }
+        ClusterMessage response = node.send(owner, ClusterMessage.request(ClusterMessage.GET, name, key, null));
+        return response.isFound() ? Optional.of(fromJson(response.getValue())) : Optional.empty();
+    }
+
+    @Override
+    public void put(String key, V value) {
+        String owner = node.ownerOf(key);
+        if (node.isLocal(owner)) {
+            local.put(key, value);
+        } else {
+            node.send(owner, ClusterMessage.request(ClusterMessage.PUT, name, key, toJson(value)));
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, V value) {
+        String owner = node.ownerOf(key);
+        if (node.isLocal(owner)) {
+            return local.putIfAbsent(key, value) == null;
+        }
+        return !node.send(owner, ClusterMessage.request(ClusterMessage.PUT_IF_ABSENT, name, key, toJson(value))).isFound();
+    }
+
+    @Override
+    public void putAll(Map<String, V> entries) {
+        Map<String, ClusterMessage> batches = new HashMap<>();
+        entries.forEach((key, value) -> {
+            if (isOwnedLocally(key)) {
+                local.put(key, value);
+            } else {
+                addToBatch(batches, ClusterMessage.PUT_ALL, key, value);
+            }
+        });
+        batches.forEach(node::send);
+    }
+
+    @Override
+    public Set<String> putAllIfAbsent(Map<String, V> entries) {
+        Set<String> present = new HashSet<>();
+        Map<String, ClusterMessage> batches = new HashMap<>();
+        entries.forEach((key, value) -> {
+            if (!isOwnedLocally(key)) {
+                addToBatch(batches, ClusterMessage.PUT_ALL_IF_ABSENT, key, value);
+            } else if (local.putIfAbsent(key, value) != null) {
+                present.add(key);
+            }
+        });
+        batches.forEach((owner, batch) -> present.addAll(node.send(owner, batch).getKeys()));
+        return present;
+    }
+
+    private void addToBatch(Map<String, ClusterMessage> batches, String op, String key, V value) {
+        ClusterMessage batch = batches.computeIfAbsent(node.ownerOf(key), o -> {
+            ClusterMessage message = ClusterMessage.request(op, name, null, null);
+            message.setKeys(new ArrayList<>());
+            message.setValues(new ArrayList<>());
+            return message;
+        });
+        batch.getKeys().add(key);
+        batch.getValues().add(toJson(value));
+    }
+
+    @Override
+    public boolean remove(String key) {
+        String owner = node.ownerOf(key);
+        if (node.isLocal(owner)) {
+            return local.remove(key) != null;
+        }
+        return node.send(owner, ClusterMessage.request(ClusterMessage.REMOVE, name, key, null)).isFound();
+    }
+
+    @Override
+    public boolean isOwnedLocally(String key) {
+        return node.isLocal(node.ownerOf(key));
+    }
+
+    @Override
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        forEach(values::add);
+        return values;
+    }
+
+    @Override
+    public void forEach(Consumer<V> action) {
+        // Only one partition is held in memory at a time
+        local.values().forEach(action);
+        for (String peer : node.getPeers()) {
+            try {
+                ClusterMessage response = node.send(peer, ClusterMessage.request(ClusterMessage.VALUES, name, null, null));
+                for (JsonNode json : response.getValues()) {
+                    action.accept(fromJson(json));
+                }
+            } catch (IllegalStateException e) {
+                log.warn("Skipping {} partition on {}: {}", name, peer, e.getMessage());
+            }
+        }
+    }
+}
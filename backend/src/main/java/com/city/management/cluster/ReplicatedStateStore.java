@@ -0,0 +1,59 @@
+package com.city.management.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Every node keeps a full copy; reads are local and writes fan out asynchronously to the
+ * peers, which suits small, broadcast-style data such as notifications.
+ */
+public class ReplicatedStateStore<V> extends ClusteredStateStore<V> {
+
+    ReplicatedStateStore(String name, Class<V> type, ClusterNode node, ObjectMapper objectMapper) {
+        super(name, type, node, objectMapper);
+    }
+
+    @Override
+    public Optional<V> get(String key) {
+        return Optional.ofNullable(local.get(key));
+    }
+
+    @Override
+    public void put(String key, V value) {
+        local.put(key, value);
+        node.broadcast(ClusterMessage.request(ClusterMessage.PUT, name, key, toJson(value)));
+    }
+
+    /**
+     * Only atomic on this node: two nodes can still both claim a key before hearing of each other.
+     */
+    @Override
+    public boolean putIfAbsent(String key, V value) {
+        if (local.putIfAbsent(key, value) != null) {
+            return false;
+        }
+        node.broadcast(ClusterMessage.request(ClusterMessage.PUT, name, key, toJson(value)));
+        return true;
+    }
+
+    @Override
+    public boolean remove(String key) {
+        boolean removed = local.remove(key) != null;
+        node.broadcast(ClusterMessage.request(ClusterMessage.REMOVE, name, key, null));
+        return removed;
+    }
+
+    @Override
+    public List<V> values() {
+        return new ArrayList<>(local.values());
+    }
+
+    @Override
+    public void forEach(Consumer<V> action) {
+        local.values().forEach(action);
+    }
+}
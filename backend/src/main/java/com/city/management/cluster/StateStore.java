@@ -0,0 +1,61 @@
+package com.city.management.cluster;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public interface StateStore<V> {
+
+    Optional<V> get(String key);
+
+    void put(String key, V value);
+
+    /**
+     * Stores the value unless the key is already present, returning whether it did. The check
+     * and the write happen as one step on the node that holds the key.
+     */
+    boolean putIfAbsent(String key, V value);
+
+    boolean remove(String key);
+
+    List<V> values();
+
+    default void putAll(Map<String, V> entries) {
+        entries.forEach(this::put);
+    }
+
+    /**
+     * {@link #putIfAbsent} for a batch, returning the keys that were already present.
+     */
+    default Set<String> putAllIfAbsent(Map<String, V> entries) {
+        Set<String> present = new HashSet<>();
+        entries.forEach((key, value) -> {
+            if (!putIfAbsent(key, value)) {
+                present.add(key);
+            }
+        });
+        return present;
+    }
+
+    default void forEach(Consumer<V> action) {
+        values().forEach(action);
+    }
+
+    /**
+     * Registers a callback for the key of every entry a peer writes into this node's copy. Local
+     * stores have no peers and never call it.
+     */
+    default void onRemotePut(Consumer<String> listener) {
+    }
+
+    /**
+     * Whether this node holds the key itself. Seed data is only written by the owning node so
+     * that startup does not depend on peers being up.
+     */
+    default boolean isOwnedLocally(String key) {
+        return true;
+    }
+}
@@ -0,0 +1,54 @@
+package com.city.management.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@Component
+public class StateStoreFactory {
+
+    @Autowired
+    private ClusterNode clusterNode;
+
+    @Value("${cluster.max-nodes:64}")
+    private int maxNodes;
+
+    @Value("${cluster.id-directory:data/cluster}")
+    private String idDirectory;
+
+    @Value("${cluster.id-block-size:1000}")
+    private int idBlockSize;
+
+    public <V> StateStore<V> partitioned(String name, Class<V> type) {
+        if (!clusterNode.isEnabled()) {
+            return new LocalStateStore<>();
+        }
+        PartitionedStateStore<V> store = new PartitionedStateStore<>(name, type, clusterNode, clusterNode.getObjectMapper());
+        clusterNode.register(store);
+        return store;
+    }
+
+    public <V> StateStore<V> replicated(String name, Class<V> type) {
+        if (!clusterNode.isEnabled()) {
+            return new LocalStateStore<>();
+        }
+        ReplicatedStateStore<V> store = new ReplicatedStateStore<>(name, type, clusterNode, clusterNode.getObjectMapper());
+        clusterNode.register(store);
+        return store;
+    }
+
+    /**
+     * Ids for the records of {@code name}. A clustered node keeps its high-water mark in
+     * {@code cluster.id-directory}, so that directory must survive restarts.
+     */
+    public IdGenerator idGenerator(String name, long initialValue) {
+        if (!clusterNode.isEnabled()) {
+            return new LocalIdGenerator(initialValue);
+        }
+        Path state = Paths.get(idDirectory, clusterNode.getNodeId() + "-" + name + ".ids");
+        return new InterleavedIdGenerator(initialValue, clusterNode.getNodeIndex(), maxNodes, state, idBlockSize);
+    }
+}
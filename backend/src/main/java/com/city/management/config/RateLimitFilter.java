@@ -0,0 +1,48 @@
+package com.city.management.config;
+
+import com.city.management.service.RateLimitService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RateLimitService rateLimitService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            String role = authentication.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .findFirst()
+                    .orElse(null);
+            long waitNanos = rateLimitService.acquire(
+                    request.getMethod(), request.getRequestURI(), authentication.getName(), role);
+
+            if (waitNanos > 0) {
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+                response.setStatus(429);
+                response.setHeader("Retry-After", Long.toString(retryAfter));
+                response.setContentType("application/json");
+                response.getWriter().write("{\"message\":\"Rate limit exceeded, retry in " + retryAfter + "s\"}");
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,26 @@
+package com.city.management.config;
+
+import com.city.management.tracing.TracingBeanPostProcessor;
+import com.city.management.tracing.TracingJsonConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+@Configuration
+public class TracingConfig {
+
+    // Static so that the post-processor is registered before the beans it proxies are created
+    @Bean
+    @ConditionalOnProperty(name = "tracing.enabled", havingValue = "true", matchIfMissing = true)
+    public static TracingBeanPostProcessor tracingBeanPostProcessor() {
+        return new TracingBeanPostProcessor();
+    }
+
+    // Takes the place of Spring Boot's JSON converter, with the same object mapper
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new TracingJsonConverter(objectMapper);
+    }
+}
@@ -0,0 +1,105 @@
+package com.city.management.config;
+
+import com.city.management.service.TracingService;
+import com.city.management.tracing.Trace;
+import com.city.management.tracing.Tracer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Starts the trace of a sampled request ahead of every other filter, so the root span covers
+ * authentication as well, and records it once the response is written. Long-polls and streamed
+ * responses are still running when their first dispatch returns: their trace is picked up again
+ * on the async dispatch that writes the result and recorded when the request completes.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TracingFilter extends OncePerRequestFilter {
+
+    private static final String TRACE_ATTRIBUTE = TracingFilter.class.getName() + ".trace";
+
+    @Autowired
+    private TracingService tracingService;
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        boolean resumed = isAsyncDispatch(request);
+        Trace trace = resumed ? (Trace) request.getAttribute(TRACE_ATTRIBUTE)
+                : tracingService.begin(request.getMethod(), request.getRequestURI());
+        if (trace == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Tracer.begin(trace);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Tracer.end();
+            if (request.isAsyncStarted() && !resumed) {
+                request.setAttribute(TRACE_ATTRIBUTE, trace);
+                request.getAsyncContext().addListener(new CompletionListener(trace, request, response));
+            } else if (!resumed) {
+                record(trace, request, response);
+            }
+        }
+    }
+
+    private void record(Trace trace, HttpServletRequest request, HttpServletResponse response) {
+        // Requests turned away before reaching a controller have no route pattern
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        trace.finish(request.getMethod() + " " + (pattern != null ? pattern : "(unmapped)"), response.getStatus());
+        tracingService.record(trace);
+    }
+
+    private final class CompletionListener implements AsyncListener {
+
+        private final Trace trace;
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+
+        private CompletionListener(Trace trace, HttpServletRequest request, HttpServletResponse response) {
+            this.trace = trace;
+            this.request = request;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(trace, request, response);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        // Listeners are dropped when a dispatch starts another async cycle, so stay registered
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.city.management.controller;
+
+import com.city.management.service.AnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @GetMapping("/correlation")
+    public ResponseEntity<?> getCorrelation(
+            @RequestParam String x,
+            @RequestParam String y,
+            @RequestParam(required = false) String xSensor,
+            @RequestParam(required = false) String ySensor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "0") int maxLag) {
+        try {
+            return ResponseEntity.ok(analyticsService.correlate(x, xSensor, y, ySensor, from, to, maxLag));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/correlation-matrix")
+    public ResponseEntity<?> getCorrelationMatrix(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(analyticsService.matrix(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/effect")
+    public ResponseEntity<?> getEffect(
+            @RequestParam String cause,
+            @RequestParam String effect,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "0") int lag,
+            @RequestParam(required = false) Double threshold) {
+        try {
+            return ResponseEntity.ok(analyticsService.effect(cause, effect, from, to, lag, threshold));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.city.management.controller;
 
+import com.city.management.audit.AuditAction;
 import com.city.management.model.JwtResponse;
 import com.city.management.model.LoginRequest;
 import com.city.management.model.RegisterRequest;
+import com.city.management.model.Role;
+import com.city.management.service.AuditService;
 import com.city.management.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -17,9 +21,13 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private AuditService auditService;
+
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
         Optional<JwtResponse> response = authService.login(loginRequest.getUsername(), loginRequest.getPassword());
+        auditService.record(AuditAction.LOGIN, response.isPresent(), loginRequest.getUsername(), null, null);
 
         if (response.isEmpty()) {
             return ResponseEntity.status(401).body(new ErrorResponse("Invalid username or password"));
@@ -28,9 +36,23 @@ public class AuthController {
         return ResponseEntity.ok(response.get());
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")
+                || !authService.logout(authorization.substring(7))) {
+            auditService.record(AuditAction.LOGOUT, false, null, null);
+            return ResponseEntity.status(400).body(new ErrorResponse("Missing or invalid token"));
+        }
+
+        auditService.record(AuditAction.LOGOUT, true, null, null);
+        return ResponseEntity.ok(Map.of("message", "Logged out successfully"));
+    }
+
     @PostMapping("/register/city-manager")
     public ResponseEntity<?> registerCityManager(@RequestBody RegisterRequest registerRequest) {
         Optional<JwtResponse> response = authService.registerCityManager(registerRequest);
+        auditService.record(AuditAction.REGISTER, response.isPresent(), registerRequest.getUsername(),
+                response.map(r -> "user:" + r.getUser().getId()).orElse(null), Role.ROLE_CITY_MANAGER.name());
 
         if (response.isEmpty()) {
             return ResponseEntity.status(400).body(new ErrorResponse("Username already exists"));
@@ -42,6 +64,8 @@ public class AuthController {
     @PostMapping("/register/service-provider-admin")
     public ResponseEntity<?> registerServiceProviderAdmin(@RequestBody RegisterRequest registerRequest) {
         Optional<JwtResponse> response = authService.registerServiceProviderAdmin(registerRequest);
+        auditService.record(AuditAction.REGISTER, response.isPresent(), registerRequest.getUsername(),
+                response.map(r -> "user:" + r.getUser().getId()).orElse(null), Role.ROLE_SERVICE_PROVIDER_ADMIN.name());
 
         if (response.isEmpty()) {
             return ResponseEntity.status(400).body(new ErrorResponse("Username already exists"));
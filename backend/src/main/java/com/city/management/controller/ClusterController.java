@@ -0,0 +1,30 @@
+package com.city.management.controller;
+
+import com.city.management.cluster.ClusterMessage;
+import com.city.management.cluster.ClusterNode;
+import com.city.management.cluster.HttpClusterTransport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/internal/cluster")
+public class ClusterController {
+
+    @Autowired
+    private ClusterNode clusterNode;
+
+    @PostMapping
+    public ResponseEntity<?> handle(
+            @RequestHeader(value = HttpClusterTransport.SECRET_HEADER, required = false) String secret,
+            @RequestBody ClusterMessage message) {
+        if (!clusterNode.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!clusterNode.checkSecret(secret)) {
+            return ResponseEntity.status(403).build();
+        }
+
+        return ResponseEntity.ok(clusterNode.handle(message));
+    }
+}
@@ -0,0 +1,31 @@
+package com.city.management.controller;
+
+import com.city.management.service.DemandService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/demand")
+public class DemandController {
+
+    @Autowired
+    private DemandService demandService;
+
+    @GetMapping
+    public ResponseEntity<?> getDemand(
+            @RequestParam(defaultValue = "morning") String timeOfDay,
+            @RequestParam(defaultValue = "clear") String weatherConditions,
+            @RequestParam(required = false) String mode,
+            @RequestParam(defaultValue = "10") int top) {
+        try {
+            return ResponseEntity.ok(demandService.report(timeOfDay, weatherConditions, mode, top));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(503).body(Map.of("message", e.getMessage()));
+        }
+    }
+}
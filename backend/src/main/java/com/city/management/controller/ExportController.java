@@ -0,0 +1,95 @@
+package com.city.management.controller;
+
+import com.city.management.service.ExportService;
+import com.city.management.simulation.SimulationIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    @GetMapping("/indicators")
+    public ResponseEntity<StreamingResponseBody> exportIndicators(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String recording,
+            @RequestParam(required = false) String mode,
+            @RequestParam(required = false) String sensorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportService.Format exportFormat = format(format);
+        // mode accepts a comma-separated list
+        Set<String> modes = mode == null ? null
+                : Arrays.stream(mode.split(",")).map(String::trim).filter(m -> !m.isEmpty()).collect(Collectors.toSet());
+        ExportService.ReadingFilter filter = new ExportService.ReadingFilter(recording, modes, sensorId, from, to);
+        exportService.recordingsFor(filter);
+
+        return stream("indicators", exportFormat, gzip, out -> exportService.exportReadings(filter, exportFormat, out));
+    }
+
+    @GetMapping("/simulations")
+    public ResponseEntity<StreamingResponseBody> exportSimulations(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String createdBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportService.Format exportFormat = format(format);
+        SimulationIndex.Filter filter = new SimulationIndex.Filter(status, type, createdBy, from, to);
+
+        return stream("simulations", exportFormat, gzip, out -> exportService.exportSimulations(filter, exportFormat, out));
+    }
+
+    private static ExportService.Format format(String format) {
+        return switch (format) {
+            case "csv" -> ExportService.Format.CSV;
+            case "ndjson" -> ExportService.Format.NDJSON;
+            default -> throw new IllegalArgumentException("format must be csv or ndjson");
+        };
+    }
+
+    /**
+     * Bad parameters, found before anything is streamed. The streaming methods cannot return a
+     * message body themselves, their response type being fixed to the stream.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<?> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> stream(String name, ExportService.Format format, boolean gzip,
+                                                                StreamingResponseBody body) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (format == ExportService.Format.CSV) {
+            response.contentType(MediaType.parseMediaType("text/csv"))
+                    .header("Content-Disposition", "attachment; filename=\"" + name + ".csv\"");
+        } else {
+            response.contentType(MediaType.parseMediaType("application/x-ndjson"));
+        }
+        if (!gzip) {
+            return response.body(body);
+        }
+        return response.header("Content-Encoding", "gzip").body(out -> {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 1 << 16);
+            body.writeTo(compressed);
+            compressed.finish();
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package com.city.management.controller;
+
+import com.city.management.service.HeatmapService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/heatmap")
+public class HeatmapController {
+
+    @Autowired
+    private HeatmapService heatmapService;
+
+    @GetMapping
+    public ResponseEntity<?> getInfo() {
+        return ResponseEntity.ok(heatmapService.getInfo());
+    }
+
+    @GetMapping("/tiles/{z}/{x}/{y}.{format}")
+    public ResponseEntity<?> getTile(
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @PathVariable String format,
+            @RequestParam(defaultValue = "live") String source,
+            @RequestParam(required = false) Long simulationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time) {
+        boolean simulation = "simulation".equals(source);
+        if (!simulation && !"live".equals(source)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Source must be live or simulation"));
+        }
+        if (simulation && simulationId == null) {
+            return ResponseEntity.badRequest().body(Map.of("message", "simulationId is required for simulation tiles"));
+        }
+
+        Optional<byte[]> tile;
+        try {
+            tile = heatmapService.getTile(z, x, y, format, simulation ? simulationId : null, time);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+        if (tile.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Finished runs never change; live tiles move with each hour's readings
+        CacheControl cacheControl = simulation || time != null
+                ? CacheControl.maxAge(Duration.ofHours(1))
+                : CacheControl.maxAge(Duration.ofSeconds(60));
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .contentType("png".equals(format) ? MediaType.IMAGE_PNG : MediaType.APPLICATION_OCTET_STREAM)
+                .body(tile.get());
+    }
+}
@@ -1,13 +1,23 @@
 package com.city.management.controller;
 
 import com.city.management.model.IndicatorData;
+import com.city.management.model.IndicatorForecast;
+import com.city.management.model.IndicatorReading;
+import com.city.management.service.ForecastService;
+import com.city.management.service.IndicatorBatchService;
+import com.city.management.service.IndicatorIngestService;
 import com.city.management.service.MockDataService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/indicators")
@@ -16,9 +26,67 @@ public class IndicatorController {
     @Autowired
     private MockDataService mockDataService;
 
+    @Autowired
+    private IndicatorIngestService indicatorIngestService;
+
+    @Autowired
+    private ForecastService forecastService;
+
+    @Autowired
+    private IndicatorBatchService indicatorBatchService;
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> getIndicatorBatch(
+            @RequestParam(required = false) String modes,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "json") String format) {
+        if (!"json".equals(format) && !"ndjson".equals(format)) {
+            throw new IllegalArgumentException("format must be json or ndjson");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        List<String> resolved = indicatorBatchService.resolveModes(modes);
+
+        boolean ndjson = "ndjson".equals(format);
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.parseMediaType("application/x-ndjson") : MediaType.APPLICATION_JSON)
+                .body(out -> indicatorBatchService.write(resolved, from, to, ndjson, out));
+    }
+
     @GetMapping("/{mode}")
     public ResponseEntity<IndicatorData> getIndicatorData(@PathVariable String mode) {
         // Valid modes: car, cycle, bus, train, tram, pedestrian, events, construction
         return ResponseEntity.ok(mockDataService.getIndicatorData(mode));
     }
+
+    @GetMapping("/{mode}/forecast")
+    public ResponseEntity<?> getForecast(
+            @PathVariable String mode,
+            @RequestParam(defaultValue = ForecastService.ALL_SENSORS) String sensorId) {
+        Optional<IndicatorForecast> forecast = forecastService.getForecast(mode, sensorId);
+
+        if (forecast.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(forecast.get());
+    }
+
+    @PostMapping("/{mode}/readings")
+    public ResponseEntity<?> ingestReadings(@PathVariable String mode, @RequestBody List<IndicatorReading> readings) {
+        try {
+            int accepted = indicatorIngestService.ingest(mode, readings);
+            return ResponseEntity.ok(Map.of("accepted", accepted));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // The batch endpoint streams, so its bad requests are thrown and answered here
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<?> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
 }
@@ -0,0 +1,56 @@
+package com.city.management.controller;
+
+import com.city.management.service.JourneyPlannerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/journeys")
+public class JourneyController {
+
+    private static final Set<String> STREET_MODES = Set.of("walk", "cycle");
+
+    @Autowired
+    private JourneyPlannerService journeyPlannerService;
+
+    @GetMapping
+    public ResponseEntity<?> planJourney(
+            @RequestParam double fromLat,
+            @RequestParam double fromLon,
+            @RequestParam double toLat,
+            @RequestParam double toLon,
+            @RequestParam(required = false) String departAt,
+            @RequestParam(defaultValue = "walk") String access,
+            @RequestParam(defaultValue = "walk") String egress,
+            @RequestParam(defaultValue = "4") int maxTransfers,
+            @RequestParam(defaultValue = "pareto") String criteria) {
+        if (!journeyPlannerService.isAvailable()) {
+            return ResponseEntity.status(503).body(Map.of("message", "Journey planning is not available"));
+        }
+        if (!STREET_MODES.contains(access) || !STREET_MODES.contains(egress)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Access and egress must be walk or cycle"));
+        }
+        if (!"pareto".equals(criteria) && !"earliest".equals(criteria)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Criteria must be pareto or earliest"));
+        }
+        if (maxTransfers < 0) {
+            return ResponseEntity.badRequest().body(Map.of("message", "maxTransfers must not be negative"));
+        }
+
+        int departure;
+        try {
+            departure = (departAt != null ? LocalTime.parse(departAt) : LocalTime.now()).toSecondOfDay();
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "departAt must be HH:mm or HH:mm:ss"));
+        }
+
+        return ResponseEntity.ok(journeyPlannerService.plan(fromLat, fromLon, toLat, toLon, departure,
+                access, egress, maxTransfers, "earliest".equals(criteria)));
+    }
+}
@@ -1,11 +1,14 @@
 package com.city.management.controller;
 
 import com.city.management.model.Notification;
-import com.city.management.service.MockDataService;
+import com.city.management.service.NotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -15,16 +18,48 @@ import java.util.Optional;
 public class NotificationController {
 
     @Autowired
-    private MockDataService mockDataService;
+    private NotificationService notificationService;
 
     @GetMapping
     public ResponseEntity<List<Notification>> getAllNotifications() {
-        return ResponseEntity.ok(mockDataService.getAllNotifications());
+        return ResponseEntity.ok(notificationService.getAllNotifications());
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "all") String source,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        int kindMask = switch (source) {
+            case "all" -> 1 << NotificationService.NOTIFICATION | 1 << NotificationService.ALERT;
+            case "notifications" -> 1 << NotificationService.NOTIFICATION;
+            case "alerts" -> 1 << NotificationService.ALERT;
+            default -> 0;
+        };
+        if (kindMask == 0) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Source must be all, notifications or alerts"));
+        }
+        if (limit < 1 || limit > 100) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Limit must be between 1 and 100"));
+        }
+        try {
+            return ResponseEntity.ok(notificationService.search(q, kindMask, authentication.getName(), from, to, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/pipeline")
+    public ResponseEntity<Map<String, Object>> getPipelineMetrics() {
+        return ResponseEntity.ok(notificationService.getPipelineMetrics());
     }
 
     @PutMapping("/{id}/read")
     public ResponseEntity<?> markAsRead(@PathVariable Long id) {
-        Optional<Notification> notification = mockDataService.markNotificationAsRead(id);
+        Optional<Notification> notification = notificationService.markNotificationAsRead(id);
 
         if (notification.isEmpty()) {
             return ResponseEntity.notFound().build();
@@ -35,7 +70,7 @@ public class NotificationController {
 
     @PutMapping("/mark-all-read")
     public ResponseEntity<?> markAllAsRead() {
-        mockDataService.markAllNotificationsAsRead();
+        notificationService.markAllNotificationsAsRead();
         return ResponseEntity.ok(Map.of("message", "All notifications marked as read"));
     }
 }
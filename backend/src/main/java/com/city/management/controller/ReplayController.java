@@ -0,0 +1,77 @@
+package com.city.management.controller;
+
+import com.city.management.service.RecordingService;
+import com.city.management.service.ReplayService;
+import com.city.management.simulation.TrafficModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/replay")
+public class ReplayController {
+
+    @Autowired
+    private RecordingService recordingService;
+
+    @Autowired
+    private ReplayService replayService;
+
+    @GetMapping("/recordings")
+    public ResponseEntity<?> getRecordings() {
+        return ResponseEntity.ok(recordingService.list());
+    }
+
+    @PostMapping("/recordings")
+    public ResponseEntity<?> startRecording(@RequestBody Map<String, Object> request) {
+        try {
+            Object name = request.get("name");
+            return ResponseEntity.ok(recordingService.start(name == null ? null : name.toString()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/recordings/stop")
+    public ResponseEntity<?> stopRecording() {
+        try {
+            return ResponseEntity.ok(recordingService.stop());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getStatus() {
+        return ResponseEntity.ok(replayService.getStatus());
+    }
+
+    @PostMapping("/start")
+    public ResponseEntity<?> startReplay(@RequestBody Map<String, Object> request) {
+        try {
+            Object recording = request.get("recording");
+            double speed = TrafficModel.doubleParameter(request, "speed", 1);
+            boolean loop = Boolean.parseBoolean(String.valueOf(request.getOrDefault("loop", false)));
+            int parallelism = TrafficModel.intParameter(request, "parallelism", 1);
+            return ResponseEntity.ok(replayService.start(recording == null ? null : recording.toString(),
+                    speed, loop, parallelism));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/stop")
+    public ResponseEntity<?> stopReplay() {
+        try {
+            return ResponseEntity.ok(replayService.stop());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("message", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.city.management.controller;
+
+import com.city.management.model.RouteResult;
+import com.city.management.routing.RouteMetric;
+import com.city.management.service.RouteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/routes")
+public class RouteController {
+
+    @Autowired
+    private RouteService routeService;
+
+    @GetMapping
+    public ResponseEntity<?> getRoute(
+            @RequestParam int from,
+            @RequestParam int to,
+            @RequestParam(defaultValue = "fastest") String metric) {
+        if (!routeService.isAvailable()) {
+            return ResponseEntity.status(503).body(Map.of("message", "Routing is not available"));
+        }
+
+        RouteMetric routeMetric;
+        try {
+            routeMetric = RouteMetric.valueOf(metric.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Metric must be fastest or shortest"));
+        }
+
+        Optional<RouteResult> route;
+        try {
+            route = routeService.route(from, to, routeMetric);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+
+        if (route.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(route.get());
+    }
+}
@@ -1,14 +1,24 @@
 package com.city.management.controller;
 
+import com.city.management.audit.AuditAction;
+import com.city.management.model.CursorPage;
 import com.city.management.model.Simulation;
+import com.city.management.model.SimulationSummary;
+import com.city.management.service.AuditService;
 import com.city.management.service.MockDataService;
+import com.city.management.simulation.SimulationIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/simulations")
@@ -17,23 +27,120 @@ public class SimulationController {
     @Autowired
     private MockDataService mockDataService;
 
+    @Autowired
+    private AuditService auditService;
+
     @GetMapping
     public ResponseEntity<List<Simulation>> getAllSimulations() {
         return ResponseEntity.ok(mockDataService.getAllSimulations());
     }
 
+    @GetMapping("/history")
+    public ResponseEntity<?> getSimulationHistory(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String createdBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "summary") String view) {
+        SimulationIndex.SortField sortField = switch (sort) {
+            case "createdAt" -> SimulationIndex.SortField.CREATED_AT;
+            case "completedAt" -> SimulationIndex.SortField.COMPLETED_AT;
+            default -> null;
+        };
+        if (sortField == null) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Sort must be createdAt or completedAt"));
+        }
+        if (!"asc".equals(order) && !"desc".equals(order)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Order must be asc or desc"));
+        }
+        if (limit < 1 || limit > 500) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Limit must be between 1 and 500"));
+        }
+        if (!"summary".equals(view) && !"full".equals(view)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "View must be summary or full"));
+        }
+
+        CursorPage<Simulation> page;
+        try {
+            page = mockDataService.findSimulations(new SimulationIndex.Filter(status, type, createdBy, from, to),
+                    sortField, "desc".equals(order), limit, cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+
+        if ("full".equals(view)) {
+            return ResponseEntity.ok(page);
+        }
+        return ResponseEntity.ok(new CursorPage<>(
+                page.getItems().stream().map(SimulationSummary::of).toList(), page.getNextCursor()));
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<?>> getSimulation(
+            @PathVariable Long id,
+            @RequestParam(required = false) String waitFor,
+            @RequestParam(defaultValue = "30") long timeout) {
+        if (waitFor == null) {
+            return CompletableFuture.completedFuture(toResponse(mockDataService.getSimulation(id)));
+        }
+        if (!"completed".equals(waitFor)) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(Map.of("message", "waitFor must be completed")));
+        }
+
+        try {
+            return mockDataService.awaitCompletion(id, Duration.ofSeconds(timeout)).thenApply(this::toResponse);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("message", e.getMessage())));
+        }
+    }
+
     @PostMapping("/run")
-    public ResponseEntity<Simulation> runSimulation(
+    public ResponseEntity<?> runSimulation(
+            @RequestBody Map<String, Object> parameters,
+            Authentication authentication) {
+        String username = authentication != null ? authentication.getName() : "anonymous";
+        try {
+            Simulation simulation = mockDataService.runSimulation(parameters, username);
+            auditService.record(AuditAction.SIMULATION_RUN, true, username, "simulation:" + simulation.getId(),
+                    simulation.getType());
+            return ResponseEntity.ok(simulation);
+        } catch (IllegalArgumentException e) {
+            auditService.record(AuditAction.SIMULATION_RUN, false, username, null, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/derive")
+    public ResponseEntity<?> deriveSimulation(
+            @PathVariable Long id,
             @RequestBody Map<String, Object> parameters,
+            @RequestParam(defaultValue = "0") int changeFromMinute,
             Authentication authentication) {
         String username = authentication != null ? authentication.getName() : "anonymous";
-        Simulation simulation = mockDataService.runSimulation(parameters, username);
-        return ResponseEntity.ok(simulation);
+        try {
+            Optional<Simulation> simulation = mockDataService.deriveSimulation(id, parameters, changeFromMinute, username);
+            auditService.record(AuditAction.SIMULATION_DERIVE, simulation.isPresent(), username,
+                    simulation.map(s -> "simulation:" + s.getId()).orElse(null), "parent=" + id);
+            return toResponse(simulation);
+        } catch (IllegalArgumentException e) {
+            auditService.record(AuditAction.SIMULATION_DERIVE, false, username, null, "parent=" + id);
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            auditService.record(AuditAction.SIMULATION_DERIVE, false, username, null, "parent=" + id);
+            return ResponseEntity.status(409).body(Map.of("message", e.getMessage()));
+        }
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteSimulation(@PathVariable Long id) {
         boolean deleted = mockDataService.deleteSimulation(id);
+        auditService.record(AuditAction.SIMULATION_DELETE, deleted, "simulation:" + id, null);
 
         if (!deleted) {
             return ResponseEntity.notFound().build();
@@ -41,4 +148,11 @@ public class SimulationController {
 
         return ResponseEntity.ok(Map.of("message", "Simulation deleted successfully"));
     }
+
+    private ResponseEntity<?> toResponse(Optional<Simulation> simulation) {
+        if (simulation.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(simulation.get());
+    }
 }
@@ -2,10 +2,14 @@ package com.city.management.controller;
 
 import com.city.management.model.SystemStatus;
 import com.city.management.service.MockDataService;
+import com.city.management.service.RateLimitService;
+import com.city.management.service.StartupService;
+import com.city.management.service.TracingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
@@ -17,6 +21,15 @@ public class SystemController {
     @Autowired
     private MockDataService mockDataService;
 
+    @Autowired
+    private RateLimitService rateLimitService;
+
+    @Autowired
+    private StartupService startupService;
+
+    @Autowired
+    private TracingService tracingService;
+
     @GetMapping("/status")
     public ResponseEntity<SystemStatus> getSystemStatus() {
         return ResponseEntity.ok(mockDataService.getSystemStatus());
@@ -24,6 +37,36 @@ public class SystemController {
 
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> getSystemHealth() {
-        return ResponseEntity.ok(mockDataService.getSystemHealth());
+        Map<String, Object> health = mockDataService.getSystemHealth();
+        // Load balancers hold traffic back while subsystems are still starting
+        return ResponseEntity.status("STARTING".equals(health.get("status")) ? 503 : 200).body(health);
+    }
+
+    @GetMapping("/startup")
+    public ResponseEntity<?> getStartup(@RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(startupService.getReport(limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/traces")
+    public ResponseEntity<?> getTraces(@RequestParam(required = false) String route,
+                                       @RequestParam(defaultValue = "5") int limit) {
+        try {
+            return ResponseEntity.ok(tracingService.query(route, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(503).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/rate-limits")
+    public ResponseEntity<Map<String, Object>> getRateLimits() {
+        return ResponseEntity.ok(Map.of(
+                "rules", rateLimitService.getMetrics(),
+                "activeBuckets", rateLimitService.getActiveBuckets()));
     }
 }
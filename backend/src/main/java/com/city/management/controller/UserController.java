@@ -1,13 +1,21 @@
 package com.city.management.controller;
 
+import com.city.management.audit.AuditAction;
+import com.city.management.model.BulkImportResult;
 import com.city.management.model.JwtResponse;
 import com.city.management.model.Role;
 import com.city.management.model.User;
+import com.city.management.service.AuditService;
+import com.city.management.service.UserBulkService;
 import com.city.management.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -20,6 +28,12 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserBulkService userBulkService;
+
+    @Autowired
+    private AuditService auditService;
+
     @GetMapping
     public ResponseEntity<List<JwtResponse.UserDTO>> getAllUsers() {
         List<JwtResponse.UserDTO> users = userService.findAll().stream()
@@ -30,17 +44,49 @@ public class UserController {
 
     @PostMapping("/service-provider")
     public ResponseEntity<?> createServiceProviderUser(@RequestBody CreateUserRequest request) {
-        User user = userService.createUser(
+        Optional<User> created = userService.createUser(
                 request.getUsername(),
                 request.getPassword(),
                 request.getEmail(),
                 request.getName(),
                 Role.ROLE_SERVICE_PROVIDER_USER
         );
+        if (created.isEmpty()) {
+            auditService.record(AuditAction.USER_CREATE, false, null, Role.ROLE_SERVICE_PROVIDER_USER.name());
+            return ResponseEntity.badRequest().body(Map.of("message", "Username already exists"));
+        }
+        User user = created.get();
+        auditService.record(AuditAction.USER_CREATE, true, "user:" + user.getId(), user.getRole().name());
 
         return ResponseEntity.ok(JwtResponse.UserDTO.fromUser(user));
     }
 
+    @PostMapping(value = "/service-provider/bulk", consumes = "text/csv")
+    public ResponseEntity<BulkImportResult> importServiceProviderUsersCsv(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(audited(userBulkService.importCsv(request.getInputStream())));
+    }
+
+    @PostMapping(value = "/service-provider/bulk", consumes = "application/x-ndjson")
+    public ResponseEntity<BulkImportResult> importServiceProviderUsersNdjson(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(audited(userBulkService.importNdjson(request.getInputStream())));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "csv") String format) {
+        if ("ndjson".equals(format)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                    .body(userBulkService::exportNdjson);
+        }
+        if (!"csv".equals(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .header("Content-Disposition", "attachment; filename=\"users.csv\"")
+                .body(userBulkService::exportCsv);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateUser(@PathVariable Long id, @RequestBody UpdateUserRequest request) {
         User updatedUser = new User();
@@ -52,6 +98,8 @@ public class UserController {
         updatedUser.setActive(request.isActive());
 
         Optional<User> result = userService.updateUser(id, updatedUser);
+        auditService.record(AuditAction.USER_UPDATE, result.isPresent(), "user:" + id,
+                "role=" + request.getRole() + " active=" + request.isActive());
 
         if (result.isEmpty()) {
             return ResponseEntity.notFound().build();
@@ -63,6 +111,7 @@ public class UserController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteUser(@PathVariable Long id) {
         boolean deleted = userService.deleteUser(id);
+        auditService.record(AuditAction.USER_DELETE, deleted, "user:" + id, null);
 
         if (!deleted) {
             return ResponseEntity.notFound().build();
@@ -71,6 +120,12 @@ public class UserController {
         return ResponseEntity.ok(Map.of("message", "User deleted successfully"));
     }
 
+    private BulkImportResult audited(BulkImportResult result) {
+        auditService.record(AuditAction.USER_IMPORT, result.getCreated() > 0, null,
+                "created=" + result.getCreated() + " failed=" + result.getFailed());
+        return result;
+    }
+
     // Request DTOs
     public static class CreateUserRequest {
         private String username;
@@ -0,0 +1,114 @@
+package com.city.management.demand;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calibrates origin-destination matrices from observed counts. Every counting sensor is taken
+ * as the trip ends per hour of its zone; zones without a sensor get the observed rate per road
+ * node times their own node count. In the morning the edge of the city produces more trips and
+ * the centre attracts more, in the evening the other way round, by up to {@code asymmetry}.
+ *
+ * The seed matrix of a mode is its distance decay between zones. It is built once per mode and
+ * weather and shared by the fits of all time slices, which run in parallel.
+ */
+public class DemandCalibrator {
+
+    /**
+     * Modes demand is calibrated for and how quickly their trips thin out, per kilometre.
+     */
+    public static final Map<String, Double> DECAY_PER_KM = new LinkedHashMap<>();
+
+    static {
+        DECAY_PER_KM.put("car", 0.12);
+        DECAY_PER_KM.put("bus", 0.20);
+        DECAY_PER_KM.put("tram", 0.20);
+        DECAY_PER_KM.put("train", 0.06);
+        DECAY_PER_KM.put("cycle", 0.35);
+        DECAY_PER_KM.put("pedestrian", 1.20);
+    }
+
+    private final ZoneSystem zones;
+    private final int maxIterations;
+    private final double tolerance;
+    private final double asymmetry;
+
+    public DemandCalibrator(ZoneSystem zones, int maxIterations, double tolerance, double asymmetry) {
+        this.zones = zones;
+        this.maxIterations = maxIterations;
+        this.tolerance = tolerance;
+        this.asymmetry = asymmetry;
+    }
+
+    /**
+     * Matrices for every time slice under {@code weather}, per mode. {@code observed} holds, per
+     * mode and slice, the counted trip ends per hour of each zone, NaN where no sensor counts;
+     * modes with nothing observed are left out.
+     */
+    public Map<TimeSlice, Map<String, OdMatrix>> calibrate(Map<String, Map<TimeSlice, double[]>> observed,
+                                                           Weather weather) {
+        Map<TimeSlice, Map<String, OdMatrix>> result = new EnumMap<>(TimeSlice.class);
+        for (TimeSlice slice : TimeSlice.values()) {
+            result.put(slice, new LinkedHashMap<>());
+        }
+        for (Map.Entry<String, Double> mode : DECAY_PER_KM.entrySet()) {
+            Map<TimeSlice, double[]> counts = observed.get(mode.getKey());
+            if (counts == null) {
+                continue;
+            }
+            double beta = mode.getValue() * weather.decay(mode.getKey());
+            double generation = weather.generation(mode.getKey());
+            float[] seed = zones.deterrence(beta);
+
+            List<TimeSlice> slices = Arrays.stream(TimeSlice.values()).filter(counts::containsKey).toList();
+            OdMatrix[] fitted = slices.parallelStream()
+                    .map(slice -> fit(seed, beta, counts.get(slice), generation, slice))
+                    .toArray(OdMatrix[]::new);
+            for (int s = 0; s < fitted.length; s++) {
+                if (fitted[s] != null) {
+                    result.get(slices.get(s)).put(mode.getKey(), fitted[s]);
+                }
+            }
+        }
+        return result;
+    }
+
+    private OdMatrix fit(float[] seed, double beta, double[] counts, double generation, TimeSlice slice) {
+        int n = zones.size();
+        double observedTrips = 0;
+        long observedNodes = 0;
+        for (int zone = 0; zone < n; zone++) {
+            if (!Double.isNaN(counts[zone])) {
+                observedTrips += counts[zone];
+                observedNodes += zones.nodes(zone);
+            }
+        }
+        if (observedNodes == 0 || observedTrips <= 0) {
+            return null;
+        }
+        double perNode = observedTrips / observedNodes;
+
+        double[] origins = new double[n];
+        double[] destinations = new double[n];
+        double originTotal = 0;
+        double destinationTotal = 0;
+        for (int zone = 0; zone < n; zone++) {
+            double ends = generation * (Double.isNaN(counts[zone]) ? perNode * zones.nodes(zone) : counts[zone]);
+            double lean = asymmetry * slice.inbound() * (2 * zones.radius(zone) - 1);
+            origins[zone] = ends * (1 + lean);
+            destinations[zone] = ends * (1 - lean);
+            originTotal += origins[zone];
+            destinationTotal += destinations[zone];
+        }
+        for (int zone = 0; zone < n; zone++) {
+            destinations[zone] *= originTotal / destinationTotal;
+        }
+
+        ProportionalFitting.Result result =
+                ProportionalFitting.fit(seed, n, origins, destinations, maxIterations, tolerance);
+        return new OdMatrix(zones, beta, result, originTotal);
+    }
+}
@@ -0,0 +1,91 @@
+package com.city.management.demand;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Calibrated origin-destination matrix of one mode and time slice, in trips per hour. It is
+ * held as the fitted row and column factors over the mode's distance decay, so a cached matrix
+ * takes two vectors rather than a dense n by n array; cells are worked out when asked for.
+ */
+public class OdMatrix {
+
+    private static final Comparator<Pair> BY_TRIPS = Comparator.comparingDouble(Pair::trips);
+
+    private final ZoneSystem zones;
+    private final double beta;
+    private final double[] rowFactors;
+    private final double[] columnFactors;
+    private final double total;
+    private final int iterations;
+    private final double maxError;
+
+    public OdMatrix(ZoneSystem zones, double beta, ProportionalFitting.Result fit, double total) {
+        this.zones = zones;
+        this.beta = beta;
+        this.rowFactors = fit.rowFactors();
+        this.columnFactors = fit.columnFactors();
+        this.total = total;
+        this.iterations = fit.iterations();
+        this.maxError = fit.maxError();
+    }
+
+    public double trips(int origin, int destination) {
+        return rowFactors[origin] * columnFactors[destination] * zones.deterrence(beta, origin, destination);
+    }
+
+    public double total() {
+        return total;
+    }
+
+    public int iterations() {
+        return iterations;
+    }
+
+    public double maxError() {
+        return maxError;
+    }
+
+    /**
+     * The {@code limit} busiest origin-destination pairs, busiest first.
+     */
+    public List<Pair> top(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        int n = rowFactors.length;
+        double maxColumn = 0;
+        for (double factor : columnFactors) {
+            maxColumn = Math.max(maxColumn, factor);
+        }
+
+        PriorityQueue<Pair> best = new PriorityQueue<>(BY_TRIPS);
+        for (int i = 0; i < n; i++) {
+            // Deterrence is at most 1, so a row whose factors cannot beat the current cut is skipped
+            if (rowFactors[i] == 0 || (best.size() == limit && rowFactors[i] * maxColumn <= best.peek().trips())) {
+                continue;
+            }
+            for (int j = 0; j < n; j++) {
+                double trips = trips(i, j);
+                if (trips <= 0) {
+                    continue;
+                }
+                if (best.size() == limit) {
+                    if (trips <= best.peek().trips()) {
+                        continue;
+                    }
+                    best.poll();
+                }
+                best.add(new Pair(i, j, trips));
+            }
+        }
+        List<Pair> pairs = new ArrayList<>(best);
+        pairs.sort(BY_TRIPS.reversed());
+        return pairs;
+    }
+
+    public record Pair(int origin, int destination, double trips) {
+    }
+}
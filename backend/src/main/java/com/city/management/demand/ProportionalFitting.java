@@ -0,0 +1,79 @@
+package com.city.management.demand;
+
+import java.util.Arrays;
+
+/**
+ * Doubly constrained iterative proportional fitting (the Furness method). The fitted matrix is
+ * {@code a[i] * b[j] * seed[i][j]}: row factors are set so every row sums to its origin total,
+ * then column factors so every column sums to its destination total, until the rows still
+ * match after the column step. Only the two factor vectors change, so the dense seed matrix is
+ * read but never copied, and several fits can share it.
+ */
+public final class ProportionalFitting {
+
+    private ProportionalFitting() {
+    }
+
+    /**
+     * Fits factors to {@code seed}, an n by n row-major matrix. The destination totals must add
+     * up to the origin totals. Stops after {@code maxIterations} or once no row is off by more
+     * than {@code tolerance}, relative to its total.
+     */
+    public static Result fit(float[] seed, int n, double[] origins, double[] destinations,
+                             int maxIterations, double tolerance) {
+        double[] a = new double[n];
+        double[] b = new double[n];
+        for (int j = 0; j < n; j++) {
+            b[j] = destinations[j] > 0 ? 1 : 0;
+        }
+        double[] columnSums = new double[n];
+
+        int iteration = 0;
+        double error = Double.POSITIVE_INFINITY;
+        while (iteration < maxIterations) {
+            iteration++;
+            error = 0;
+            for (int i = 0; i < n; i++) {
+                if (origins[i] <= 0) {
+                    a[i] = 0;
+                    continue;
+                }
+                int row = i * n;
+                double sum = 0;
+                for (int j = 0; j < n; j++) {
+                    sum += seed[row + j] * b[j];
+                }
+                if (iteration > 1) {
+                    error = Math.max(error, Math.abs(a[i] * sum - origins[i]) / origins[i]);
+                }
+                a[i] = sum > 0 ? origins[i] / sum : 0;
+            }
+            if (iteration > 1 && error <= tolerance) {
+                break;
+            }
+
+            // Column sums walk the matrix row by row, so the seed is always read in order
+            Arrays.fill(columnSums, 0);
+            for (int i = 0; i < n; i++) {
+                double factor = a[i];
+                if (factor == 0) {
+                    continue;
+                }
+                int row = i * n;
+                for (int j = 0; j < n; j++) {
+                    columnSums[j] += factor * seed[row + j];
+                }
+            }
+            for (int j = 0; j < n; j++) {
+                b[j] = destinations[j] > 0 && columnSums[j] > 0 ? destinations[j] / columnSums[j] : 0;
+            }
+        }
+        return new Result(a, b, iteration, iteration > 1 ? error : Double.NaN);
+    }
+
+    /**
+     * Row and column factors, the iterations taken and the largest relative row error left.
+     */
+    public record Result(double[] rowFactors, double[] columnFactors, int iterations, double maxError) {
+    }
+}
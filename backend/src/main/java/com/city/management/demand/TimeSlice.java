@@ -0,0 +1,45 @@
+package com.city.management.demand;
+
+/**
+ * Parts of the day demand is calibrated for, as the {@code timeOfDay} simulation parameter
+ * names them. Morning trips lean from the edge of the city towards its centre and evening trips
+ * the other way; midday and night are symmetric.
+ */
+public enum TimeSlice {
+    MORNING(6, 4, 1),
+    MIDDAY(10, 6, 0),
+    EVENING(16, 4, -1),
+    NIGHT(20, 10, 0);
+
+    private final int firstHour;
+    private final int hours;
+    private final int inbound;
+
+    TimeSlice(int firstHour, int hours, int inbound) {
+        this.firstHour = firstHour;
+        this.hours = hours;
+        this.inbound = inbound;
+    }
+
+    /**
+     * Whether hour of day {@code hour} (0-23) falls in this slice.
+     */
+    public boolean contains(int hour) {
+        return Math.floorMod(hour - firstHour, 24) < hours;
+    }
+
+    /**
+     * 1 if trips lean towards the centre, -1 if away from it, 0 if neither.
+     */
+    public int inbound() {
+        return inbound;
+    }
+
+    public static TimeSlice parse(String value) {
+        try {
+            return valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("timeOfDay must be morning, midday, evening or night");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.city.management.demand;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Weather as the {@code weatherConditions} simulation parameter names it, and how it shifts
+ * demand: how many trips each mode attracts relative to clear weather, and how much faster the
+ * willingness to travel falls with distance for modes exposed to it.
+ */
+public enum Weather {
+    CLEAR(Map.of(), 1.0),
+    RAIN(Map.of("car", 1.05, "bus", 1.10, "tram", 1.10, "train", 1.05, "cycle", 0.60, "pedestrian", 0.75), 1.3),
+    SNOW(Map.of("car", 0.85, "bus", 1.00, "tram", 1.00, "train", 1.05, "cycle", 0.30, "pedestrian", 0.60), 1.6),
+    FOG(Map.of("car", 0.95, "cycle", 0.90), 1.1);
+
+    private static final Set<String> EXPOSED = Set.of("cycle", "pedestrian");
+
+    private final Map<String, Double> generation;
+    private final double exposedDecay;
+
+    Weather(Map<String, Double> generation, double exposedDecay) {
+        this.generation = generation;
+        this.exposedDecay = exposedDecay;
+    }
+
+    /**
+     * Trips of {@code mode} relative to clear weather.
+     */
+    public double generation(String mode) {
+        return generation.getOrDefault(mode, 1.0);
+    }
+
+    /**
+     * Factor on {@code mode}'s distance decay.
+     */
+    public double decay(String mode) {
+        return EXPOSED.contains(mode) ? exposedDecay : 1.0;
+    }
+
+    public static Weather parse(String value) {
+        try {
+            return valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("weatherConditions must be clear, rain, snow or fog");
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.city.management.demand;
+
+import com.city.management.routing.RoadGraph;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Traffic zones cut from the road graph: a square grid over the network, keeping only the cells
+ * that contain at least one node. A zone's centroid is the mean position of its nodes and its
+ * node count stands in for how much activity it holds. Positions are kept as kilometres on a
+ * local flat projection, which is accurate enough at city scale.
+ */
+public class ZoneSystem {
+
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final RoadGraph graph;
+    private final double cellKm;
+    private final int[] zoneOfNode;
+    private final int[] rows;
+    private final int[] cols;
+    private final double[] x;
+    private final double[] y;
+    private final double[] lat;
+    private final double[] lon;
+    private final int[] nodes;
+    private final double[] radius;
+
+    public ZoneSystem(RoadGraph graph, double cellMeters) {
+        this.graph = graph;
+        this.cellKm = cellMeters / 1000;
+        int nodeCount = graph.nodeCount();
+        double minLat = Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        for (int u = 0; u < nodeCount; u++) {
+            minLat = Math.min(minLat, graph.lat(u));
+            minLon = Math.min(minLon, graph.lon(u));
+            maxLat = Math.max(maxLat, graph.lat(u));
+        }
+        double kmPerLon = KM_PER_DEGREE * Math.cos(Math.toRadians((minLat + maxLat) / 2));
+
+        int width = 0;
+        double[] nodeX = new double[nodeCount];
+        double[] nodeY = new double[nodeCount];
+        for (int u = 0; u < nodeCount; u++) {
+            nodeX[u] = (graph.lon(u) - minLon) * kmPerLon;
+            nodeY[u] = (graph.lat(u) - minLat) * KM_PER_DEGREE;
+            width = Math.max(width, (int) (nodeX[u] / cellKm) + 1);
+        }
+        // Zone numbers follow the order cells are first seen in, so they only depend on the graph
+        Map<Long, Integer> cells = new HashMap<>();
+        zoneOfNode = new int[nodeCount];
+        for (int u = 0; u < nodeCount; u++) {
+            long cell = (long) (nodeY[u] / cellKm) * width + (int) (nodeX[u] / cellKm);
+            zoneOfNode[u] = cells.computeIfAbsent(cell, c -> cells.size());
+        }
+
+        int n = cells.size();
+        rows = new int[n];
+        cols = new int[n];
+        x = new double[n];
+        y = new double[n];
+        lat = new double[n];
+        lon = new double[n];
+        nodes = new int[n];
+        for (Map.Entry<Long, Integer> cell : cells.entrySet()) {
+            rows[cell.getValue()] = (int) (cell.getKey() / width);
+            cols[cell.getValue()] = (int) (cell.getKey() % width);
+        }
+        for (int u = 0; u < nodeCount; u++) {
+            int zone = zoneOfNode[u];
+            x[zone] += nodeX[u];
+            y[zone] += nodeY[u];
+            lat[zone] += graph.lat(u);
+            lon[zone] += graph.lon(u);
+            nodes[zone]++;
+        }
+        double centreX = 0, centreY = 0;
+        for (int zone = 0; zone < n; zone++) {
+            centreX += x[zone];
+            centreY += y[zone];
+            x[zone] /= nodes[zone];
+            y[zone] /= nodes[zone];
+            lat[zone] /= nodes[zone];
+            lon[zone] /= nodes[zone];
+        }
+        centreX /= Math.max(1, nodeCount);
+        centreY /= Math.max(1, nodeCount);
+
+        radius = new double[n];
+        double farthest = 0;
+        for (int zone = 0; zone < n; zone++) {
+            radius[zone] = Math.hypot(x[zone] - centreX, y[zone] - centreY);
+            farthest = Math.max(farthest, radius[zone]);
+        }
+        for (int zone = 0; zone < n; zone++) {
+            radius[zone] = farthest > 0 ? radius[zone] / farthest : 0;
+        }
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Zone of the node a sensor is pinned to, the same node the heatmap places it on.
+     */
+    public int zoneOfSensor(String sensorId) {
+        return zoneOfNode[graph.anchorNode(sensorId)];
+    }
+
+    public int nodes(int zone) {
+        return nodes[zone];
+    }
+
+    /**
+     * Distance of the zone from the centre of the network, from 0 at the centre to 1 at the
+     * farthest zone.
+     */
+    public double radius(int zone) {
+        return radius[zone];
+    }
+
+    public double lat(int zone) {
+        return lat[zone];
+    }
+
+    public double lon(int zone) {
+        return lon[zone];
+    }
+
+    public String id(int zone) {
+        return rows[zone] + "-" + cols[zone];
+    }
+
+    /**
+     * Straight-line distance between zone centroids. Trips within a zone are taken to cover half
+     * a cell.
+     */
+    public double distanceKm(int from, int to) {
+        return from == to ? cellKm / 2 : Math.hypot(x[from] - x[to], y[from] - y[to]);
+    }
+
+    /**
+     * Dense row-major matrix of exp(-beta * distance) between every pair of zones, the share of
+     * trips that still happen at each distance.
+     */
+    public float[] deterrence(double beta) {
+        int n = size();
+        float[] matrix = new float[n * n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int row = i * n;
+            for (int j = 0; j < n; j++) {
+                matrix[row + j] = deterrence(beta, i, j);
+            }
+        });
+        return matrix;
+    }
+
+    public float deterrence(double beta, int from, int to) {
+        return (float) Math.exp(-beta * distanceKm(from, to));
+    }
+}
@@ -0,0 +1,70 @@
+package com.city.management.emissions;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CO2, NOx and energy per kilometre travelled by one counted unit of a mode, as fleet averages.
+ * Car sensors count vehicles; public transport sensors count passengers, whose share of the
+ * vehicle assumes average occupancy. Cars in the traffic model use speed-dependent factors
+ * instead, since stop-and-go driving burns more fuel per kilometre. Electric modes emit through
+ * the grid: their CO2 is their energy times the grid's carbon intensity. Modes that are not
+ * traffic, such as events, have no factors.
+ */
+public class EmissionFactors {
+
+    // Grams of CO2 per kWh of petrol burnt
+    private static final double PETROL_CO2_PER_KWH = 268.6;
+
+    // g CO2, g NOx, kWh per vehicle-km for cars and per passenger-km for buses
+    private static final Map<String, double[]> COMBUSTION = Map.of(
+            "car", new double[]{166, 0.33, 0.62},
+            "bus", new double[]{100, 0.55, 0.37});
+
+    // kWh per passenger-km
+    private static final Map<String, Double> ELECTRIC = Map.of(
+            "tram", 0.10,
+            "train", 0.12);
+
+    private static final Set<String> ZERO_EMISSION = Set.of("cycle", "pedestrian");
+
+    private final double gridCo2PerKwh;
+
+    public EmissionFactors(double gridCo2PerKwh) {
+        this.gridCo2PerKwh = gridCo2PerKwh;
+    }
+
+    /**
+     * kg CO2, kg NOx and kWh for one counted unit of {@code mode} over a km, or null if the
+     * mode is not traffic.
+     */
+    public double[] perKm(String mode) {
+        double[] combustion = COMBUSTION.get(mode);
+        if (combustion != null) {
+            return new double[]{combustion[0] / 1000, combustion[1] / 1000, combustion[2]};
+        }
+        Double electric = ELECTRIC.get(mode);
+        if (electric != null) {
+            return new double[]{electric * gridCo2PerKwh / 1000, 0, electric};
+        }
+        return ZERO_EMISSION.contains(mode) ? new double[3] : null;
+    }
+
+    /**
+     * Grams of CO2 per km for an average petrol car at {@code speedKmh}, an emission curve with
+     * its minimum around 60 km/h.
+     */
+    public static double carCo2(double speedKmh) {
+        double speed = Math.max(5, speedKmh);
+        return 2800 / speed + 95 + 0.006 * speed * speed;
+    }
+
+    public static double carNox(double speedKmh) {
+        double speed = Math.max(5, speedKmh);
+        return 0.25 + 4 / speed;
+    }
+
+    public static double carEnergy(double speedKmh) {
+        return carCo2(speedKmh) / PETROL_CO2_PER_KWH;
+    }
+}
@@ -0,0 +1,140 @@
+package com.city.management.emissions;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Emission totals kept up to date as readings arrive. Every mode and zone pair has a ring of
+ * hourly buckets and a ring of daily ones; a reading adds to one bucket of each, so the cost of
+ * an update does not depend on history. A bucket is reset when its slot comes round to a newer
+ * hour or day, and additions for periods that already left the ring are dropped. At most
+ * {@code maxSeries} pairs get their own rings; zones first seen past that are added to their
+ * mode's {@link #OTHER_ZONE}, so mode and time totals stay complete.
+ */
+public class EmissionLedger {
+
+    public enum Grouping {
+        MODE,
+        ZONE,
+        HOUR,
+        DAY
+    }
+
+    public static final String OTHER_ZONE = "(other)";
+
+    // co2, nox, energy, readings
+    static final int WIDTH = 4;
+
+    private final int hours;
+    private final int days;
+    private final int maxSeries;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final AtomicLong latestHour = new AtomicLong(Long.MIN_VALUE);
+
+    public EmissionLedger(int hours, int days, int maxSeries) {
+        this.hours = Math.max(1, hours);
+        this.days = Math.max(1, days);
+        this.maxSeries = maxSeries;
+    }
+
+    public void add(String mode, String zone, long hour, double co2, double nox, double energy) {
+        latestHour.accumulateAndGet(hour, Math::max);
+        Series s = series.get(mode + '\u0000' + zone);
+        if (s == null) {
+            // The overflow series are not counted against the cap: there is one per mode at most
+            String key = series.size() < maxSeries ? zone : OTHER_ZONE;
+            s = series.computeIfAbsent(mode + '\u0000' + key, k -> new Series(mode, key, hours, days));
+        }
+        s.add(hour, co2, nox, energy);
+    }
+
+    public long latestHour() {
+        return latestHour.get();
+    }
+
+    /**
+     * Totals per group, in key order, over {@code fromHour} to {@code toHour} inclusive. Hourly
+     * grouping reads the hourly buckets; every other grouping reads whole days.
+     */
+    public Map<String, double[]> totals(long fromHour, long toHour, Grouping grouping) {
+        Map<String, double[]> totals = new TreeMap<>();
+        for (Series s : series.values()) {
+            if (grouping == Grouping.HOUR) {
+                s.sumHours(fromHour, toHour, totals);
+            } else {
+                String key = grouping == Grouping.MODE ? s.mode : grouping == Grouping.ZONE ? s.zone : null;
+                s.sumDays(Math.floorDiv(fromHour, 24), Math.floorDiv(toHour, 24), key, totals);
+            }
+        }
+        return totals;
+    }
+
+    private static final class Series {
+        final String mode;
+        final String zone;
+        final long[] hourIds;
+        final double[] hourly;
+        final long[] dayIds;
+        final double[] daily;
+
+        Series(String mode, String zone, int hours, int days) {
+            this.mode = mode;
+            this.zone = zone;
+            this.hourIds = new long[hours];
+            this.hourly = new double[hours * WIDTH];
+            this.dayIds = new long[days];
+            this.daily = new double[days * WIDTH];
+            Arrays.fill(hourIds, Long.MIN_VALUE);
+            Arrays.fill(dayIds, Long.MIN_VALUE);
+        }
+
+        synchronized void add(long hour, double co2, double nox, double energy) {
+            addTo(hourIds, hourly, hour, co2, nox, energy);
+            addTo(dayIds, daily, Math.floorDiv(hour, 24), co2, nox, energy);
+        }
+
+        synchronized void sumHours(long from, long to, Map<String, double[]> totals) {
+            for (long hour = Math.max(from, to - hourIds.length + 1); hour <= to; hour++) {
+                int slot = (int) Math.floorMod(hour, (long) hourIds.length);
+                if (hourIds[slot] == hour) {
+                    accumulate(totals, Long.toString(hour), hourly, slot);
+                }
+            }
+        }
+
+        synchronized void sumDays(long from, long to, String key, Map<String, double[]> totals) {
+            for (long day = Math.max(from, to - dayIds.length + 1); day <= to; day++) {
+                int slot = (int) Math.floorMod(day, (long) dayIds.length);
+                if (dayIds[slot] == day) {
+                    accumulate(totals, key != null ? key : Long.toString(day), daily, slot);
+                }
+            }
+        }
+
+        private static void addTo(long[] ids, double[] values, long id, double co2, double nox, double energy) {
+            int slot = (int) Math.floorMod(id, (long) ids.length);
+            if (ids[slot] > id) {
+                return;
+            }
+            int offset = slot * WIDTH;
+            if (ids[slot] < id) {
+                ids[slot] = id;
+                Arrays.fill(values, offset, offset + WIDTH, 0);
+            }
+            values[offset] += co2;
+            values[offset + 1] += nox;
+            values[offset + 2] += energy;
+            values[offset + 3]++;
+        }
+
+        private static void accumulate(Map<String, double[]> totals, String key, double[] values, int slot) {
+            double[] total = totals.computeIfAbsent(key, k -> new double[WIDTH]);
+            for (int i = 0; i < WIDTH; i++) {
+                total[i] += values[slot * WIDTH + i];
+            }
+        }
+    }
+}
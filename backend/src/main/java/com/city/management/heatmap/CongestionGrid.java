@@ -0,0 +1,263 @@
+package com.city.management.heatmap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * City-wide congestion on a grid of square cells, one layer per hour for the most recent hours.
+ * Each sensor's load for the hour (its hourly mean over the highest hourly mean it has reported)
+ * is spread over the cells within the kernel radius; a cell shows the kernel-weighted average
+ * of the loads around it, scaled by how major the roads in it are. A reading only touches the
+ * cells inside its sensor's kernel, and {@link #update} reports exactly that rectangle.
+ */
+public class CongestionGrid {
+
+    private final double minLat;
+    private final double minLon;
+    private final double cellLat;
+    private final double cellLon;
+    private final int rows;
+    private final int cols;
+    private final float[] roads;
+    private final int radius;
+    private final float[] kernel;
+    private final Layer[] layers;
+    private final Map<String, Double> references = new HashMap<>();
+    private long latestHour = Long.MIN_VALUE;
+
+    public CongestionGrid(double minLat, double minLon, double maxLat, double maxLon,
+                          double cellMeters, double radiusMeters, int hours) {
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.cellLat = cellMeters / 111_320.0;
+        this.cellLon = cellMeters / (111_320.0 * Math.cos(Math.toRadians((minLat + maxLat) / 2)));
+        this.rows = Math.max(1, (int) Math.ceil((maxLat - minLat) / cellLat));
+        this.cols = Math.max(1, (int) Math.ceil((maxLon - minLon) / cellLon));
+        this.roads = new float[rows * cols];
+
+        this.radius = Math.max(1, (int) Math.round(radiusMeters / cellMeters));
+        int width = 2 * radius + 1;
+        this.kernel = new float[width * width];
+        double sigma = radius / 2.0;
+        for (int dr = -radius; dr <= radius; dr++) {
+            for (int dc = -radius; dc <= radius; dc++) {
+                double d2 = dr * dr + dc * dc;
+                kernel[(dr + radius) * width + dc + radius] =
+                        d2 > radius * radius ? 0 : (float) Math.exp(-d2 / (2 * sigma * sigma));
+            }
+        }
+
+        this.layers = new Layer[Math.max(1, hours)];
+        for (int i = 0; i < layers.length; i++) {
+            layers[i] = new Layer(rows * cols);
+        }
+    }
+
+    /**
+     * Marks a road point; the cell's road weight becomes the highest weight seen in it, 0-1.
+     */
+    public void addRoad(double lat, double lon, float weight) {
+        int cell = cellOf(lat, lon);
+        if (cell >= 0) {
+            roads[cell] = Math.max(roads[cell], Math.min(1, weight));
+        }
+    }
+
+    public double minLat() {
+        return minLat;
+    }
+
+    public double minLon() {
+        return minLon;
+    }
+
+    public double maxLat() {
+        return minLat + rows * cellLat;
+    }
+
+    public double maxLon() {
+        return minLon + cols * cellLon;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public synchronized long latestHour() {
+        return latestHour;
+    }
+
+    /**
+     * Changes to an hour's layer bump its version; Long.MIN_VALUE if the hour is not held.
+     */
+    public long version(long hour) {
+        Layer layer = layers[slot(hour)];
+        return layer.hour == hour ? layer.version : Long.MIN_VALUE;
+    }
+
+    /**
+     * Adds a sensor reading to an hour. Returns the changed cells as {firstRow, firstCol, lastRow,
+     * lastCol}, or null if the reading fell outside the grid or the retained hours.
+     */
+    public synchronized int[] update(long hour, String sensorId, double lat, double lon, double value) {
+        int centre = cellOf(lat, lon);
+        if (centre < 0 || (latestHour != Long.MIN_VALUE && hour <= latestHour - layers.length)) {
+            return null;
+        }
+        latestHour = Math.max(latestHour, hour);
+        Layer layer = layers[slot(hour)];
+        if (layer.hour != hour) {
+            if (layer.hour > hour) {
+                return null;
+            }
+            layer.reset(hour);
+        }
+
+        SensorHour sensor = layer.sensors.get(sensorId);
+        boolean added = sensor == null;
+        if (added) {
+            sensor = new SensorHour();
+            layer.sensors.put(sensorId, sensor);
+        }
+        sensor.sum += value;
+        sensor.count++;
+        double mean = sensor.sum / sensor.count;
+        double reference = references.merge(sensorId, mean, Math::max);
+        float load = reference > 0 ? (float) Math.max(0, Math.min(1, mean / reference)) : 0;
+        float delta = load - sensor.load;
+        sensor.load = load;
+
+        int row = centre / cols;
+        int col = centre % cols;
+        int width = 2 * radius + 1;
+        int firstRow = Math.max(0, row - radius);
+        int lastRow = Math.min(rows - 1, row + radius);
+        int firstCol = Math.max(0, col - radius);
+        int lastCol = Math.min(cols - 1, col + radius);
+        for (int r = firstRow; r <= lastRow; r++) {
+            int k = (r - row + radius) * width - col + radius;
+            for (int c = firstCol; c <= lastCol; c++) {
+                float w = kernel[k + c];
+                layer.weighted[r * cols + c] += w * delta;
+                if (added) {
+                    layer.weights[r * cols + c] += w;
+                }
+            }
+        }
+        layer.version++;
+        return new int[]{firstRow, firstCol, lastRow, lastCol};
+    }
+
+    /**
+     * Congestion 0-1 at a point for an hour, interpolated between cell centres; 0 off the grid
+     * or for an hour that is not held.
+     */
+    public float sample(long hour, double lat, double lon) {
+        Layer layer = layers[slot(hour)];
+        if (layer.hour != hour) {
+            return 0;
+        }
+        return interpolate(lat, lon, cell -> {
+            float w = layer.weights[cell];
+            return w > 1e-6f ? roads[cell] * layer.weighted[cell] / w : 0;
+        });
+    }
+
+    public float road(double lat, double lon) {
+        return interpolate(lat, lon, cell -> roads[cell]);
+    }
+
+    /**
+     * Mean congestion over the cells with any in the hour; 0 if the hour is not held.
+     */
+    public float meanCongestion(long hour) {
+        Layer layer = layers[slot(hour)];
+        if (layer.hour != hour) {
+            return 0;
+        }
+        double sum = 0;
+        int n = 0;
+        for (int cell = 0; cell < roads.length; cell++) {
+            float w = layer.weights[cell];
+            if (w > 1e-6f && roads[cell] > 0) {
+                sum += roads[cell] * layer.weighted[cell] / w;
+                n++;
+            }
+        }
+        return n > 0 ? (float) (sum / n) : 0;
+    }
+
+    /**
+     * Bounds of a cell rectangle as {south, west, north, east}.
+     */
+    public double[] bounds(int[] cells) {
+        return new double[]{minLat + cells[0] * cellLat, minLon + cells[1] * cellLon,
+                minLat + (cells[2] + 1) * cellLat, minLon + (cells[3] + 1) * cellLon};
+    }
+
+    private float interpolate(double lat, double lon, CellValue value) {
+        double y = (lat - minLat) / cellLat - 0.5;
+        double x = (lon - minLon) / cellLon - 0.5;
+        if (y < -0.5 || x < -0.5 || y > rows - 0.5 || x > cols - 0.5) {
+            return 0;
+        }
+        int r0 = Math.max(0, (int) Math.floor(y));
+        int c0 = Math.max(0, (int) Math.floor(x));
+        int r1 = Math.min(rows - 1, r0 + 1);
+        int c1 = Math.min(cols - 1, c0 + 1);
+        float fy = (float) Math.max(0, Math.min(1, y - r0));
+        float fx = (float) Math.max(0, Math.min(1, x - c0));
+        float top = value.at(r0 * cols + c0) * (1 - fx) + value.at(r0 * cols + c1) * fx;
+        float bottom = value.at(r1 * cols + c0) * (1 - fx) + value.at(r1 * cols + c1) * fx;
+        return top * (1 - fy) + bottom * fy;
+    }
+
+    private int cellOf(double lat, double lon) {
+        int row = (int) Math.floor((lat - minLat) / cellLat);
+        int col = (int) Math.floor((lon - minLon) / cellLon);
+        if (row < 0 || col < 0 || row >= rows || col >= cols) {
+            return -1;
+        }
+        return row * cols + col;
+    }
+
+    private int slot(long hour) {
+        return (int) Math.floorMod(hour, (long) layers.length);
+    }
+
+    private interface CellValue {
+        float at(int cell);
+    }
+
+    private static final class Layer {
+        volatile long hour = Long.MIN_VALUE;
+        volatile long version;
+        final float[] weighted;
+        final float[] weights;
+        final Map<String, SensorHour> sensors = new HashMap<>();
+
+        Layer(int cells) {
+            weighted = new float[cells];
+            weights = new float[cells];
+        }
+
+        void reset(long newHour) {
+            Arrays.fill(weighted, 0);
+            Arrays.fill(weights, 0);
+            sensors.clear();
+            version++;
+            hour = newHour;
+        }
+    }
+
+    private static final class SensorHour {
+        double sum;
+        int count;
+        float load;
+    }
+}
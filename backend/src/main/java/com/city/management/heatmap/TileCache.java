@@ -0,0 +1,92 @@
+package com.city.management.heatmap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Least-recently-used cache of encoded tiles, bounded by their total size in bytes.
+ */
+public class TileCache {
+
+    public record Key(String source, long hour, int z, int x, int y, String format) {
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, byte[]> tiles = new LinkedHashMap<>(1024, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public TileCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized byte[] get(Key key) {
+        byte[] tile = tiles.get(key);
+        if (tile != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return tile;
+    }
+
+    /**
+     * Stores the tile only if {@code current} still holds. The check runs under the lock that
+     * {@link #invalidate} takes, so a tile found current cannot land after the invalidation
+     * that should have dropped it.
+     */
+    public synchronized void putIf(Key key, byte[] tile, BooleanSupplier current) {
+        if (current.getAsBoolean()) {
+            put(key, tile);
+        }
+    }
+
+    public synchronized void put(Key key, byte[] tile) {
+        if (tile.length > maxBytes) {
+            return;
+        }
+        byte[] previous = tiles.put(key, tile);
+        bytes += tile.length - (previous != null ? previous.length : 0);
+        Iterator<byte[]> eldest = tiles.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drops every tile the predicate matches; returns how many.
+     */
+    public synchronized int invalidate(Predicate<Key> stale) {
+        int removed = 0;
+        for (Iterator<Map.Entry<Key, byte[]>> it = tiles.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, byte[]> entry = it.next();
+            if (stale.test(entry.getKey())) {
+                bytes -= entry.getValue().length;
+                it.remove();
+                removed++;
+            }
+        }
+        invalidations += removed;
+        return removed;
+    }
+
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("tiles", tiles.size());
+        metrics.put("bytes", bytes);
+        metrics.put("maxBytes", maxBytes);
+        metrics.put("hits", hits);
+        metrics.put("misses", misses);
+        metrics.put("evictions", evictions);
+        metrics.put("invalidations", invalidations);
+        return metrics;
+    }
+}
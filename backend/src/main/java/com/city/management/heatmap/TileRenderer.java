@@ -0,0 +1,115 @@
+package com.city.management.heatmap;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.stream.IntStream;
+
+/**
+ * Rasterises a congestion field into Web Mercator (z/x/y) tiles, either as a 256 px PNG with a
+ * green-to-red palette or as a compact grid of bytes. Rows are sampled in parallel.
+ *
+ * Binary tiles are a 4-byte header ('H', 'M', version 1, resolution) followed by
+ * resolution x resolution bytes, north row first, where 0 is no congestion and 255 is full.
+ */
+public final class TileRenderer {
+
+    public interface Field {
+        float at(double lat, double lon);
+    }
+
+    public static final int PNG_SIZE = 256;
+
+    private static final int[] PALETTE = new int[256];
+
+    static {
+        for (int i = 1; i < 256; i++) {
+            double t = i / 255.0;
+            int red = (int) Math.round(255 * Math.min(1, 2 * t));
+            int green = (int) Math.round(255 * Math.min(1, 2 * (1 - t)));
+            int alpha = (int) Math.round(90 + 120 * t);
+            PALETTE[i] = alpha << 24 | red << 16 | green << 8 | 40;
+        }
+    }
+
+    private TileRenderer() {
+    }
+
+    /**
+     * Tile bounds as {south, west, north, east}.
+     */
+    public static double[] bounds(int z, int x, int y) {
+        double n = 1 << z;
+        return new double[]{latitude(y + 1, n), x / n * 360 - 180, latitude(y, n), (x + 1) / n * 360 - 180};
+    }
+
+    /**
+     * Congestion at the centre of each pixel, rows from north to south.
+     */
+    public static float[] sample(Field field, int z, int x, int y, int resolution) {
+        double n = (double) (1 << z) * resolution;
+        double[] lons = new double[resolution];
+        for (int c = 0; c < resolution; c++) {
+            lons[c] = ((long) x * resolution + c + 0.5) / n * 360 - 180;
+        }
+        float[] values = new float[resolution * resolution];
+        IntStream.range(0, resolution).parallel().forEach(r -> {
+            double lat = latitude((long) y * resolution + r + 0.5, n);
+            for (int c = 0; c < resolution; c++) {
+                values[r * resolution + c] = field.at(lat, lons[c]);
+            }
+        });
+        return values;
+    }
+
+    public static boolean isEmpty(float[] values) {
+        for (float value : values) {
+            if (value >= 0.5f / 255) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static byte[] png(float[] values, int resolution) {
+        int[] pixels = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            pixels[i] = PALETTE[level(values[i])];
+        }
+        BufferedImage image = new BufferedImage(resolution, resolution, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, resolution, resolution, pixels, 0, resolution);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static byte[] binary(float[] values, int resolution) {
+        // The header holds the resolution in one byte
+        if (resolution < 1 || resolution > 255) {
+            throw new IllegalArgumentException("Binary tile resolution must be between 1 and 255");
+        }
+        byte[] tile = new byte[4 + values.length];
+        tile[0] = 'H';
+        tile[1] = 'M';
+        tile[2] = 1;
+        tile[3] = (byte) resolution;
+        for (int i = 0; i < values.length; i++) {
+            tile[4 + i] = (byte) level(values[i]);
+        }
+        return tile;
+    }
+
+    private static int level(float value) {
+        return Math.max(0, Math.min(255, Math.round(value * 255)));
+    }
+
+    private static double latitude(double y, double n) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / n))));
+    }
+}
@@ -0,0 +1,20 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditEntry {
+    private LocalDateTime timestamp;
+    private String action;
+    private boolean success;
+    private String actor;
+    private String target;
+    private String remoteAddress;
+    private String detail;
+}
@@ -0,0 +1,26 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportResult {
+    private int created;
+    private int failed;
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private int row;
+        private String username;
+        private String message;
+    }
+}
@@ -0,0 +1,19 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorrelationMatrix {
+    private List<String> modes;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Double[][] coefficients;
+    private int[][] samples;
+}
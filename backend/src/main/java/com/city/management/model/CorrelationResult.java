@@ -0,0 +1,32 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorrelationResult {
+    private String x;
+    private String y;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Double coefficient;
+    private int samples;
+    private Integer bestLag;
+    private Double bestCoefficient;
+    private List<LagCorrelation> lags;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LagCorrelation {
+        private int lag;
+        private Double coefficient;
+        private int samples;
+    }
+}
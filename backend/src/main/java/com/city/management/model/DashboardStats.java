@@ -11,6 +11,7 @@ import java.util.List;
 @AllArgsConstructor
 public class DashboardStats {
     private int totalUsers;
+    private int activeUsers;
     private int activeSimulations;
     private int totalIncidents;
     private double systemHealth;
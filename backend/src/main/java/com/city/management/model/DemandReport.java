@@ -0,0 +1,51 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DemandReport {
+    private String timeOfDay;
+    private String weatherConditions;
+    private int zones;
+    private LocalDateTime dataUntil;
+    private LocalDateTime calibratedAt;
+    private long calibrationMillis;
+    private List<ModeDemand> modes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ModeDemand {
+        private String mode;
+        private double tripsPerHour;
+        private int iterations;
+        private Double maxError;
+        private List<OdPair> topPairs;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OdPair {
+        private Zone origin;
+        private Zone destination;
+        private double distanceKm;
+        private double tripsPerHour;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Zone {
+        private String id;
+        private double lat;
+        private double lon;
+    }
+}
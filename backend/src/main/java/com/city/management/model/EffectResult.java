@@ -0,0 +1,25 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EffectResult {
+    private String cause;
+    private String effect;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private int lag;
+    private Double threshold;
+    private Double meanWithCause;
+    private int hoursWithCause;
+    private Double meanWithoutCause;
+    private int hoursWithoutCause;
+    private Double changePercent;
+    private Double welchT;
+}
@@ -0,0 +1,30 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmissionsReport {
+    private String groupBy;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Totals total;
+    private List<Totals> groups;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Totals {
+        private String key;
+        private double co2Kg;
+        private double noxKg;
+        private double energyKwh;
+        private long readings;
+    }
+}
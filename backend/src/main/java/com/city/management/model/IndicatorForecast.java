@@ -0,0 +1,28 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndicatorForecast {
+    private String mode;
+    private String sensorId;
+    private String generatedAt;
+    private String peakHour;
+    private List<ForecastPoint> points;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ForecastPoint {
+        private String timestamp;
+        private double value;
+        private double lower;
+        private double upper;
+    }
+}
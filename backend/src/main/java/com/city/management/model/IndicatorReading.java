@@ -0,0 +1,17 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndicatorReading {
+    private String mode;
+    private String sensorId;
+    private LocalDateTime timestamp;
+    private double value;
+}
@@ -0,0 +1,45 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JourneyPlan {
+    private String departAt;
+    private String access;
+    private String egress;
+    private String criteria;
+    private double queryMicros;
+    private List<Journey> journeys;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Journey {
+        private String departure;
+        private String arrival;
+        private int durationSeconds;
+        private int transfers;
+        private List<Leg> legs;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Leg {
+        private String mode;
+        private String route;
+        private String tripId;
+        private String from;
+        private String to;
+        private String departure;
+        private String arrival;
+        private int durationSeconds;
+        private List<double[]> coordinates;
+    }
+}
@@ -17,4 +17,6 @@ public class Notification {
     private boolean read;
     private LocalDateTime createdAt;
     private String userId;
+    private NotificationPriority priority;
+    private int occurrences = 1;
 }
@@ -0,0 +1,7 @@
+package com.city.management.model;
+
+public enum NotificationPriority {
+    HIGH,
+    NORMAL,
+    LOW
+}
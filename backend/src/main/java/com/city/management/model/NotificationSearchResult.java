@@ -0,0 +1,26 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationSearchResult {
+    private String query;
+    private long matches;
+    private List<Hit> hits;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hit {
+        private String kind;
+        private double score;
+        private Notification notification;
+        private DashboardOverview.Alert alert;
+    }
+}
@@ -0,0 +1,17 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A revoked token id with its expiry, or a username with the time up to which its tokens are
+ * revoked, both in epoch milliseconds.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Revocation {
+    private String subject;
+    private long time;
+}
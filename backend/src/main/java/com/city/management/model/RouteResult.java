@@ -0,0 +1,24 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteResult {
+    private int from;
+    private int to;
+    private String metric;
+    private String algorithm;
+    private double distanceMeters;
+    private double freeFlowSeconds;
+    private double expectedSeconds;
+    private double congestionFactor;
+    private double queryMicros;
+    private int[] nodes;
+    private List<double[]> coordinates;
+}
@@ -20,4 +20,11 @@ public class Simulation {
     private LocalDateTime createdAt;
     private LocalDateTime completedAt;
     private String createdBy;
+    private Long derivedFrom;
+    private long version;
+
+    public Simulation copy() {
+        return new Simulation(id, name, type, status, parameters, results, createdAt, completedAt, createdBy, derivedFrom,
+                version);
+    }
 }
@@ -0,0 +1,29 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulationSummary {
+    private Long id;
+    private String name;
+    private String type;
+    private String status;
+    private Map<String, Object> parameters;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+    private String createdBy;
+    private Long derivedFrom;
+
+    public static SimulationSummary of(Simulation simulation) {
+        return new SimulationSummary(simulation.getId(), simulation.getName(), simulation.getType(),
+                simulation.getStatus(), simulation.getParameters(), simulation.getCreatedAt(),
+                simulation.getCompletedAt(), simulation.getCreatedBy(), simulation.getDerivedFrom());
+    }
+}
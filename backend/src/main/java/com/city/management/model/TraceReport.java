@@ -0,0 +1,53 @@
+package com.city.management.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TraceReport {
+    private double sampleProbability;
+    private long sampled;
+    private int buffered;
+    private int bufferSize;
+    private List<RouteTraces> routes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RouteTraces {
+        private String route;
+        private int traces;
+        private double medianMillis;
+        private double maxMillis;
+        private List<RequestTrace> slowest;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RequestTrace {
+        private LocalDateTime startedAt;
+        private String uri;
+        private int status;
+        private double millis;
+        private int droppedSpans;
+        private SpanNode root;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SpanNode {
+        private String name;
+        private double startMillis;
+        private double millis;
+        private double selfMillis;
+        private List<SpanNode> children;
+    }
+}
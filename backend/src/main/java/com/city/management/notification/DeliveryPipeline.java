@@ -0,0 +1,261 @@
+package com.city.management.notification;
+
+import com.city.management.model.Notification;
+import com.city.management.model.NotificationPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Asynchronous notification delivery. Producers drop requests into one bounded lane per
+ * priority and return immediately; a single dispatcher thread drains the lanes highest priority
+ * first, coalesces repeats and writes the survivors to an outbox that is flushed to the inbox
+ * store in batches. While the store keeps failing the outbox fills up to its capacity, after
+ * which the lowest priority entries are shed to make room for more urgent ones.
+ *
+ * Coalescing is per user and title: the first notification of a burst is delivered at once,
+ * the rest within the window are counted and summarised in one digest when the window closes.
+ */
+public class DeliveryPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryPipeline.class);
+
+    private final long windowNanos;
+    private final long tickNanos;
+    private final int batchSize;
+    private final int outboxCapacity;
+    private final LongSupplier idGenerator;
+    private final Consumer<List<Notification>> sink;
+
+    private final List<BlockingQueue<Notification>> lanes = new ArrayList<>();
+    private final Map<String, Window> windows = new HashMap<>();
+    private final List<Notification> outbox = new ArrayList<>();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+    private boolean failing;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder digests = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    public DeliveryPipeline(long windowMillis, long flushIntervalMillis, int batchSize, int laneCapacity,
+                            int outboxCapacity, LongSupplier idGenerator, Consumer<List<Notification>> sink) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.batchSize = batchSize;
+        this.outboxCapacity = Math.max(batchSize, outboxCapacity);
+        this.idGenerator = idGenerator;
+        this.sink = sink;
+        for (int i = 0; i < NotificationPriority.values().length; i++) {
+            lanes.add(new LinkedBlockingQueue<>(laneCapacity));
+        }
+        this.dispatcher = new Thread(this::run, "notification-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Queues a notification, at low priority if it has none; returns false if its lane is full
+     * and it was dropped.
+     */
+    public boolean submit(Notification notification) {
+        submitted.increment();
+        if (notification.getPriority() == null) {
+            notification.setPriority(NotificationPriority.LOW);
+        }
+        if (!lanes.get(notification.getPriority().ordinal()).offer(notification)) {
+            dropped.increment();
+            return false;
+        }
+        if (notification.getPriority() == NotificationPriority.HIGH) {
+            LockSupport.unpark(dispatcher);
+        }
+        return true;
+    }
+
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) * 10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("submitted", submitted.sum());
+        metrics.put("dropped", dropped.sum());
+        metrics.put("shed", shed.sum());
+        metrics.put("coalesced", coalesced.sum());
+        metrics.put("digests", digests.sum());
+        metrics.put("delivered", delivered.sum());
+        metrics.put("flushes", flushes.sum());
+        Map<String, Integer> queued = new LinkedHashMap<>();
+        for (NotificationPriority priority : NotificationPriority.values()) {
+            queued.put(priority.name().toLowerCase(), lanes.get(priority.ordinal()).size());
+        }
+        metrics.put("queued", queued);
+        return metrics;
+    }
+
+    private void run() {
+        List<Notification> drained = new ArrayList<>();
+        while (running) {
+            LockSupport.parkNanos(tickNanos);
+            for (BlockingQueue<Notification> lane : lanes) {
+                lane.drainTo(drained);
+                for (Notification notification : drained) {
+                    accept(notification, System.nanoTime());
+                }
+                drained.clear();
+            }
+            closeWindows(System.nanoTime(), false);
+            flush();
+        }
+
+        for (BlockingQueue<Notification> lane : lanes) {
+            lane.drainTo(drained);
+        }
+        drained.forEach(notification -> accept(notification, System.nanoTime()));
+        closeWindows(System.nanoTime(), true);
+        flush();
+    }
+
+    private void accept(Notification notification, long now) {
+        String key = notification.getUserId() + '\u0000' + notification.getTitle();
+        Window window = windows.get(key);
+        if (window != null && now < window.closesAt) {
+            window.suppressed++;
+            window.latest = notification;
+            if (notification.getPriority().ordinal() < window.priority.ordinal()) {
+                window.priority = notification.getPriority();
+            }
+            coalesced.increment();
+            return;
+        }
+        if (window != null) {
+            emitDigest(window);
+        }
+        windows.put(key, new Window(now + windowNanos, notification.getPriority()));
+        enqueue(notification);
+    }
+
+    private void closeWindows(long now, boolean all) {
+        for (Iterator<Window> it = windows.values().iterator(); it.hasNext(); ) {
+            Window window = it.next();
+            if (all || now >= window.closesAt) {
+                emitDigest(window);
+                it.remove();
+            }
+        }
+    }
+
+    private void emitDigest(Window window) {
+        if (window.suppressed == 0) {
+            return;
+        }
+        Notification latest = window.latest;
+        Notification digest = new Notification();
+        digest.setTitle(latest.getTitle());
+        digest.setMessage(String.format("%d more similar notifications in the last %d s. Latest: %s",
+                window.suppressed, TimeUnit.NANOSECONDS.toSeconds(windowNanos), latest.getMessage()));
+        digest.setType(latest.getType());
+        digest.setUserId(latest.getUserId());
+        digest.setCreatedAt(latest.getCreatedAt());
+        digest.setPriority(window.priority);
+        digest.setOccurrences(window.suppressed);
+        digests.increment();
+        window.suppressed = 0;
+        enqueue(digest);
+    }
+
+    private void enqueue(Notification notification) {
+        notification.setId(idGenerator.getAsLong());
+        if (notification.getCreatedAt() == null) {
+            notification.setCreatedAt(LocalDateTime.now());
+        }
+        if (outbox.size() >= outboxCapacity && !shedFor(notification)) {
+            shed.increment();
+            return;
+        }
+        outbox.add(notification);
+        // While the sink is failing only the tick retries, not every new entry
+        if (outbox.size() >= batchSize && !failing) {
+            flush();
+        }
+    }
+
+    /**
+     * Removes the newest outbox entry of the lowest priority if that is below the priority of
+     * {@code notification}, returning false if nothing in the outbox is less urgent.
+     */
+    private boolean shedFor(Notification notification) {
+        int victim = -1;
+        for (int i = outbox.size() - 1; i >= 0; i--) {
+            if (victim < 0 || outbox.get(i).getPriority().ordinal() > outbox.get(victim).getPriority().ordinal()) {
+                victim = i;
+            }
+        }
+        if (outbox.get(victim).getPriority().ordinal() <= notification.getPriority().ordinal()) {
+            return false;
+        }
+        outbox.remove(victim);
+        shed.increment();
+        return true;
+    }
+
+    private void flush() {
+        if (outbox.isEmpty()) {
+            return;
+        }
+        try {
+            sink.accept(new ArrayList<>(outbox));
+        } catch (RuntimeException e) {
+            // Keep the outbox so the next tick retries the whole batch
+            if (!failing) {
+                log.warn("Notification flush of {} entries failed: {}", outbox.size(), e.getMessage());
+            }
+            failing = true;
+            return;
+        }
+        if (failing) {
+            log.info("Notification flush recovered with {} entries", outbox.size());
+        }
+        failing = false;
+        delivered.add(outbox.size());
+        flushes.increment();
+        outbox.clear();
+    }
+
+    private static final class Window {
+        final long closesAt;
+        NotificationPriority priority;
+        int suppressed;
+        Notification latest;
+
+        Window(long closesAt, NotificationPriority priority) {
+            this.closesAt = closesAt;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.city.management.notification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over short texts such as notifications and alerts. Every term keeps
+ * a posting list of document numbers in insertion order with the term's frequency, held in
+ * primitive arrays, so adding a document only appends to the lists of its own terms. Title
+ * terms count twice.
+ *
+ * A query matches the documents that contain all of its terms. The lists are intersected from
+ * the shortest one, skipping ahead in the others by galloping search, and matches are ranked
+ * by BM25 with newer documents first on ties. Removed documents are skipped until they make up
+ * half the index, then the index is compacted: the live documents are numbered again in the
+ * same order, so the per-document arrays and the lists shrink back to what is still indexed.
+ * Document numbers therefore change, and callers refer to documents by kind and key.
+ */
+public class SearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 2;
+    private static final int SHARED = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final Comparator<Hit> RANK = Comparator.comparingDouble(Hit::score).thenComparingInt(Hit::doc);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final Map<String, Integer> owners = new HashMap<>();
+    private final Map<Integer, Map<Long, Integer>> docsByKind = new HashMap<>();
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] ownerOf = new int[INITIAL_CAPACITY];
+    private long[] times = new long[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private BitSet removed = new BitSet();
+    private int documents;
+    private int removedCount;
+    private long totalLength;
+
+    /**
+     * Adds a document, replacing the one of the same kind and key if there is one. {@code key}
+     * is the caller's id for it; a null {@code owner} makes the document visible to every user.
+     */
+    public void add(int kind, long key, String owner, long timeMillis, String title, String body) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = tokenize(title, TITLE_WEIGHT, frequencies) + tokenize(body, 1, frequencies);
+
+        lock.writeLock().lock();
+        try {
+            Integer previous = docsByKind.computeIfAbsent(kind, k -> new HashMap<>()).get(key);
+            if (previous != null) {
+                removeDoc(previous);
+            }
+            int doc = documents++;
+            if (doc == keys.length) {
+                resize(doc * 2);
+            }
+            keys[doc] = key;
+            kinds[doc] = (byte) kind;
+            ownerOf[doc] = owner == null ? SHARED : owners.computeIfAbsent(owner, o -> owners.size());
+            times[doc] = timeMillis;
+            lengths[doc] = length;
+            totalLength += length;
+            for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+                terms.computeIfAbsent(term.getKey(), t -> new Postings()).add(doc, term.getValue());
+            }
+            docsByKind.get(kind).put(key, doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int kind, long key) {
+        lock.writeLock().lock();
+        try {
+            Map<Long, Integer> docs = docsByKind.get(kind);
+            Integer doc = docs != null ? docs.remove(key) : null;
+            if (doc != null) {
+                removeDoc(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeDoc(int doc) {
+        removed.set(doc);
+        removedCount++;
+        totalLength -= lengths[doc];
+        if (removedCount > INITIAL_CAPACITY && removedCount * 2 > documents) {
+            compact();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents - removedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The best {@code limit} documents containing every term of {@code query}, best first.
+     * {@code kindMask} has bit k set for each kind to include; {@code owner}, when not null,
+     * keeps only that owner's documents and shared ones. Times are inclusive bounds.
+     */
+    public Result search(String query, int kindMask, String owner, long from, long to, int limit) {
+        Map<String, Integer> queryTerms = new HashMap<>();
+        tokenize(query, 1, queryTerms);
+        if (queryTerms.isEmpty()) {
+            throw new IllegalArgumentException("Query must contain at least one word");
+        }
+
+        lock.readLock().lock();
+        try {
+            int ownerId = SHARED;
+            if (owner != null) {
+                Integer id = owners.get(owner);
+                ownerId = id != null ? id : Integer.MIN_VALUE;
+            }
+
+            Postings[] lists = new Postings[queryTerms.size()];
+            int n = 0;
+            for (String term : queryTerms.keySet()) {
+                Postings postings = terms.get(term);
+                if (postings == null) {
+                    return new Result(List.of(), 0);
+                }
+                lists[n++] = postings;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+
+            int live = documents - removedCount;
+            double averageLength = live > 0 ? (double) totalLength / live : 1;
+            double[] idf = new double[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                idf[i] = Math.log(1 + (live - lists[i].size + 0.5) / (lists[i].size + 0.5));
+            }
+
+            PriorityQueue<Hit> best = new PriorityQueue<>(RANK);
+            int[] cursors = new int[lists.length];
+            long matches = 0;
+            Postings first = lists[0];
+            candidates:
+            for (int i = 0; i < first.size; i++) {
+                int doc = first.docs[i];
+                for (int l = 1; l < lists.length; l++) {
+                    cursors[l] = lists[l].advance(cursors[l], doc);
+                    if (cursors[l] == lists[l].size) {
+                        break candidates;
+                    }
+                    if (lists[l].docs[cursors[l]] != doc) {
+                        continue candidates;
+                    }
+                }
+                if (removed.get(doc) || (kindMask & (1 << kinds[doc])) == 0 || times[doc] < from || times[doc] > to
+                        || (owner != null && ownerOf[doc] != SHARED && ownerOf[doc] != ownerId)) {
+                    continue;
+                }
+
+                matches++;
+                double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                double score = 0;
+                for (int l = 0; l < lists.length; l++) {
+                    int tf = l == 0 ? first.frequencies[i] : lists[l].frequencies[cursors[l]];
+                    score += idf[l] * tf * (K1 + 1) / (tf + norm);
+                }
+                if (best.size() == limit) {
+                    Hit worst = best.peek();
+                    if (worst == null || score < worst.score() || (score == worst.score() && doc < worst.doc())) {
+                        continue;
+                    }
+                    best.poll();
+                }
+                best.add(new Hit(doc, kinds[doc], keys[doc], score));
+            }
+
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(RANK.reversed());
+            return new Result(hits, matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void compact() {
+        // Live documents keep their order, so the renumbered lists stay sorted
+        int[] renumbered = new int[documents];
+        int live = 0;
+        for (int doc = 0; doc < documents; doc++) {
+            if (removed.get(doc)) {
+                renumbered[doc] = -1;
+                continue;
+            }
+            renumbered[doc] = live;
+            keys[live] = keys[doc];
+            kinds[live] = kinds[doc];
+            ownerOf[live] = ownerOf[doc];
+            times[live] = times[doc];
+            lengths[live] = lengths[doc];
+            live++;
+        }
+
+        for (Iterator<Postings> it = terms.values().iterator(); it.hasNext(); ) {
+            Postings postings = it.next();
+            int kept = 0;
+            for (int i = 0; i < postings.size; i++) {
+                int doc = renumbered[postings.docs[i]];
+                if (doc >= 0) {
+                    postings.docs[kept] = doc;
+                    postings.frequencies[kept] = postings.frequencies[i];
+                    kept++;
+                }
+            }
+            if (kept == 0) {
+                it.remove();
+            } else {
+                postings.trim(kept);
+            }
+        }
+        for (Map<Long, Integer> docs : docsByKind.values()) {
+            docs.replaceAll((key, doc) -> renumbered[doc]);
+        }
+
+        documents = live;
+        removedCount = 0;
+        removed = new BitSet();
+        resize(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, live)) * 2));
+    }
+
+    private void resize(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        ownerOf = Arrays.copyOf(ownerOf, capacity);
+        times = Arrays.copyOf(times, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    /**
+     * Adds the lower-cased words of {@code text} to {@code frequencies} and returns their count.
+     */
+    static int tokenize(String text, int weight, Map<String, Integer> frequencies) {
+        if (text == null) {
+            return 0;
+        }
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                frequencies.merge(text.substring(start, i).toLowerCase(), weight, Integer::sum);
+                count += weight;
+                start = -1;
+            }
+        }
+        return count;
+    }
+
+    public record Hit(int doc, int kind, long key, double score) {
+    }
+
+    public record Result(List<Hit> hits, long matches) {
+    }
+
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        // Keeps the first size entries, giving back space once the list is down to a quarter
+        void trim(int size) {
+            this.size = size;
+            if (docs.length > 4 && size * 4 <= docs.length) {
+                int capacity = Math.max(4, size * 2);
+                docs = Arrays.copyOf(docs, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+            }
+        }
+
+        // First position at or after from whose document is at least doc, by galloping search
+        int advance(int from, int doc) {
+            if (from >= size || docs[from] >= doc) {
+                return from;
+            }
+            int step = 1;
+            int low = from;
+            int high = from + 1;
+            while (high < size && docs[high] < doc) {
+                low = high;
+                step <<= 1;
+                high = low + step;
+            }
+            high = Math.min(high, size);
+            int index = Arrays.binarySearch(docs, low + 1, high, doc);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.city.management.replay;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Layout of an indicator recording: an 8-byte header followed by tagged records. A series record
+ * names a (mode, sensor) pair and implicitly takes the next series number; a reading record is a
+ * fixed 21 bytes holding the series number, the event time in epoch milliseconds and the value.
+ */
+public final class RecordingFormat {
+
+    static final int MAGIC = 0x49524543;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+
+    static final byte SERIES = 1;
+    static final byte READING = 2;
+
+    static final int READING_BYTES = 1 + 4 + 8 + 8;
+    static final int MAX_NAME_BYTES = 1024;
+
+    private RecordingFormat() {
+    }
+
+    public static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1000 + timestamp.getNano() / 1_000_000;
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000),
+                Math.floorMod(epochMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,134 @@
+package com.city.management.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sequential reader over a recording. The file is pulled through a 1 MB direct buffer in large
+ * reads; {@link #next()} decodes one reading in place, so iterating allocates nothing except the
+ * series names. A record cut short at the end of the file, as left by a crash, ends the stream.
+ */
+public class RecordingReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    private final List<String> modes = new ArrayList<>();
+    private final List<String> sensors = new ArrayList<>();
+
+    private int series;
+    private long epochMillis;
+    private double value;
+
+    public RecordingReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer.limit(0);
+        if (!fill(RecordingFormat.HEADER_BYTES) || buffer.getInt() != RecordingFormat.MAGIC) {
+            channel.close();
+            throw new IOException("Not an indicator recording: " + path.getFileName());
+        }
+        int version = buffer.getInt();
+        if (version != RecordingFormat.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported recording version " + version);
+        }
+    }
+
+    /**
+     * Advances to the next reading; false at the end of the recording.
+     */
+    public boolean next() throws IOException {
+        while (fill(1)) {
+            int start = buffer.position();
+            byte tag = buffer.get(start);
+            if (tag == RecordingFormat.READING) {
+                if (!fill(RecordingFormat.READING_BYTES)) {
+                    return false;
+                }
+                buffer.get();
+                series = buffer.getInt();
+                epochMillis = buffer.getLong();
+                value = buffer.getDouble();
+                if (series < 0 || series >= modes.size()) {
+                    throw new IOException("Reading refers to unknown series " + series);
+                }
+                return true;
+            }
+            if (tag != RecordingFormat.SERIES) {
+                throw new IOException("Corrupt recording: unknown record tag " + tag);
+            }
+            if (!fill(3)) {
+                return false;
+            }
+            int modeLength = buffer.getShort(buffer.position() + 1) & 0xFFFF;
+            if (!fill(3 + modeLength + 2)) {
+                return false;
+            }
+            int sensorLength = buffer.getShort(buffer.position() + 3 + modeLength) & 0xFFFF;
+            if (!fill(3 + modeLength + 2 + sensorLength)) {
+                return false;
+            }
+            buffer.get();
+            buffer.getShort();
+            modes.add(string(modeLength));
+            buffer.getShort();
+            sensors.add(string(sensorLength));
+        }
+        return false;
+    }
+
+    public int seriesId() {
+        return series;
+    }
+
+    public String mode() {
+        return modes.get(series);
+    }
+
+    public String sensorId() {
+        return sensors.get(series);
+    }
+
+    public long epochMillis() {
+        return epochMillis;
+    }
+
+    public double value() {
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Makes sure at least n bytes are buffered, refilling from the file; false at end of file
+    private boolean fill(int n) throws IOException {
+        if (buffer.remaining() >= n) {
+            return true;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < n) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+        return buffer.remaining() >= n;
+    }
+
+    private String string(int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
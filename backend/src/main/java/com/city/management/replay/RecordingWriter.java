@@ -0,0 +1,93 @@
+package com.city.management.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends readings to a new recording file through a 64 KB buffer. Series numbers are assigned
+ * on first use, so the file is only readable from the start and is never appended to later.
+ */
+public class RecordingWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private final Map<String, Map<String, Integer>> series = new HashMap<>();
+    private int seriesCount;
+    private long records;
+
+    public RecordingWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        buffer.putInt(RecordingFormat.MAGIC).putInt(RecordingFormat.VERSION);
+    }
+
+    public synchronized void append(String mode, String sensorId, long epochMillis, double value) throws IOException {
+        Map<String, Integer> sensors = series.computeIfAbsent(mode, m -> new HashMap<>());
+        Integer id = sensors.get(sensorId);
+        if (id == null) {
+            byte[] modeBytes = encode(mode);
+            byte[] sensorBytes = encode(sensorId);
+            ensure(1 + 2 + modeBytes.length + 2 + sensorBytes.length);
+            buffer.put(RecordingFormat.SERIES)
+                    .putShort((short) modeBytes.length).put(modeBytes)
+                    .putShort((short) sensorBytes.length).put(sensorBytes);
+            id = seriesCount++;
+            sensors.put(sensorId, id);
+        }
+
+        ensure(RecordingFormat.READING_BYTES);
+        buffer.put(RecordingFormat.READING).putInt(id).putLong(epochMillis).putDouble(value);
+        records++;
+    }
+
+    public synchronized void flush() throws IOException {
+        drain();
+    }
+
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    public synchronized long getBytes() throws IOException {
+        return channel.position() + buffer.position();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            drain();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] encode(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > RecordingFormat.MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Mode and sensor names are limited to "
+                    + RecordingFormat.MAX_NAME_BYTES + " bytes");
+        }
+        return bytes;
+    }
+}
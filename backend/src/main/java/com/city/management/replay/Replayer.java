@@ -0,0 +1,237 @@
+package com.city.management.replay;
+
+import com.city.management.model.IndicatorReading;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Replays a recording into a sink at a multiple of real time. A reader thread streams the file
+ * and holds each reading back until its event time, scaled by the speed, is due; speed 0 sends
+ * everything as fast as the sink accepts it. With parallelism above one the readings are handed
+ * to worker threads by series, so every series is still delivered in recorded order.
+ *
+ * A looping replay shifts each pass forward by whole days, so time keeps moving forward and the
+ * daily pattern stays aligned.
+ */
+public final class Replayer {
+
+    public enum State {
+        RUNNING,
+        FINISHED,
+        STOPPED,
+        FAILED
+    }
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final IndicatorReading END = new IndicatorReading();
+
+    private final Path path;
+    private final double speed;
+    private final boolean loop;
+    private final Consumer<IndicatorReading> sink;
+    private final Consumer<Replayer> onFinish;
+    private final List<BlockingQueue<IndicatorReading>> queues = new ArrayList<>();
+    private final Thread[] workers;
+    private final Thread reader;
+
+    private volatile boolean stopRequested;
+    private volatile State state = State.RUNNING;
+    private volatile String error;
+    private volatile long wallStartNanos;
+    private volatile long eventStartMillis = Long.MIN_VALUE;
+    private volatile long lastEventMillis = Long.MIN_VALUE;
+    private volatile int passes;
+    private final long startedNanos = System.nanoTime();
+    private volatile long finishedNanos;
+
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public Replayer(Path path, double speed, boolean loop, int parallelism, Consumer<IndicatorReading> sink,
+                    Consumer<Replayer> onFinish) {
+        this.path = path;
+        this.speed = speed;
+        this.loop = loop;
+        this.sink = sink;
+        this.onFinish = onFinish;
+        int workerCount = parallelism > 1 ? parallelism : 0;
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<IndicatorReading> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            queues.add(queue);
+            workers[i] = new Thread(() -> work(queue), "replay-worker-" + i);
+            workers[i].setDaemon(true);
+        }
+        this.reader = new Thread(this::run, "replay-reader");
+        this.reader.setDaemon(true);
+    }
+
+    public void start() {
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        reader.start();
+    }
+
+    public void stop() {
+        stopRequested = true;
+        LockSupport.unpark(reader);
+    }
+
+    public boolean awaitTermination(long millis) throws InterruptedException {
+        reader.join(millis);
+        return !reader.isAlive();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Current time on the replayed clock in epoch milliseconds: the paced position while running,
+     * otherwise the newest event sent. Long.MIN_VALUE before the first reading.
+     */
+    public long replayedTimeMillis() {
+        long eventStart = eventStartMillis;
+        if (state != State.RUNNING || speed <= 0 || eventStart == Long.MIN_VALUE) {
+            return lastEventMillis;
+        }
+        return eventStart + (long) ((System.nanoTime() - wallStartNanos) / 1_000_000.0 * speed);
+    }
+
+    public Map<String, Object> getStatus() {
+        long end = state == State.RUNNING ? System.nanoTime() : finishedNanos;
+        double seconds = Math.max(1e-9, (end - startedNanos) / 1e9);
+        long sent = replayed.sum();
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state.name().toLowerCase());
+        status.put("speed", speed);
+        status.put("loop", loop);
+        status.put("parallelism", Math.max(1, workers.length));
+        status.put("passes", passes);
+        status.put("readings", sent);
+        status.put("failed", failed.sum());
+        status.put("elapsedSeconds", Math.round(seconds * 10) / 10.0);
+        status.put("readingsPerSecond", Math.round(sent / seconds));
+        long replayedTime = replayedTimeMillis();
+        status.put("replayedTime", replayedTime == Long.MIN_VALUE ? null
+                : RecordingFormat.toLocalDateTime(replayedTime).toString());
+        if (error != null) {
+            status.put("error", error);
+        }
+        return status;
+    }
+
+    private void run() {
+        try {
+            long offset = 0;
+            do {
+                long first = Long.MAX_VALUE;
+                long last = Long.MIN_VALUE;
+                try (RecordingReader in = new RecordingReader(path)) {
+                    while (!stopRequested && in.next()) {
+                        long millis = in.epochMillis() + offset;
+                        if (first == Long.MAX_VALUE) {
+                            // Each pass is paced from its own first reading
+                            wallStartNanos = System.nanoTime();
+                            eventStartMillis = millis;
+                        }
+                        first = Math.min(first, in.epochMillis());
+                        last = Math.max(last, in.epochMillis());
+
+                        pace(millis);
+                        IndicatorReading reading = new IndicatorReading(in.mode(), in.sensorId(),
+                                RecordingFormat.toLocalDateTime(millis), in.value());
+                        if (workers.length == 0) {
+                            deliver(reading);
+                        } else {
+                            queues.get(in.seriesId() % workers.length).put(reading);
+                        }
+                        lastEventMillis = Math.max(lastEventMillis, millis);
+                    }
+                }
+                if (first == Long.MAX_VALUE || stopRequested) {
+                    break;
+                }
+                passes++;
+                offset += ((last - first) / DAY_MILLIS + 1) * DAY_MILLIS;
+            } while (loop && !stopRequested);
+            finish(stopRequested ? State.STOPPED : State.FINISHED);
+        } catch (InterruptedException e) {
+            finish(State.STOPPED);
+        } catch (IOException | RuntimeException e) {
+            error = e.getMessage();
+            finish(State.FAILED);
+        }
+    }
+
+    private void pace(long eventMillis) {
+        if (speed <= 0) {
+            return;
+        }
+        long due = wallStartNanos + (long) ((eventMillis - eventStartMillis) * 1_000_000.0 / speed);
+        while (!stopRequested) {
+            long wait = due - System.nanoTime();
+            if (wait <= 0) {
+                return;
+            }
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private void finish(State outcome) {
+        for (BlockingQueue<IndicatorReading> queue : queues) {
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        finishedNanos = System.nanoTime();
+        state = outcome;
+        onFinish.accept(this);
+    }
+
+    private void work(BlockingQueue<IndicatorReading> queue) {
+        try {
+            while (true) {
+                IndicatorReading reading = queue.take();
+                if (reading == END) {
+                    return;
+                }
+                deliver(reading);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver(IndicatorReading reading) {
+        try {
+            sink.accept(reading);
+            replayed.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.city.management.replay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a synthetic multi-day recording for every indicator mode, so a fresh install has a
+ * realistic stream to replay. Each mode follows its own daily shape, weekends are quieter and
+ * every sensor carries a fixed scale plus a little noise.
+ */
+public final class SampleRecording {
+
+    // mode, sensor prefix, level at the daily peak, daily shape
+    private static final Object[][] MODES = {
+            {"car", "junction", 520.0, Shape.COMMUTE},
+            {"bus", "route", 60.0, Shape.COMMUTE},
+            {"train", "station", 900.0, Shape.COMMUTE},
+            {"tram", "stop", 300.0, Shape.COMMUTE},
+            {"cycle", "counter", 140.0, Shape.COMMUTE},
+            {"pedestrian", "plaza", 800.0, Shape.MIDDAY},
+            {"events", "venue", 2500.0, Shape.EVENING},
+            {"construction", "site", 40.0, Shape.WORKING_DAY},
+    };
+
+    private static final double NOISE = 0.05;
+
+    private enum Shape {
+        COMMUTE(new double[]{0.08, 0.05, 0.04, 0.04, 0.08, 0.2, 0.5, 0.85, 1.0, 0.75, 0.55, 0.55,
+                0.6, 0.6, 0.55, 0.6, 0.8, 0.95, 0.8, 0.55, 0.4, 0.3, 0.2, 0.12}),
+        MIDDAY(new double[]{0.05, 0.03, 0.02, 0.02, 0.03, 0.05, 0.12, 0.3, 0.5, 0.6, 0.75, 0.9,
+                1.0, 0.95, 0.8, 0.7, 0.7, 0.75, 0.65, 0.5, 0.35, 0.2, 0.12, 0.08}),
+        EVENING(new double[]{0.3, 0.15, 0.05, 0.02, 0.02, 0.02, 0.02, 0.02, 0.03, 0.05, 0.05, 0.08,
+                0.1, 0.1, 0.1, 0.12, 0.15, 0.25, 0.5, 0.85, 1.0, 0.9, 0.7, 0.5}),
+        WORKING_DAY(new double[]{0, 0, 0, 0, 0, 0, 0.1, 0.8, 1.0, 1.0, 1.0, 1.0,
+                0.6, 1.0, 1.0, 1.0, 0.9, 0.3, 0, 0, 0, 0, 0, 0});
+
+        final double[] hourly;
+
+        Shape(double[] hourly) {
+            this.hourly = hourly;
+        }
+
+        double at(double hour) {
+            int h = (int) hour;
+            double fraction = hour - h;
+            return hourly[h] * (1 - fraction) + hourly[(h + 1) % 24] * fraction;
+        }
+    }
+
+    private SampleRecording() {
+    }
+
+    /**
+     * Writes {@code days} of readings ending at {@code endMillis}, one per sensor every
+     * {@code intervalMinutes}.
+     */
+    public static void write(Path path, int days, int sensorsPerMode, int intervalMinutes,
+                             long endMillis, long seed) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        SplittableRandom random = new SplittableRandom(seed);
+        long step = TimeUnit.MINUTES.toMillis(intervalMinutes);
+        long start = endMillis - TimeUnit.DAYS.toMillis(days);
+
+        double[][] scales = new double[MODES.length][sensorsPerMode];
+        for (double[] modeScales : scales) {
+            for (int s = 0; s < sensorsPerMode; s++) {
+                modeScales[s] = 0.7 + 0.6 * random.nextDouble();
+            }
+        }
+
+        try (RecordingWriter writer = new RecordingWriter(path)) {
+            for (long time = start; time < endMillis; time += step) {
+                LocalDateTime timestamp = RecordingFormat.toLocalDateTime(time);
+                double hour = timestamp.getHour() + timestamp.getMinute() / 60.0;
+                double weekday = timestamp.getDayOfWeek().getValue() >= 6 ? 0.6 : 1.0;
+                for (int m = 0; m < MODES.length; m++) {
+                    Object[] mode = MODES[m];
+                    Shape shape = (Shape) mode[3];
+                    double level = (double) mode[2] * weekday
+                            * (shape == Shape.WORKING_DAY && weekday < 1 ? 0 : shape.at(hour));
+                    for (int s = 0; s < sensorsPerMode; s++) {
+                        double value = level * scales[m][s] * (1 + NOISE * random.nextGaussian());
+                        writer.append((String) mode[0], mode[1] + "-" + (s + 1), time,
+                                Math.round(Math.max(0, value) * 10) / 10.0);
+                    }
+                }
+            }
+        }
+    }
+}
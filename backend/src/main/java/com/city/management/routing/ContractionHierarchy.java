@@ -0,0 +1,565 @@
+package com.city.management.routing;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Contraction hierarchy over one metric of a {@link RoadGraph}. Preprocessing contracts nodes in
+ * edge-difference order and writes the upward and downward search graphs to a file, which is
+ * memory-mapped on later starts so no hierarchy has to be rebuilt.
+ *
+ * Up edges of v lead to higher-ranked targets and drive the forward search; down edges of v
+ * come from higher-ranked sources and drive the backward search. Shortcuts store the node they
+ * bypass so paths can be unpacked.
+ */
+public class ContractionHierarchy {
+
+    static final int MAGIC = 0x45494843; // "CHIE"
+    static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+
+    private final int nodeCount;
+    private final IntBuffer upOffsets;
+    private final IntBuffer upTargets;
+    private final FloatBuffer upWeights;
+    private final IntBuffer upMiddle;
+    private final IntBuffer downOffsets;
+    private final IntBuffer downSources;
+    private final FloatBuffer downWeights;
+    private final IntBuffer downMiddle;
+    private final ThreadLocal<QueryState> states;
+
+    private ContractionHierarchy(MappedByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        nodeCount = buffer.getInt(8);
+        int upCount = buffer.getInt(20);
+        int downCount = buffer.getInt(24);
+
+        int position = HEADER_BYTES;
+        upOffsets = RoadGraph.slice(buffer, position, nodeCount + 1).asIntBuffer();
+        position += (nodeCount + 1) * 4;
+        upTargets = RoadGraph.slice(buffer, position, upCount).asIntBuffer();
+        position += upCount * 4;
+        upWeights = RoadGraph.slice(buffer, position, upCount).asFloatBuffer();
+        position += upCount * 4;
+        upMiddle = RoadGraph.slice(buffer, position, upCount).asIntBuffer();
+        position += upCount * 4;
+        downOffsets = RoadGraph.slice(buffer, position, nodeCount + 1).asIntBuffer();
+        position += (nodeCount + 1) * 4;
+        downSources = RoadGraph.slice(buffer, position, downCount).asIntBuffer();
+        position += downCount * 4;
+        downWeights = RoadGraph.slice(buffer, position, downCount).asFloatBuffer();
+        position += downCount * 4;
+        downMiddle = RoadGraph.slice(buffer, position, downCount).asIntBuffer();
+
+        states = ThreadLocal.withInitial(() -> new QueryState(nodeCount));
+    }
+
+    /**
+     * Maps a hierarchy file, or returns null if it is missing or was built for another graph,
+     * including an edited version of this one with the same number of nodes and edges.
+     */
+    public static ContractionHierarchy open(Path file, RoadGraph graph, RouteMetric metric) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(8) != graph.nodeCount() || buffer.getInt(12) != graph.edgeCount()
+                    || buffer.getInt(16) != metric.ordinal() || buffer.getInt(28) != graph.checksum()) {
+                return null;
+            }
+            return new ContractionHierarchy(buffer);
+        }
+    }
+
+    public static void build(RoadGraph graph, RouteMetric metric, Path file) throws IOException {
+        new Builder(graph, metric).contract().write(file);
+    }
+
+    public RoutePath query(int source, int target) {
+        QueryState q = states.get();
+        q.reset();
+        q.relaxForward(source, 0, -1, -1);
+        q.relaxBackward(target, 0, -1, -1);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        while (Math.min(q.forward.peekKey(), q.backward.peekKey()) < best) {
+            boolean forward = q.forward.peekKey() <= q.backward.peekKey();
+            MinHeap heap = forward ? q.forward : q.backward;
+            double key = heap.peekKey();
+            int u = heap.pop();
+            if (key > (forward ? q.distForward(u) : q.distBackward(u))) {
+                continue;
+            }
+
+            double other = forward ? q.distBackward(u) : q.distForward(u);
+            if (key + other < best) {
+                best = key + other;
+                meet = u;
+            }
+
+            if (forward) {
+                for (int e = upOffsets.get(u), end = upOffsets.get(u + 1); e < end; e++) {
+                    q.relaxForward(upTargets.get(e), key + upWeights.get(e), u, upMiddle.get(e));
+                }
+            } else {
+                for (int e = downOffsets.get(u), end = downOffsets.get(u + 1); e < end; e++) {
+                    q.relaxBackward(downSources.get(e), key + downWeights.get(e), u, downMiddle.get(e));
+                }
+            }
+        }
+
+        if (meet < 0) {
+            return null;
+        }
+        return new RoutePath(unpackPath(q, source, meet), best);
+    }
+
+    private int[] unpackPath(QueryState q, int source, int meet) {
+        IntList hops = new IntList();
+        for (int v = meet; v != source; v = q.parentForward[v]) {
+            hops.add(v);
+        }
+        IntList path = new IntList();
+        path.add(source);
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            int v = hops.get(i);
+            unpackEdge(q.parentForward[v], v, q.middleForward[v], path);
+        }
+        for (int v = meet; q.parentBackward[v] >= 0; v = q.parentBackward[v]) {
+            unpackEdge(v, q.parentBackward[v], q.middleBackward[v], path);
+        }
+        return path.toArray();
+    }
+
+    // Appends the nodes after 'from' on the original edges behind (from -> to)
+    private void unpackEdge(int from, int to, int middle, IntList path) {
+        IntList stack = new IntList();
+        stack.add(from);
+        stack.add(to);
+        stack.add(middle);
+        while (stack.size() > 0) {
+            int mid = stack.pop();
+            int b = stack.pop();
+            int a = stack.pop();
+            if (mid < 0) {
+                path.add(b);
+                continue;
+            }
+            // The bypassed node was contracted first, so both halves are stored at it
+            stack.add(mid);
+            stack.add(b);
+            stack.add(upMiddleOf(mid, b));
+            stack.add(a);
+            stack.add(mid);
+            stack.add(downMiddleOf(mid, a));
+        }
+    }
+
+    private int upMiddleOf(int node, int target) {
+        int best = -1;
+        float bestWeight = Float.POSITIVE_INFINITY;
+        for (int e = upOffsets.get(node), end = upOffsets.get(node + 1); e < end; e++) {
+            if (upTargets.get(e) == target && upWeights.get(e) < bestWeight) {
+                bestWeight = upWeights.get(e);
+                best = upMiddle.get(e);
+            }
+        }
+        return best;
+    }
+
+    private int downMiddleOf(int node, int source) {
+        int best = -1;
+        float bestWeight = Float.POSITIVE_INFINITY;
+        for (int e = downOffsets.get(node), end = downOffsets.get(node + 1); e < end; e++) {
+            if (downSources.get(e) == source && downWeights.get(e) < bestWeight) {
+                bestWeight = downWeights.get(e);
+                best = downMiddle.get(e);
+            }
+        }
+        return best;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    private static final class QueryState {
+        final double[] distForward;
+        final double[] distBackward;
+        final int[] stampForward;
+        final int[] stampBackward;
+        final int[] parentForward;
+        final int[] parentBackward;
+        final int[] middleForward;
+        final int[] middleBackward;
+        final MinHeap forward = new MinHeap();
+        final MinHeap backward = new MinHeap();
+        int stamp;
+
+        QueryState(int n) {
+            distForward = new double[n];
+            distBackward = new double[n];
+            stampForward = new int[n];
+            stampBackward = new int[n];
+            parentForward = new int[n];
+            parentBackward = new int[n];
+            middleForward = new int[n];
+            middleBackward = new int[n];
+        }
+
+        void reset() {
+            forward.clear();
+            backward.clear();
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stampForward, 0);
+                Arrays.fill(stampBackward, 0);
+                stamp = 1;
+            }
+        }
+
+        double distForward(int v) {
+            return stampForward[v] == stamp ? distForward[v] : Double.POSITIVE_INFINITY;
+        }
+
+        double distBackward(int v) {
+            return stampBackward[v] == stamp ? distBackward[v] : Double.POSITIVE_INFINITY;
+        }
+
+        void relaxForward(int v, double dist, int parent, int middle) {
+            if (dist < distForward(v)) {
+                stampForward[v] = stamp;
+                distForward[v] = dist;
+                parentForward[v] = parent;
+                middleForward[v] = middle;
+                forward.push(dist, v);
+            }
+        }
+
+        void relaxBackward(int v, double dist, int parent, int middle) {
+            if (dist < distBackward(v)) {
+                stampBackward[v] = stamp;
+                distBackward[v] = dist;
+                parentBackward[v] = parent;
+                middleBackward[v] = middle;
+                backward.push(dist, v);
+            }
+        }
+    }
+
+    private static final class Builder {
+        private static final int SETTLE_LIMIT = 500;
+
+        final int n;
+        final int graphEdges;
+        final int metricOrdinal;
+        final int graphChecksum;
+        final EdgeList[] out;
+        final EdgeList[] in;
+        final boolean[] contracted;
+        final int[] deletedNeighbors;
+        final int[] rank;
+
+        // Witness search scratch space
+        final double[] witnessDist;
+        final int[] witnessStamp;
+        final MinHeap witnessHeap = new MinHeap();
+        int stamp;
+
+        Builder(RoadGraph graph, RouteMetric metric) {
+            n = graph.nodeCount();
+            graphEdges = graph.edgeCount();
+            metricOrdinal = metric.ordinal();
+            graphChecksum = graph.checksum();
+            out = new EdgeList[n];
+            in = new EdgeList[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new EdgeList();
+                in[v] = new EdgeList();
+            }
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++) {
+                    int v = graph.target(e);
+                    if (v != u) {
+                        addEdge(u, v, graph.weight(e, metric), -1);
+                    }
+                }
+            }
+            contracted = new boolean[n];
+            deletedNeighbors = new int[n];
+            rank = new int[n];
+            witnessDist = new double[n];
+            witnessStamp = new int[n];
+        }
+
+        Builder contract() {
+            MinHeap queue = new MinHeap();
+            for (int v = 0; v < n; v++) {
+                queue.push(priority(v), v);
+            }
+
+            int next = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.pop();
+                if (contracted[v]) {
+                    continue;
+                }
+                // Lazy update: re-evaluate and put back if another node has become cheaper
+                double p = priority(v);
+                if (!queue.isEmpty() && p > queue.peekKey()) {
+                    queue.push(p, v);
+                    continue;
+                }
+                contractNode(v, true);
+                contracted[v] = true;
+                rank[v] = next++;
+            }
+            return this;
+        }
+
+        private double priority(int v) {
+            int degree = 0;
+            for (int i = 0; i < out[v].size; i++) {
+                degree += contracted[out[v].node[i]] ? 0 : 1;
+            }
+            for (int i = 0; i < in[v].size; i++) {
+                degree += contracted[in[v].node[i]] ? 0 : 1;
+            }
+            return contractNode(v, false) - degree + deletedNeighbors[v];
+        }
+
+        private int contractNode(int v, boolean apply) {
+            EdgeList incoming = in[v];
+            EdgeList outgoing = out[v];
+            double maxOut = 0;
+            for (int j = 0; j < outgoing.size; j++) {
+                if (!contracted[outgoing.node[j]]) {
+                    maxOut = Math.max(maxOut, outgoing.weight[j]);
+                }
+            }
+
+            int shortcuts = 0;
+            for (int i = 0; i < incoming.size; i++) {
+                int u = incoming.node[i];
+                if (contracted[u]) {
+                    continue;
+                }
+                if (apply) {
+                    deletedNeighbors[u]++;
+                }
+                float w1 = incoming.weight[i];
+                witnessSearch(u, v, w1 + maxOut);
+                for (int j = 0; j < outgoing.size; j++) {
+                    int x = outgoing.node[j];
+                    if (x == u || contracted[x]) {
+                        continue;
+                    }
+                    float via = w1 + outgoing.weight[j];
+                    if (witnessDistance(x) > via) {
+                        shortcuts++;
+                        if (apply) {
+                            addEdge(u, x, via, v);
+                        }
+                    }
+                }
+            }
+            if (apply) {
+                for (int j = 0; j < outgoing.size; j++) {
+                    deletedNeighbors[outgoing.node[j]]++;
+                }
+            }
+            return shortcuts;
+        }
+
+        private void witnessSearch(int source, int skip, double limit) {
+            stamp++;
+            witnessHeap.clear();
+            witnessStamp[source] = stamp;
+            witnessDist[source] = 0;
+            witnessHeap.push(0, source);
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < SETTLE_LIMIT) {
+                double key = witnessHeap.peekKey();
+                int u = witnessHeap.pop();
+                if (key > witnessDistance(u)) {
+                    continue;
+                }
+                if (key > limit) {
+                    break;
+                }
+                settled++;
+                EdgeList edges = out[u];
+                for (int i = 0; i < edges.size; i++) {
+                    int x = edges.node[i];
+                    if (x == skip || contracted[x]) {
+                        continue;
+                    }
+                    double d = key + edges.weight[i];
+                    if (d < witnessDistance(x)) {
+                        witnessStamp[x] = stamp;
+                        witnessDist[x] = d;
+                        witnessHeap.push(d, x);
+                    }
+                }
+            }
+        }
+
+        private double witnessDistance(int v) {
+            return witnessStamp[v] == stamp ? witnessDist[v] : Double.POSITIVE_INFINITY;
+        }
+
+        private void addEdge(int u, int v, float weight, int middle) {
+            int existing = out[u].indexOf(v);
+            if (existing >= 0) {
+                if (weight < out[u].weight[existing]) {
+                    out[u].weight[existing] = weight;
+                    out[u].middle[existing] = middle;
+                    int back = in[v].indexOf(u);
+                    in[v].weight[back] = weight;
+                    in[v].middle[back] = middle;
+                }
+                return;
+            }
+            out[u].add(v, weight, middle);
+            in[v].add(u, weight, middle);
+        }
+
+        void write(Path file) throws IOException {
+            int[] upOffsets = new int[n + 1];
+            int[] downOffsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                upOffsets[v + 1] = upOffsets[v] + countHigher(out[v], rank[v]);
+                downOffsets[v + 1] = downOffsets[v] + countHigher(in[v], rank[v]);
+            }
+            int upCount = upOffsets[n];
+            int downCount = downOffsets[n];
+
+            long size = HEADER_BYTES + 4L * (2L * (n + 1) + 3L * upCount + 3L * downCount);
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(graphEdges).putInt(metricOrdinal).putInt(upCount).putInt(downCount)
+                        .putInt(graphChecksum);
+
+                int base = HEADER_BYTES;
+                writeInts(buffer, base, upOffsets);
+                base += (n + 1) * 4;
+                base = writeEdges(buffer, base, out, upCount);
+                writeInts(buffer, base, downOffsets);
+                base += (n + 1) * 4;
+                writeEdges(buffer, base, in, downCount);
+                buffer.force();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        private int countHigher(EdgeList edges, int ownRank) {
+            int count = 0;
+            for (int i = 0; i < edges.size; i++) {
+                if (rank[edges.node[i]] > ownRank) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private int writeEdges(MappedByteBuffer buffer, int base, EdgeList[] lists, int count) {
+            int nodes = base;
+            int weights = base + count * 4;
+            int middles = base + count * 8;
+            int k = 0;
+            for (int v = 0; v < n; v++) {
+                EdgeList edges = lists[v];
+                for (int i = 0; i < edges.size; i++) {
+                    if (rank[edges.node[i]] > rank[v]) {
+                        buffer.putInt(nodes + k * 4, edges.node[i]);
+                        buffer.putFloat(weights + k * 4, edges.weight[i]);
+                        buffer.putInt(middles + k * 4, edges.middle[i]);
+                        k++;
+                    }
+                }
+            }
+            return base + count * 12;
+        }
+
+        private static void writeInts(MappedByteBuffer buffer, int base, int[] values) {
+            for (int i = 0; i < values.length; i++) {
+                buffer.putInt(base + i * 4, values[i]);
+            }
+        }
+    }
+
+    private static final class EdgeList {
+        int[] node = new int[4];
+        float[] weight = new float[4];
+        int[] middle = new int[4];
+        int size;
+
+        void add(int v, float w, int mid) {
+            if (size == node.length) {
+                node = Arrays.copyOf(node, size * 2);
+                weight = Arrays.copyOf(weight, size * 2);
+                middle = Arrays.copyOf(middle, size * 2);
+            }
+            node[size] = v;
+            weight[size] = w;
+            middle[size] = mid;
+            size++;
+        }
+
+        int indexOf(int v) {
+            for (int i = 0; i < size; i++) {
+                if (node[i] == v) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int pop() {
+            return values[--size];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.city.management.routing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Directed road network in compressed sparse row form, read straight from a memory-mapped file.
+ *
+ * File layout (little endian): magic, version, nodeCount, edgeCount, then the arrays
+ * lat[n], lon[n] (float), offsets[n + 1], targets[m] (int), lengths[m] in metres and
+ * speeds[m] in km/h (float). Edges leaving node u are offsets[u] until offsets[u + 1].
+ */
+public class RoadGraph {
+
+    static final int MAGIC = 0x47525343; // "CSRG"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final int nodeCount;
+    private final int edgeCount;
+    private final FloatBuffer lat;
+    private final FloatBuffer lon;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final FloatBuffer lengths;
+    private final FloatBuffer speeds;
+    private final ByteBuffer edgeData;
+    private volatile int checksum;
+    private volatile boolean checksummed;
+
+    private RoadGraph(MappedByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a road graph file");
+        }
+        nodeCount = buffer.getInt(8);
+        edgeCount = buffer.getInt(12);
+
+        int position = HEADER_BYTES;
+        lat = slice(buffer, position, nodeCount).asFloatBuffer();
+        position += nodeCount * 4;
+        lon = slice(buffer, position, nodeCount).asFloatBuffer();
+        position += nodeCount * 4;
+        // Offsets, targets, lengths and speeds follow each other to the end of the file
+        edgeData = buffer.slice(position, (nodeCount + 1) * 4 + edgeCount * 12);
+        offsets = slice(buffer, position, nodeCount + 1).asIntBuffer();
+        position += (nodeCount + 1) * 4;
+        targets = slice(buffer, position, edgeCount).asIntBuffer();
+        position += edgeCount * 4;
+        lengths = slice(buffer, position, edgeCount).asFloatBuffer();
+        position += edgeCount * 4;
+        speeds = slice(buffer, position, edgeCount).asFloatBuffer();
+    }
+
+    public static RoadGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new RoadGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static void write(Path file, float[] lat, float[] lon, int[] offsets, int[] targets,
+                             float[] lengths, float[] speeds) throws IOException {
+        int n = lat.length;
+        int m = targets.length;
+        long size = HEADER_BYTES + 4L * (3L * n + 1 + 3L * m);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m);
+            out.asFloatBuffer().put(lat);
+            out.position(out.position() + n * 4);
+            out.asFloatBuffer().put(lon);
+            out.position(out.position() + n * 4);
+            out.asIntBuffer().put(offsets);
+            out.position(out.position() + (n + 1) * 4);
+            out.asIntBuffer().put(targets);
+            out.position(out.position() + m * 4);
+            out.asFloatBuffer().put(lengths);
+            out.position(out.position() + m * 4);
+            out.asFloatBuffer().put(speeds);
+            out.force();
+        }
+    }
+
+    static ByteBuffer slice(ByteBuffer buffer, int position, int count) {
+        return buffer.slice(position, count * 4).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * CRC-32C of the edge arrays, everything route weights are derived from. Files built from
+     * the graph store it to tell whether they still match after the graph was edited.
+     */
+    public int checksum() {
+        if (!checksummed) {
+            CRC32C crc = new CRC32C();
+            crc.update(edgeData.duplicate());
+            checksum = (int) crc.getValue();
+            checksummed = true;
+        }
+        return checksum;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public int firstEdge(int node) {
+        return offsets.get(node);
+    }
+
+    public int endEdge(int node) {
+        return offsets.get(node + 1);
+    }
+
+    public int target(int edge) {
+        return targets.get(edge);
+    }
+
+    public float length(int edge) {
+        return lengths.get(edge);
+    }
+
+    public float speed(int edge) {
+        return speeds.get(edge);
+    }
+
+    // Free-flow travel time in seconds
+    public float travelTime(int edge) {
+        return lengths.get(edge) / (speeds.get(edge) / 3.6f);
+    }
+
+    public float weight(int edge, RouteMetric metric) {
+        return metric == RouteMetric.SHORTEST ? length(edge) : travelTime(edge);
+    }
+
+    public float lat(int node) {
+        return lat.get(node);
+    }
+
+    public float lon(int node) {
+        return lon.get(node);
+    }
+
+    /**
+     * Node that something without coordinates of its own, such as a sensor, is pinned to. Keys
+     * are spread over the nodes by hash, so the same key always lands on the same node.
+     */
+    public int anchorNode(String key) {
+        return Math.floorMod(key.hashCode() * 0x9E3779B1, nodeCount);
+    }
+}
@@ -0,0 +1,6 @@
+package com.city.management.routing;
+
+public enum RouteMetric {
+    SHORTEST,
+    FASTEST
+}
@@ -0,0 +1,4 @@
+package com.city.management.routing;
+
+public record RoutePath(int[] nodes, double cost) {
+}
@@ -0,0 +1,243 @@
+package com.city.management.service;
+
+import com.city.management.analytics.Correlation;
+import com.city.management.analytics.HourlySeries;
+import com.city.management.model.CorrelationMatrix;
+import com.city.management.model.CorrelationResult;
+import com.city.management.model.EffectResult;
+import com.city.management.model.IndicatorReading;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cross-mode analytics over hourly columns. Every reading updates an hourly series for its mode
+ * and one for its sensor; queries cut the requested window out of those columns and hand it to
+ * the {@link Correlation} kernels. Every series holds its whole retention, so at most
+ * {@code analytics.max-series} of them are kept.
+ */
+@Service
+public class AnalyticsService {
+
+    public static final List<String> MODES =
+            List.of("car", "cycle", "bus", "train", "tram", "pedestrian", "events", "construction");
+
+    private static final String ALL_SENSORS = "*";
+
+    @Value("${analytics.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${analytics.default-window-days:30}")
+    private int defaultWindowDays;
+
+    @Value("${analytics.max-lag-hours:48}")
+    private int maxLagHours;
+
+    @Value("${analytics.max-series:1000}")
+    private int maxSeries;
+
+    private int capacity;
+    private final Map<String, HourlySeries> series = new ConcurrentHashMap<>();
+    private final AtomicLong latestHour = new AtomicLong(Long.MIN_VALUE);
+
+    @PostConstruct
+    public void init() {
+        capacity = Math.max(1, retentionDays) * 24;
+    }
+
+    public void onReading(IndicatorReading reading) {
+        long hour = Math.floorDiv(reading.getTimestamp().toEpochSecond(ZoneOffset.UTC), 3600);
+        latestHour.accumulateAndGet(hour, Math::max);
+        add(reading.getMode(), ALL_SENSORS, hour, reading.getValue());
+        // A sensor named like the mode total would be counted in it twice
+        if (!ALL_SENSORS.equals(reading.getSensorId())) {
+            add(reading.getMode(), reading.getSensorId(), hour, reading.getValue());
+        }
+    }
+
+    public CorrelationResult correlate(String x, String xSensor, String y, String ySensor,
+                                       LocalDateTime from, LocalDateTime to, int maxLag) {
+        if (maxLag < 0 || maxLag > maxLagHours) {
+            throw new IllegalArgumentException("maxLag must be between 0 and " + maxLagHours);
+        }
+        long[] window = window(from, to);
+        double[] xs = column(x, xSensor, window);
+        double[] ys = column(y, ySensor, window);
+
+        Correlation.Sample[] samples = Correlation.crossCorrelation(xs, ys, maxLag);
+        List<CorrelationResult.LagCorrelation> lags = new ArrayList<>(samples.length);
+        int bestLag = 0;
+        double best = Double.NaN;
+        for (int i = 0; i < samples.length; i++) {
+            double coefficient = samples[i].coefficient();
+            lags.add(new CorrelationResult.LagCorrelation(i - maxLag, value(coefficient), samples[i].samples()));
+            if (!Double.isNaN(coefficient) && (Double.isNaN(best) || Math.abs(coefficient) > Math.abs(best))) {
+                best = coefficient;
+                bestLag = i - maxLag;
+            }
+        }
+        Correlation.Sample atZero = samples[maxLag];
+        return new CorrelationResult(label(x, xSensor), label(y, ySensor), hourStart(window[0]), hourStart(window[1]),
+                value(atZero.coefficient()), atZero.samples(), Double.isNaN(best) ? null : bestLag, value(best), lags);
+    }
+
+    public CorrelationMatrix matrix(LocalDateTime from, LocalDateTime to) {
+        long[] window = window(from, to);
+        double[][] columns = new double[MODES.size()][];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = column(MODES.get(i), null, window);
+        }
+
+        Correlation.Sample[][] samples = Correlation.matrix(columns);
+        Double[][] coefficients = new Double[columns.length][columns.length];
+        int[][] counts = new int[columns.length][columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            for (int j = 0; j < columns.length; j++) {
+                coefficients[i][j] = value(samples[i][j].coefficient());
+                counts[i][j] = samples[i][j].samples();
+            }
+        }
+        return new CorrelationMatrix(MODES, hourStart(window[0]), hourStart(window[1]), coefficients, counts);
+    }
+
+    /**
+     * Compares {@code effect} in hours where {@code cause} is above the threshold with the other
+     * hours; without a threshold the cause's own mean over the window is used.
+     */
+    public EffectResult effect(String cause, String effect, LocalDateTime from, LocalDateTime to,
+                               int lag, Double threshold) {
+        if (Math.abs(lag) > maxLagHours) {
+            throw new IllegalArgumentException("lag must be between -" + maxLagHours + " and " + maxLagHours);
+        }
+        long[] window = window(from, to);
+        double[] causes = column(cause, null, window);
+        double[] effects = column(effect, null, window);
+        double cut = threshold != null ? threshold : Correlation.mean(causes);
+
+        Correlation.Split split = Correlation.split(causes, effects, lag, cut);
+        Double change = null;
+        if (split.hoursWith() > 0 && split.hoursWithout() > 0 && split.meanWithout() != 0) {
+            change = value(100 * (split.meanWith() - split.meanWithout()) / split.meanWithout());
+        }
+        return new EffectResult(cause, effect, hourStart(window[0]), hourStart(window[1]), lag, value(cut),
+                value(split.meanWith()), split.hoursWith(), value(split.meanWithout()), split.hoursWithout(),
+                change, value(split.welchT()));
+    }
+
+    /**
+     * Mean reading of each of {@code mode}'s sensors by hour of day (UTC) over the {@code days}
+     * days up to the newest data, NaN for hours of day without readings.
+     */
+    public Map<String, double[]> sensorProfiles(String mode, int days) {
+        long last = getLatestHour();
+        Map<String, double[]> profiles = new HashMap<>();
+        if (last == Long.MIN_VALUE) {
+            return profiles;
+        }
+        long first = last - (long) Math.min(days * 24, capacity) + 1;
+        String prefix = mode + ":";
+        for (Map.Entry<String, HourlySeries> entry : series.entrySet()) {
+            String sensorId = entry.getKey().substring(entry.getKey().indexOf(':') + 1);
+            if (!entry.getKey().startsWith(prefix) || ALL_SENSORS.equals(sensorId)) {
+                continue;
+            }
+            double[] means = entry.getValue().means(first, last);
+            double[] sums = new double[24];
+            int[] counts = new int[24];
+            for (int i = 0; i < means.length; i++) {
+                if (!Double.isNaN(means[i])) {
+                    int hourOfDay = (int) Math.floorMod(first + i, 24L);
+                    sums[hourOfDay] += means[i];
+                    counts[hourOfDay]++;
+                }
+            }
+            double[] profile = new double[24];
+            for (int h = 0; h < 24; h++) {
+                profile[h] = counts[h] > 0 ? sums[h] / counts[h] : Double.NaN;
+            }
+            profiles.put(sensorId, profile);
+        }
+        return profiles;
+    }
+
+    /**
+     * Newest hour any reading fell in, or Long.MIN_VALUE before the first one.
+     */
+    public long getLatestHour() {
+        return latestHour.get();
+    }
+
+    private void add(String mode, String sensorId, long hour, double value) {
+        String key = mode + ":" + sensorId;
+        HourlySeries column = series.get(key);
+        if (column == null) {
+            // Past the cap new sensors are left out; the series already kept go on filling
+            if (series.size() >= maxSeries) {
+                return;
+            }
+            column = series.computeIfAbsent(key, k -> new HourlySeries(capacity));
+        }
+        column.add(hour, value);
+    }
+
+    private double[] column(String mode, String sensorId, long[] window) {
+        if (mode == null || !MODES.contains(mode)) {
+            throw new IllegalArgumentException("Mode must be one of " + String.join(", ", MODES));
+        }
+        if (ALL_SENSORS.equals(sensorId)) {
+            throw new IllegalArgumentException("Leave out the sensor to use the whole mode");
+        }
+        HourlySeries column = series.get(mode + ":" + (sensorId != null ? sensorId : ALL_SENSORS));
+        if (column == null) {
+            double[] empty = new double[(int) (window[1] - window[0] + 1)];
+            Arrays.fill(empty, Double.NaN);
+            return empty;
+        }
+        return column.means(window[0], window[1]);
+    }
+
+    // First and last hour of the query; defaults to the last default-window-days up to the newest data
+    private long[] window(LocalDateTime from, LocalDateTime to) {
+        long last;
+        if (to != null) {
+            last = Math.floorDiv(to.toEpochSecond(ZoneOffset.UTC), 3600);
+        } else {
+            last = getLatestHour();
+            if (last == Long.MIN_VALUE) {
+                last = Math.floorDiv(LocalDateTime.now().toEpochSecond(ZoneOffset.UTC), 3600);
+            }
+        }
+        long first = from != null ? Math.floorDiv(from.toEpochSecond(ZoneOffset.UTC), 3600)
+                : last - (long) defaultWindowDays * 24 + 1;
+        if (first > last) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (last - first + 1 > capacity) {
+            throw new IllegalArgumentException("The window may span at most " + retentionDays + " days");
+        }
+        return new long[]{first, last};
+    }
+
+    private static LocalDateTime hourStart(long hour) {
+        return LocalDateTime.ofEpochSecond(hour * 3600, 0, ZoneOffset.UTC);
+    }
+
+    private static String label(String mode, String sensorId) {
+        return sensorId != null ? mode + ":" + sensorId : mode;
+    }
+
+    // NaN is reported as null
+    private static Double value(double value) {
+        return Double.isNaN(value) ? null : Math.round(value * 10000) / 10000.0;
+    }
+}
@@ -0,0 +1,194 @@
+package com.city.management.service;
+
+import com.city.management.model.DashboardOverview;
+import com.city.management.model.IndicatorReading;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scores each indicator reading against a constant-size seasonal EWMA baseline per series
+ * (one mean/variance per hour of day) and raises alerts with debounce and hysteresis.
+ */
+@Service
+public class AnomalyDetectionService {
+
+    private static final int SLOTS = 24;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private DashboardMetricsService dashboardMetricsService;
+
+    @Value("${anomaly.alpha:0.05}")
+    private double alpha;
+
+    @Value("${anomaly.enter-threshold:3.0}")
+    private double enterThreshold;
+
+    @Value("${anomaly.exit-threshold:1.5}")
+    private double exitThreshold;
+
+    @Value("${anomaly.debounce-samples:3}")
+    private int debounceSamples;
+
+    @Value("${anomaly.warmup-samples:12}")
+    private int warmupSamples;
+
+    @Value("${anomaly.max-alerts:100}")
+    private int maxAlerts;
+
+    @Value("${anomaly.max-series:10000}")
+    private int maxSeries;
+
+    @Value("${anomaly.notify-user:admin}")
+    private String notifyUser;
+
+    private final Map<String, SeriesState> series = new ConcurrentHashMap<>();
+    private final Deque<DashboardOverview.Alert> recentAlerts = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger alertCount = new AtomicInteger();
+    private final AtomicInteger activeAlarms = new AtomicInteger();
+    private final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    public void onReading(IndicatorReading reading) {
+        String key = reading.getMode() + ":" + reading.getSensorId();
+        SeriesState state = series.get(key);
+        if (state == null) {
+            // Past the cap new sensors are not scored; the series already tracked keep their baselines
+            if (series.size() >= maxSeries) {
+                return;
+            }
+            state = series.computeIfAbsent(key, k -> {
+                dashboardMetricsService.onSeriesTracked();
+                return new SeriesState();
+            });
+        }
+
+        int transition;
+        double expected;
+        synchronized (state) {
+            expected = state.expected(reading.getTimestamp().getHour());
+            transition = state.update(reading.getTimestamp().getHour(), reading.getValue());
+        }
+
+        if (transition == SeriesState.OPENED) {
+            activeAlarms.incrementAndGet();
+            dashboardMetricsService.onAlarmOpened(reading.getTimestamp());
+            publishAlarm(reading, expected);
+        } else if (transition == SeriesState.CLOSED) {
+            activeAlarms.decrementAndGet();
+            dashboardMetricsService.onAlarmClosed();
+            addAlert("info", String.format("%s levels back to normal at sensor %s",
+                    capitalize(reading.getMode()), reading.getSensorId()), reading.getTimestamp());
+        }
+    }
+
+    public List<DashboardOverview.Alert> getRecentAlerts() {
+        return new ArrayList<>(recentAlerts);
+    }
+
+    public int getActiveAlarmCount() {
+        return activeAlarms.get();
+    }
+
+    private void publishAlarm(IndicatorReading reading, double expected) {
+        String direction = reading.getValue() > expected ? "High" : "Low";
+        String message = String.format("%s %s volume at sensor %s (%.1f, expected %.1f)",
+                direction, reading.getMode(), reading.getSensorId(), reading.getValue(), expected);
+        addAlert("warning", message, reading.getTimestamp());
+        notificationService.createNotification(
+                capitalize(reading.getMode()) + " Alert", message, "warning", notifyUser);
+    }
+
+    private void addAlert(String severity, String message, LocalDateTime timestamp) {
+        DashboardOverview.Alert alert = new DashboardOverview.Alert(severity, message, timestamp.format(formatter));
+        recentAlerts.addFirst(alert);
+        notificationService.indexAlert(alert, timestamp);
+        if (alertCount.incrementAndGet() > maxAlerts && recentAlerts.pollLast() != null) {
+            alertCount.decrementAndGet();
+        }
+    }
+
+    private static String capitalize(String value) {
+        return value.isEmpty() ? value : Character.toUpperCase(value.charAt(0)) + value.substring(1);
+    }
+
+    private final class SeriesState {
+        static final int NONE = 0;
+        static final int OPENED = 1;
+        static final int CLOSED = 2;
+
+        // Index SLOTS holds the global baseline used while an hour slot is still warming up
+        final double[] mean = new double[SLOTS + 1];
+        final double[] var = new double[SLOTS + 1];
+        final int[] count = new int[SLOTS + 1];
+        boolean alarm;
+        int streak;
+
+        double expected(int slot) {
+            return mean[count[slot] >= warmupSamples ? slot : SLOTS];
+        }
+
+        int update(int slot, double value) {
+            double z = score(slot, value);
+            int transition = NONE;
+
+            if (!Double.isNaN(z)) {
+                double magnitude = Math.abs(z);
+                if (!alarm) {
+                    streak = magnitude >= enterThreshold ? streak + 1 : 0;
+                    if (streak >= debounceSamples) {
+                        alarm = true;
+                        streak = 0;
+                        transition = OPENED;
+                    }
+                } else {
+                    streak = magnitude <= exitThreshold ? streak + 1 : 0;
+                    if (streak >= debounceSamples) {
+                        alarm = false;
+                        streak = 0;
+                        transition = CLOSED;
+                    }
+                }
+            }
+
+            learn(slot, value);
+            learn(SLOTS, value);
+            return transition;
+        }
+
+        private double score(int slot, double value) {
+            int baseline = count[slot] >= warmupSamples ? slot : SLOTS;
+            if (count[baseline] < warmupSamples) {
+                return Double.NaN;
+            }
+            // Floor the deviation so a perfectly flat series does not turn every wobble into an alarm
+            double sd = Math.max(Math.sqrt(var[baseline]), Math.max(Math.abs(mean[baseline]) * 0.01, 1e-6));
+            return (value - mean[baseline]) / sd;
+        }
+
+        private void learn(int index, double value) {
+            double delta = value - mean[index];
+            if (count[index] == 0) {
+                mean[index] = value;
+            } else {
+                mean[index] += alpha * delta;
+                var[index] = (1 - alpha) * (var[index] + alpha * delta * delta);
+            }
+            if (count[index] < Integer.MAX_VALUE) {
+                count[index]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.city.management.service;
+
+import com.city.management.audit.AuditAction;
+import com.city.management.audit.AuditLog;
+import com.city.management.model.AuditEntry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Audit trail of sensitive actions: logins and registrations, user changes and simulation runs.
+ * Recording an event only publishes it to the {@link AuditLog} ring, so it never blocks the
+ * request; the log writes it to {@code audit.directory} in the background.
+ */
+@Service
+public class AuditService {
+
+    @Value("${audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.directory:data/audit}")
+    private String directory;
+
+    @Value("${audit.ring-size:8192}")
+    private int ringSize;
+
+    @Value("${audit.segment-max-mb:8}")
+    private long segmentMaxMb;
+
+    @Value("${audit.segment-max-minutes:60}")
+    private long segmentMaxMinutes;
+
+    @Value("${audit.max-segments:48}")
+    private int maxSegments;
+
+    @Value("${audit.fsync:true}")
+    private boolean fsync;
+
+    @Value("${audit.idle-millis:20}")
+    private long idleMillis;
+
+    @Value("${audit.query.max-limit:1000}")
+    private int maxLimit;
+
+    private AuditLog auditLog;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (enabled) {
+            auditLog = new AuditLog(Path.of(directory), ringSize, segmentMaxMb << 20,
+                    TimeUnit.MINUTES.toMillis(segmentMaxMinutes), maxSegments, fsync, idleMillis);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (auditLog != null) {
+            auditLog.close();
+        }
+    }
+
+    /**
+     * Records an action by the authenticated user of the current request.
+     */
+    public void record(AuditAction action, boolean success, String target, String detail) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        record(action, success, authentication != null ? authentication.getName() : "anonymous", target, detail);
+    }
+
+    public void record(AuditAction action, boolean success, String actor, String target, String detail) {
+        if (auditLog == null) {
+            return;
+        }
+        String remoteAddress = null;
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servlet) {
+            remoteAddress = servlet.getRequest().getRemoteAddr();
+        }
+        auditLog.append(System.currentTimeMillis(), action, success, actor, target, remoteAddress, detail);
+    }
+
+    public Map<String, Object> query(String action, String actor, LocalDateTime from, LocalDateTime to, int limit)
+            throws IOException {
+        if (auditLog == null) {
+            throw new IllegalStateException("Audit log is disabled");
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        AuditAction parsed = null;
+        if (action != null) {
+            try {
+                parsed = AuditAction.valueOf(action.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown action: " + action);
+            }
+        }
+
+        AuditLog.Query query = auditLog.query(parsed, actor,
+                from != null ? toEpochMillis(from) : Long.MIN_VALUE,
+                to != null ? toEpochMillis(to) : Long.MAX_VALUE, limit);
+        List<AuditEntry> entries = query.entries().stream()
+                .map(entry -> new AuditEntry(
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.timeMillis()), ZoneId.systemDefault()),
+                        entry.action().name(), entry.success(), entry.actor(), entry.target(),
+                        entry.remoteAddress(), entry.detail()))
+                .toList();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", entries);
+        result.put("segmentsScanned", query.segmentsScanned());
+        result.put("log", auditLog.getMetrics());
+        return result;
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
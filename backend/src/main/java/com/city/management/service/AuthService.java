@@ -5,6 +5,7 @@ import com.city.management.model.RegisterRequest;
 import com.city.management.model.Role;
 import com.city.management.model.User;
 import com.city.management.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -19,6 +20,9 @@ public class AuthService {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     public Optional<JwtResponse> login(String username, String password) {
         Optional<User> userOpt = userService.findByUsername(username);
 
@@ -27,7 +31,7 @@ public class AuthService {
         }
 
         User user = userOpt.get();
-        if (!userService.validatePassword(user, password)) {
+        if (!user.isActive() || !userService.validatePassword(user, password)) {
             return Optional.empty();
         }
 
@@ -45,6 +49,16 @@ public class AuthService {
         return Optional.of(response);
     }
 
+    public boolean logout(String token) {
+        try {
+            Claims claims = jwtUtil.parseToken(token);
+            tokenRevocationService.revokeToken(claims.getId(), claims.getExpiration());
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     public Optional<JwtResponse> registerCityManager(RegisterRequest request) {
         return register(request, Role.ROLE_CITY_MANAGER);
     }
@@ -59,14 +73,18 @@ public class AuthService {
             return Optional.empty();
         }
 
-        // Create new user
-        User user = userService.createUser(
+        // Create new user, unless someone took the name in the meantime
+        Optional<User> created = userService.createUser(
                 request.getUsername(),
                 request.getPassword(),
                 request.getEmail(),
                 request.getName(),
                 role
         );
+        if (created.isEmpty()) {
+            return Optional.empty();
+        }
+        User user = created.get();
 
         // Generate JWT token
         String token = jwtUtil.generateToken(user.getUsername(), user.getRole().name());
@@ -0,0 +1,42 @@
+package com.city.management.service;
+
+import com.city.management.replay.RecordingFormat;
+import com.city.management.replay.Replayer;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The application's notion of "now". Wall-clock time normally; while a recording is replayed it
+ * follows the replayed time, so readings without a timestamp, new simulations and notifications
+ * line up with the replayed stream.
+ */
+@Service
+public class ClockService {
+
+    private final AtomicReference<Replayer> replay = new AtomicReference<>();
+
+    public LocalDateTime now() {
+        Replayer source = replay.get();
+        if (source != null) {
+            long millis = source.replayedTimeMillis();
+            if (millis != Long.MIN_VALUE) {
+                return RecordingFormat.toLocalDateTime(millis);
+            }
+        }
+        return LocalDateTime.now();
+    }
+
+    public boolean isReplaying() {
+        return replay.get() != null;
+    }
+
+    public void follow(Replayer source) {
+        replay.set(source);
+    }
+
+    public void release(Replayer source) {
+        replay.compareAndSet(source, null);
+    }
+}
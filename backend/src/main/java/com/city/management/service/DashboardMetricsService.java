@@ -0,0 +1,178 @@
+package com.city.management.service;
+
+import com.city.management.model.DashboardStats;
+import com.city.management.model.IndicatorReading;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dashboard counters maintained by the events that change them, so reading the stats never
+ * scans users or simulations. Recent metrics are kept in a ring of per-minute buckets keyed by
+ * event time; the window ends at the newest minute seen, which follows replayed time too.
+ *
+ * Counts cover the events this node observes. In a cluster each node reports its own.
+ */
+@Service
+public class DashboardMetricsService {
+
+    private static final String TRAFFIC_MODE = "car";
+
+    private final LongAdder totalUsers = new LongAdder();
+    private final LongAdder activeUsers = new LongAdder();
+    private final LongAdder activeSimulations = new LongAdder();
+    private final LongAdder totalIncidents = new LongAdder();
+    private final LongAdder trackedSeries = new LongAdder();
+    private final LongAdder alarmingSeries = new LongAdder();
+
+    @Value("${dashboard.recent-window-minutes:60}")
+    private int windowMinutes;
+
+    private Bucket[] buckets;
+    private final AtomicLong latestMinute = new AtomicLong(Long.MIN_VALUE);
+    private final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    @PostConstruct
+    public void init() {
+        buckets = new Bucket[Math.max(1, windowMinutes)];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    public void onUserCreated(boolean active) {
+        totalUsers.increment();
+        if (active) {
+            activeUsers.increment();
+        }
+    }
+
+    public void onUserDeleted(boolean active) {
+        totalUsers.decrement();
+        if (active) {
+            activeUsers.decrement();
+        }
+    }
+
+    public void onUserActivationChanged(boolean active) {
+        if (active) {
+            activeUsers.increment();
+        } else {
+            activeUsers.decrement();
+        }
+    }
+
+    public void onSimulationStarted() {
+        activeSimulations.increment();
+    }
+
+    public void onSimulationFinished() {
+        activeSimulations.decrement();
+    }
+
+    public void onSeriesTracked() {
+        trackedSeries.increment();
+    }
+
+    public void onAlarmOpened(LocalDateTime timestamp) {
+        totalIncidents.increment();
+        alarmingSeries.increment();
+        Bucket bucket = bucket(timestamp);
+        if (bucket != null) {
+            bucket.incidents.increment();
+        }
+    }
+
+    public void onAlarmClosed() {
+        alarmingSeries.decrement();
+    }
+
+    public void onReading(IndicatorReading reading) {
+        Bucket bucket = bucket(reading.getTimestamp());
+        if (bucket == null) {
+            return;
+        }
+        bucket.readings.increment();
+        if (TRAFFIC_MODE.equals(reading.getMode())) {
+            bucket.trafficSum.add(reading.getValue());
+            bucket.trafficCount.increment();
+        }
+    }
+
+    public DashboardStats getStats() {
+        List<DashboardStats.MetricData> recent = new ArrayList<>();
+        long latest = latestMinute.get();
+        if (latest != Long.MIN_VALUE) {
+            for (long minute = latest - buckets.length + 1; minute <= latest; minute++) {
+                Bucket bucket = buckets[(int) Math.floorMod(minute, (long) buckets.length)];
+                if (bucket.minute != minute) {
+                    continue;
+                }
+                String timestamp = LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC).format(formatter);
+                long trafficCount = bucket.trafficCount.sum();
+                if (trafficCount > 0) {
+                    recent.add(new DashboardStats.MetricData(timestamp, "traffic", bucket.trafficSum.sum() / trafficCount));
+                }
+                recent.add(new DashboardStats.MetricData(timestamp, "readings", bucket.readings.sum()));
+                long incidents = bucket.incidents.sum();
+                if (incidents > 0) {
+                    recent.add(new DashboardStats.MetricData(timestamp, "incidents", incidents));
+                }
+            }
+        }
+
+        return new DashboardStats(totalUsers.intValue(), activeUsers.intValue(), activeSimulations.intValue(),
+                totalIncidents.intValue(), systemHealth(), recent);
+    }
+
+    // Share of indicator series that are not currently in alarm
+    private double systemHealth() {
+        long tracked = trackedSeries.sum();
+        if (tracked == 0) {
+            return 100.0;
+        }
+        return Math.round(1000.0 * (tracked - alarmingSeries.sum()) / tracked) / 10.0;
+    }
+
+    private Bucket bucket(LocalDateTime timestamp) {
+        long minute = Math.floorDiv(timestamp.toEpochSecond(ZoneOffset.UTC), 60);
+        long latest = latestMinute.accumulateAndGet(minute, Math::max);
+        if (minute <= latest - buckets.length) {
+            return null;
+        }
+
+        Bucket bucket = buckets[(int) Math.floorMod(minute, (long) buckets.length)];
+        if (bucket.minute != minute) {
+            synchronized (bucket) {
+                if (bucket.minute > minute) {
+                    return null;
+                }
+                if (bucket.minute < minute) {
+                    bucket.readings.reset();
+                    bucket.trafficSum.reset();
+                    bucket.trafficCount.reset();
+                    bucket.incidents.reset();
+                    bucket.minute = minute;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private static final class Bucket {
+        volatile long minute = Long.MIN_VALUE;
+        final LongAdder readings = new LongAdder();
+        final DoubleAdder trafficSum = new DoubleAdder();
+        final LongAdder trafficCount = new LongAdder();
+        final LongAdder incidents = new LongAdder();
+    }
+}
@@ -0,0 +1,281 @@
+package com.city.management.service;
+
+import com.city.management.demand.DemandCalibrator;
+import com.city.management.demand.OdMatrix;
+import com.city.management.demand.TimeSlice;
+import com.city.management.demand.Weather;
+import com.city.management.demand.ZoneSystem;
+import com.city.management.model.DemandReport;
+import com.city.management.routing.RoadGraph;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Travel demand between zones of the road graph, calibrated from the counts of the last
+ * {@code demand.window-days} days with {@link DemandCalibrator}. All time slices of a weather are
+ * calibrated together and cached until newer readings arrive; a stale calibration keeps being
+ * served while its replacement is built, so only the very first report for a weather waits and
+ * simulation densities never do. Clear weather is calibrated at startup.
+ */
+@Service
+public class DemandService {
+
+    private static final Logger log = LoggerFactory.getLogger(DemandService.class);
+
+    private static final String TRAFFIC_MODE = "car";
+    private static final double PEAK_DENSITY = 0.95;
+
+    @Autowired
+    private RouteService routeService;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Value("${demand.zone-meters:500}")
+    private double zoneMeters;
+
+    @Value("${demand.window-days:7}")
+    private int windowDays;
+
+    @Value("${demand.max-iterations:50}")
+    private int maxIterations;
+
+    @Value("${demand.tolerance:0.001}")
+    private double tolerance;
+
+    @Value("${demand.peak-asymmetry:0.3}")
+    private double asymmetry;
+
+    @Value("${demand.max-top:1000}")
+    private int maxTop;
+
+    @Value("${demand.warm-up:true}")
+    private boolean warmUp;
+
+    private ExecutorService calibrator;
+    private volatile ZoneSystem zones;
+    private final Map<Weather, Calibration> calibrations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        calibrator = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "demand-calibration");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (warmUp && routeService.getGraph() != null) {
+            calibration(Weather.CLEAR);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        calibrator.shutdownNow();
+    }
+
+    public DemandReport report(String timeOfDay, String weatherConditions, String mode, int top) {
+        TimeSlice slice = TimeSlice.parse(timeOfDay);
+        Weather weather = Weather.parse(weatherConditions);
+        if (mode != null && !DemandCalibrator.DECAY_PER_KM.containsKey(mode)) {
+            throw new IllegalArgumentException("mode must be one of "
+                    + String.join(", ", DemandCalibrator.DECAY_PER_KM.keySet()));
+        }
+        if (top < 0 || top > maxTop) {
+            throw new IllegalArgumentException("top must be between 0 and " + maxTop);
+        }
+
+        Calibrated calibrated = calibration(weather);
+        ZoneSystem zoneSystem = zones;
+        List<DemandReport.ModeDemand> modes = new ArrayList<>();
+        for (Map.Entry<String, OdMatrix> entry : calibrated.matrices().get(slice).entrySet()) {
+            if (mode != null && !mode.equals(entry.getKey())) {
+                continue;
+            }
+            OdMatrix matrix = entry.getValue();
+            List<DemandReport.OdPair> pairs = new ArrayList<>();
+            for (OdMatrix.Pair pair : matrix.top(top)) {
+                pairs.add(new DemandReport.OdPair(zone(zoneSystem, pair.origin()), zone(zoneSystem, pair.destination()),
+                        round(zoneSystem.distanceKm(pair.origin(), pair.destination())), round(pair.trips())));
+            }
+            modes.add(new DemandReport.ModeDemand(entry.getKey(), round(matrix.total()), matrix.iterations(),
+                    Double.isNaN(matrix.maxError()) ? null : matrix.maxError(), pairs));
+        }
+        return new DemandReport(slice.name().toLowerCase(), weather.name().toLowerCase(), zoneSystem.size(),
+                calibrated.dataHour() == Long.MIN_VALUE ? null : hourStart(calibrated.dataHour()),
+                calibrated.calibratedAt(), calibrated.millis(), modes);
+    }
+
+    /**
+     * Corridor density for a simulation at {@code timeOfDay}: car demand then relative to the
+     * busiest slice in clear weather, scaled so that slice is heavy traffic. Empty without a road
+     * graph or car counts, and while neither calibration has completed: starting a simulation
+     * never waits for one.
+     */
+    public Optional<Double> trafficDensity(String timeOfDay, String weatherConditions) {
+        TimeSlice slice = TimeSlice.parse(timeOfDay);
+        Weather weather = Weather.parse(weatherConditions);
+        if (routeService.getGraph() == null) {
+            return Optional.empty();
+        }
+        Optional<Calibrated> calibrated = completedCalibration(weather);
+        Optional<Calibrated> clearCalibrated = weather == Weather.CLEAR ? calibrated : completedCalibration(Weather.CLEAR);
+        if (calibrated.isEmpty() || clearCalibrated.isEmpty()) {
+            return Optional.empty();
+        }
+        OdMatrix demand = calibrated.get().matrices().get(slice).get(TRAFFIC_MODE);
+        double peak = 0;
+        for (Map<String, OdMatrix> matrices : clearCalibrated.get().matrices().values()) {
+            OdMatrix clear = matrices.get(TRAFFIC_MODE);
+            if (clear != null) {
+                peak = Math.max(peak, clear.total());
+            }
+        }
+        if (demand == null || peak <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(Math.round(1000 * PEAK_DENSITY * demand.total() / peak) / 1000.0);
+    }
+
+    /**
+     * The calibration for {@code weather}, waiting only when there has never been a successful
+     * one. IllegalStateException if that calibration fails.
+     */
+    private Calibrated calibration(Weather weather) {
+        Calibration calibration = refresh(weather);
+        CompletableFuture<Calibrated> future = calibration.future();
+        if ((!future.isDone() || future.isCompletedExceptionally()) && calibration.fallback() != null) {
+            return calibration.fallback();
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Demand calibration failed: " + e.getCause().getMessage(), e);
+        }
+    }
+
+    // The newest calibration for weather that completed, starting a new one if due but never waiting
+    private Optional<Calibrated> completedCalibration(Weather weather) {
+        Calibration calibration = refresh(weather);
+        CompletableFuture<Calibrated> future = calibration.future();
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            return Optional.of(future.getNow(null));
+        }
+        return Optional.ofNullable(calibration.fallback());
+    }
+
+    // Starts a calibration when there is none yet, the last one failed or newer readings arrived
+    private Calibration refresh(Weather weather) {
+        RoadGraph graph = routeService.getGraph();
+        if (graph == null) {
+            throw new IllegalStateException("Road graph not loaded");
+        }
+        long dataHour = analyticsService.getLatestHour();
+        return calibrations.compute(weather, (w, existing) -> {
+            if (existing != null && !existing.future().isCompletedExceptionally()
+                    && (existing.dataHour() == dataHour || !existing.future().isDone())) {
+                return existing;
+            }
+            // A calibration made before any reading arrived is no stand-in for one with data;
+            // a failed one passes on the stand-in it had
+            Calibrated fallback = null;
+            if (existing != null && existing.future().isCompletedExceptionally()) {
+                fallback = existing.fallback();
+            } else if (existing != null && existing.dataHour() != Long.MIN_VALUE) {
+                fallback = existing.future().getNow(null);
+            }
+            return new Calibration(dataHour,
+                    CompletableFuture.supplyAsync(() -> calibrate(graph, w, dataHour), calibrator), fallback);
+        });
+    }
+
+    private Calibrated calibrate(RoadGraph graph, Weather weather, long dataHour) {
+        long started = System.nanoTime();
+        ZoneSystem zoneSystem = zones;
+        if (zoneSystem == null) {
+            zoneSystem = new ZoneSystem(graph, zoneMeters);
+            zones = zoneSystem;
+        }
+
+        Map<String, Map<TimeSlice, double[]>> observed = new HashMap<>();
+        for (String mode : DemandCalibrator.DECAY_PER_KM.keySet()) {
+            Map<TimeSlice, double[]> counts = observedCounts(zoneSystem, analyticsService.sensorProfiles(mode, windowDays));
+            if (!counts.isEmpty()) {
+                observed.put(mode, counts);
+            }
+        }
+        DemandCalibrator demandCalibrator = new DemandCalibrator(zoneSystem, maxIterations, tolerance,
+                Math.max(0, Math.min(0.9, asymmetry)));
+        Map<TimeSlice, Map<String, OdMatrix>> matrices = demandCalibrator.calibrate(observed, weather);
+
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Calibrated {} demand for {} zones and {} modes in {} ms", weather.name().toLowerCase(),
+                zoneSystem.size(), observed.size(), millis);
+        return new Calibrated(matrices, dataHour, LocalDateTime.now(), millis);
+    }
+
+    // Per time slice, the summed hourly counts of the sensors in each zone, NaN where none counts
+    private static Map<TimeSlice, double[]> observedCounts(ZoneSystem zoneSystem, Map<String, double[]> profiles) {
+        Map<TimeSlice, double[]> counts = new HashMap<>();
+        for (Map.Entry<String, double[]> sensor : profiles.entrySet()) {
+            int zone = zoneSystem.zoneOfSensor(sensor.getKey());
+            for (TimeSlice slice : TimeSlice.values()) {
+                double sum = 0;
+                int hours = 0;
+                for (int hour = 0; hour < 24; hour++) {
+                    if (slice.contains(hour) && !Double.isNaN(sensor.getValue()[hour])) {
+                        sum += sensor.getValue()[hour];
+                        hours++;
+                    }
+                }
+                if (hours == 0) {
+                    continue;
+                }
+                double[] zonesCounts = counts.computeIfAbsent(slice, s -> {
+                    double[] empty = new double[zoneSystem.size()];
+                    Arrays.fill(empty, Double.NaN);
+                    return empty;
+                });
+                zonesCounts[zone] = (Double.isNaN(zonesCounts[zone]) ? 0 : zonesCounts[zone]) + sum / hours;
+            }
+        }
+        return counts;
+    }
+
+    private static DemandReport.Zone zone(ZoneSystem zoneSystem, int zone) {
+        return new DemandReport.Zone(zoneSystem.id(zone), zoneSystem.lat(zone), zoneSystem.lon(zone));
+    }
+
+    private static LocalDateTime hourStart(long hour) {
+        return LocalDateTime.ofEpochSecond(hour * 3600, 0, ZoneOffset.UTC);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private record Calibration(long dataHour, CompletableFuture<Calibrated> future, Calibrated fallback) {
+    }
+
+    private record Calibrated(Map<TimeSlice, Map<String, OdMatrix>> matrices, long dataHour,
+                              LocalDateTime calibratedAt, long millis) {
+    }
+}
@@ -0,0 +1,146 @@
+package com.city.management.service;
+
+import com.city.management.emissions.EmissionFactors;
+import com.city.management.emissions.EmissionLedger;
+import com.city.management.model.EmissionsReport;
+import com.city.management.model.IndicatorReading;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Emissions and energy use of the traffic the sensors count. Each reading is taken as that many
+ * vehicles or passengers covering {@code emissions.segment-km}, priced with {@link EmissionFactors} and added
+ * to the {@link EmissionLedger} under its mode and zone.
+ *
+ * Sensors carry no location, so a sensor's zone is its id without the trailing number, e.g.
+ * {@code main-street} for {@code main-street-1}.
+ */
+@Service
+public class EmissionsService {
+
+    private static final Pattern SENSOR_INDEX = Pattern.compile("[-_]?\\d+$");
+
+    @Value("${emissions.segment-km:1.0}")
+    private double segmentKm;
+
+    @Value("${emissions.grid-co2-g-per-kwh:300}")
+    private double gridCo2PerKwh;
+
+    @Value("${emissions.retention-hours:168}")
+    private int retentionHours;
+
+    @Value("${emissions.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${emissions.max-zones:1000}")
+    private int maxZones;
+
+    private EmissionFactors factors;
+    private EmissionLedger ledger;
+
+    @PostConstruct
+    public void init() {
+        factors = new EmissionFactors(gridCo2PerKwh);
+        ledger = new EmissionLedger(retentionHours, retentionDays, maxZones);
+    }
+
+    public void onReading(IndicatorReading reading) {
+        double[] perKm = factors.perKm(reading.getMode());
+        if (perKm == null) {
+            return;
+        }
+        double km = Math.max(0, reading.getValue()) * segmentKm;
+        long hour = Math.floorDiv(reading.getTimestamp().toEpochSecond(ZoneOffset.UTC), 3600);
+        ledger.add(reading.getMode(), zoneOf(reading.getSensorId()), hour,
+                km * perKm[0], km * perKm[1], km * perKm[2]);
+    }
+
+    /**
+     * Totals over {@code from} to {@code to}, grouped by mode, zone, hour or day. The window
+     * defaults to the day of the newest reading; groupings other than hour cover whole days.
+     */
+    public EmissionsReport report(String groupBy, LocalDateTime from, LocalDateTime to) {
+        EmissionLedger.Grouping grouping;
+        try {
+            grouping = EmissionLedger.Grouping.valueOf(groupBy.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("groupBy must be mode, zone, hour or day");
+        }
+        long[] window = window(from, to);
+        if (grouping != EmissionLedger.Grouping.HOUR) {
+            window = new long[]{Math.floorDiv(window[0], 24) * 24, Math.floorDiv(window[1], 24) * 24 + 23};
+        }
+
+        Map<String, double[]> totals = ledger.totals(window[0], window[1], grouping);
+        List<EmissionsReport.Totals> groups = new ArrayList<>(totals.size());
+        double[] sum = new double[4];
+        for (Map.Entry<String, double[]> entry : totals.entrySet()) {
+            String key = switch (grouping) {
+                case HOUR -> hourStart(Long.parseLong(entry.getKey())).toString();
+                case DAY -> hourStart(Long.parseLong(entry.getKey()) * 24).toLocalDate().toString();
+                default -> entry.getKey();
+            };
+            groups.add(totals(key, entry.getValue()));
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += entry.getValue()[i];
+            }
+        }
+        return new EmissionsReport(grouping.name().toLowerCase(), hourStart(window[0]), hourStart(window[1]),
+                totals("total", sum), groups);
+    }
+
+    /**
+     * Totals for the day of the newest reading, for the dashboard.
+     */
+    public EmissionsReport.Totals today() {
+        return report("day", null, null).getTotal();
+    }
+
+    /**
+     * Hourly totals over the last day, oldest first.
+     */
+    public List<EmissionsReport.Totals> lastDayByHour() {
+        long latest = ledger.latestHour();
+        if (latest == Long.MIN_VALUE) {
+            return List.of();
+        }
+        return report("hour", hourStart(latest - 23), hourStart(latest)).getGroups();
+    }
+
+    private long[] window(LocalDateTime from, LocalDateTime to) {
+        long latest = ledger.latestHour();
+        long end = to != null ? Math.floorDiv(to.toEpochSecond(ZoneOffset.UTC), 3600)
+                : latest == Long.MIN_VALUE ? 0 : latest;
+        long start = from != null ? Math.floorDiv(from.toEpochSecond(ZoneOffset.UTC), 3600)
+                : Math.floorDiv(end, 24) * 24;
+        if (start > end) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        return new long[]{start, end};
+    }
+
+    private static EmissionsReport.Totals totals(String key, double[] values) {
+        return new EmissionsReport.Totals(key, round(values[0]), round(values[1]), round(values[2]), (long) values[3]);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static String zoneOf(String sensorId) {
+        String zone = SENSOR_INDEX.matcher(sensorId).replaceFirst("");
+        return zone.isEmpty() ? sensorId : zone;
+    }
+
+    private static LocalDateTime hourStart(long hour) {
+        return LocalDateTime.ofEpochSecond(hour * 3600, 0, ZoneOffset.UTC);
+    }
+}
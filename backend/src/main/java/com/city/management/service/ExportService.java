@@ -0,0 +1,167 @@
+package com.city.management.service;
+
+import com.city.management.model.CursorPage;
+import com.city.management.model.Simulation;
+import com.city.management.replay.RecordingFormat;
+import com.city.management.replay.RecordingReader;
+import com.city.management.simulation.SimulationIndex;
+import com.city.management.util.CsvUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams indicator readings and simulation runs as CSV or NDJSON. Readings are read straight
+ * from the recording files and runs are fetched one index page at a time, so memory use does
+ * not depend on the size of the export. Output is flushed every {@code export.chunk-rows} rows;
+ * once the client has gone the next write fails and the export stops.
+ */
+@Service
+public class ExportService {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private static final String[] READING_COLUMNS = {"recording", "mode", "sensorId", "timestamp", "value"};
+    private static final String[] SIMULATION_COLUMNS = {"id", "name", "type", "status", "createdBy", "createdAt",
+            "completedAt", "derivedFrom", "version", "parameters", "results"};
+
+    @Autowired
+    private RecordingService recordingService;
+
+    @Autowired
+    private MockDataService mockDataService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${export.chunk-rows:1000}")
+    private int chunkRows;
+
+    public record ReadingFilter(String recording, Set<String> modes, String sensorId,
+                                LocalDateTime from, LocalDateTime to) {
+    }
+
+    /**
+     * Recordings the export will read; IllegalArgumentException for an unknown recording, so the
+     * caller can reject the request before the response starts.
+     */
+    public List<String> recordingsFor(ReadingFilter filter) {
+        if (filter.recording() != null) {
+            recordingService.resolve(filter.recording());
+            return List.of(filter.recording());
+        }
+        return recordingService.names();
+    }
+
+    public void exportReadings(ReadingFilter filter, Format format, OutputStream out) throws IOException {
+        long from = filter.from() != null ? RecordingFormat.toEpochMillis(filter.from()) : Long.MIN_VALUE;
+        long to = filter.to() != null ? RecordingFormat.toEpochMillis(filter.to()) : Long.MAX_VALUE;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        RowWriter rows = new RowWriter(writer, format, READING_COLUMNS);
+
+        for (String recording : recordingsFor(filter)) {
+            if (recordingService.isRecording(recording)) {
+                continue;
+            }
+            try (RecordingReader reader = new RecordingReader(recordingService.resolve(recording))) {
+                while (reader.next()) {
+                    long millis = reader.epochMillis();
+                    if (millis < from || millis > to
+                            || (filter.modes() != null && !filter.modes().contains(reader.mode()))
+                            || (filter.sensorId() != null && !filter.sensorId().equals(reader.sensorId()))) {
+                        continue;
+                    }
+                    rows.write(recording, reader.mode(), reader.sensorId(),
+                            RecordingFormat.toLocalDateTime(millis), reader.value());
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    public void exportSimulations(SimulationIndex.Filter filter, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        RowWriter rows = new RowWriter(writer, format, SIMULATION_COLUMNS);
+
+        SimulationIndex index = mockDataService.searchIndex();
+        String cursor = null;
+        do {
+            CursorPage<Simulation> page = mockDataService.findSimulations(index, filter,
+                    SimulationIndex.SortField.CREATED_AT, false, chunkRows, cursor);
+            for (Simulation simulation : page.getItems()) {
+                rows.write(simulation.getId(), simulation.getName(), simulation.getType(), simulation.getStatus(),
+                        simulation.getCreatedBy(), simulation.getCreatedAt(), simulation.getCompletedAt(),
+                        simulation.getDerivedFrom(), simulation.getVersion(), simulation.getParameters(), simulation.getResults());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        writer.flush();
+    }
+
+    private final class RowWriter {
+        final Writer writer;
+        final Format format;
+        final String[] columns;
+        int pending;
+
+        RowWriter(Writer writer, Format format, String[] columns) throws IOException {
+            this.writer = writer;
+            this.format = format;
+            this.columns = columns;
+            if (format == Format.CSV) {
+                writer.write(String.join(",", columns));
+                writer.write('\n');
+            }
+        }
+
+        void write(Object... values) throws IOException {
+            if (format == Format.NDJSON) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int i = 0; i < columns.length; i++) {
+                    row.put(columns[i], values[i]);
+                }
+                writer.write(objectMapper.writeValueAsString(row));
+            } else {
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(CsvUtil.escape(csvValue(values[i])));
+                }
+            }
+            writer.write('\n');
+            if (++pending == chunkRows) {
+                writer.flush();
+                pending = 0;
+            }
+        }
+
+        private String csvValue(Object value) throws IOException {
+            if (value == null) {
+                return "";
+            }
+            if (value instanceof LocalDateTime timestamp) {
+                return timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            }
+            // Nested maps go into a single cell as JSON
+            return value instanceof Map<?, ?> ? objectMapper.writeValueAsString(value) : value.toString();
+        }
+    }
+}
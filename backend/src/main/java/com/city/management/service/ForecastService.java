@@ -0,0 +1,200 @@
+package com.city.management.service;
+
+import com.city.management.model.IndicatorForecast;
+import com.city.management.model.IndicatorReading;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Additive Holt-Winters model per (mode, sensor) series and per mode, fed with hourly means.
+ * Each closed hour updates the model in O(1); forecasts are built on demand and cached until
+ * the next hour closes. At most {@code forecast.max-series} sensor series are modelled.
+ */
+@Service
+public class ForecastService {
+
+    public static final String ALL_SENSORS = "*";
+
+    private static final int SEASON = 24;
+    private static final int HORIZON = 24;
+    private static final double Z_95 = 1.96;
+
+    @Value("${forecast.alpha:0.3}")
+    private double alpha;
+
+    @Value("${forecast.beta:0.05}")
+    private double beta;
+
+    @Value("${forecast.gamma:0.2}")
+    private double gamma;
+
+    @Value("${forecast.max-series:10000}")
+    private int maxSeries;
+
+    private final Map<String, SeriesModel> models = new ConcurrentHashMap<>();
+    private final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    public void onReading(IndicatorReading reading) {
+        long hour = reading.getTimestamp().toEpochSecond(ZoneOffset.UTC) / 3600;
+        SeriesModel sensorModel = models.get(key(reading.getMode(), reading.getSensorId()));
+        // Past the cap new sensors are not modelled; they still feed their mode's model
+        if (sensorModel == null && models.size() < maxSeries) {
+            sensorModel = model(reading.getMode(), reading.getSensorId());
+        }
+        if (sensorModel != null) {
+            sensorModel.add(hour, reading.getValue());
+        }
+        model(reading.getMode(), ALL_SENSORS).add(hour, reading.getValue());
+    }
+
+    public Optional<IndicatorForecast> getForecast(String mode, String sensorId) {
+        SeriesModel model = models.get(key(mode, sensorId));
+        if (model == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(model.forecast(mode, sensorId));
+    }
+
+    public Optional<String> getPredictedPeakHour(String mode) {
+        return getForecast(mode, ALL_SENSORS).map(IndicatorForecast::getPeakHour);
+    }
+
+    /**
+     * Ratio of the current hour's mean to what the model expected for it, clamped to [0.5, 3];
+     * 1.0 while the mode has no trained model.
+     */
+    public double getLoadFactor(String mode) {
+        SeriesModel model = models.get(key(mode, ALL_SENSORS));
+        return model == null ? 1.0 : model.loadFactor();
+    }
+
+    private SeriesModel model(String mode, String sensorId) {
+        return models.computeIfAbsent(key(mode, sensorId), k -> new SeriesModel());
+    }
+
+    private static String key(String mode, String sensorId) {
+        return mode + ":" + sensorId;
+    }
+
+    private final class SeriesModel {
+        final double[] season = new double[SEASON];
+        long bucketHour = Long.MIN_VALUE;
+        double bucketSum;
+        int bucketCount;
+
+        long lastHour = Long.MIN_VALUE;
+        int warmupSlots;
+        double level;
+        double trend;
+        double mse;
+        long version;
+
+        IndicatorForecast cached;
+        long cachedVersion = -1;
+
+        synchronized void add(long hour, double value) {
+            if (hour < bucketHour) {
+                return;
+            }
+            if (hour > bucketHour) {
+                closeBucket();
+                bucketHour = hour;
+                bucketSum = 0;
+                bucketCount = 0;
+            }
+            bucketSum += value;
+            bucketCount++;
+        }
+
+        private void closeBucket() {
+            if (bucketCount == 0) {
+                return;
+            }
+            double y = bucketSum / bucketCount;
+            int slot = (int) Math.floorMod(bucketHour, (long) SEASON);
+
+            if (Integer.bitCount(warmupSlots) < SEASON) {
+                // Until every hour of day has been seen once, the hourly means seed level and season
+                if ((warmupSlots & (1 << slot)) != 0) {
+                    level -= season[slot] / SEASON;
+                }
+                warmupSlots |= 1 << slot;
+                season[slot] = y;
+                level += y / SEASON;
+                lastHour = bucketHour;
+                if (Integer.bitCount(warmupSlots) == SEASON) {
+                    for (int i = 0; i < SEASON; i++) {
+                        season[i] -= level;
+                    }
+                    version++;
+                }
+                return;
+            }
+
+            long steps = bucketHour - lastHour;
+            double predicted = level + steps * trend + season[slot];
+            double error = y - predicted;
+            mse = version == 1 ? error * error : (1 - alpha) * mse + alpha * error * error;
+
+            double previousLevel = level;
+            level = alpha * (y - season[slot]) + (1 - alpha) * (level + steps * trend);
+            trend = beta * (level - previousLevel) / steps + (1 - beta) * trend;
+            season[slot] = gamma * (y - level) + (1 - gamma) * season[slot];
+            lastHour = bucketHour;
+            version++;
+        }
+
+        synchronized double loadFactor() {
+            if (version == 0 || bucketCount == 0) {
+                return 1.0;
+            }
+            int slot = (int) Math.floorMod(bucketHour, (long) SEASON);
+            double expected = level + (bucketHour - lastHour) * trend + season[slot];
+            if (expected <= 0) {
+                return 1.0;
+            }
+            return Math.max(0.5, Math.min(3.0, (bucketSum / bucketCount) / expected));
+        }
+
+        synchronized IndicatorForecast forecast(String mode, String sensorId) {
+            if (version == 0) {
+                return null;
+            }
+            if (cachedVersion == version) {
+                return cached;
+            }
+
+            List<IndicatorForecast.ForecastPoint> points = new ArrayList<>(HORIZON);
+            double sd = Math.sqrt(mse);
+            double peakValue = Double.NEGATIVE_INFINITY;
+            int peakSlot = 0;
+            for (int k = 1; k <= HORIZON; k++) {
+                long hour = lastHour + k;
+                int slot = (int) Math.floorMod(hour, (long) SEASON);
+                double value = level + k * trend + season[slot];
+                double band = Z_95 * sd * Math.sqrt(1 + (k - 1) * alpha * alpha);
+                LocalDateTime timestamp = LocalDateTime.ofEpochSecond(hour * 3600, 0, ZoneOffset.UTC);
+                points.add(new IndicatorForecast.ForecastPoint(
+                        timestamp.format(formatter), value, Math.max(0, value - band), value + band));
+                if (value > peakValue) {
+                    peakValue = value;
+                    peakSlot = slot;
+                }
+            }
+
+            cached = new IndicatorForecast(mode, sensorId, LocalDateTime.now().format(formatter),
+                    String.format("%02d:00", peakSlot), points);
+            cachedVersion = version;
+            return cached;
+        }
+    }
+}
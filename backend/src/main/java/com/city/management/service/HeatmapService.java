@@ -0,0 +1,333 @@
+package com.city.management.service;
+
+import com.city.management.heatmap.CongestionGrid;
+import com.city.management.heatmap.TileCache;
+import com.city.management.heatmap.TileRenderer;
+import com.city.management.model.IndicatorReading;
+import com.city.management.model.Simulation;
+import com.city.management.routing.RoadGraph;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Congestion heatmap tiles. Live tiles come from the {@code heatmap.mode} readings of one hour;
+ * simulation tiles spread a finished run's congestion over the live pattern of the hour it was
+ * started in. Encoded tiles are kept in an LRU cache. A reading marks the area its sensor
+ * affects as changed, and before the next tile is served only the cached tiles overlapping
+ * that area are dropped. Concurrent requests for the same tile share one render.
+ *
+ * Sensors have no coordinates of their own, so each is pinned to a road graph node chosen by
+ * hashing its id. At most {@code heatmap.max-sensors} sensors are placed; readings of sensors
+ * first seen after that are left out, which also bounds the grid's per-sensor references.
+ */
+@Service
+public class HeatmapService {
+
+    private static final double FREE_FLOW_SPEED = 50.0;
+
+    @Value("${heatmap.mode:car}")
+    private String mode;
+
+    @Value("${heatmap.cell-meters:100}")
+    private double cellMeters;
+
+    @Value("${heatmap.sensor-radius-meters:1000}")
+    private double radiusMeters;
+
+    @Value("${heatmap.hours:24}")
+    private int hours;
+
+    @Value("${heatmap.bounds:53.30,-6.35,53.39,-6.20}")
+    private String defaultBounds;
+
+    @Value("${heatmap.cache-max-mb:64}")
+    private int cacheMaxMb;
+
+    @Value("${heatmap.min-zoom:10}")
+    private int minZoom;
+
+    @Value("${heatmap.max-zoom:18}")
+    private int maxZoom;
+
+    @Value("${heatmap.binary-resolution:64}")
+    private int binaryResolution;
+
+    @Value("${heatmap.max-sensors:10000}")
+    private int maxSensors;
+
+    @Autowired
+    private RouteService routeService;
+
+    @Autowired
+    private MockDataService mockDataService;
+
+    private CongestionGrid grid;
+    private TileCache cache;
+    private byte[] emptyPng;
+    private byte[] emptyBinary;
+    private final Map<String, double[]> sensorLocations = new ConcurrentHashMap<>();
+    private final Map<Long, double[]> pendingChanges = new HashMap<>();
+    private final Map<TileCache.Key, CompletableFuture<byte[]>> rendering = new ConcurrentHashMap<>();
+    private final LongAdder renders = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        RoadGraph graph = routeService.getGraph();
+        double[] bounds = graph != null ? graphBounds(graph) : parseBounds(defaultBounds);
+        grid = new CongestionGrid(bounds[0], bounds[1], bounds[2], bounds[3], cellMeters, radiusMeters, hours);
+        if (graph != null) {
+            rasteriseRoads(graph);
+        } else {
+            for (double lat = bounds[0]; lat < bounds[2]; lat += cellMeters / 111_320.0 / 2) {
+                for (double lon = bounds[1]; lon < bounds[3]; lon += cellMeters / 111_320.0 / 2) {
+                    grid.addRoad(lat, lon, 1);
+                }
+            }
+        }
+
+        cache = new TileCache((long) cacheMaxMb << 20);
+        emptyPng = TileRenderer.png(new float[TileRenderer.PNG_SIZE * TileRenderer.PNG_SIZE], TileRenderer.PNG_SIZE);
+        emptyBinary = TileRenderer.binary(new float[binaryResolution * binaryResolution], binaryResolution);
+    }
+
+    public void onReading(IndicatorReading reading) {
+        if (!mode.equals(reading.getMode())) {
+            return;
+        }
+        double[] location = sensorLocations.get(reading.getSensorId());
+        if (location == null) {
+            if (sensorLocations.size() >= maxSensors) {
+                return;
+            }
+            location = sensorLocations.computeIfAbsent(reading.getSensorId(), this::locate);
+        }
+        long hour = Math.floorDiv(reading.getTimestamp().toEpochSecond(ZoneOffset.UTC), 3600);
+        int[] cells = grid.update(hour, reading.getSensorId(), location[0], location[1], reading.getValue());
+        if (cells != null) {
+            double[] changed = grid.bounds(cells);
+            synchronized (pendingChanges) {
+                pendingChanges.merge(hour, changed, HeatmapService::union);
+            }
+        }
+    }
+
+    /**
+     * Encoded tile for the live layer at {@code time} (latest hour when null) or for a finished
+     * simulation. Empty if the simulation does not exist; IllegalArgumentException for bad
+     * coordinates or a simulation without results.
+     */
+    public Optional<byte[]> getTile(int z, int x, int y, String format, Long simulationId, LocalDateTime time) {
+        if (z < minZoom || z > maxZoom) {
+            throw new IllegalArgumentException("Zoom must be between " + minZoom + " and " + maxZoom);
+        }
+        if (x < 0 || y < 0 || x >= 1 << z || y >= 1 << z) {
+            throw new IllegalArgumentException("Tile " + x + "/" + y + " does not exist at zoom " + z);
+        }
+        boolean png = "png".equals(format);
+        if (!png && !"bin".equals(format)) {
+            throw new IllegalArgumentException("Format must be png or bin");
+        }
+
+        String source;
+        long hour;
+        TileRenderer.Field field;
+        if (simulationId == null) {
+            source = "live";
+            hour = time != null ? Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 3600) : grid.latestHour();
+            long liveHour = hour;
+            field = (lat, lon) -> grid.sample(liveHour, lat, lon);
+        } else {
+            Optional<Simulation> simulation = mockDataService.getSimulation(simulationId);
+            if (simulation.isEmpty()) {
+                return Optional.empty();
+            }
+            Simulation run = simulation.get();
+            double level = congestion(run);
+            source = "simulation:" + run.getId() + ":" + run.getVersion();
+            hour = Math.floorDiv(run.getCreatedAt().toEpochSecond(ZoneOffset.UTC), 3600);
+            field = simulationField(hour, level);
+        }
+
+        double[] tileBounds = TileRenderer.bounds(z, x, y);
+        if (hour == Long.MIN_VALUE || !intersects(tileBounds,
+                new double[]{grid.minLat(), grid.minLon(), grid.maxLat(), grid.maxLon()})) {
+            return Optional.of(png ? emptyPng : emptyBinary);
+        }
+
+        applyPendingChanges();
+        TileCache.Key key = new TileCache.Key(source, hour, z, x, y, format);
+        byte[] cached = cache.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> other = rendering.putIfAbsent(key, mine);
+        if (other != null) {
+            return Optional.of(other.join());
+        }
+        try {
+            long version = grid.version(hour);
+            int resolution = png ? TileRenderer.PNG_SIZE : binaryResolution;
+            float[] values = TileRenderer.sample(field, z, x, y, resolution);
+            byte[] tile;
+            if (TileRenderer.isEmpty(values)) {
+                tile = png ? emptyPng : emptyBinary;
+            } else {
+                tile = png ? TileRenderer.png(values, resolution) : TileRenderer.binary(values, resolution);
+            }
+            renders.increment();
+            // A tile rendered while its hour changed may mix old and new data, so it is not kept.
+            // The version is bumped before the change is queued for invalidation, so a tile that
+            // passes this check is either current or dropped by that invalidation
+            cache.putIf(key, tile, () -> grid.version(hour) == version);
+            mine.complete(tile);
+            return Optional.of(tile);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            rendering.remove(key, mine);
+        }
+    }
+
+    public Map<String, Object> getInfo() {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("mode", mode);
+        info.put("bounds", new double[]{grid.minLat(), grid.minLon(), grid.maxLat(), grid.maxLon()});
+        info.put("rows", grid.rows());
+        info.put("cols", grid.cols());
+        info.put("cellMeters", cellMeters);
+        long latest = grid.latestHour();
+        info.put("latestHour", latest == Long.MIN_VALUE ? null
+                : LocalDateTime.ofEpochSecond(latest * 3600, 0, ZoneOffset.UTC).toString());
+        info.put("hours", hours);
+        info.put("zoom", new int[]{minZoom, maxZoom});
+        info.put("sensors", sensorLocations.size());
+        info.put("renders", renders.sum());
+        info.put("cache", cache.getMetrics());
+        return info;
+    }
+
+    private TileRenderer.Field simulationField(long hour, double level) {
+        float mean = grid.meanCongestion(hour);
+        if (mean <= 0) {
+            return (lat, lon) -> (float) level * grid.road(lat, lon);
+        }
+        return (lat, lon) -> (float) Math.min(1, level * grid.sample(hour, lat, lon) / mean);
+    }
+
+    private void applyPendingChanges() {
+        Map<Long, double[]> changes;
+        synchronized (pendingChanges) {
+            if (pendingChanges.isEmpty()) {
+                return;
+            }
+            changes = new HashMap<>(pendingChanges);
+            pendingChanges.clear();
+        }
+        cache.invalidate(key -> {
+            double[] changed = changes.get(key.hour());
+            if (changed == null) {
+                return false;
+            }
+            // Simulation tiles are scaled by the hour's mean, so any change affects all of them
+            return !"live".equals(key.source()) || intersects(TileRenderer.bounds(key.z(), key.x(), key.y()), changed);
+        });
+    }
+
+    // Share of free-flow speed lost, from whichever KPI the run reported
+    private static double congestion(Simulation simulation) {
+        Map<String, Object> results = simulation.getResults();
+        if (results == null) {
+            throw new IllegalArgumentException("Simulation " + simulation.getId() + " has no results yet");
+        }
+        if (results.get("congestionLevel") instanceof Number level) {
+            return clamp(level.doubleValue());
+        }
+        if (results.get("efficiency") instanceof Number efficiency) {
+            return clamp(1 - efficiency.doubleValue() / 100);
+        }
+        if (results.get("avgSpeed") instanceof Number speed) {
+            return clamp(1 - speed.doubleValue() / FREE_FLOW_SPEED);
+        }
+        throw new IllegalArgumentException("Simulation " + simulation.getId() + " has no congestion results");
+    }
+
+    private double[] locate(String sensorId) {
+        RoadGraph graph = routeService.getGraph();
+        if (graph != null && graph.nodeCount() > 0) {
+            int node = graph.anchorNode(sensorId);
+            return new double[]{graph.lat(node), graph.lon(node)};
+        }
+        int hash = sensorId.hashCode() * 0x9E3779B1;
+        double fy = (hash >>> 16) / 65536.0;
+        double fx = (hash & 0xFFFF) / 65536.0;
+        return new double[]{grid.minLat() + fy * (grid.maxLat() - grid.minLat()),
+                grid.minLon() + fx * (grid.maxLon() - grid.minLon())};
+    }
+
+    private void rasteriseRoads(RoadGraph graph) {
+        double step = cellMeters / 2;
+        for (int u = 0; u < graph.nodeCount(); u++) {
+            for (int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++) {
+                int v = graph.target(e);
+                float weight = (float) (graph.speed(e) / FREE_FLOW_SPEED);
+                int steps = Math.max(1, (int) Math.ceil(graph.length(e) / step));
+                for (int i = 0; i <= steps; i++) {
+                    double t = (double) i / steps;
+                    grid.addRoad(graph.lat(u) + t * (graph.lat(v) - graph.lat(u)),
+                            graph.lon(u) + t * (graph.lon(v) - graph.lon(u)), weight);
+                }
+            }
+        }
+    }
+
+    private double[] graphBounds(RoadGraph graph) {
+        double[] bounds = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int u = 0; u < graph.nodeCount(); u++) {
+            bounds[0] = Math.min(bounds[0], graph.lat(u));
+            bounds[1] = Math.min(bounds[1], graph.lon(u));
+            bounds[2] = Math.max(bounds[2], graph.lat(u));
+            bounds[3] = Math.max(bounds[3], graph.lon(u));
+        }
+        if (graph.nodeCount() == 0) {
+            return parseBounds(defaultBounds);
+        }
+        // Leave one kernel radius around the outermost roads
+        double marginLat = radiusMeters / 111_320.0;
+        double marginLon = marginLat / Math.cos(Math.toRadians((bounds[0] + bounds[2]) / 2));
+        return new double[]{bounds[0] - marginLat, bounds[1] - marginLon, bounds[2] + marginLat, bounds[3] + marginLon};
+    }
+
+    private static double[] parseBounds(String value) {
+        String[] parts = value.split(",");
+        return new double[]{Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()),
+                Double.parseDouble(parts[2].trim()), Double.parseDouble(parts[3].trim())};
+    }
+
+    private static double[] union(double[] a, double[] b) {
+        return new double[]{Math.min(a[0], b[0]), Math.min(a[1], b[1]), Math.max(a[2], b[2]), Math.max(a[3], b[3])};
+    }
+
+    // Both boxes are {south, west, north, east}
+    private static boolean intersects(double[] a, double[] b) {
+        return a[0] <= b[2] && b[0] <= a[2] && a[1] <= b[3] && b[1] <= a[3];
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+}
@@ -0,0 +1,137 @@
+package com.city.management.service;
+
+import com.city.management.model.IndicatorData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Indicator data for several modes in one response. Each mode is gathered on its own virtual
+ * thread and written as soon as it is ready, so the response starts with whichever mode
+ * finishes first. The body is either one JSON object keyed by mode, with keys in completion
+ * order, or NDJSON with one {@link IndicatorData} per line.
+ */
+@Service
+public class IndicatorBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(IndicatorBatchService.class);
+
+    @Value("${indicators.batch.max-modes:16}")
+    private int maxModes;
+
+    @Autowired
+    private MockDataService mockDataService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("indicator-batch-", 0).factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Distinct modes of a comma-separated list, every known mode when null.
+     */
+    public List<String> resolveModes(String modes) {
+        if (modes == null) {
+            return AnalyticsService.MODES;
+        }
+        List<String> resolved = List.copyOf(Arrays.stream(modes.split(","))
+                .map(String::trim)
+                .filter(mode -> !mode.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        if (resolved.isEmpty()) {
+            throw new IllegalArgumentException("At least one mode is required");
+        }
+        if (resolved.size() > maxModes) {
+            throw new IllegalArgumentException("At most " + maxModes + " modes can be requested at once");
+        }
+        for (String mode : resolved) {
+            if (!AnalyticsService.MODES.contains(mode)) {
+                throw new IllegalArgumentException("Unknown mode " + mode + "; modes are "
+                        + String.join(", ", AnalyticsService.MODES));
+            }
+        }
+        return resolved;
+    }
+
+    public void write(List<String> modes, LocalDateTime from, LocalDateTime to, boolean ndjson, OutputStream out)
+            throws IOException {
+        CompletionService<IndicatorData> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<IndicatorData>, String> pending = new HashMap<>();
+        for (String mode : modes) {
+            pending.put(completion.submit(() -> mockDataService.getIndicatorData(mode, from, to)), mode);
+        }
+
+        try {
+            if (!ndjson) {
+                out.write('{');
+            }
+            for (int i = 0; i < modes.size(); i++) {
+                Future<IndicatorData> done = completion.take();
+                String mode = pending.remove(done);
+                Object value;
+                try {
+                    value = done.get();
+                } catch (ExecutionException e) {
+                    log.warn("Indicator data for {} failed: {}", mode, e.getCause().toString());
+                    value = ndjson ? Map.of("mode", mode, "error", "Indicator data unavailable")
+                            : Map.of("error", "Indicator data unavailable");
+                }
+
+                if (ndjson) {
+                    out.write(objectMapper.writeValueAsBytes(value));
+                    out.write('\n');
+                } else {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    out.write(objectMapper.writeValueAsBytes(mode));
+                    out.write(':');
+                    out.write(objectMapper.writeValueAsBytes(value));
+                }
+                out.flush();
+            }
+            if (!ndjson) {
+                out.write('}');
+            }
+            out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while gathering indicator data");
+        } finally {
+            // Left over only if the client went away or the thread was interrupted
+            pending.keySet().forEach(future -> future.cancel(true));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.city.management.service;
+
+import com.city.management.model.IndicatorReading;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Last day of hourly totals per mode, keyed by event time. Each mode keeps a ring of 24 hour
+ * buckets whose window ends at the newest hour seen for that mode, so it follows replayed time.
+ */
+@Service
+public class IndicatorHistoryService {
+
+    public static final int HOURS = 24;
+
+    private final Map<String, ModeHistory> modes = new ConcurrentHashMap<>();
+
+    public void onReading(IndicatorReading reading) {
+        long hour = Math.floorDiv(reading.getTimestamp().toEpochSecond(ZoneOffset.UTC), 3600);
+        modes.computeIfAbsent(reading.getMode(), m -> new ModeHistory()).add(hour, reading.getValue());
+    }
+
+    /**
+     * The last {@link #HOURS} hours of a mode, oldest first, including hours without readings;
+     * empty if the mode has never been seen.
+     */
+    public List<HourlyTotal> getHourly(String mode) {
+        ModeHistory history = modes.get(mode);
+        return history == null ? List.of() : history.snapshot();
+    }
+
+    public record HourlyTotal(LocalDateTime hour, long readings, double sum) {
+
+        public double mean() {
+            return readings == 0 ? 0 : sum / readings;
+        }
+    }
+
+    private static final class ModeHistory {
+        final Bucket[] buckets = new Bucket[HOURS];
+        final AtomicLong latestHour = new AtomicLong(Long.MIN_VALUE);
+
+        ModeHistory() {
+            for (int i = 0; i < HOURS; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        void add(long hour, double value) {
+            long latest = latestHour.accumulateAndGet(hour, Math::max);
+            if (hour <= latest - HOURS) {
+                return;
+            }
+            Bucket bucket = buckets[(int) Math.floorMod(hour, (long) HOURS)];
+            if (bucket.hour != hour) {
+                synchronized (bucket) {
+                    if (bucket.hour > hour) {
+                        return;
+                    }
+                    if (bucket.hour < hour) {
+                        bucket.readings.reset();
+                        bucket.sum.reset();
+                        bucket.hour = hour;
+                    }
+                }
+            }
+            bucket.readings.increment();
+            bucket.sum.add(value);
+        }
+
+        List<HourlyTotal> snapshot() {
+            long latest = latestHour.get();
+            List<HourlyTotal> hours = new ArrayList<>(HOURS);
+            for (long hour = latest - HOURS + 1; hour <= latest; hour++) {
+                Bucket bucket = buckets[(int) Math.floorMod(hour, (long) HOURS)];
+                LocalDateTime start = LocalDateTime.ofEpochSecond(hour * 3600, 0, ZoneOffset.UTC);
+                if (bucket.hour == hour) {
+                    hours.add(new HourlyTotal(start, bucket.readings.sum(), bucket.sum.sum()));
+                } else {
+                    hours.add(new HourlyTotal(start, 0, 0));
+                }
+            }
+            return hours;
+        }
+    }
+
+    private static final class Bucket {
+        volatile long hour = Long.MIN_VALUE;
+        final LongAdder readings = new LongAdder();
+        final DoubleAdder sum = new DoubleAdder();
+    }
+}
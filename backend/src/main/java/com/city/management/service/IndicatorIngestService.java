@@ -0,0 +1,105 @@
+package com.city.management.service;
+
+import com.city.management.model.IndicatorReading;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+@Service
+public class IndicatorIngestService {
+
+    private static final Pattern SENSOR_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    @Autowired
+    private AnomalyDetectionService anomalyDetectionService;
+
+    @Autowired
+    private ForecastService forecastService;
+
+    @Autowired
+    private DashboardMetricsService dashboardMetricsService;
+
+    @Autowired
+    private IndicatorHistoryService indicatorHistoryService;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private HeatmapService heatmapService;
+
+    @Autowired
+    private EmissionsService emissionsService;
+
+    @Autowired
+    private RecordingService recordingService;
+
+    @Autowired
+    private ClockService clockService;
+
+    /**
+     * Ingests a batch posted for {@code mode}. The whole batch is checked before any reading is
+     * processed, so a bad element rejects it without leaving part of it behind.
+     */
+    public int ingest(String mode, List<IndicatorReading> readings) {
+        if (mode == null || !AnalyticsService.MODES.contains(mode)) {
+            throw new IllegalArgumentException("Mode must be one of " + String.join(", ", AnalyticsService.MODES));
+        }
+        if (readings == null) {
+            throw new IllegalArgumentException("A list of readings is required");
+        }
+        for (int i = 0; i < readings.size(); i++) {
+            validate(i, readings.get(i));
+        }
+        for (IndicatorReading reading : readings) {
+            reading.setMode(mode);
+            ingest(reading);
+        }
+        return readings.size();
+    }
+
+    public void ingest(IndicatorReading reading) {
+        if (reading.getSensorId() == null) {
+            reading.setSensorId("default");
+        }
+        if (reading.getTimestamp() == null) {
+            reading.setTimestamp(clockService.now());
+        }
+
+        recordingService.onReading(reading);
+        process(reading);
+    }
+
+    private static void validate(int index, IndicatorReading reading) {
+        if (reading == null) {
+            throw new IllegalArgumentException("Reading " + index + " is null");
+        }
+        // Sensor ids key per-series state downstream; "*" is the id of the mode aggregate
+        if (reading.getSensorId() != null && !SENSOR_ID.matcher(reading.getSensorId()).matches()) {
+            throw new IllegalArgumentException("Reading " + index
+                    + " has an invalid sensorId: use 1 to 64 letters, digits, '.', '_' or '-'");
+        }
+        if (!Double.isFinite(reading.getValue())) {
+            throw new IllegalArgumentException("Reading " + index + " has a value that is not a finite number");
+        }
+    }
+
+    /**
+     * Feeds a replayed reading through the pipeline without recording it again.
+     */
+    public void ingestReplayed(IndicatorReading reading) {
+        process(reading);
+    }
+
+    private void process(IndicatorReading reading) {
+        anomalyDetectionService.onReading(reading);
+        forecastService.onReading(reading);
+        dashboardMetricsService.onReading(reading);
+        indicatorHistoryService.onReading(reading);
+        analyticsService.onReading(reading);
+        heatmapService.onReading(reading);
+        emissionsService.onReading(reading);
+    }
+}
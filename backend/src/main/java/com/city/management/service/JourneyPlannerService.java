@@ -0,0 +1,197 @@
+package com.city.management.service;
+
+import com.city.management.model.JourneyPlan;
+import com.city.management.transit.Itinerary;
+import com.city.management.transit.Raptor;
+import com.city.management.transit.SyntheticTimetable;
+import com.city.management.transit.TransitNetwork;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Multimodal journey planning: walk or cycle to nearby stops, ride bus, tram and train using
+ * RAPTOR over the loaded timetable, then walk or cycle to the destination. Street legs use
+ * straight-line distance with a detour factor.
+ */
+@Service
+public class JourneyPlannerService {
+
+    private static final Logger log = LoggerFactory.getLogger(JourneyPlannerService.class);
+
+    private static final double STREET_DETOUR = 1.3;
+    private static final double WALK_SPEED = 1.3;
+
+    @Autowired
+    private StartupService startupService;
+
+    @Value("${transit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transit.gtfs-dir:data/gtfs}")
+    private String gtfsDir;
+
+    @Value("${transit.synthetic:true}")
+    private boolean synthetic;
+
+    @Value("${transit.max-rounds:5}")
+    private int maxRounds;
+
+    @Value("${transit.transfer-walk-meters:400}")
+    private double transferWalkMeters;
+
+    @Value("${transit.walk-radius-meters:800}")
+    private double walkRadiusMeters;
+
+    @Value("${transit.cycle-radius-meters:3000}")
+    private double cycleRadiusMeters;
+
+    @Value("${transit.cycle-speed:4.5}")
+    private double cycleSpeed;
+
+    private volatile TransitNetwork network;
+    private volatile Raptor raptor;
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            // Journey requests answer 503 until the timetable is in
+            startupService.background("timetable", this::load);
+        }
+    }
+
+    private void load() throws IOException {
+        Path dir = Path.of(gtfsDir);
+        if (!Files.exists(dir.resolve("stop_times.txt"))) {
+            if (!synthetic) {
+                log.warn("Timetable {} not found, journey planning disabled", dir);
+                return;
+            }
+            log.info("Timetable {} not found, generating a synthetic network", dir);
+            SyntheticTimetable.write(dir);
+        }
+
+        long start = System.currentTimeMillis();
+        TransitNetwork loaded = TransitNetwork.load(dir, transferWalkMeters);
+        raptor = new Raptor(loaded, maxRounds);
+        network = loaded;
+        log.info("Timetable loaded in {} ms: {} stops, {} patterns, {} trips", System.currentTimeMillis() - start,
+                loaded.stopCount(), loaded.patternCount(), loaded.tripCount());
+    }
+
+    public boolean isAvailable() {
+        return network != null;
+    }
+
+    public JourneyPlan plan(double fromLat, double fromLon, double toLat, double toLon, int departure,
+                            String access, String egress, int maxTransfers, boolean earliestOnly) {
+        TransitNetwork net = network;
+        long start = System.nanoTime();
+
+        StopSet accessStops = nearbyStops(net, fromLat, fromLon, access);
+        StopSet egressStops = nearbyStops(net, toLat, toLon, egress);
+        List<Itinerary> itineraries = raptor.plan(departure, accessStops.stops, accessStops.seconds,
+                egressStops.stops, egressStops.seconds, maxTransfers + 1);
+
+        List<JourneyPlan.Journey> journeys = new ArrayList<>();
+        double directMeters = TransitNetwork.distanceMeters(fromLat, fromLon, toLat, toLon) * STREET_DETOUR;
+        int directArrival = Integer.MAX_VALUE;
+        if (directMeters <= 2 * radius(access)) {
+            int seconds = (int) Math.ceil(directMeters / speed(access));
+            directArrival = departure + seconds;
+            JourneyPlan.Leg leg = new JourneyPlan.Leg(access, null, null, "Origin", "Destination",
+                    clock(departure), clock(directArrival), seconds,
+                    List.of(new double[]{fromLat, fromLon}, new double[]{toLat, toLon}));
+            journeys.add(new JourneyPlan.Journey(clock(departure), clock(directArrival), seconds, 0, List.of(leg)));
+        }
+        for (Itinerary itinerary : itineraries) {
+            if (itinerary.arrival() < directArrival) {
+                journeys.add(toJourney(net, itinerary, fromLat, fromLon, toLat, toLon, access, egress));
+            }
+        }
+
+        if (earliestOnly && journeys.size() > 1) {
+            journeys = List.of(journeys.get(journeys.size() - 1));
+        }
+        double micros = (System.nanoTime() - start) / 1000.0;
+        return new JourneyPlan(clock(departure), access, egress, earliestOnly ? "earliest" : "pareto", micros, journeys);
+    }
+
+    private JourneyPlan.Journey toJourney(TransitNetwork net, Itinerary itinerary, double fromLat, double fromLon,
+                                          double toLat, double toLon, String access, String egress) {
+        List<JourneyPlan.Leg> legs = new ArrayList<>(itinerary.legs().size());
+        for (Itinerary.Leg leg : itinerary.legs()) {
+            double[] from = leg.fromStop() < 0 ? new double[]{fromLat, fromLon}
+                    : new double[]{net.stopLat(leg.fromStop()), net.stopLon(leg.fromStop())};
+            double[] to = leg.toStop() < 0 ? new double[]{toLat, toLon}
+                    : new double[]{net.stopLat(leg.toStop()), net.stopLon(leg.toStop())};
+            String mode = switch (leg.type()) {
+                case ACCESS -> access;
+                case EGRESS -> egress;
+                case TRANSFER -> "walk";
+                case TRANSIT -> net.patternMode(leg.pattern());
+            };
+            boolean transit = leg.type() == Itinerary.LegType.TRANSIT;
+            legs.add(new JourneyPlan.Leg(mode,
+                    transit ? net.patternRouteName(leg.pattern()) : null,
+                    transit ? net.tripId(leg.pattern(), leg.trip()) : null,
+                    leg.fromStop() < 0 ? "Origin" : net.stopName(leg.fromStop()),
+                    leg.toStop() < 0 ? "Destination" : net.stopName(leg.toStop()),
+                    clock(leg.departure()), clock(leg.arrival()), leg.arrival() - leg.departure(),
+                    List.of(from, to)));
+        }
+        return new JourneyPlan.Journey(clock(itinerary.departure()), clock(itinerary.arrival()),
+                itinerary.arrival() - itinerary.departure(), Math.max(0, itinerary.rides() - 1), legs);
+    }
+
+    private StopSet nearbyStops(TransitNetwork net, double lat, double lon, String mode) {
+        double speed = speed(mode);
+        StopSet set = new StopSet();
+        net.forEachStopNear(lat, lon, radius(mode) / STREET_DETOUR, (stop, meters) ->
+                set.add(stop, (int) Math.ceil(meters * STREET_DETOUR / speed)));
+        return set.trim();
+    }
+
+    private double radius(String mode) {
+        return "cycle".equals(mode) ? cycleRadiusMeters : walkRadiusMeters;
+    }
+
+    private double speed(String mode) {
+        return "cycle".equals(mode) ? cycleSpeed : WALK_SPEED;
+    }
+
+    private static String clock(int seconds) {
+        return String.format("%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+
+    private static final class StopSet {
+        int[] stops = new int[16];
+        int[] seconds = new int[16];
+        int size;
+
+        void add(int stop, int time) {
+            if (size == stops.length) {
+                stops = Arrays.copyOf(stops, size * 2);
+                seconds = Arrays.copyOf(seconds, size * 2);
+            }
+            stops[size] = stop;
+            seconds[size++] = time;
+        }
+
+        StopSet trim() {
+            stops = Arrays.copyOf(stops, size);
+            seconds = Arrays.copyOf(seconds, size);
+            return this;
+        }
+    }
+}
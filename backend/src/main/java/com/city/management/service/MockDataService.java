@@ -1,35 +1,81 @@
 package com.city.management.service;
 
+import com.city.management.cluster.ClusterNode;
+import com.city.management.cluster.IdGenerator;
+import com.city.management.cluster.StateStore;
+import com.city.management.cluster.StateStoreFactory;
 import com.city.management.model.*;
+import com.city.management.simulation.SimulationIndex;
+import com.city.management.simulation.SimulationState;
+import com.city.management.tracing.Traced;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
 
 @Service
+@Traced
 public class MockDataService {
 
-    private final Map<Long, Simulation> simulations = new ConcurrentHashMap<>();
-    private final Map<Long, Notification> notifications = new ConcurrentHashMap<>();
-    private final AtomicLong simulationIdGenerator = new AtomicLong(1);
-    private final AtomicLong notificationIdGenerator = new AtomicLong(1);
+    private StateStore<Simulation> simulations;
+    private IdGenerator simulationIdGenerator;
+    private final SimulationIndex simulationIndex = new SimulationIndex();
+    private final Map<Long, SimulationState> runningSimulations = new ConcurrentHashMap<>();
     private final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
-    public MockDataService() {
-        initNotifications();
-        initSimulations();
-    }
+    @Autowired
+    private StateStoreFactory stateStoreFactory;
 
-    private void initNotifications() {
-        createNotification("System Update", "System maintenance scheduled for tonight", "info", false);
-        createNotification("Traffic Alert", "Heavy traffic detected on Main Street", "warning", false);
-        createNotification("Simulation Complete", "Traffic simulation #123 has completed", "success", true);
-    }
+    @Autowired
+    private ClusterNode clusterNode;
+
+    @Autowired
+    private AnomalyDetectionService anomalyDetectionService;
+
+    @Autowired
+    private ForecastService forecastService;
+
+    @Autowired
+    private MonteCarloService monteCarloService;
+
+    @Autowired
+    private DemandService demandService;
+
+    @Autowired
+    private DashboardMetricsService dashboardMetricsService;
+
+    @Autowired
+    private IndicatorHistoryService indicatorHistoryService;
+
+    @Autowired
+    private ClockService clockService;
+
+    @Autowired
+    private EmissionsService emissionsService;
+
+    @Autowired
+    private StartupService startupService;
+
+    @Value("${simulation.long-poll.max-timeout-seconds:60}")
+    private long maxWaitSeconds;
+
+    @Value("${simulation.long-poll.remote-poll-ms:500}")
+    private long remotePollMillis;
+
+    @PostConstruct
+    public void initSimulations() {
+        simulations = stateStoreFactory.partitioned("simulations", Simulation.class);
+        simulationIdGenerator = stateStoreFactory.idGenerator("simulations", 2);
 
-    private void initSimulations() {
         Map<String, Object> params = new HashMap<>();
         params.put("duration", 60);
         params.put("trafficDensity", "high");
@@ -48,144 +94,294 @@ public class MockDataService {
         sim.setCreatedAt(LocalDateTime.now().minusHours(2));
         sim.setCompletedAt(LocalDateTime.now().minusHours(1));
         sim.setCreatedBy("admin");
+        sim.setVersion(1);
 
-        simulations.put(sim.getId(), sim);
-    }
-
-    private void createNotification(String title, String message, String type, boolean read) {
-        Notification notification = new Notification();
-        notification.setId(notificationIdGenerator.getAndIncrement());
-        notification.setTitle(title);
-        notification.setMessage(message);
-        notification.setType(type);
-        notification.setRead(read);
-        notification.setCreatedAt(LocalDateTime.now());
-        notification.setUserId("admin");
-
-        notifications.put(notification.getId(), notification);
+        if (simulations.isOwnedLocally(sim.getId().toString())) {
+            saveSimulation(sim);
+        }
     }
 
     public DashboardStats getDashboardStats() {
-        List<DashboardStats.MetricData> metrics = Arrays.asList(
-                new DashboardStats.MetricData(LocalDateTime.now().minusHours(2).format(formatter), "traffic", 75.5),
-                new DashboardStats.MetricData(LocalDateTime.now().minusHours(1).format(formatter), "traffic", 82.3),
-                new DashboardStats.MetricData(LocalDateTime.now().format(formatter), "traffic", 68.9)
-        );
-
-        return new DashboardStats(245, 12, 34, 98.5, metrics);
+        return dashboardMetricsService.getStats();
     }
 
     public DashboardOverview getDashboardOverview() {
+        List<IndicatorHistoryService.HourlyTotal> traffic = indicatorHistoryService.getHourly("car");
+
         Map<String, Object> summary = new HashMap<>();
-        summary.put("totalVehicles", 15420);
+        summary.put("totalVehicles", Math.round(traffic.stream().mapToDouble(IndicatorHistoryService.HourlyTotal::sum).sum()));
         summary.put("avgSpeed", 45.2);
-        summary.put("incidents", 8);
+        summary.put("incidents", anomalyDetectionService.getActiveAlarmCount());
         summary.put("efficiency", 87.3);
+        EmissionsReport.Totals emissions = emissionsService.today();
+        summary.put("co2TodayKg", emissions.getCo2Kg());
+        summary.put("noxTodayKg", emissions.getNoxKg());
+        summary.put("energyTodayKwh", emissions.getEnergyKwh());
+
+        List<DashboardOverview.DataPoint> trafficData = new ArrayList<>();
+        for (IndicatorHistoryService.HourlyTotal hour : traffic) {
+            trafficData.add(new DashboardOverview.DataPoint(
+                    String.format("%02d:00", hour.hour().getHour()), (int) Math.round(hour.mean())));
+        }
 
-        List<DashboardOverview.DataPoint> trafficData = Arrays.asList(
-                new DashboardOverview.DataPoint("00:00", 120),
-                new DashboardOverview.DataPoint("04:00", 80),
-                new DashboardOverview.DataPoint("08:00", 450),
-                new DashboardOverview.DataPoint("12:00", 380),
-                new DashboardOverview.DataPoint("16:00", 520),
-                new DashboardOverview.DataPoint("20:00", 290)
-        );
+        List<DashboardOverview.DataPoint> co2Data = new ArrayList<>();
+        for (EmissionsReport.Totals hour : emissionsService.lastDayByHour()) {
+            co2Data.add(new DashboardOverview.DataPoint(hour.getKey().substring(11, 16), (int) Math.round(hour.getCo2Kg())));
+        }
 
         List<DashboardOverview.ChartData> charts = Arrays.asList(
-                new DashboardOverview.ChartData("Traffic Volume", "line", trafficData)
+                new DashboardOverview.ChartData("Traffic Volume", "line", trafficData),
+                new DashboardOverview.ChartData("CO2 Emissions (kg)", "bar", co2Data)
         );
 
-        List<DashboardOverview.Alert> alerts = Arrays.asList(
-                new DashboardOverview.Alert("warning", "High traffic on Route 101", LocalDateTime.now().format(formatter)),
-                new DashboardOverview.Alert("info", "Scheduled maintenance in Zone A", LocalDateTime.now().minusHours(1).format(formatter))
-        );
+        List<DashboardOverview.Alert> alerts = anomalyDetectionService.getRecentAlerts();
 
         return new DashboardOverview(summary, charts, alerts);
     }
 
     public IndicatorData getIndicatorData(String mode) {
-        Map<String, Object> summary = new HashMap<>();
-        summary.put("mode", mode);
-        summary.put("totalCount", new Random().nextInt(1000) + 500);
-        summary.put("avgSpeed", 30 + new Random().nextDouble() * 20);
-        summary.put("efficiency", 70 + new Random().nextDouble() * 25);
+        return getIndicatorData(mode, null, null);
+    }
+
+    /**
+     * Indicator data over the hours of the last day that overlap {@code from} to {@code to},
+     * either of which may be null.
+     */
+    public IndicatorData getIndicatorData(String mode, LocalDateTime from, LocalDateTime to) {
+        List<IndicatorHistoryService.HourlyTotal> hours = indicatorHistoryService.getHourly(mode);
+        if (from != null || to != null) {
+            LocalDateTime first = from != null ? from.truncatedTo(ChronoUnit.HOURS) : LocalDateTime.MIN;
+            hours = hours.stream()
+                    .filter(hour -> !hour.hour().isBefore(first) && (to == null || !hour.hour().isAfter(to)))
+                    .toList();
+        }
 
+        long readings = 0;
+        double total = 0;
+        int hoursWithData = 0;
+        IndicatorHistoryService.HourlyTotal busiest = null;
+        IndicatorHistoryService.HourlyTotal quietest = null;
         List<IndicatorData.TimeSeriesData> timeSeries = new ArrayList<>();
-        for (int i = 0; i < 24; i++) {
+        for (IndicatorHistoryService.HourlyTotal hour : hours) {
             Map<String, Object> metadata = new HashMap<>();
-            metadata.put("hour", i);
-            metadata.put("conditions", "normal");
-
-            timeSeries.add(new IndicatorData.TimeSeriesData(
-                    LocalDateTime.now().minusHours(24 - i).format(formatter),
-                    50 + new Random().nextDouble() * 50,
-                    metadata
-            ));
+            metadata.put("hour", hour.hour().getHour());
+            metadata.put("readings", hour.readings());
+            metadata.put("conditions", hour.readings() > 0 ? "normal" : "no data");
+            timeSeries.add(new IndicatorData.TimeSeriesData(hour.hour().format(formatter), hour.mean(), metadata));
+
+            if (hour.readings() > 0) {
+                readings += hour.readings();
+                total += hour.sum();
+                hoursWithData++;
+                if (busiest == null || hour.mean() > busiest.mean()) {
+                    busiest = hour;
+                }
+                if (quietest == null || hour.mean() < quietest.mean()) {
+                    quietest = hour;
+                }
+            }
         }
 
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("mode", mode);
+        summary.put("totalCount", Math.round(total));
+        summary.put("readings", readings);
+        summary.put("avgValue", readings > 0 ? total / readings : 0);
+
         Map<String, Object> metrics = new HashMap<>();
-        metrics.put("peakHour", "17:00");
-        metrics.put("lowHour", "03:00");
-        metrics.put("avgDailyCount", 12450);
+        Optional<String> predictedPeak = forecastService.getPredictedPeakHour(mode);
+        if (predictedPeak.isPresent()) {
+            metrics.put("peakHour", predictedPeak.get());
+        } else if (busiest != null) {
+            metrics.put("peakHour", String.format("%02d:00", busiest.hour().getHour()));
+        }
+        if (quietest != null) {
+            metrics.put("lowHour", String.format("%02d:00", quietest.hour().getHour()));
+        }
+        metrics.put("avgDailyCount", hoursWithData > 0 ? Math.round(total * 24 / hoursWithData) : 0);
 
         return new IndicatorData(mode, summary, timeSeries, metrics);
     }
 
     public List<Simulation> getAllSimulations() {
-        return new ArrayList<>(simulations.values());
+        return simulations.values();
     }
 
     public Simulation runSimulation(Map<String, Object> params, String username) {
+        if (params.get("timeOfDay") != null && !params.containsKey("trafficDensity")) {
+            demandService.trafficDensity(params.get("timeOfDay").toString(),
+                            String.valueOf(params.getOrDefault("weatherConditions", "clear")))
+                    .ifPresent(density -> params.put("trafficDensity", density));
+        }
+        monteCarloService.validate(params);
+
+        Simulation simulation = newSimulation(params.getOrDefault("type", "traffic").toString(), params, username);
+        start(simulation, id -> monteCarloService.run(id, params));
+        return simulation;
+    }
+
+    /**
+     * Starts a run of {@code parentId}'s scenario with {@code overrides} applying from
+     * {@code changeFromMinute} on, warm-started from the parent's replications. Empty if the
+     * parent does not exist.
+     */
+    public Optional<Simulation> deriveSimulation(Long parentId, Map<String, Object> overrides, int changeFromMinute,
+                                                 String username) {
+        Optional<Simulation> found = getSimulation(parentId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Simulation parent = found.get();
+        if (!SimulationState.COMPLETED.equals(parent.getStatus()) || parent.getResults() == null) {
+            throw new IllegalStateException("Simulation " + parentId + " has not completed");
+        }
+        if (overrides.containsKey("seed") || overrides.containsKey("replications")) {
+            throw new IllegalArgumentException("A derived run keeps its parent's seed and replications");
+        }
+        if (changeFromMinute < 0) {
+            throw new IllegalArgumentException("changeFromMinute must not be negative");
+        }
+
+        Map<String, Object> params = new LinkedHashMap<>(parent.getParameters());
+        params.putAll(overrides);
+        params.put("seed", parent.getResults().get("seed"));
+        params.put("changeFromMinute", changeFromMinute);
+        monteCarloService.validateDerived(parentId, params);
+
+        Simulation simulation = newSimulation(parent.getType(), params, username);
+        simulation.setDerivedFrom(parentId);
+        start(simulation, id -> monteCarloService.runDerived(id, parentId, params, changeFromMinute));
+        return Optional.of(simulation);
+    }
+
+    private Simulation newSimulation(String type, Map<String, Object> params, String username) {
         Simulation simulation = new Simulation();
-        simulation.setId(simulationIdGenerator.getAndIncrement());
+        simulation.setId(simulationIdGenerator.nextId());
         simulation.setName("Simulation " + simulation.getId());
-        simulation.setType(params.getOrDefault("type", "traffic").toString());
-        simulation.setStatus("running");
-        simulation.setParameters(params);
-        simulation.setCreatedAt(LocalDateTime.now());
+        simulation.setType(type);
+        simulation.setStatus(SimulationState.RUNNING);
+        simulation.setParameters(Collections.unmodifiableMap(new LinkedHashMap<>(params)));
+        simulation.setCreatedAt(clockService.now());
         simulation.setCreatedBy(username);
+        simulation.setVersion(1);
+        return simulation;
+    }
 
-        simulations.put(simulation.getId(), simulation);
+    private void start(Simulation simulation, SimulationRun run) {
+        SimulationState state = new SimulationState(simulation);
+        runningSimulations.put(simulation.getId(), state);
+        saveSimulation(simulation);
+        dashboardMetricsService.onSimulationStarted();
 
-        // Simulate completion after creation (in real app, this would be async)
         new Thread(() -> {
+            Simulation finished;
             try {
-                Thread.sleep(2000);
-                simulation.setStatus("completed");
-                simulation.setCompletedAt(LocalDateTime.now());
-
-                Map<String, Object> results = new HashMap<>();
-                results.put("avgSpeed", 40 + new Random().nextDouble() * 20);
-                results.put("efficiency", 70 + new Random().nextDouble() * 25);
-                results.put("incidents", new Random().nextInt(10));
-                simulation.setResults(results);
-            } catch (InterruptedException e) {
-                simulation.setStatus("failed");
+                Map<String, Object> results = Collections.unmodifiableMap(run.execute(simulation.getId()));
+                finished = state.update(s -> {
+                    s.setResults(results);
+                    s.setStatus(SimulationState.COMPLETED);
+                    s.setCompletedAt(clockService.now());
+                });
+            } catch (InterruptedException | RuntimeException e) {
+                finished = state.update(s -> s.setStatus(SimulationState.FAILED));
             }
-        }).start();
+            // Under the entry's lock, so a run deleted meanwhile is not saved back
+            Simulation result = finished;
+            runningSimulations.computeIfPresent(simulation.getId(), (id, running) -> {
+                saveSimulation(result);
+                return null;
+            });
+            dashboardMetricsService.onSimulationFinished();
+        }, "simulation-" + simulation.getId()).start();
+    }
 
-        return simulation;
+    public Optional<Simulation> getSimulation(Long id) {
+        SimulationState state = runningSimulations.get(id);
+        return state != null ? Optional.of(state.get()) : simulations.get(id.toString());
     }
 
-    public boolean deleteSimulation(Long id) {
-        return simulations.remove(id) != null;
+    /**
+     * Completes with the run's final snapshot as soon as it finishes, or with its current snapshot
+     * once the timeout passes; empty if there is no such run. No thread is held while waiting:
+     * runs on this node complete the future from their own transition, runs elsewhere in the
+     * cluster are re-read from the store on a timer.
+     */
+    public CompletableFuture<Optional<Simulation>> awaitCompletion(Long id, Duration timeout) {
+        if (timeout.isNegative() || timeout.toSeconds() > maxWaitSeconds) {
+            throw new IllegalArgumentException("Timeout must be between 0 and " + maxWaitSeconds + " seconds");
+        }
+
+        CompletableFuture<Simulation> finished;
+        SimulationState state = runningSimulations.get(id);
+        if (state != null) {
+            finished = state.finished();
+        } else {
+            Optional<Simulation> stored = simulations.get(id.toString());
+            if (stored.isEmpty() || SimulationState.isFinal(stored.get().getStatus())) {
+                return CompletableFuture.completedFuture(stored);
+            }
+            finished = new CompletableFuture<>();
+            pollStore(id, finished);
+        }
+        return finished.completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(simulation -> simulation != null ? Optional.of(simulation) : getSimulation(id));
+    }
+
+    private void pollStore(Long id, CompletableFuture<Simulation> finished) {
+        if (finished.isDone()) {
+            return;
+        }
+        Optional<Simulation> stored = simulations.get(id.toString());
+        if (stored.isEmpty() || SimulationState.isFinal(stored.get().getStatus())) {
+            finished.complete(stored.orElse(null));
+            return;
+        }
+        CompletableFuture.runAsync(() -> pollStore(id, finished),
+                CompletableFuture.delayedExecutor(remotePollMillis, TimeUnit.MILLISECONDS));
     }
 
-    public List<Notification> getAllNotifications() {
-        return new ArrayList<>(notifications.values());
+    /**
+     * One page of runs matching the filter. A clustered node only sees the runs it wrote itself in
+     * its index, so there the page is computed from an index built over all partitions.
+     */
+    public CursorPage<Simulation> findSimulations(SimulationIndex.Filter filter, SimulationIndex.SortField sort,
+                                                  boolean descending, int limit, String cursor) {
+        return findSimulations(searchIndex(), filter, sort, descending, limit, cursor);
     }
 
-    public Optional<Notification> markNotificationAsRead(Long id) {
-        Notification notification = notifications.get(id);
-        if (notification != null) {
-            notification.setRead(true);
-            return Optional.of(notification);
+    /**
+     * The index pages are computed from. On a clustered node it is built over all partitions on
+     * every call, so a caller reading many pages gets it once and passes it to each page.
+     */
+    public SimulationIndex searchIndex() {
+        return clusterNode.isEnabled() ? SimulationIndex.of(simulations.values()) : simulationIndex;
+    }
+
+    public CursorPage<Simulation> findSimulations(SimulationIndex index, SimulationIndex.Filter filter,
+                                                  SimulationIndex.SortField sort, boolean descending, int limit,
+                                                  String cursor) {
+        SimulationIndex.Result result = index.query(filter, sort, descending, limit, cursor);
+
+        List<Simulation> items = new ArrayList<>(result.ids().size());
+        for (Long id : result.ids()) {
+            simulations.get(id.toString()).ifPresent(items::add);
         }
-        return Optional.empty();
+        return new CursorPage<>(items, result.nextCursor());
+    }
+
+    /**
+     * Deletes a run. A run still in progress keeps going but is not saved when it finishes.
+     */
+    public boolean deleteSimulation(Long id) {
+        boolean running = runningSimulations.remove(id) != null;
+        boolean removed = simulations.remove(id.toString()) || running;
+        simulationIndex.remove(id);
+        return removed;
     }
 
-    public void markAllNotificationsAsRead() {
-        notifications.values().forEach(n -> n.setRead(true));
+    private void saveSimulation(Simulation simulation) {
+        simulations.put(simulation.getId().toString(), simulation);
+        simulationIndex.update(simulation);
     }
 
     public SystemStatus getSystemStatus() {
@@ -200,9 +396,11 @@ public class MockDataService {
 
     public Map<String, Object> getSystemHealth() {
         Map<String, Object> health = new HashMap<>();
-        health.put("status", "UP");
+        Map<String, Object> startup = startupService.getHealth();
+        health.put("status", startup.remove("status"));
         health.put("timestamp", LocalDateTime.now().format(formatter));
         health.put("uptime", System.currentTimeMillis() / 1000);
+        health.put("startup", startup);
 
         Map<String, String> details = new HashMap<>();
         details.put("application", "Sustainable City Management Backend");
@@ -211,4 +409,8 @@ public class MockDataService {
 
         return health;
     }
+
+    private interface SimulationRun {
+        Map<String, Object> execute(Long id) throws InterruptedException;
+    }
 }
@@ -0,0 +1,266 @@
+package com.city.management.service;
+
+import com.city.management.simulation.ReplicationStatistics;
+import com.city.management.simulation.TrafficModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs a simulation as N seeded replications of {@link TrafficModel}. Replication i always gets
+ * the i-th stream split from the seed, and batches have a fixed size, so a run is reproducible
+ * from its seed whatever the core count. After each batch the run stops early if every KPI's
+ * confidence interval is already within the requested relative precision.
+ *
+ * Each run's model, seeds and replication traces are kept for the most recent runs, so a
+ * derived run that changes parameters from some minute on resumes every replication from the
+ * last checkpoint before that minute instead of starting again from zero.
+ */
+@Service
+public class MonteCarloService {
+
+    @Value("${simulation.replications.threads:0}")
+    private int threads;
+
+    @Value("${simulation.replications.batch-size:16}")
+    private int batchSize;
+
+    @Value("${simulation.replications.max:1000}")
+    private int maxReplications;
+
+    @Value("${simulation.max-duration-minutes:1440}")
+    private int maxDurationMinutes;
+
+    @Value("${simulation.warm-start.cached-runs:16}")
+    private int cachedRuns;
+
+    private ExecutorService pool;
+    private Map<Long, WarmStart> warmStarts;
+
+    @PostConstruct
+    public void init() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        pool = Executors.newFixedThreadPool(size, r -> {
+            Thread thread = new Thread(r, "simulation-replication");
+            thread.setDaemon(true);
+            return thread;
+        });
+        warmStarts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, WarmStart> eldest) {
+                return size() > cachedRuns;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Rejects parameters the run would fail on, before anything is stored.
+     */
+    public void validate(Map<String, Object> parameters) {
+        new TrafficModel(parameters);
+        Settings.of(parameters, maxReplications, maxDurationMinutes);
+    }
+
+    /**
+     * Rejects a derived run this node cannot warm-start or whose parameters the run would fail on.
+     */
+    public void validateDerived(Long parentId, Map<String, Object> parameters) {
+        new TrafficModel(parameters);
+        Settings.of(parameters, maxReplications, maxDurationMinutes);
+        if (getWarmStart(parentId) == null) {
+            throw new IllegalStateException("Simulation " + parentId + " has no warm-start state on this node");
+        }
+    }
+
+    public Map<String, Object> run(Long id, Map<String, Object> parameters) throws InterruptedException {
+        TrafficModel model = new TrafficModel(parameters);
+        Settings settings = Settings.of(parameters, maxReplications, maxDurationMinutes);
+        SplittableRandom master = new SplittableRandom(settings.seed);
+
+        Map<String, Object> results = new HashMap<>();
+        if (settings.replications == 1) {
+            long seed = master.split().nextLong();
+            double[] trace = new double[model.traceLength()];
+            double[] kpis = model.run(seed, trace);
+            for (int k = 0; k < TrafficModel.KPIS.length; k++) {
+                results.put(TrafficModel.KPIS[k], kpis[k]);
+            }
+            results.put("seed", settings.seed);
+            remember(id, new WarmStart(model, new long[]{seed}, new double[][]{trace}, kpis));
+            return results;
+        }
+
+        ReplicationStatistics statistics = new ReplicationStatistics(TrafficModel.KPIS, settings.replications);
+        long[] seeds = new long[settings.replications];
+        double[][] traces = new double[settings.replications][];
+        boolean converged = false;
+        while (statistics.getCount() < settings.replications && !converged) {
+            int first = statistics.getCount();
+            int n = Math.min(batchSize, settings.replications - first);
+            List<Future<double[]>> batch = new ArrayList<>(n);
+            for (int i = first; i < first + n; i++) {
+                long seed = master.split().nextLong();
+                double[] trace = new double[model.traceLength()];
+                seeds[i] = seed;
+                traces[i] = trace;
+                batch.add(pool.submit(() -> model.run(seed, trace)));
+            }
+            collect(batch, statistics);
+            converged = settings.relativePrecision > 0
+                    && statistics.hasConverged(settings.confidence, settings.relativePrecision);
+        }
+
+        int count = statistics.getCount();
+        remember(id, new WarmStart(model, Arrays.copyOf(seeds, count), Arrays.copyOf(traces, count), means(statistics)));
+        summarise(statistics, settings, converged, results);
+        return results;
+    }
+
+    /**
+     * Re-runs simulation {@code parentId} with {@code parameters} applying from
+     * {@code changeFromMinute} on. Every replication of the parent is resumed from the last
+     * checkpoint before the change, so the results match a full run of the same scenario and
+     * seeds. The parent's replication count is kept, since that is what its state covers.
+     */
+    public Map<String, Object> runDerived(Long id, Long parentId, Map<String, Object> parameters,
+                                          int changeFromMinute) throws InterruptedException {
+        WarmStart parent = getWarmStart(parentId);
+        if (parent == null) {
+            throw new IllegalStateException("Simulation " + parentId + " has no warm-start state on this node");
+        }
+        Settings settings = Settings.of(parameters, maxReplications, maxDurationMinutes);
+        int changeMinute = Math.max(0, Math.min(changeFromMinute, parent.model.getDurationMinutes()));
+        TrafficModel model = parent.model.changedFrom(changeMinute, parameters);
+        int checkpoint = Math.min(changeMinute, model.getDurationMinutes()) / TrafficModel.CHECKPOINT_MINUTES;
+
+        int replications = parent.seeds.length;
+        ReplicationStatistics statistics = new ReplicationStatistics(TrafficModel.KPIS, replications);
+        double[][] traces = new double[replications][];
+        List<Future<double[]>> batch = new ArrayList<>(replications);
+        for (int i = 0; i < replications; i++) {
+            long seed = parent.seeds[i];
+            double[] from = parent.traces[i];
+            double[] trace = new double[model.traceLength()];
+            traces[i] = trace;
+            batch.add(pool.submit(() -> model.resume(seed, from, checkpoint, trace)));
+        }
+        collect(batch, statistics);
+        double[] means = means(statistics);
+        remember(id, new WarmStart(model, parent.seeds, traces, means));
+
+        Map<String, Object> results = new HashMap<>();
+        if (replications == 1) {
+            for (int k = 0; k < TrafficModel.KPIS.length; k++) {
+                results.put(TrafficModel.KPIS[k], statistics.mean(k));
+            }
+            results.put("seed", settings.seed);
+        } else {
+            boolean converged = settings.relativePrecision > 0
+                    && statistics.hasConverged(settings.confidence, settings.relativePrecision);
+            summarise(statistics, settings, converged, results);
+        }
+        results.put("derivedFrom", parentId);
+        results.put("changeFromMinute", changeMinute);
+        results.put("resumedFromMinute", checkpoint * TrafficModel.CHECKPOINT_MINUTES);
+        // Same seeds as the parent, so these differences are not blurred by sampling noise
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (int k = 0; k < TrafficModel.KPIS.length; k++) {
+            changes.put(TrafficModel.KPIS[k], means[k] - parent.means[k]);
+        }
+        results.put("changeFromParent", changes);
+        return results;
+    }
+
+    private static void collect(List<Future<double[]>> batch, ReplicationStatistics statistics)
+            throws InterruptedException {
+        for (Future<double[]> replication : batch) {
+            try {
+                statistics.add(replication.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Replication failed", e.getCause());
+            }
+        }
+    }
+
+    private static void summarise(ReplicationStatistics statistics, Settings settings, boolean converged,
+                                  Map<String, Object> results) {
+        for (int k = 0; k < TrafficModel.KPIS.length; k++) {
+            results.put(TrafficModel.KPIS[k], statistics.mean(k));
+        }
+        results.put("seed", settings.seed);
+        results.put("replications", statistics.getCount());
+        results.put("requestedReplications", settings.replications);
+        results.put("converged", converged);
+        results.put("confidenceLevel", settings.confidence);
+        results.put("relativePrecision", settings.relativePrecision);
+        results.put("statistics", statistics.summary(settings.confidence));
+    }
+
+    private static double[] means(ReplicationStatistics statistics) {
+        double[] means = new double[TrafficModel.KPIS.length];
+        for (int k = 0; k < means.length; k++) {
+            means[k] = statistics.mean(k);
+        }
+        return means;
+    }
+
+    private WarmStart getWarmStart(Long id) {
+        synchronized (warmStarts) {
+            return warmStarts.get(id);
+        }
+    }
+
+    private void remember(Long id, WarmStart warmStart) {
+        synchronized (warmStarts) {
+            warmStarts.put(id, warmStart);
+        }
+    }
+
+    private record WarmStart(TrafficModel model, long[] seeds, double[][] traces, double[] means) {
+    }
+
+    private record Settings(int replications, long seed, double confidence, double relativePrecision) {
+
+        static Settings of(Map<String, Object> parameters, int maxReplications, int maxDurationMinutes) {
+            if (TrafficModel.intParameter(parameters, "duration", 60) > maxDurationMinutes) {
+                throw new IllegalArgumentException("duration must be at most " + maxDurationMinutes + " minutes");
+            }
+            int replications = TrafficModel.intParameter(parameters, "replications", 1);
+            if (replications < 1 || replications > maxReplications) {
+                throw new IllegalArgumentException("replications must be between 1 and " + maxReplications);
+            }
+            double confidence = TrafficModel.doubleParameter(parameters, "confidence", 0.95);
+            if (confidence <= 0.5 || confidence >= 1) {
+                throw new IllegalArgumentException("confidence must be between 0.5 and 1");
+            }
+            double precision = TrafficModel.doubleParameter(parameters, "relativePrecision", 0.01);
+            if (precision < 0) {
+                throw new IllegalArgumentException("relativePrecision must not be negative");
+            }
+            Object seed = parameters.get("seed");
+            // Generated seeds stay within 2^53 so they survive a round trip through JavaScript
+            long value = seed == null ? ThreadLocalRandom.current().nextLong(1L << 53)
+                    : seed instanceof Number number ? number.longValue() : Long.parseLong(seed.toString());
+            return new Settings(replications, value, confidence, precision);
+        }
+    }
+}
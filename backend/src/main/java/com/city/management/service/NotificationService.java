@@ -0,0 +1,221 @@
+package com.city.management.service;
+
+import com.city.management.cluster.IdGenerator;
+import com.city.management.cluster.StateStore;
+import com.city.management.cluster.StateStoreFactory;
+import com.city.management.model.DashboardOverview;
+import com.city.management.model.Notification;
+import com.city.management.model.NotificationPriority;
+import com.city.management.model.NotificationSearchResult;
+import com.city.management.notification.DeliveryPipeline;
+import com.city.management.notification.SearchIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Notification inbox with asynchronous delivery. Delivered notifications and anomaly alerts are
+ * also added to a full-text index as they arrive. Alerts exist nowhere else once they leave the
+ * dashboard, so the newest {@code notifications.search.max-alerts} are kept here for search.
+ * The index covers what this node delivered or detected.
+ */
+@Service
+public class NotificationService {
+
+    public static final int NOTIFICATION = 0;
+    public static final int ALERT = 1;
+
+    private StateStore<Notification> notifications;
+    private IdGenerator notificationIdGenerator;
+    private DeliveryPipeline pipeline;
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final Map<Long, DashboardOverview.Alert> indexedAlerts = new LinkedHashMap<>();
+    private final AtomicLong alertSequence = new AtomicLong();
+
+    @Autowired
+    private StateStoreFactory stateStoreFactory;
+
+    @Autowired
+    private ClockService clockService;
+
+    @Value("${notifications.coalesce-window-ms:30000}")
+    private long coalesceWindowMillis;
+
+    @Value("${notifications.flush-interval-ms:200}")
+    private long flushIntervalMillis;
+
+    @Value("${notifications.outbox-batch-size:64}")
+    private int outboxBatchSize;
+
+    @Value("${notifications.lane-capacity:10000}")
+    private int laneCapacity;
+
+    @Value("${notifications.outbox-capacity:10000}")
+    private int outboxCapacity;
+
+    @Value("${notifications.search.max-alerts:100000}")
+    private int maxIndexedAlerts;
+
+    @PostConstruct
+    public void initNotifications() {
+        notifications = stateStoreFactory.replicated("notifications", Notification.class);
+        notificationIdGenerator = stateStoreFactory.idGenerator("notifications", 4);
+
+        // Seeds use fixed ids so that every node of a cluster writes the same entries
+        createNotification(1L, "System Update", "System maintenance scheduled for tonight", "info", false, "admin");
+        createNotification(2L, "Traffic Alert", "Heavy traffic detected on Main Street", "warning", false, "admin");
+        createNotification(3L, "Simulation Complete", "Traffic simulation #123 has completed", "success", true, "admin");
+
+        pipeline = new DeliveryPipeline(coalesceWindowMillis, flushIntervalMillis, outboxBatchSize, laneCapacity,
+                outboxCapacity, notificationIdGenerator::nextId, this::deliver);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pipeline.shutdown();
+    }
+
+    /**
+     * Queues a notification for asynchronous delivery with a priority derived from its type.
+     */
+    public void createNotification(String title, String message, String type, String userId) {
+        createNotification(title, message, type, userId, priorityOf(type));
+    }
+
+    public void createNotification(String title, String message, String type, String userId,
+                                   NotificationPriority priority) {
+        Notification notification = new Notification();
+        notification.setTitle(title);
+        notification.setMessage(message);
+        notification.setType(type);
+        notification.setCreatedAt(clockService.now());
+        notification.setUserId(userId);
+        notification.setPriority(priority);
+        pipeline.submit(notification);
+    }
+
+    private void createNotification(Long id, String title, String message, String type, boolean read, String userId) {
+        Notification notification = new Notification();
+        notification.setId(id);
+        notification.setTitle(title);
+        notification.setMessage(message);
+        notification.setType(type);
+        notification.setRead(read);
+        notification.setCreatedAt(LocalDateTime.now());
+        notification.setUserId(userId);
+        notification.setPriority(priorityOf(type));
+
+        notifications.put(id.toString(), notification);
+        index(notification);
+    }
+
+    private void deliver(List<Notification> batch) {
+        Map<String, Notification> entries = new LinkedHashMap<>();
+        for (Notification notification : batch) {
+            entries.put(notification.getId().toString(), notification);
+        }
+        notifications.putAll(entries);
+        batch.forEach(this::index);
+    }
+
+    private void index(Notification notification) {
+        searchIndex.add(NOTIFICATION, notification.getId(), notification.getUserId(),
+                toMillis(notification.getCreatedAt()), notification.getTitle(), notification.getMessage());
+    }
+
+    public void indexAlert(DashboardOverview.Alert alert, LocalDateTime timestamp) {
+        long key = alertSequence.incrementAndGet();
+        searchIndex.add(ALERT, key, null, toMillis(timestamp), alert.getSeverity(), alert.getMessage());
+        List<Long> evicted = new ArrayList<>();
+        synchronized (indexedAlerts) {
+            indexedAlerts.put(key, alert);
+            for (Iterator<Long> it = indexedAlerts.keySet().iterator();
+                 indexedAlerts.size() > maxIndexedAlerts && it.hasNext(); ) {
+                evicted.add(it.next());
+                it.remove();
+            }
+        }
+        evicted.forEach(evictedKey -> searchIndex.remove(ALERT, evictedKey));
+    }
+
+    /**
+     * Ranked search over notification titles and messages and alert messages. {@code kindMask}
+     * selects {@link #NOTIFICATION} and {@link #ALERT} by bit; {@code userId} keeps that user's
+     * notifications, alerts being visible to everyone.
+     */
+    public NotificationSearchResult search(String query, int kindMask, String userId,
+                                           LocalDateTime from, LocalDateTime to, int limit) {
+        SearchIndex.Result result = searchIndex.search(query, kindMask, userId,
+                from != null ? toMillis(from) : Long.MIN_VALUE, to != null ? toMillis(to) : Long.MAX_VALUE, limit);
+
+        List<NotificationSearchResult.Hit> hits = new ArrayList<>(result.hits().size());
+        for (SearchIndex.Hit hit : result.hits()) {
+            if (hit.kind() == NOTIFICATION) {
+                notifications.get(Long.toString(hit.key())).ifPresent(notification ->
+                        hits.add(new NotificationSearchResult.Hit("notification", hit.score(), notification, null)));
+            } else {
+                DashboardOverview.Alert alert;
+                synchronized (indexedAlerts) {
+                    alert = indexedAlerts.get(hit.key());
+                }
+                if (alert != null) {
+                    hits.add(new NotificationSearchResult.Hit("alert", hit.score(), null, alert));
+                }
+            }
+        }
+        return new NotificationSearchResult(query, result.matches(), hits);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static NotificationPriority priorityOf(String type) {
+        if (type == null) {
+            return NotificationPriority.LOW;
+        }
+        return switch (type) {
+            case "error" -> NotificationPriority.HIGH;
+            case "warning" -> NotificationPriority.NORMAL;
+            default -> NotificationPriority.LOW;
+        };
+    }
+
+    public Map<String, Object> getPipelineMetrics() {
+        return pipeline.getMetrics();
+    }
+
+    public List<Notification> getAllNotifications() {
+        return notifications.values();
+    }
+
+    public Optional<Notification> markNotificationAsRead(Long id) {
+        Optional<Notification> notification = notifications.get(id.toString());
+        notification.ifPresent(n -> {
+            n.setRead(true);
+            notifications.put(id.toString(), n);
+        });
+        return notification;
+    }
+
+    public void markAllNotificationsAsRead() {
+        notifications.values().stream()
+                .filter(n -> !n.isRead())
+                .forEach(n -> {
+                    n.setRead(true);
+                    notifications.put(n.getId().toString(), n);
+                });
+    }
+}
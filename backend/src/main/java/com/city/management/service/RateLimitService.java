@@ -0,0 +1,207 @@
+package com.city.management.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint quotas enforced per user, with the size of the quota set by the user's role.
+ * Each user has their own bucket per rule: a single {@link AtomicLong} holding the GCRA
+ * "theoretical arrival time", which behaves like a token bucket of size {@code limit} refilled
+ * over {@code period} and is updated with one CAS, so the hot path never takes a lock.
+ *
+ * Rules are configured as {@code METHOD /path/pattern user=N/seconds ROLE_X=N/seconds ...},
+ * separated by semicolons: {@code user} is the quota of every user whose role has none of its
+ * own. The first matching rule applies. Buckets that have filled up again are swept in the
+ * background.
+ */
+@Service
+public class RateLimitService {
+
+    @Value("${ratelimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ratelimit.rules:}")
+    private String rulesConfig;
+
+    @Value("${ratelimit.sweep-interval-seconds:60}")
+    private long sweepIntervalSeconds;
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    public void init() {
+        for (String spec : rulesConfig.split(";")) {
+            if (!spec.isBlank()) {
+                rules.add(Rule.parse(rules.size(), spec.trim()));
+            }
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ratelimit-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalSeconds, sweepIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Returns 0 if the request may proceed, otherwise the number of nanoseconds to wait.
+     */
+    public long acquire(String method, String path, String username, String role) {
+        if (!enabled || username == null) {
+            return 0;
+        }
+        Rule rule = match(method, path);
+        if (rule == null) {
+            return 0;
+        }
+        Quota quota = rule.quotaFor(role);
+        if (quota == null) {
+            return 0;
+        }
+
+        long wait = tryTake(rule.index + "|" + username, quota, System.nanoTime());
+        if (wait == 0) {
+            rule.allowed.increment();
+        } else {
+            rule.rejected.increment();
+        }
+        return wait;
+    }
+
+    public List<Map<String, Object>> getMetrics() {
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        for (Rule rule : rules) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("rule", rule.spec);
+            entry.put("allowed", rule.allowed.sum());
+            entry.put("rejected", rule.rejected.sum());
+            metrics.add(entry);
+        }
+        return metrics;
+    }
+
+    public int getActiveBuckets() {
+        return buckets.size();
+    }
+
+    private Rule match(String method, String path) {
+        for (Rule rule : rules) {
+            if ((rule.method.equals("*") || rule.method.equalsIgnoreCase(method))
+                    && pathMatcher.match(rule.pattern, path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private long tryTake(String key, Quota quota, long now) {
+        while (true) {
+            AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            long tat = bucket.get();
+            long next = Math.max(tat, now) + quota.interval;
+            long excess = next - now - quota.period;
+            if (excess > 0) {
+                return excess;
+            }
+            // A bucket swept away between the read and the CAS would lose the token, so take it again
+            if (bucket.compareAndSet(tat, next) && buckets.get(key) == bucket) {
+                return 0;
+            }
+        }
+    }
+
+    private void sweep() {
+        // A bucket whose arrival time is in the past is full again and can be dropped
+        long now = System.nanoTime();
+        for (String key : buckets.keySet()) {
+            buckets.computeIfPresent(key, (k, bucket) -> bucket.get() - now < 0 ? null : bucket);
+        }
+    }
+
+    private record Quota(long interval, long period) {
+        static Quota parse(String token, String rule) {
+            String[] parts = token.substring(token.indexOf('=') + 1).split("/");
+            long limit = 0;
+            long seconds = 0;
+            if (parts.length == 2) {
+                try {
+                    limit = Long.parseLong(parts[0]);
+                    seconds = Long.parseLong(parts[1]);
+                } catch (NumberFormatException e) {
+                    // Left at zero and rejected below
+                }
+            }
+            if (limit <= 0 || seconds <= 0) {
+                throw new IllegalArgumentException("Invalid rate limit quota '" + token
+                        + "', limit and seconds must be positive, in: " + rule);
+            }
+            long period = TimeUnit.SECONDS.toNanos(seconds);
+            return new Quota(period / limit, period);
+        }
+    }
+
+    private static final class Rule {
+        final String spec;
+        final int index;
+        final String method;
+        final String pattern;
+        final Map<String, Quota> roleQuotas = new HashMap<>();
+        Quota userQuota;
+        final LongAdder allowed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+
+        private Rule(int index, String spec, String method, String pattern) {
+            this.spec = spec;
+            this.index = index;
+            this.method = method;
+            this.pattern = pattern;
+        }
+
+        Quota quotaFor(String role) {
+            Quota quota = role != null ? roleQuotas.get(role) : null;
+            return quota != null ? quota : userQuota;
+        }
+
+        static Rule parse(int index, String spec) {
+            String[] tokens = spec.split("\\s+");
+            if (tokens.length < 3) {
+                throw new IllegalArgumentException("Invalid rate limit rule: " + spec);
+            }
+            Rule rule = new Rule(index, spec, tokens[0], tokens[1]);
+            for (int i = 2; i < tokens.length; i++) {
+                if (tokens[i].startsWith("user=")) {
+                    rule.userQuota = Quota.parse(tokens[i], spec);
+                } else if (tokens[i].startsWith("ROLE_") && tokens[i].contains("=")) {
+                    int split = tokens[i].indexOf('=');
+                    rule.roleQuotas.put(tokens[i].substring(0, split), Quota.parse(tokens[i], spec));
+                } else {
+                    throw new IllegalArgumentException("Invalid rate limit quota '" + tokens[i] + "' in: " + spec);
+                }
+            }
+            return rule;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.city.management.service;
+
+import com.city.management.model.IndicatorReading;
+import com.city.management.replay.RecordingFormat;
+import com.city.management.replay.RecordingWriter;
+import com.city.management.replay.SampleRecording;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Records ingested indicator readings to compact files under {@code replay.directory}, one file
+ * per recording session. At most one recording is active at a time.
+ */
+@Service
+public class RecordingService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecordingService.class);
+
+    public static final String EXTENSION = ".rec";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    @Value("${replay.directory:data/recordings}")
+    private String directory;
+
+    @Value("${replay.sample.name:sample}")
+    private String sampleName;
+
+    @Value("${replay.sample.days:7}")
+    private int sampleDays;
+
+    @Value("${replay.sample.sensors-per-mode:4}")
+    private int sampleSensors;
+
+    @Value("${replay.sample.interval-minutes:5}")
+    private int sampleInterval;
+
+    private Path root;
+    private volatile RecordingWriter writer;
+    private volatile String activeName;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Path.of(directory);
+        Files.createDirectories(root);
+        if (sampleDays > 0 && NAME.matcher(sampleName).matches() && !Files.exists(path(sampleName))) {
+            long end = RecordingFormat.toEpochMillis(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+            SampleRecording.write(path(sampleName), sampleDays, sampleSensors, sampleInterval, end, 42);
+            log.info("Generated sample recording {} ({} days)", sampleName, sampleDays);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (writer != null) {
+            stop();
+        }
+    }
+
+    /**
+     * Appends a reading to the active recording. A recording that fails is stopped; the failure
+     * never reaches the ingest path.
+     */
+    public void onReading(IndicatorReading reading) {
+        if (writer == null) {
+            return;
+        }
+        synchronized (this) {
+            RecordingWriter current = writer;
+            if (current == null) {
+                return;
+            }
+            try {
+                current.append(reading.getMode(), reading.getSensorId(),
+                        RecordingFormat.toEpochMillis(reading.getTimestamp()), reading.getValue());
+            } catch (IOException | RuntimeException e) {
+                log.warn("Recording {} failed, stopping it: {}", activeName, e.getMessage());
+                close(current);
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> start(String name) {
+        if (writer != null) {
+            throw new IllegalStateException("Recording " + activeName + " is already in progress");
+        }
+        Path path = path(validName(name));
+        if (Files.exists(path)) {
+            throw new IllegalArgumentException("Recording " + name + " already exists");
+        }
+        try {
+            writer = new RecordingWriter(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        activeName = name;
+        return getActive();
+    }
+
+    public synchronized Map<String, Object> stop() {
+        RecordingWriter current = writer;
+        if (current == null) {
+            throw new IllegalStateException("No recording in progress");
+        }
+        Map<String, Object> summary = getActive();
+        close(current);
+        return summary;
+    }
+
+    private void close(RecordingWriter current) {
+        writer = null;
+        try {
+            current.close();
+        } catch (IOException e) {
+            log.warn("Closing recording {} failed: {}", activeName, e.getMessage());
+        }
+        activeName = null;
+    }
+
+    public synchronized Map<String, Object> getActive() {
+        RecordingWriter current = writer;
+        if (current == null) {
+            return null;
+        }
+        Map<String, Object> active = new LinkedHashMap<>();
+        active.put("name", activeName);
+        active.put("readings", current.getRecords());
+        try {
+            active.put("sizeBytes", current.getBytes());
+        } catch (IOException e) {
+            active.put("sizeBytes", null);
+        }
+        return active;
+    }
+
+    public boolean isRecording(String name) {
+        return name.equals(activeName);
+    }
+
+    public List<Map<String, Object>> list() {
+        List<Map<String, Object>> recordings = new ArrayList<>();
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(EXTENSION)).sorted().toList()) {
+                String fileName = file.getFileName().toString();
+                Map<String, Object> recording = new LinkedHashMap<>();
+                recording.put("name", fileName.substring(0, fileName.length() - EXTENSION.length()));
+                recording.put("sizeBytes", Files.size(file));
+                recording.put("modifiedAt", Files.getLastModifiedTime(file).toInstant().toString());
+                recording.put("recording", isRecording(recording.get("name").toString()));
+                recordings.add(recording);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return recordings;
+    }
+
+    public List<String> names() {
+        return list().stream().map(recording -> recording.get("name").toString()).toList();
+    }
+
+    /**
+     * Path of an existing recording; IllegalArgumentException if the name is invalid or unknown.
+     */
+    public Path resolve(String name) {
+        Path path = path(validName(name));
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Unknown recording " + name);
+        }
+        return path;
+    }
+
+    private Path path(String name) {
+        return root.resolve(name + EXTENSION);
+    }
+
+    private static String validName(String name) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Recording names are 1-64 letters, digits, '-' or '_'");
+        }
+        return name;
+    }
+}
@@ -0,0 +1,144 @@
+package com.city.management.service;
+
+import com.city.management.replay.Replayer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Replays recordings into the live ingestion pipeline. Replayed readings go through the same
+ * anomaly detection, forecasting and dashboard paths as posted ones, and the application clock
+ * follows the replayed time until the replay ends. One replay runs at a time.
+ */
+@Service
+public class ReplayService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplayService.class);
+
+    @Autowired
+    private RecordingService recordingService;
+
+    @Autowired
+    private IndicatorIngestService indicatorIngestService;
+
+    @Autowired
+    private ClockService clockService;
+
+    @Autowired
+    private StartupService startupService;
+
+    @Value("${replay.max-speed:1000}")
+    private double maxSpeed;
+
+    @Value("${replay.max-parallelism:16}")
+    private int maxParallelism;
+
+    @Value("${replay.startup-recording:}")
+    private String startupRecording;
+
+    @Value("${replay.startup-speed:0}")
+    private double startupSpeed;
+
+    private Replayer replayer;
+    private String replayName;
+
+    @PostConstruct
+    public void init() {
+        if (!startupRecording.isBlank()) {
+            // The application is not ready until the recording has been replayed
+            StartupService.Subsystem subsystem = startupService.begin("startup-replay");
+            try {
+                start(startupRecording, startupSpeed, false, 1, done -> {
+                    if (done.getState() == Replayer.State.FAILED) {
+                        subsystem.failed(new IllegalStateException("Replay of " + startupRecording + " failed"));
+                    } else {
+                        subsystem.ready();
+                    }
+                });
+                log.info("Replaying recording {} at startup", startupRecording);
+            } catch (IllegalArgumentException e) {
+                log.warn("Startup replay skipped: {}", e.getMessage());
+                subsystem.failed(e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (replayer != null) {
+            replayer.stop();
+        }
+    }
+
+    /**
+     * Starts replaying a recording. Speed is a multiple of real time between 1 and
+     * {@code replay.max-speed}, or 0 to replay as fast as ingestion allows.
+     */
+    public synchronized Map<String, Object> start(String name, double speed, boolean loop, int parallelism) {
+        return start(name, speed, loop, parallelism, done -> {
+        });
+    }
+
+    private synchronized Map<String, Object> start(String name, double speed, boolean loop, int parallelism,
+                                                   Consumer<Replayer> onDone) {
+        if (replayer != null && replayer.getState() == Replayer.State.RUNNING) {
+            throw new IllegalStateException("Recording " + replayName + " is already being replayed");
+        }
+        if (speed != 0 && (speed < 1 || speed > maxSpeed)) {
+            throw new IllegalArgumentException("speed must be 0 (unthrottled) or between 1 and " + maxSpeed);
+        }
+        if (parallelism < 1 || parallelism > maxParallelism) {
+            throw new IllegalArgumentException("parallelism must be between 1 and " + maxParallelism);
+        }
+        Path path = recordingService.resolve(name);
+        if (recordingService.isRecording(name)) {
+            throw new IllegalArgumentException("Recording " + name + " is still being written");
+        }
+
+        Replayer next = new Replayer(path, speed, loop, parallelism, indicatorIngestService::ingestReplayed, done -> {
+            clockService.release(done);
+            log.info("Replay of {} ended: {}", name, done.getStatus());
+            onDone.accept(done);
+        });
+        clockService.follow(next);
+        replayer = next;
+        replayName = name;
+        next.start();
+        return getStatus();
+    }
+
+    public synchronized Map<String, Object> stop() {
+        if (replayer == null || replayer.getState() != Replayer.State.RUNNING) {
+            throw new IllegalStateException("No replay in progress");
+        }
+        replayer.stop();
+        try {
+            replayer.awaitTermination(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return getStatus();
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (replayer == null) {
+            status.put("state", "idle");
+        } else {
+            status.put("recording", replayName);
+            status.putAll(replayer.getStatus());
+        }
+        status.put("clock", clockService.now().toString());
+        status.put("activeRecording", recordingService.getActive());
+        return status;
+    }
+}
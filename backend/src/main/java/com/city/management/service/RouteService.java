@@ -0,0 +1,259 @@
+package com.city.management.service;
+
+import com.city.management.model.RouteResult;
+import com.city.management.routing.ContractionHierarchy;
+import com.city.management.routing.RoadGraph;
+import com.city.management.routing.RouteMetric;
+import com.city.management.routing.RoutePath;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Point-to-point routing on the road graph. The graph and its contraction hierarchies are
+ * memory-mapped from disk; a missing or stale hierarchy is rebuilt in the background while
+ * queries fall back to plain Dijkstra. Routes are chosen on free-flow weights and the expected
+ * travel time is then scaled by the live load on the {@code car} indicator.
+ */
+@Service
+public class RouteService {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteService.class);
+
+    @Value("${routing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${routing.graph-file:data/road-graph.bin}")
+    private String graphFile;
+
+    @Value("${routing.synthetic-grid-size:100}")
+    private int syntheticGridSize;
+
+    @Autowired
+    private ForecastService forecastService;
+
+    private volatile RoadGraph graph;
+    private final Map<RouteMetric, ContractionHierarchy> hierarchies = new EnumMap<>(RouteMetric.class);
+    private ExecutorService builder;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Path path = Path.of(graphFile);
+        if (!Files.exists(path)) {
+            if (syntheticGridSize <= 0) {
+                log.warn("Road graph {} not found, routing disabled", path);
+                return;
+            }
+            log.info("Road graph {} not found, generating a {}x{} synthetic grid", path, syntheticGridSize, syntheticGridSize);
+            writeSyntheticGrid(path, syntheticGridSize);
+        }
+
+        RoadGraph loaded = RoadGraph.open(path);
+        builder = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "route-ch-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (RouteMetric metric : RouteMetric.values()) {
+            Path chFile = hierarchyFile(path, metric);
+            ContractionHierarchy hierarchy = ContractionHierarchy.open(chFile, loaded, metric);
+            if (hierarchy != null) {
+                setHierarchy(metric, hierarchy);
+            } else {
+                builder.execute(() -> buildHierarchy(loaded, metric, chFile));
+            }
+        }
+        graph = loaded;
+        log.info("Road graph loaded: {} nodes, {} edges", loaded.nodeCount(), loaded.edgeCount());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (builder != null) {
+            builder.shutdownNow();
+        }
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public boolean isAvailable() {
+        return graph != null;
+    }
+
+    public synchronized boolean isHierarchyReady(RouteMetric metric) {
+        return hierarchies.containsKey(metric);
+    }
+
+    public int getNodeCount() {
+        return graph != null ? graph.nodeCount() : 0;
+    }
+
+    public Optional<RouteResult> route(int from, int to, RouteMetric metric) {
+        RoadGraph g = graph;
+        if (from < 0 || to < 0 || from >= g.nodeCount() || to >= g.nodeCount()) {
+            throw new IllegalArgumentException("Node ids must be between 0 and " + (g.nodeCount() - 1));
+        }
+
+        ContractionHierarchy hierarchy;
+        synchronized (this) {
+            hierarchy = hierarchies.get(metric);
+        }
+        long start = System.nanoTime();
+        RoutePath path = hierarchy != null ? hierarchy.query(from, to) : dijkstra(g, from, to, metric);
+        double micros = (System.nanoTime() - start) / 1000.0;
+        if (path == null) {
+            return Optional.empty();
+        }
+
+        int[] nodes = path.nodes();
+        double distance = 0;
+        double freeFlow = 0;
+        List<double[]> coordinates = new ArrayList<>(nodes.length);
+        coordinates.add(new double[]{g.lat(nodes[0]), g.lon(nodes[0])});
+        for (int i = 1; i < nodes.length; i++) {
+            int edge = cheapestEdge(g, nodes[i - 1], nodes[i], metric);
+            distance += g.length(edge);
+            freeFlow += g.travelTime(edge);
+            coordinates.add(new double[]{g.lat(nodes[i]), g.lon(nodes[i])});
+        }
+
+        double congestion = Math.max(1.0, forecastService.getLoadFactor("car"));
+        return Optional.of(new RouteResult(from, to, metric.name().toLowerCase(),
+                hierarchy != null ? "contraction-hierarchy" : "dijkstra",
+                distance, freeFlow, freeFlow * congestion, congestion, micros, nodes, coordinates));
+    }
+
+    private void buildHierarchy(RoadGraph g, RouteMetric metric, Path chFile) {
+        try {
+            long start = System.currentTimeMillis();
+            ContractionHierarchy.build(g, metric, chFile);
+            setHierarchy(metric, ContractionHierarchy.open(chFile, g, metric));
+            log.info("Built {} contraction hierarchy in {} ms", metric, System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.error("Building {} contraction hierarchy failed: {}", metric, e.getMessage());
+        }
+    }
+
+    private synchronized void setHierarchy(RouteMetric metric, ContractionHierarchy hierarchy) {
+        hierarchies.put(metric, hierarchy);
+    }
+
+    private static Path hierarchyFile(Path graphPath, RouteMetric metric) {
+        return graphPath.resolveSibling(graphPath.getFileName() + "." + metric.name().toLowerCase() + ".ch");
+    }
+
+    private static int cheapestEdge(RoadGraph g, int u, int v, RouteMetric metric) {
+        int best = -1;
+        for (int e = g.firstEdge(u), end = g.endEdge(u); e < end; e++) {
+            if (g.target(e) == v && (best < 0 || g.weight(e, metric) < g.weight(best, metric))) {
+                best = e;
+            }
+        }
+        return best;
+    }
+
+    // Fallback while the hierarchy for a metric is still being built
+    private static RoutePath dijkstra(RoadGraph g, int from, int to, RouteMetric metric) {
+        int n = g.nodeCount();
+        double[] dist = new double[n];
+        int[] parent = new int[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        dist[from] = 0;
+        parent[from] = -1;
+        queue.add(new double[]{0, from});
+        while (!queue.isEmpty()) {
+            double[] top = queue.poll();
+            int u = (int) top[1];
+            if (top[0] > dist[u]) {
+                continue;
+            }
+            if (u == to) {
+                break;
+            }
+            for (int e = g.firstEdge(u), end = g.endEdge(u); e < end; e++) {
+                int v = g.target(e);
+                double d = top[0] + g.weight(e, metric);
+                if (d < dist[v]) {
+                    dist[v] = d;
+                    parent[v] = u;
+                    queue.add(new double[]{d, v});
+                }
+            }
+        }
+        if (dist[to] == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+
+        int length = 1;
+        for (int v = to; v != from; v = parent[v]) {
+            length++;
+        }
+        int[] nodes = new int[length];
+        for (int v = to, i = length - 1; i >= 0; i--) {
+            nodes[i] = v;
+            v = parent[v];
+        }
+        return new RoutePath(nodes, dist[to]);
+    }
+
+    private static void writeSyntheticGrid(Path path, int size) throws IOException {
+        // Streets on a ~100 m grid with a 50 km/h arterial every fifth row and column
+        Random random = new Random(42);
+        int n = size * size;
+        float[] lat = new float[n];
+        float[] lon = new float[n];
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[n * 4];
+        float[] lengths = new float[n * 4];
+        float[] speeds = new float[n * 4];
+
+        int m = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int u = r * size + c;
+                lat[u] = 53.30f + r * 0.0009f;
+                lon[u] = -6.35f + c * 0.0015f;
+                offsets[u] = m;
+                int[][] neighbours = {{r - 1, c}, {r + 1, c}, {r, c - 1}, {r, c + 1}};
+                for (int[] nb : neighbours) {
+                    if (nb[0] < 0 || nb[1] < 0 || nb[0] >= size || nb[1] >= size) {
+                        continue;
+                    }
+                    boolean arterial = nb[0] == r ? r % 5 == 0 : c % 5 == 0;
+                    targets[m] = nb[0] * size + nb[1];
+                    lengths[m] = 90 + random.nextFloat() * 20;
+                    speeds[m] = arterial ? 50 : 30;
+                    m++;
+                }
+            }
+        }
+        offsets[n] = m;
+        RoadGraph.write(path, lat, lon, offsets, Arrays.copyOf(targets, m),
+                Arrays.copyOf(lengths, m), Arrays.copyOf(speeds, m));
+    }
+}
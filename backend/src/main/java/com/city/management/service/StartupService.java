@@ -0,0 +1,285 @@
+package com.city.management.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * How the application starts: the time every bean took to create, the subsystems that finish
+ * initialising after the context is up, and when the first request was served, all measured
+ * from the start of the JVM. The application is ready once the context has started and no
+ * subsystem is still starting; until then the health endpoint reports it as starting.
+ */
+@Service
+public class StartupService {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupService.class);
+
+    private static final String BEAN_STEP = "spring.beans.instantiate";
+
+    @Autowired
+    private ApplicationStartup applicationStartup;
+
+    @Value("${startup.background-threads:2}")
+    private int backgroundThreads;
+
+    @Value("${startup.max-beans:200}")
+    private int maxBeans;
+
+    private final long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final List<Subsystem> subsystems = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Map<String, Object>> firstRequest = new AtomicReference<>();
+    private ExecutorService initializer;
+    private volatile long startedMillis = -1;
+    private volatile long readyMillis = -1;
+    private volatile List<BeanTiming> beans = List.of();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threads = new AtomicInteger();
+        initializer = Executors.newFixedThreadPool(Math.max(1, backgroundThreads), r -> {
+            Thread thread = new Thread(r, "startup-init-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        initializer.shutdownNow();
+    }
+
+    /**
+     * Registers a subsystem that is ready once the returned handle is told so.
+     */
+    public Subsystem begin(String name) {
+        Subsystem subsystem = new Subsystem(name);
+        subsystems.add(subsystem);
+        return subsystem;
+    }
+
+    /**
+     * Initialises a subsystem on the startup threads instead of holding up the context.
+     */
+    public void background(String name, Task task) {
+        Subsystem subsystem = begin(name);
+        initializer.execute(() -> {
+            try {
+                task.run();
+                subsystem.ready();
+            } catch (Exception e) {
+                log.error("Initialising {} failed", name, e);
+                subsystem.failed(e);
+            }
+        });
+    }
+
+    public boolean isReady() {
+        return readyMillis >= 0;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStarted() {
+        startedMillis = System.currentTimeMillis() - jvmStart;
+        beans = beanTimings();
+        checkReady();
+    }
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (firstRequest.get() != null) {
+            return;
+        }
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("millis", event.getTimestamp() - jvmStart);
+        request.put("method", event.getMethod());
+        request.put("path", event.getRequestUrl());
+        request.put("status", event.getStatusCode());
+        if (firstRequest.compareAndSet(null, request)) {
+            log.info("First request served {} ms after JVM start: {} {}", request.get("millis"),
+                    event.getMethod(), event.getRequestUrl());
+        }
+    }
+
+    /**
+     * Readiness for the health endpoint: UP once ready, STARTING while a subsystem is still
+     * starting and DEGRADED when one failed.
+     */
+    public Map<String, Object> getHealth() {
+        Map<String, Object> health = new LinkedHashMap<>();
+        health.put("status", status());
+        health.put("startedMillis", startedMillis >= 0 ? startedMillis : null);
+        health.put("readyMillis", readyMillis >= 0 ? readyMillis : null);
+        Map<String, String> states = new LinkedHashMap<>();
+        for (Subsystem subsystem : subsystems) {
+            states.put(subsystem.name, subsystem.state.name());
+        }
+        health.put("subsystems", states);
+        return health;
+    }
+
+    public String status() {
+        if (!isReady()) {
+            return "STARTING";
+        }
+        return subsystems.stream().anyMatch(s -> s.state == State.FAILED) ? "DEGRADED" : "UP";
+    }
+
+    /**
+     * Startup timings, with the {@code limit} beans that took longest to create by their own
+     * time, not counting the beans they pulled in.
+     */
+    public Map<String, Object> getReport(int limit) {
+        if (limit < 0 || limit > maxBeans) {
+            throw new IllegalArgumentException("limit must be between 0 and " + maxBeans);
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("status", status());
+        report.put("jvmStartedAt", LocalDateTime.ofInstant(Instant.ofEpochMilli(jvmStart), ZoneId.systemDefault()));
+        report.put("startedMillis", startedMillis >= 0 ? startedMillis : null);
+        report.put("readyMillis", readyMillis >= 0 ? readyMillis : null);
+        report.put("firstRequest", firstRequest.get());
+
+        List<Map<String, Object>> subsystemReports = new ArrayList<>();
+        for (Subsystem subsystem : subsystems) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", subsystem.name);
+            entry.put("state", subsystem.state.name());
+            entry.put("beganMillis", subsystem.beganMillis);
+            entry.put("millis", subsystem.state == State.STARTING ? null : subsystem.millis);
+            entry.put("error", subsystem.error);
+            subsystemReports.add(entry);
+        }
+        report.put("subsystems", subsystemReports);
+
+        List<BeanTiming> timings = beans;
+        report.put("beansTimed", timings.size());
+        report.put("beanMillis", Math.round(timings.stream().mapToDouble(BeanTiming::selfMillis).sum()));
+        report.put("slowestBeans", timings.stream().limit(limit).toList());
+        return report;
+    }
+
+    private synchronized void checkReady() {
+        if (readyMillis >= 0 || startedMillis < 0 || subsystems.stream().anyMatch(s -> s.state == State.STARTING)) {
+            return;
+        }
+        readyMillis = System.currentTimeMillis() - jvmStart;
+        StringBuilder slowest = new StringBuilder();
+        for (BeanTiming bean : beans.subList(0, Math.min(3, beans.size()))) {
+            slowest.append(slowest.isEmpty() ? "" : ", ").append(bean.bean()).append(" ").append(bean.selfMillis()).append(" ms");
+        }
+        log.info("Started {} ms and ready {} ms after JVM start; slowest beans: {}", startedMillis, readyMillis, slowest);
+    }
+
+    // Each bean's own creation time is its step less the steps of the beans it pulled in
+    private List<BeanTiming> beanTimings() {
+        if (!(applicationStartup instanceof BufferingApplicationStartup buffering)) {
+            return List.of();
+        }
+        List<StartupTimeline.TimelineEvent> events = buffering.getBufferedTimeline().getEvents();
+        Map<Long, Long> selfNanos = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            selfNanos.merge(event.getStartupStep().getId(), event.getDuration().toNanos(), Long::sum);
+            Long parent = event.getStartupStep().getParentId();
+            if (parent != null) {
+                selfNanos.merge(parent, -event.getDuration().toNanos(), Long::sum);
+            }
+        }
+        List<BeanTiming> timings = new ArrayList<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            StartupStep step = event.getStartupStep();
+            if (!BEAN_STEP.equals(step.getName())) {
+                continue;
+            }
+            String bean = null;
+            String type = null;
+            for (StartupStep.Tag tag : step.getTags()) {
+                if ("beanName".equals(tag.getKey())) {
+                    bean = tag.getValue();
+                } else if ("beanType".equals(tag.getKey())) {
+                    type = tag.getValue();
+                }
+            }
+            timings.add(new BeanTiming(bean, type, millis(event.getDuration().toNanos()),
+                    millis(Math.max(0, selfNanos.get(step.getId())))));
+        }
+        timings.sort(Comparator.comparingDouble(BeanTiming::selfMillis).reversed());
+        return timings;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    public enum State {
+        STARTING, READY, FAILED
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    public record BeanTiming(String bean, String type, double millis, double selfMillis) {
+    }
+
+    /**
+     * A subsystem that finishes initialising after its bean was created.
+     */
+    public class Subsystem {
+
+        private final String name;
+        private final long began = System.nanoTime();
+        private final long beganMillis = System.currentTimeMillis() - jvmStart;
+        private volatile State state = State.STARTING;
+        private volatile long millis;
+        private volatile String error;
+
+        private Subsystem(String name) {
+            this.name = name;
+        }
+
+        public void ready() {
+            finish(State.READY, null);
+        }
+
+        public void failed(Throwable cause) {
+            finish(State.FAILED, String.valueOf(cause.getMessage()));
+        }
+
+        private void finish(State outcome, String message) {
+            millis = (System.nanoTime() - began) / 1_000_000;
+            error = message;
+            state = outcome;
+            log.info("Subsystem {} {} after {} ms", name, outcome.name().toLowerCase(), millis);
+            checkReady();
+        }
+    }
+}
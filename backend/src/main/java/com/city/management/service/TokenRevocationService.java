@@ -0,0 +1,139 @@
+package com.city.management.service;
+
+import com.city.management.cluster.StateStore;
+import com.city.management.cluster.StateStoreFactory;
+import com.city.management.model.Revocation;
+import com.city.management.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revoked tokens are tracked exactly, either by token id (logout) or by a per-user issued-at
+ * watermark (deactivation, role change, deletion). A Bloom filter over both key sets sits in
+ * front of the stores so that the common case, a token that was never revoked, costs a few bit
+ * probes and no lookups. Entries are dropped once every token they could match has expired,
+ * and the filter is rebuilt from what remains.
+ *
+ * Both sets are replicated stores, so a token revoked on one node of a cluster is rejected by
+ * all of them; revocations written by peers are added to this node's filter as they arrive.
+ */
+@Service
+public class TokenRevocationService {
+
+    @Autowired
+    private StateStoreFactory stateStoreFactory;
+
+    @Value("${jwt.expiration}")
+    private long tokenLifetimeMillis;
+
+    @Value("${revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    @Value("${revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${revocation.prune-interval-seconds:60}")
+    private long pruneIntervalSeconds;
+
+    private StateStore<Revocation> revokedTokens;
+    private StateStore<Revocation> userWatermarks;
+    private volatile BloomFilter filter;
+    private ScheduledExecutorService pruner;
+
+    @PostConstruct
+    public void init() {
+        filter = new BloomFilter(expectedEntries, falsePositiveRate);
+        revokedTokens = stateStoreFactory.replicated("revokedTokens", Revocation.class);
+        userWatermarks = stateStoreFactory.replicated("revocationWatermarks", Revocation.class);
+        revokedTokens.onRemotePut(tokenId -> addToFilter(tokenKey(tokenId)));
+        userWatermarks.onRemotePut(username -> addToFilter(userKey(username)));
+
+        pruner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "token-revocation-pruner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pruner.scheduleWithFixedDelay(this::prune, pruneIntervalSeconds, pruneIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pruner.shutdownNow();
+    }
+
+    public synchronized void revokeToken(String tokenId, Date expiresAt) {
+        if (tokenId == null) {
+            return;
+        }
+        revokedTokens.put(tokenId, new Revocation(tokenId, expiresAt.getTime()));
+        filter.add(tokenKey(tokenId));
+    }
+
+    // Rejects every token of the user issued up to and including the current second
+    public synchronized void revokeAllForUser(String username) {
+        userWatermarks.put(username, new Revocation(username, System.currentTimeMillis() / 1000 * 1000));
+        filter.add(userKey(username));
+    }
+
+    public boolean isRevoked(String tokenId, String username, Date issuedAt) {
+        BloomFilter current = filter;
+        boolean tokenCandidate = tokenId != null && current.mightContain(tokenKey(tokenId));
+        boolean userCandidate = current.mightContain(userKey(username));
+        if (!tokenCandidate && !userCandidate) {
+            return false;
+        }
+        if (tokenCandidate && revokedTokens.get(tokenId).isPresent()) {
+            return true;
+        }
+        if (userCandidate) {
+            Optional<Revocation> watermark = userWatermarks.get(username);
+            return watermark.isPresent() && (issuedAt == null || issuedAt.getTime() <= watermark.get().getTime());
+        }
+        return false;
+    }
+
+    public int getRevokedCount() {
+        return revokedTokens.values().size() + userWatermarks.values().size();
+    }
+
+    // Every node prunes its own copy; removals of entries a peer already dropped are no-ops there
+    synchronized void prune() {
+        long now = System.currentTimeMillis();
+        for (Revocation revocation : revokedTokens.values()) {
+            if (revocation.getTime() < now) {
+                revokedTokens.remove(revocation.getSubject());
+            }
+        }
+        for (Revocation revocation : userWatermarks.values()) {
+            if (revocation.getTime() + tokenLifetimeMillis < now) {
+                userWatermarks.remove(revocation.getSubject());
+            }
+        }
+
+        BloomFilter rebuilt = new BloomFilter(expectedEntries, falsePositiveRate);
+        revokedTokens.forEach(revocation -> rebuilt.add(tokenKey(revocation.getSubject())));
+        userWatermarks.forEach(revocation -> rebuilt.add(userKey(revocation.getSubject())));
+        filter = rebuilt;
+    }
+
+    private synchronized void addToFilter(String key) {
+        filter.add(key);
+    }
+
+    private static String tokenKey(String tokenId) {
+        return "t:" + tokenId;
+    }
+
+    private static String userKey(String username) {
+        return "u:" + username;
+    }
+}
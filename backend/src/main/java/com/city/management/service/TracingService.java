@@ -0,0 +1,134 @@
+package com.city.management.service;
+
+import com.city.management.model.TraceReport;
+import com.city.management.tracing.Sampler;
+import com.city.management.tracing.Trace;
+import com.city.management.tracing.TraceBuffer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Span trees of sampled requests, from the filter chain through controllers, traced services and
+ * JSON serialization. The {@link Sampler} keeps the number of traced requests per second about
+ * constant and finished traces go to a fixed-size {@link TraceBuffer}, so tracing costs the same
+ * however busy the application is.
+ */
+@Service
+public class TracingService {
+
+    private static final Comparator<Trace> SLOWEST_FIRST = Comparator.comparingLong(Trace::nanos).reversed();
+
+    @Value("${tracing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tracing.target-per-second:5}")
+    private double targetPerSecond;
+
+    @Value("${tracing.min-probability:0.001}")
+    private double minProbability;
+
+    @Value("${tracing.buffer-size:2048}")
+    private int bufferSize;
+
+    @Value("${tracing.max-spans:256}")
+    private int maxSpans;
+
+    @Value("${tracing.query.max-limit:50}")
+    private int maxLimit;
+
+    private Sampler sampler;
+    private TraceBuffer buffer;
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            sampler = new Sampler(targetPerSecond, minProbability);
+            buffer = new TraceBuffer(bufferSize);
+        }
+    }
+
+    /**
+     * A new trace for the request if it is sampled, otherwise null.
+     */
+    public Trace begin(String method, String uri) {
+        if (sampler == null || !sampler.sample()) {
+            return null;
+        }
+        return new Trace(method, uri, maxSpans);
+    }
+
+    public void record(Trace trace) {
+        buffer.add(trace);
+    }
+
+    /**
+     * The {@code limit} slowest buffered requests of every route, or of {@code route} only,
+     * which is either a pattern such as {@code /api/dashboard/stats} or the pattern preceded by
+     * its method. Routes with the slowest requests come first.
+     */
+    public TraceReport query(String route, int limit) {
+        if (buffer == null) {
+            throw new IllegalStateException("Tracing is disabled");
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+
+        List<Trace> traces = buffer.snapshot();
+        Map<String, List<Trace>> byRoute = new HashMap<>();
+        for (Trace trace : traces) {
+            if (route == null || trace.route().equals(route) || trace.route().endsWith(" " + route)) {
+                byRoute.computeIfAbsent(trace.route(), r -> new ArrayList<>()).add(trace);
+            }
+        }
+
+        List<TraceReport.RouteTraces> routes = new ArrayList<>();
+        for (Map.Entry<String, List<Trace>> entry : byRoute.entrySet()) {
+            List<Trace> routeTraces = entry.getValue();
+            routeTraces.sort(SLOWEST_FIRST);
+            List<TraceReport.RequestTrace> slowest = new ArrayList<>();
+            for (Trace trace : routeTraces.subList(0, Math.min(limit, routeTraces.size()))) {
+                slowest.add(toRequestTrace(trace));
+            }
+            routes.add(new TraceReport.RouteTraces(entry.getKey(), routeTraces.size(),
+                    millis(routeTraces.get(routeTraces.size() / 2).nanos()), millis(routeTraces.get(0).nanos()), slowest));
+        }
+        routes.sort(Comparator.comparingDouble(TraceReport.RouteTraces::getMaxMillis).reversed());
+        return new TraceReport(sampler.probability(), sampler.sampled(), traces.size(), buffer.capacity(), routes);
+    }
+
+    private static TraceReport.RequestTrace toRequestTrace(Trace trace) {
+        TraceReport.SpanNode[] nodes = new TraceReport.SpanNode[trace.spanCount()];
+        for (int span = 0; span < nodes.length; span++) {
+            double millis = millis(trace.spanNanos(span));
+            nodes[span] = new TraceReport.SpanNode(trace.name(span), millis(trace.startNanos(span)), millis, millis,
+                    new ArrayList<>());
+            int parent = trace.parent(span);
+            if (parent >= 0) {
+                nodes[parent].getChildren().add(nodes[span]);
+                nodes[parent].setSelfMillis(round(nodes[parent].getSelfMillis() - millis));
+            }
+        }
+        return new TraceReport.RequestTrace(
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(trace.startedAt()), ZoneId.systemDefault()),
+                trace.uri(), trace.status(), millis(trace.nanos()), trace.droppedSpans(), nodes[0]);
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1_000_000.0);
+    }
+
+    private static double round(double millis) {
+        return Math.round(millis * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,277 @@
+package com.city.management.service;
+
+import com.city.management.model.BulkImportResult;
+import com.city.management.model.Role;
+import com.city.management.model.User;
+import com.city.management.util.CsvUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams service-provider users in and out as CSV or NDJSON. Imports are read one chunk of
+ * rows at a time; each chunk is BCrypt-hashed on a bounded pool and then written to the user
+ * indexes as a single batch, which is also when usernames are claimed. Memory stays bounded by
+ * the chunk size and {@code users.bulk.max-errors}, however long the import.
+ */
+@Service
+public class UserBulkService {
+
+    private static final String[] CSV_COLUMNS = {"id", "username", "email", "name", "role", "active", "createdAt", "lastLogin"};
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${users.bulk.batch-size:256}")
+    private int batchSize;
+
+    @Value("${users.bulk.hash-threads:0}")
+    private int hashThreads;
+
+    @Value("${users.bulk.max-errors:100}")
+    private int maxErrors;
+
+    private ExecutorService hashPool;
+
+    @PostConstruct
+    public void init() {
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        hashPool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "user-import-hash");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashPool.shutdownNow();
+    }
+
+    public BulkImportResult importCsv(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            return new BulkImportResult();
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = CsvUtil.parseLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+
+        return importRows(reader, 2, line -> {
+            List<String> fields = CsvUtil.parseLine(line);
+            return new Row(field(fields, columns, "username"), field(fields, columns, "password"),
+                    field(fields, columns, "email"), field(fields, columns, "name"));
+        });
+    }
+
+    public BulkImportResult importNdjson(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return importRows(reader, 1, line -> {
+            JsonNode json = objectMapper.readTree(line);
+            return new Row(json.path("username").asText(null), json.path("password").asText(null),
+                    json.path("email").asText(null), json.path("name").asText(null));
+        });
+    }
+
+    public void exportCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", CSV_COLUMNS));
+        writer.write('\n');
+        export(user -> {
+            Map<String, Object> row = exportRow(user);
+            List<String> fields = new ArrayList<>(CSV_COLUMNS.length);
+            for (String column : CSV_COLUMNS) {
+                Object value = row.get(column);
+                fields.add(CsvUtil.escape(value == null ? "" : value.toString()));
+            }
+            writer.write(String.join(",", fields));
+            writer.write('\n');
+        });
+        writer.flush();
+    }
+
+    public void exportNdjson(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        export(user -> {
+            writer.write(objectMapper.writeValueAsString(exportRow(user)));
+            writer.write('\n');
+        });
+        writer.flush();
+    }
+
+    private BulkImportResult importRows(BufferedReader reader, int firstRow, RowParser parser) throws IOException {
+        BulkImportResult result = new BulkImportResult();
+        // Names in the current chunk; earlier chunks have already claimed theirs
+        Set<String> seen = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(batchSize);
+        int rowNumber = firstRow - 1;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            rowNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            Row row;
+            try {
+                row = parser.parse(line);
+            } catch (IOException | RuntimeException e) {
+                reject(result, rowNumber, null, "Malformed row");
+                continue;
+            }
+            row.number = rowNumber;
+
+            if (isBlank(row.username) || isBlank(row.password)) {
+                reject(result, rowNumber, row.username, "Username and password are required");
+            } else if (!seen.add(row.username)) {
+                reject(result, rowNumber, row.username, "Duplicate username in import");
+            } else if (userService.findByUsername(row.username).isPresent()) {
+                // Spares the hashing; the claim in flush() is what keeps names unique
+                reject(result, rowNumber, row.username, "Username already exists");
+            } else {
+                chunk.add(row);
+                if (chunk.size() == batchSize) {
+                    flush(chunk, result);
+                    seen.clear();
+                }
+            }
+        }
+        flush(chunk, result);
+        return result;
+    }
+
+    private void flush(List<Row> chunk, BulkImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<Future<User>> hashed = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            hashed.add(hashPool.submit(() -> userService.newUser(
+                    row.username, row.password, row.email, row.name, Role.ROLE_SERVICE_PROVIDER_USER)));
+        }
+
+        List<User> batch = new ArrayList<>(chunk.size());
+        Map<String, Integer> rowNumbers = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            rowNumbers.put(chunk.get(i).username, chunk.get(i).number);
+            try {
+                batch.add(hashed.get(i).get());
+            } catch (ExecutionException e) {
+                reject(result, chunk.get(i).number, chunk.get(i).username, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during user import", e);
+            }
+        }
+
+        List<User> taken = userService.saveAll(batch);
+        for (User user : taken) {
+            reject(result, rowNumbers.get(user.getUsername()), user.getUsername(), "Username already exists");
+        }
+        result.setCreated(result.getCreated() + batch.size() - taken.size());
+        chunk.clear();
+    }
+
+    private void export(UserWriter rowWriter) throws IOException {
+        try {
+            userService.forEachUser(user -> {
+                try {
+                    rowWriter.write(user);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Map<String, Object> exportRow(User user) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", user.getId());
+        row.put("username", user.getUsername());
+        row.put("email", user.getEmail());
+        row.put("name", user.getName());
+        row.put("role", user.getRole().name());
+        row.put("active", user.isActive());
+        row.put("createdAt", user.getCreatedAt() != null ? user.getCreatedAt().toString() : null);
+        row.put("lastLogin", user.getLastLogin() != null ? user.getLastLogin().toString() : null);
+        return row;
+    }
+
+    private void reject(BulkImportResult result, int row, String username, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new BulkImportResult.RowError(row, username, message));
+        }
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index != null && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static final class Row {
+        final String username;
+        final String password;
+        final String email;
+        final String name;
+        int number;
+
+        Row(String username, String password, String email, String name) {
+            this.username = username;
+            this.password = password;
+            this.email = email;
+            this.name = name;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        Row parse(String line) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface UserWriter {
+        void write(User user) throws IOException;
+    }
+}
@@ -1,65 +1,122 @@
 package com.city.management.service;
 
+import com.city.management.cluster.IdGenerator;
+import com.city.management.cluster.StateStore;
+import com.city.management.cluster.StateStoreFactory;
 import com.city.management.model.Role;
 import com.city.management.model.User;
+import com.city.management.tracing.Traced;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
+@Traced
 public class UserService {
 
-    private final Map<Long, User> users = new ConcurrentHashMap<>();
-    private final Map<String, User> usersByUsername = new ConcurrentHashMap<>();
-    private final AtomicLong idGenerator = new AtomicLong(5);
+    private static final String SEED_USERS = "seed-users.csv";
+
+    private StateStore<User> users;
+    private StateStore<Long> usersByUsername;
+    private IdGenerator idGenerator;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private StateStoreFactory stateStoreFactory;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private DashboardMetricsService dashboardMetricsService;
+
     @PostConstruct
-    public void initUsers() {
-        // Pre-seeded test users
-        createUser(1L, "admin", "admin123", "admin@city.gov", "Admin User", Role.ROLE_GOVERNMENT_ADMIN);
-        createUser(2L, "manager", "manager123", "manager@city.gov", "City Manager", Role.ROLE_CITY_MANAGER);
-        createUser(3L, "provider_admin", "provider123", "provideradmin@city.gov", "Provider Admin", Role.ROLE_SERVICE_PROVIDER_ADMIN);
-        createUser(4L, "provider_user", "user123", "provideruser@city.gov", "Provider User", Role.ROLE_SERVICE_PROVIDER_USER);
+    public void initUsers() throws IOException {
+        users = stateStoreFactory.partitioned("users", User.class);
+        usersByUsername = stateStoreFactory.partitioned("usersByUsername", Long.class);
+        idGenerator = stateStoreFactory.idGenerator("users", 5);
+
+        // Pre-seeded test users, with their passwords hashed ahead of time: BCrypt takes a good
+        // fraction of a second per password
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(SEED_USERS).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                createSeedUser(Long.parseLong(fields[0]), fields[1], fields[2], fields[3], fields[4],
+                        Role.valueOf(fields[5]));
+            }
+        }
     }
 
-    private void createUser(Long id, String username, String password, String email, String name, Role role) {
+    private void createSeedUser(Long id, String username, String passwordHash, String email, String name, Role role) {
         User user = new User();
         user.setId(id);
         user.setUsername(username);
-        user.setPassword(passwordEncoder.encode(password));
+        user.setPassword(passwordHash);
         user.setEmail(email);
         user.setName(name);
         user.setRole(role);
         user.setActive(true);
         user.setCreatedAt(LocalDateTime.now());
 
-        users.put(id, user);
-        usersByUsername.put(username, user);
+        if (users.isOwnedLocally(id.toString())) {
+            users.put(id.toString(), user);
+            dashboardMetricsService.onUserCreated(true);
+        }
+        if (usersByUsername.isOwnedLocally(username)) {
+            usersByUsername.put(username, id);
+        }
     }
 
     public Optional<User> findByUsername(String username) {
-        return Optional.ofNullable(usersByUsername.get(username));
+        return usersByUsername.get(username).flatMap(this::findById);
     }
 
     public Optional<User> findById(Long id) {
-        return Optional.ofNullable(users.get(id));
+        return users.get(id.toString());
     }
 
     public List<User> findAll() {
-        return new ArrayList<>(users.values());
+        return users.values();
+    }
+
+    public void forEachUser(Consumer<User> action) {
+        users.forEach(action);
     }
 
-    public User createUser(String username, String password, String email, String name, Role role) {
-        Long id = idGenerator.getAndIncrement();
+    /**
+     * The new user, or empty when the username is taken. The name is claimed as the user is
+     * saved, so concurrent registrations and imports of one name cannot both succeed.
+     */
+    public Optional<User> createUser(String username, String password, String email, String name, Role role) {
+        User user = newUser(username, password, email, name, role);
+        if (!usersByUsername.putIfAbsent(username, user.getId())) {
+            return Optional.empty();
+        }
+        users.put(user.getId().toString(), user);
+        dashboardMetricsService.onUserCreated(user.isActive());
+        return Optional.of(user);
+    }
+
+    // Builds and hashes a user without storing it, so callers can hash in parallel and save in batches
+    public User newUser(String username, String password, String email, String name, Role role) {
+        Long id = idGenerator.nextId();
         User user = new User();
         user.setId(id);
         user.setUsername(username);
@@ -69,18 +126,46 @@ public class UserService {
         user.setRole(role);
         user.setActive(true);
         user.setCreatedAt(LocalDateTime.now());
-
-        users.put(id, user);
-        usersByUsername.put(username, user);
         return user;
     }
 
+    /**
+     * Saves a batch of users with distinct usernames, claiming each name first. Returns the users
+     * that were not saved because their name was already taken.
+     */
+    public List<User> saveAll(List<User> batch) {
+        Map<String, Long> idsByUsername = new HashMap<>();
+        for (User user : batch) {
+            idsByUsername.put(user.getUsername(), user.getId());
+        }
+        Set<String> taken = usersByUsername.putAllIfAbsent(idsByUsername);
+
+        Map<String, User> byId = new HashMap<>();
+        List<User> rejected = new ArrayList<>();
+        for (User user : batch) {
+            if (taken.contains(user.getUsername())) {
+                rejected.add(user);
+            } else {
+                byId.put(user.getId().toString(), user);
+                dashboardMetricsService.onUserCreated(user.isActive());
+            }
+        }
+        users.putAll(byId);
+        return rejected;
+    }
+
     public Optional<User> updateUser(Long id, User updatedUser) {
-        User existingUser = users.get(id);
+        User existingUser = users.get(id.toString()).orElse(null);
         if (existingUser == null) {
             return Optional.empty();
         }
 
+        boolean roleChanged = updatedUser.getRole() != null && updatedUser.getRole() != existingUser.getRole();
+        if (roleChanged || !updatedUser.isActive()) {
+            // Live tokens carry the old role or belong to a deactivated account
+            tokenRevocationService.revokeAllForUser(existingUser.getUsername());
+        }
+
         if (updatedUser.getEmail() != null) {
             existingUser.setEmail(updatedUser.getEmail());
         }
@@ -91,15 +176,22 @@ public class UserService {
             existingUser.setRole(updatedUser.getRole());
         }
 
+        boolean activeChanged = updatedUser.isActive() != existingUser.isActive();
         existingUser.setActive(updatedUser.isActive());
+        users.put(id.toString(), existingUser);
+        if (activeChanged) {
+            dashboardMetricsService.onUserActivationChanged(existingUser.isActive());
+        }
 
         return Optional.of(existingUser);
     }
 
     public boolean deleteUser(Long id) {
-        User user = users.remove(id);
-        if (user != null) {
-            usersByUsername.remove(user.getUsername());
+        Optional<User> user = users.get(id.toString());
+        if (user.isPresent() && users.remove(id.toString())) {
+            usersByUsername.remove(user.get().getUsername());
+            tokenRevocationService.revokeAllForUser(user.get().getUsername());
+            dashboardMetricsService.onUserDeleted(user.get().isActive());
             return true;
         }
         return false;
@@ -110,9 +202,9 @@ public class UserService {
     }
 
     public void updateLastLogin(String username) {
-        User user = usersByUsername.get(username);
-        if (user != null) {
+        findByUsername(username).ifPresent(user -> {
             user.setLastLogin(LocalDateTime.now());
-        }
+            users.put(user.getId().toString(), user);
+        });
     }
 }
@@ -0,0 +1,195 @@
+package com.city.management.simulation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects KPI samples from independent replications and summarises them with a Student-t
+ * confidence interval and empirical percentiles.
+ */
+public class ReplicationStatistics {
+
+    // t quantiles for 1 to 29 degrees of freedom (rows) at the two-sided confidence levels in
+    // T_LEVELS (columns). Below 30 the expansion in studentT is too far off, 9.7 for 12.71 at one.
+    private static final double[] T_LEVELS = {0.5, 0.6, 0.7, 0.8, 0.9, 0.95, 0.98, 0.99, 0.995, 0.998, 0.999};
+    private static final double[][] T_TABLE = {
+            {1.0000, 1.3764, 1.9626, 3.0777, 6.3138, 12.7062, 31.8205, 63.6567, 127.3213, 318.3088, 636.6192},
+            {0.8165, 1.0607, 1.3862, 1.8856, 2.9200, 4.3027, 6.9646, 9.9248, 14.0890, 22.3271, 31.5991},
+            {0.7649, 0.9785, 1.2498, 1.6377, 2.3534, 3.1824, 4.5407, 5.8409, 7.4533, 10.2145, 12.9240},
+            {0.7407, 0.9410, 1.1896, 1.5332, 2.1318, 2.7764, 3.7469, 4.6041, 5.5976, 7.1732, 8.6103},
+            {0.7267, 0.9195, 1.1558, 1.4759, 2.0150, 2.5706, 3.3649, 4.0321, 4.7733, 5.8934, 6.8688},
+            {0.7176, 0.9057, 1.1342, 1.4398, 1.9432, 2.4469, 3.1427, 3.7074, 4.3168, 5.2076, 5.9588},
+            {0.7111, 0.8960, 1.1192, 1.4149, 1.8946, 2.3646, 2.9980, 3.4995, 4.0293, 4.7853, 5.4079},
+            {0.7064, 0.8889, 1.1081, 1.3968, 1.8595, 2.3060, 2.8965, 3.3554, 3.8325, 4.5008, 5.0413},
+            {0.7027, 0.8834, 1.0997, 1.3830, 1.8331, 2.2622, 2.8214, 3.2498, 3.6897, 4.2968, 4.7809},
+            {0.6998, 0.8791, 1.0931, 1.3722, 1.8125, 2.2281, 2.7638, 3.1693, 3.5814, 4.1437, 4.5869},
+            {0.6974, 0.8755, 1.0877, 1.3634, 1.7959, 2.2010, 2.7181, 3.1058, 3.4966, 4.0247, 4.4370},
+            {0.6955, 0.8726, 1.0832, 1.3562, 1.7823, 2.1788, 2.6810, 3.0545, 3.4284, 3.9296, 4.3178},
+            {0.6938, 0.8702, 1.0795, 1.3502, 1.7709, 2.1604, 2.6503, 3.0123, 3.3725, 3.8520, 4.2208},
+            {0.6924, 0.8681, 1.0763, 1.3450, 1.7613, 2.1448, 2.6245, 2.9768, 3.3257, 3.7874, 4.1405},
+            {0.6912, 0.8662, 1.0735, 1.3406, 1.7531, 2.1314, 2.6025, 2.9467, 3.2860, 3.7328, 4.0728},
+            {0.6901, 0.8647, 1.0711, 1.3368, 1.7459, 2.1199, 2.5835, 2.9208, 3.2520, 3.6862, 4.0150},
+            {0.6892, 0.8633, 1.0690, 1.3334, 1.7396, 2.1098, 2.5669, 2.8982, 3.2224, 3.6458, 3.9651},
+            {0.6884, 0.8620, 1.0672, 1.3304, 1.7341, 2.1009, 2.5524, 2.8784, 3.1966, 3.6105, 3.9216},
+            {0.6876, 0.8610, 1.0655, 1.3277, 1.7291, 2.0930, 2.5395, 2.8609, 3.1737, 3.5794, 3.8834},
+            {0.6870, 0.8600, 1.0640, 1.3253, 1.7247, 2.0860, 2.5280, 2.8453, 3.1534, 3.5518, 3.8495},
+            {0.6864, 0.8591, 1.0627, 1.3232, 1.7207, 2.0796, 2.5176, 2.8314, 3.1352, 3.5272, 3.8193},
+            {0.6858, 0.8583, 1.0614, 1.3212, 1.7171, 2.0739, 2.5083, 2.8188, 3.1188, 3.5050, 3.7921},
+            {0.6853, 0.8575, 1.0603, 1.3195, 1.7139, 2.0687, 2.4999, 2.8073, 3.1040, 3.4850, 3.7676},
+            {0.6848, 0.8569, 1.0593, 1.3178, 1.7109, 2.0639, 2.4922, 2.7969, 3.0905, 3.4668, 3.7454},
+            {0.6844, 0.8562, 1.0584, 1.3163, 1.7081, 2.0595, 2.4851, 2.7874, 3.0782, 3.4502, 3.7251},
+            {0.6840, 0.8557, 1.0575, 1.3150, 1.7056, 2.0555, 2.4786, 2.7787, 3.0669, 3.4350, 3.7066},
+            {0.6837, 0.8551, 1.0567, 1.3137, 1.7033, 2.0518, 2.4727, 2.7707, 3.0565, 3.4210, 3.6896},
+            {0.6834, 0.8546, 1.0560, 1.3125, 1.7011, 2.0484, 2.4671, 2.7633, 3.0469, 3.4082, 3.6739},
+            {0.6830, 0.8542, 1.0553, 1.3114, 1.6991, 2.0452, 2.4620, 2.7564, 3.0380, 3.3962, 3.6594},
+    };
+
+    private final String[] kpis;
+    private double[][] samples;
+    private final double[] sum;
+    private final double[] sumSquares;
+    private int count;
+
+    public ReplicationStatistics(String[] kpis, int expected) {
+        this.kpis = kpis;
+        this.samples = new double[kpis.length][Math.max(1, expected)];
+        this.sum = new double[kpis.length];
+        this.sumSquares = new double[kpis.length];
+    }
+
+    public void add(double[] values) {
+        if (count == samples[0].length) {
+            for (int k = 0; k < kpis.length; k++) {
+                samples[k] = Arrays.copyOf(samples[k], count * 2);
+            }
+        }
+        for (int k = 0; k < kpis.length; k++) {
+            samples[k][count] = values[k];
+            sum[k] += values[k];
+            sumSquares[k] += values[k] * values[k];
+        }
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double mean(int kpi) {
+        return sum[kpi] / count;
+    }
+
+    public double standardDeviation(int kpi) {
+        if (count < 2) {
+            return 0;
+        }
+        double mean = mean(kpi);
+        return Math.sqrt(Math.max(0, (sumSquares[kpi] - count * mean * mean) / (count - 1)));
+    }
+
+    public double halfWidth(int kpi, double confidence) {
+        if (count < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return studentT(confidence, count - 1) * standardDeviation(kpi) / Math.sqrt(count);
+    }
+
+    /**
+     * True once every KPI's interval half-width is within the relative precision of its mean.
+     * A KPI whose mean is zero has converged once its samples stop varying.
+     */
+    public boolean hasConverged(double confidence, double relativePrecision) {
+        for (int k = 0; k < kpis.length; k++) {
+            if (halfWidth(k, confidence) > relativePrecision * Math.abs(mean(k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Map<String, Object> summary(double confidence) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        for (int k = 0; k < kpis.length; k++) {
+            double[] sorted = Arrays.copyOf(samples[k], count);
+            Arrays.sort(sorted);
+            double mean = mean(k);
+            double halfWidth = halfWidth(k, confidence);
+
+            Map<String, Object> kpi = new LinkedHashMap<>();
+            kpi.put("mean", mean);
+            kpi.put("stdDev", standardDeviation(k));
+            kpi.put("ciLower", count > 1 ? mean - halfWidth : mean);
+            kpi.put("ciUpper", count > 1 ? mean + halfWidth : mean);
+            kpi.put("p5", percentile(sorted, 0.05));
+            kpi.put("p50", percentile(sorted, 0.50));
+            kpi.put("p95", percentile(sorted, 0.95));
+            summary.put(kpis[k], kpi);
+        }
+        return summary;
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        double rank = p * (sorted.length - 1);
+        int lower = (int) Math.floor(rank);
+        int upper = Math.min(sorted.length - 1, lower + 1);
+        return sorted[lower] + (rank - lower) * (sorted[upper] - sorted[lower]);
+    }
+
+    static double studentT(double confidence, int degreesOfFreedom) {
+        if (degreesOfFreedom <= T_TABLE.length) {
+            return tableT(confidence, T_TABLE[degreesOfFreedom - 1]);
+        }
+        double z = normalQuantile(1 - (1 - confidence) / 2);
+        double n = degreesOfFreedom;
+        // Cornish-Fisher expansion of the t quantile around the normal one, good from 30 df on
+        double z3 = z * z * z;
+        double z5 = z3 * z * z;
+        double z7 = z5 * z * z;
+        return z + (z3 + z) / (4 * n)
+                + (5 * z5 + 16 * z3 + 3 * z) / (96 * n * n)
+                + (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384 * n * n * n);
+    }
+
+    /**
+     * Interpolates a row of {@link #T_TABLE}. The log of the quantile is close to linear in
+     * log(1 - confidence), exactly so in the tail for one degree of freedom, so levels between
+     * the tabulated ones are interpolated and levels above 0.999 extrapolated on that scale.
+     */
+    private static double tableT(double confidence, double[] row) {
+        int upper = 1;
+        while (upper < T_LEVELS.length - 1 && T_LEVELS[upper] < confidence) {
+            upper++;
+        }
+        int lower = upper - 1;
+        double x0 = Math.log(1 - T_LEVELS[lower]);
+        double x1 = Math.log(1 - T_LEVELS[upper]);
+        double fraction = (Math.log(1 - confidence) - x0) / (x1 - x0);
+        return Math.exp(Math.log(row[lower]) + fraction * (Math.log(row[upper]) - Math.log(row[lower])));
+    }
+
+    static double normalQuantile(double p) {
+        // Acklam's rational approximation, relative error below 1.2e-9
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            return -normalQuantile(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+}
@@ -0,0 +1,250 @@
+package com.city.management.simulation;
+
+import com.city.management.model.Simulation;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Secondary indexes over simulation runs. Every run sits in a set ordered by creation time and,
+ * once finished, in one ordered by completion time; status, type and creator each keep their own
+ * creation-ordered sets. A query walks the smallest set that satisfies one of its filters, in
+ * the requested order, starting after the cursor, and checks the remaining filters against the
+ * indexed fields only.
+ *
+ * Writers are serialised; readers walk the concurrent sets without locking.
+ */
+public class SimulationIndex {
+
+    public enum SortField {
+        CREATED_AT,
+        COMPLETED_AT
+    }
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<Key> byCreated = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Key> byCompleted = new ConcurrentSkipListSet<>();
+    private final Map<String, NavigableSet<Key>> byStatus = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<Key>> byType = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<Key>> byCreator = new ConcurrentHashMap<>();
+
+    public static SimulationIndex of(Collection<Simulation> simulations) {
+        SimulationIndex index = new SimulationIndex();
+        simulations.forEach(index::update);
+        return index;
+    }
+
+    public synchronized void update(Simulation simulation) {
+        Entry entry = new Entry(simulation.getId(), simulation.getStatus(), simulation.getType(),
+                simulation.getCreatedBy(), simulation.getCreatedAt(), simulation.getCompletedAt());
+        Entry previous = entries.put(entry.id, entry);
+        if (entry.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            unindex(previous);
+        }
+        Key created = entry.createdKey();
+        byCreated.add(created);
+        add(byStatus, entry.status, created);
+        add(byType, entry.type, created);
+        add(byCreator, entry.createdBy, created);
+        if (entry.completedAt != null) {
+            byCompleted.add(entry.completedKey());
+        }
+    }
+
+    public synchronized void remove(Long id) {
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            unindex(previous);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Ids of up to {@code limit} matching runs in sort order, plus the cursor for the next page
+     * or null when there is none. {@code from} and {@code to} bound the sort field, inclusive.
+     */
+    public Result query(Filter filter, SortField sort, boolean descending, int limit, String cursor) {
+        NavigableSet<Key> candidates;
+        if (sort == SortField.COMPLETED_AT) {
+            candidates = byCompleted;
+        } else {
+            candidates = smallest(byCreated,
+                    filter.status != null ? byStatus.getOrDefault(filter.status, emptySet()) : null,
+                    filter.type != null ? byType.getOrDefault(filter.type, emptySet()) : null,
+                    filter.createdBy != null ? byCreator.getOrDefault(filter.createdBy, emptySet()) : null);
+        }
+
+        Key low = filter.from != null ? new Key(filter.from, Long.MIN_VALUE) : null;
+        Key high = filter.to != null ? new Key(filter.to, Long.MAX_VALUE) : null;
+        boolean lowInclusive = true;
+        boolean highInclusive = true;
+        if (cursor != null) {
+            Key after = Key.decode(cursor);
+            if (descending && (high == null || after.compareTo(high) <= 0)) {
+                high = after;
+                highInclusive = false;
+            } else if (!descending && (low == null || after.compareTo(low) >= 0)) {
+                low = after;
+                lowInclusive = false;
+            }
+        }
+
+        NavigableSet<Key> range = candidates;
+        if (low != null && high != null) {
+            if (low.compareTo(high) > 0) {
+                return new Result(List.of(), null);
+            }
+            range = candidates.subSet(low, lowInclusive, high, highInclusive);
+        } else if (low != null) {
+            range = candidates.tailSet(low, lowInclusive);
+        } else if (high != null) {
+            range = candidates.headSet(high, highInclusive);
+        }
+        if (descending) {
+            range = range.descendingSet();
+        }
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, 256));
+        Key last = null;
+        for (Key key : range) {
+            Entry entry = entries.get(key.id);
+            if (entry == null || !filter.matches(entry)) {
+                continue;
+            }
+            if (ids.size() == limit) {
+                return new Result(ids, last.encode());
+            }
+            ids.add(key.id);
+            last = key;
+        }
+        return new Result(ids, null);
+    }
+
+    private void unindex(Entry entry) {
+        Key created = entry.createdKey();
+        byCreated.remove(created);
+        removeFrom(byStatus, entry.status, created);
+        removeFrom(byType, entry.type, created);
+        removeFrom(byCreator, entry.createdBy, created);
+        if (entry.completedAt != null) {
+            byCompleted.remove(entry.completedKey());
+        }
+    }
+
+    private static void add(Map<String, NavigableSet<Key>> index, String value, Key key) {
+        if (value != null) {
+            index.computeIfAbsent(value, v -> new ConcurrentSkipListSet<>()).add(key);
+        }
+    }
+
+    private static void removeFrom(Map<String, NavigableSet<Key>> index, String value, Key key) {
+        if (value == null) {
+            return;
+        }
+        NavigableSet<Key> keys = index.get(value);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                index.remove(value);
+            }
+        }
+    }
+
+    @SafeVarargs
+    private static NavigableSet<Key> smallest(NavigableSet<Key> fallback, NavigableSet<Key>... sets) {
+        NavigableSet<Key> best = fallback;
+        int bestSize = Integer.MAX_VALUE;
+        for (NavigableSet<Key> set : sets) {
+            // ConcurrentSkipListSet.size() is linear, so compare with a bounded count
+            if (set != null) {
+                int size = boundedSize(set, bestSize);
+                if (size < bestSize) {
+                    best = set;
+                    bestSize = size;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int boundedSize(NavigableSet<Key> set, int bound) {
+        int count = 0;
+        for (Key ignored : set) {
+            if (++count >= bound) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private static NavigableSet<Key> emptySet() {
+        return new ConcurrentSkipListSet<>();
+    }
+
+    public record Result(List<Long> ids, String nextCursor) {
+    }
+
+    public record Filter(String status, String type, String createdBy, LocalDateTime from, LocalDateTime to) {
+
+        boolean matches(Entry entry) {
+            return (status == null || status.equals(entry.status))
+                    && (type == null || type.equals(entry.type))
+                    && (createdBy == null || createdBy.equals(entry.createdBy));
+        }
+    }
+
+    private record Entry(Long id, String status, String type, String createdBy,
+                         LocalDateTime createdAt, LocalDateTime completedAt) {
+
+        Key createdKey() {
+            return new Key(Objects.requireNonNullElse(createdAt, LocalDateTime.MIN), id);
+        }
+
+        Key completedKey() {
+            return new Key(completedAt, id);
+        }
+    }
+
+    private record Key(LocalDateTime time, long id) implements Comparable<Key> {
+
+        private static final Comparator<Key> ORDER =
+                Comparator.comparing(Key::time).thenComparingLong(Key::id);
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((time + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Key decode(String cursor) {
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = value.lastIndexOf('|');
+                return new Key(LocalDateTime.parse(value.substring(0, separator)),
+                        Long.parseLong(value.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.city.management.simulation;
+
+import com.city.management.model.Simulation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The current snapshot of one simulation run. A published snapshot is never modified: every
+ * change copies it, bumps the version and installs the copy with compare-and-set, so readers
+ * always see a whole state. Once a run reaches a final status no further changes are accepted
+ * and {@link #finished()} completes with the final snapshot.
+ */
+public class SimulationState {
+
+    public static final String RUNNING = "running";
+    public static final String COMPLETED = "completed";
+    public static final String FAILED = "failed";
+
+    private final AtomicReference<Simulation> current;
+    private final CompletableFuture<Simulation> finished = new CompletableFuture<>();
+
+    public SimulationState(Simulation initial) {
+        this.current = new AtomicReference<>(initial);
+        if (isFinal(initial.getStatus())) {
+            finished.complete(initial);
+        }
+    }
+
+    public Simulation get() {
+        return current.get();
+    }
+
+    /**
+     * Applies a change to a copy of the current snapshot and publishes it as the next version,
+     * retrying if another writer got in first. IllegalStateException once the run is final.
+     */
+    public Simulation update(Consumer<Simulation> change) {
+        while (true) {
+            Simulation previous = current.get();
+            if (isFinal(previous.getStatus())) {
+                throw new IllegalStateException("Simulation " + previous.getId() + " is already " + previous.getStatus());
+            }
+            Simulation next = previous.copy();
+            change.accept(next);
+            next.setVersion(previous.getVersion() + 1);
+            if (current.compareAndSet(previous, next)) {
+                if (isFinal(next.getStatus())) {
+                    finished.complete(next);
+                }
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Completes with the final snapshot. Each call returns a new dependent future, so callers may
+     * time it out or cancel it without affecting other waiters.
+     */
+    public CompletableFuture<Simulation> finished() {
+        return finished.copy();
+    }
+
+    public static boolean isFinal(String status) {
+        return COMPLETED.equals(status) || FAILED.equals(status);
+    }
+}
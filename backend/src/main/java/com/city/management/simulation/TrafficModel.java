@@ -0,0 +1,201 @@
+package com.city.management.simulation;
+
+import com.city.management.emissions.EmissionFactors;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Minute-by-minute stochastic traffic model for one corridor. Demand fluctuates around the
+ * requested density, incidents arrive at random and take capacity away for a while, and speed
+ * follows the BPR volume-delay curve. The emissions and energy use of the cars on the corridor
+ * are added up every minute at the speed they travel. One call is one replication; all
+ * randomness comes from the replication's seed, so a replication is reproducible from its seed
+ * alone.
+ *
+ * Every {@link #CHECKPOINT_MINUTES} the model can record its state, and each of those blocks
+ * draws from its own stream derived from the seed. A replication can therefore be resumed from
+ * any checkpoint of an earlier run and ends exactly where a full run would. A model built with
+ * {@link #changedFrom} keeps an earlier model's parameters before the given minute, so a tweak
+ * only has to be simulated from that minute on.
+ */
+public class TrafficModel {
+
+    public static final String[] KPIS = {"avgSpeed", "efficiency", "incidents", "co2Kg", "noxKg", "energyKwh"};
+    public static final int CHECKPOINT_MINUTES = 15;
+
+    private static final int STATE_SIZE = 6;
+    private static final double FREE_FLOW_SPEED = 50.0;
+    private static final double CAPACITY_PER_MINUTE = 30;
+    private static final double CORRIDOR_KM = 2.0;
+    private static final double DEMAND_NOISE = 0.15;
+    private static final double INCIDENT_CAPACITY_LOSS = 0.4;
+
+    private final int durationMinutes;
+    private final double density;
+    private final double incidentsPerHour;
+    private final TrafficModel before;
+    private final int changeFromMinute;
+
+    public TrafficModel(Map<String, Object> parameters) {
+        this(parameters, null, 0);
+    }
+
+    private TrafficModel(Map<String, Object> parameters, TrafficModel before, int changeFromMinute) {
+        this.durationMinutes = Math.max(1, intParameter(parameters, "duration", 60));
+        this.density = density(parameters.get("trafficDensity"))
+                * (1 + doubleParameter(parameters, "trafficIncrease", 0) / 100);
+        this.incidentsPerHour = doubleParameter(parameters, "incidentRate", 2.0);
+        this.before = before;
+        this.changeFromMinute = changeFromMinute;
+    }
+
+    /**
+     * This model up to {@code minute}, and one with {@code parameters} from there on. The
+     * duration is taken from {@code parameters}.
+     */
+    public TrafficModel changedFrom(int minute, Map<String, Object> parameters) {
+        return new TrafficModel(parameters, this, minute);
+    }
+
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    /**
+     * Length of the trace a replication of this model records.
+     */
+    public int traceLength() {
+        return (durationMinutes / CHECKPOINT_MINUTES + 1) * STATE_SIZE;
+    }
+
+    /**
+     * Runs one replication and returns the KPIs in {@link #KPIS} order. If {@code trace} is not
+     * null it receives the state at every checkpoint.
+     */
+    public double[] run(long seed, double[] trace) {
+        return resume(seed, null, 0, trace);
+    }
+
+    /**
+     * Continues a replication from checkpoint {@code checkpoint} of {@code from}, the trace an
+     * earlier run with the same seed recorded. The checkpoints before it are copied to
+     * {@code trace}.
+     */
+    public double[] resume(long seed, double[] from, int checkpoint, double[] trace) {
+        // speed sum, incidents, incident minutes left, kg CO2, kg NOx, kWh
+        double[] state = new double[STATE_SIZE];
+        if (from != null) {
+            int offset = checkpoint * STATE_SIZE;
+            System.arraycopy(from, offset, state, 0, STATE_SIZE);
+            if (trace != null) {
+                System.arraycopy(from, 0, trace, 0, Math.min(offset, trace.length));
+            }
+        }
+        double speedSum = state[0];
+        int incidents = (int) state[1];
+        int incidentMinutesLeft = (int) state[2];
+        double co2 = state[3];
+        double nox = state[4];
+        double energy = state[5];
+
+        SplittableRandom random = null;
+        for (int minute = checkpoint * CHECKPOINT_MINUTES; minute < durationMinutes; minute++) {
+            if (minute % CHECKPOINT_MINUTES == 0) {
+                record(trace, minute / CHECKPOINT_MINUTES, speedSum, incidents, incidentMinutesLeft, co2, nox, energy);
+                random = new SplittableRandom(mix(seed, minute / CHECKPOINT_MINUTES));
+            }
+            TrafficModel regime = regimeAt(minute);
+            double demand = Math.max(0, regime.density * (1 + DEMAND_NOISE * random.nextGaussian()));
+            double capacity = incidentMinutesLeft > 0 ? 1 - INCIDENT_CAPACITY_LOSS : 1;
+            double ratio = demand / capacity;
+            double speed = FREE_FLOW_SPEED / (1 + 0.15 * Math.pow(ratio, 4));
+            speedSum += speed;
+            double vehicleKm = demand * CAPACITY_PER_MINUTE * CORRIDOR_KM;
+            co2 += vehicleKm * EmissionFactors.carCo2(speed) / 1000;
+            nox += vehicleKm * EmissionFactors.carNox(speed) / 1000;
+            energy += vehicleKm * EmissionFactors.carEnergy(speed);
+
+            if (incidentMinutesLeft > 0) {
+                incidentMinutesLeft--;
+            } else if (random.nextDouble() < regime.incidentsPerHour / 60 * (0.5 + ratio)) {
+                incidents++;
+                incidentMinutesLeft = random.nextInt(10, 31);
+            }
+        }
+        if (durationMinutes % CHECKPOINT_MINUTES == 0) {
+            record(trace, durationMinutes / CHECKPOINT_MINUTES, speedSum, incidents, incidentMinutesLeft,
+                    co2, nox, energy);
+        }
+
+        double avgSpeed = speedSum / durationMinutes;
+        return new double[]{avgSpeed, 100 * avgSpeed / FREE_FLOW_SPEED, incidents, co2, nox, energy};
+    }
+
+    private TrafficModel regimeAt(int minute) {
+        TrafficModel regime = this;
+        while (regime.before != null && minute < regime.changeFromMinute) {
+            regime = regime.before;
+        }
+        return regime;
+    }
+
+    private static void record(double[] trace, int checkpoint, double speedSum, int incidents, int incidentMinutesLeft,
+                               double co2, double nox, double energy) {
+        if (trace == null) {
+            return;
+        }
+        int offset = checkpoint * STATE_SIZE;
+        trace[offset] = speedSum;
+        trace[offset + 1] = incidents;
+        trace[offset + 2] = incidentMinutesLeft;
+        trace[offset + 3] = co2;
+        trace[offset + 4] = nox;
+        trace[offset + 5] = energy;
+    }
+
+    // SplitMix64 finaliser, so neighbouring blocks start far apart in the generator's sequence
+    private static long mix(long seed, int block) {
+        long z = seed + (block + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double density(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value == null) {
+            return 0.75;
+        }
+        return switch (value.toString().toLowerCase()) {
+            case "low" -> 0.5;
+            case "high" -> 0.95;
+            case "medium" -> 0.75;
+            default -> {
+                try {
+                    yield Double.parseDouble(value.toString());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("trafficDensity must be low, medium, high or a number");
+                }
+            }
+        };
+    }
+
+    public static int intParameter(Map<String, Object> parameters, String name, int defaultValue) {
+        Object value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number number ? number.intValue() : Integer.parseInt(value.toString());
+    }
+
+    public static double doubleParameter(Map<String, Object> parameters, String name, double defaultValue) {
+        Object value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number number ? number.doubleValue() : Double.parseDouble(value.toString());
+    }
+}
@@ -0,0 +1,53 @@
+package com.city.management.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which requests to trace so that about {@code targetPerSecond} are traced whatever the
+ * load. The probability for each one-second window is the target over the request rate of the
+ * window before, never below {@code minProbability}: a quiet application traces every request
+ * and a busy one a small, steady share of them.
+ */
+public class Sampler {
+
+    private static final long WINDOW_MILLIS = 1000;
+
+    private final double targetPerSecond;
+    private final double minProbability;
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+    private volatile double probability = 1;
+
+    public Sampler(double targetPerSecond, double minProbability) {
+        this.targetPerSecond = targetPerSecond;
+        this.minProbability = Math.max(0, Math.min(1, minProbability));
+    }
+
+    public boolean sample() {
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_MILLIS && windowStart.compareAndSet(start, now)) {
+            // Requests that raced the roll-over land in the next window, which is close enough
+            double rate = requests.sumThenReset() * 1000.0 / (now - start);
+            probability = rate <= targetPerSecond ? 1 : Math.max(minProbability, targetPerSecond / rate);
+        }
+        requests.increment();
+        double p = probability;
+        if (p >= 1 || ThreadLocalRandom.current().nextDouble() < p) {
+            sampled.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public double probability() {
+        return probability;
+    }
+
+    public long sampled() {
+        return sampled.sum();
+    }
+}
@@ -0,0 +1,123 @@
+package com.city.management.tracing;
+
+/**
+ * The span tree of one sampled request. Spans are kept in parallel arrays in the order they were
+ * opened, each pointing at its parent, so opening a span allocates nothing but its handle. A
+ * trace belongs to the thread of the request's current dispatch until it is finished; spans
+ * beyond {@code maxSpans} are counted but not kept.
+ */
+public class Trace {
+
+    private final String method;
+    private final String uri;
+    private final long startedAt = System.currentTimeMillis();
+    private final String[] names;
+    private final int[] parents;
+    private final long[] starts;
+    private final long[] ends;
+    private int count;
+    private int current = -1;
+    private int dropped;
+    private String route;
+    private int status;
+
+    public Trace(String method, String uri, int maxSpans) {
+        this.method = method;
+        this.uri = uri;
+        int capacity = Math.max(1, maxSpans);
+        names = new String[capacity];
+        parents = new int[capacity];
+        starts = new long[capacity];
+        ends = new long[capacity];
+        // The root span is set up directly, open() being overridable
+        names[0] = method + " " + uri;
+        parents[0] = -1;
+        starts[0] = System.nanoTime();
+        count = 1;
+        current = 0;
+    }
+
+    /**
+     * Opens a span under the current one, returning its number or -1 when the trace is full.
+     */
+    int open(String name) {
+        if (count == names.length) {
+            dropped++;
+            return -1;
+        }
+        int span = count++;
+        names[span] = name;
+        parents[span] = current;
+        starts[span] = System.nanoTime();
+        current = span;
+        return span;
+    }
+
+    void close(int span) {
+        ends[span] = System.nanoTime();
+        current = parents[span];
+    }
+
+    /**
+     * Ends the root span once the request has been handled by {@code route}.
+     */
+    public void finish(String route, int status) {
+        while (current > 0) {
+            close(current);
+        }
+        close(0);
+        this.route = route;
+        this.status = status;
+    }
+
+    public String method() {
+        return method;
+    }
+
+    public String uri() {
+        return uri;
+    }
+
+    public long startedAt() {
+        return startedAt;
+    }
+
+    public String route() {
+        return route;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public long nanos() {
+        return ends[0] - starts[0];
+    }
+
+    public int spanCount() {
+        return count;
+    }
+
+    public int droppedSpans() {
+        return dropped;
+    }
+
+    public String name(int span) {
+        return names[span];
+    }
+
+    public int parent(int span) {
+        return parents[span];
+    }
+
+    /**
+     * Start of a span relative to the start of the request.
+     */
+    public long startNanos(int span) {
+        return starts[span] - starts[0];
+    }
+
+    public long spanNanos(int span) {
+        return ends[span] - starts[span];
+    }
+}
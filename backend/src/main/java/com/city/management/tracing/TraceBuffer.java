@@ -0,0 +1,47 @@
+package com.city.management.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of the most recently finished traces. Adding one takes a slot with a single
+ * atomic increment and overwrites whatever trace was there, so recording never blocks and the
+ * buffer never grows.
+ */
+public class TraceBuffer {
+
+    private final AtomicReferenceArray<Trace> slots;
+    private final AtomicLong next = new AtomicLong();
+
+    public TraceBuffer(int capacity) {
+        slots = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    public void add(Trace trace) {
+        slots.set((int) (next.getAndIncrement() % slots.length()), trace);
+    }
+
+    /**
+     * The traces currently held, in no particular order.
+     */
+    public List<Trace> snapshot() {
+        List<Trace> traces = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            Trace trace = slots.get(i);
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        return traces;
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    public long added() {
+        return next.get();
+    }
+}
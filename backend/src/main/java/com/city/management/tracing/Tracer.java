@@ -0,0 +1,62 @@
+package com.city.management.tracing;
+
+/**
+ * Opens spans in the trace of the current request, if it is being sampled. When it is not,
+ * {@link #span} returns a shared no-op handle, so instrumented code costs one thread-local read.
+ *
+ * <pre>
+ * Tracer.Span span = Tracer.span("jwt.verify");
+ * try {
+ *     ...
+ * } finally {
+ *     span.close();
+ * }
+ * </pre>
+ */
+public final class Tracer {
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+    private static final Span NOOP = new Span(null, -1);
+
+    private Tracer() {
+    }
+
+    public static Span span(String name) {
+        Trace trace = CURRENT.get();
+        if (trace == null) {
+            return NOOP;
+        }
+        int span = trace.open(name);
+        return span < 0 ? NOOP : new Span(trace, span);
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    public static void begin(Trace trace) {
+        CURRENT.set(trace);
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static final class Span implements AutoCloseable {
+
+        private final Trace trace;
+        private final int span;
+
+        private Span(Trace trace, int span) {
+            this.trace = trace;
+            this.span = span;
+        }
+
+        @Override
+        public void close() {
+            if (trace != null) {
+                trace.close(span);
+            }
+        }
+    }
+}
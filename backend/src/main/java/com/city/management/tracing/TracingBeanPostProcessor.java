@@ -0,0 +1,58 @@
+package com.city.management.tracing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps controllers and {@link Traced} beans in a proxy that opens a span named
+ * {@code Class.method} around every call made while a request is being traced. Calls a bean
+ * makes on itself do not go through the proxy and are not traced.
+ */
+public class TracingBeanPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> type = ClassUtils.getUserClass(bean);
+        if (!AnnotatedElementUtils.hasAnnotation(type, RestController.class)
+                && !AnnotatedElementUtils.hasAnnotation(type, Traced.class)) {
+            return bean;
+        }
+        ProxyFactory factory = new ProxyFactory(bean);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(new SpanInterceptor(type.getSimpleName()));
+        return factory.getProxy(type.getClassLoader());
+    }
+
+    private static final class SpanInterceptor implements MethodInterceptor {
+
+        private final String prefix;
+        private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+        private SpanInterceptor(String type) {
+            this.prefix = type + ".";
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            if (!Tracer.isActive() || invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            String name = names.computeIfAbsent(invocation.getMethod(), method -> prefix + method.getName());
+            Tracer.Span span = Tracer.span(name);
+            try {
+                return invocation.proceed();
+            } finally {
+                span.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.city.management.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * The JSON converter for response bodies, timing each write as a {@code serialize} span. The
+ * span covers writing the body to the response stream as well, so a slow client shows up here.
+ */
+public class TracingJsonConverter extends MappingJackson2HttpMessageConverter {
+
+    public TracingJsonConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        Tracer.Span span = Tracer.span("serialize");
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            span.close();
+        }
+    }
+}
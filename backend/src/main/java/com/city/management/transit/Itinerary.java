@@ -0,0 +1,19 @@
+package com.city.management.transit;
+
+import java.util.List;
+
+/**
+ * One RAPTOR journey. Stops are network indexes; -1 stands for the origin or destination point.
+ */
+public record Itinerary(int departure, int arrival, int rides, List<Leg> legs) {
+
+    public enum LegType {
+        ACCESS,
+        TRANSIT,
+        TRANSFER,
+        EGRESS
+    }
+
+    public record Leg(LegType type, int fromStop, int toStop, int pattern, int trip, int departure, int arrival) {
+    }
+}
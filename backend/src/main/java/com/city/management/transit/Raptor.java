@@ -0,0 +1,294 @@
+package com.city.management.transit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Round-based public-transit routing (RAPTOR) over a {@link TransitNetwork}. Round k finds the
+ * earliest arrival at every stop using at most k vehicles; each round that improves the arrival
+ * at the destination adds one journey to the Pareto set of arrival time versus transfers.
+ *
+ * Per-thread query state is allocated once and reused, so queries do not allocate beyond the
+ * journeys they return.
+ */
+public class Raptor {
+
+    private static final int INF = Integer.MAX_VALUE;
+
+    private static final byte NONE = 0;
+    private static final byte ACCESS = 1;
+    private static final byte TRANSIT = 2;
+    private static final byte FOOT = 3;
+
+    private final TransitNetwork network;
+    private final int maxRounds;
+    private final ThreadLocal<QueryState> states;
+
+    public Raptor(TransitNetwork network, int maxRounds) {
+        this.network = network;
+        this.maxRounds = maxRounds;
+        this.states = ThreadLocal.withInitial(QueryState::new);
+    }
+
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    /**
+     * Journeys leaving the origin no earlier than {@code departure} (seconds after midnight),
+     * reaching the given access stops after {@code accessSeconds} and the destination
+     * {@code egressSeconds} after the egress stops. Sorted by number of rides, each one arriving
+     * strictly earlier than the last.
+     */
+    public List<Itinerary> plan(int departure, int[] accessStops, int[] accessSeconds,
+                                int[] egressStops, int[] egressSeconds, int rounds) {
+        QueryState q = states.get();
+        int limit = Math.min(rounds, maxRounds);
+        q.reset();
+        try {
+            for (int i = 0; i < egressStops.length; i++) {
+                q.egress[egressStops[i]] = Math.min(q.egress[egressStops[i]], egressSeconds[i]);
+            }
+            for (int i = 0; i < accessStops.length; i++) {
+                int stop = accessStops[i];
+                int arrival = departure + accessSeconds[i];
+                if (arrival < q.best[stop]) {
+                    q.arrival[0][stop] = arrival;
+                    q.best[stop] = arrival;
+                    q.kind[0][stop] = ACCESS;
+                    q.from[0][stop] = accessSeconds[i];
+                    q.mark(stop);
+                }
+            }
+
+            // Walking straight from an access stop to an egress stop bounds every transit journey
+            int targetBound = INF;
+            for (int stop : egressStops) {
+                if (q.arrival[0][stop] != INF) {
+                    targetBound = Math.min(targetBound, q.arrival[0][stop] + q.egress[stop]);
+                }
+            }
+
+            List<Itinerary> journeys = new ArrayList<>();
+            for (int k = 1; k <= limit && q.markedCount > 0; k++) {
+                scanPatterns(q, k, targetBound);
+                relaxFootpaths(q, k, targetBound);
+
+                int bestArrival = targetBound;
+                int bestStop = -1;
+                for (int stop : egressStops) {
+                    int a = q.arrival[k][stop];
+                    if (a != INF && a + q.egress[stop] < bestArrival) {
+                        bestArrival = a + q.egress[stop];
+                        bestStop = stop;
+                    }
+                }
+                if (bestStop >= 0) {
+                    targetBound = bestArrival;
+                    journeys.add(reconstruct(q, k, bestStop));
+                }
+            }
+            return journeys;
+        } finally {
+            for (int stop : egressStops) {
+                q.egress[stop] = INF;
+            }
+        }
+    }
+
+    private void scanPatterns(QueryState q, int k, int targetBound) {
+        TransitNetwork net = network;
+        int[] previous = q.arrival[k - 1];
+        int[] current = q.arrival[k];
+        System.arraycopy(previous, 0, current, 0, current.length);
+        Arrays.fill(q.kind[k], NONE);
+
+        // Each pattern serving a stop improved last round is scanned once, from its earliest such stop
+        int touched = 0;
+        for (int i = 0; i < q.markedCount; i++) {
+            int stop = q.marked[i];
+            q.isMarked[stop] = false;
+            for (int e = net.stopPatternOffsets[stop], end = net.stopPatternOffsets[stop + 1]; e < end; e++) {
+                int pattern = net.stopPatterns[e];
+                int position = net.stopPatternPositions[e];
+                if (q.patternStart[pattern] == INF) {
+                    q.touchedPatterns[touched++] = pattern;
+                }
+                if (position < q.patternStart[pattern]) {
+                    q.patternStart[pattern] = position;
+                }
+            }
+        }
+        q.markedCount = 0;
+
+        for (int t = 0; t < touched; t++) {
+            int pattern = q.touchedPatterns[t];
+            int start = q.patternStart[pattern];
+            q.patternStart[pattern] = INF;
+
+            int stopBase = net.patternStopOffsets[pattern];
+            int length = net.patternStopOffsets[pattern + 1] - stopBase;
+            int timeBase = net.patternTimeBase[pattern];
+            int tripCount = net.patternTripOffsets[pattern + 1] - net.patternTripOffsets[pattern];
+
+            int trip = -1;
+            int boardPosition = -1;
+            for (int position = start; position < length; position++) {
+                int stop = net.patternStops[stopBase + position];
+                if (trip >= 0) {
+                    int a = net.arrivals[timeBase + trip * length + position];
+                    if (a < q.best[stop] && a < targetBound) {
+                        current[stop] = a;
+                        q.best[stop] = a;
+                        q.kind[k][stop] = TRANSIT;
+                        q.pattern[k][stop] = pattern;
+                        q.trip[k][stop] = trip;
+                        q.from[k][stop] = boardPosition;
+                        q.mark(stop);
+                    }
+                }
+
+                int ready = previous[stop];
+                if (ready != INF && (trip < 0 || ready < net.departures[timeBase + trip * length + position])) {
+                    int earlier = earliestTrip(net.departures, timeBase, length, position, ready, trip < 0 ? tripCount : trip);
+                    if (earlier >= 0) {
+                        trip = earlier;
+                        boardPosition = position;
+                    }
+                }
+            }
+        }
+    }
+
+    private void relaxFootpaths(QueryState q, int k, int targetBound) {
+        TransitNetwork net = network;
+        int[] current = q.arrival[k];
+        int count = q.markedCount;
+        for (int i = 0; i < count; i++) {
+            int stop = q.marked[i];
+            if (q.kind[k][stop] != TRANSIT) {
+                continue;
+            }
+            for (int e = net.footOffsets[stop], end = net.footOffsets[stop + 1]; e < end; e++) {
+                int target = net.footTargets[e];
+                int a = current[stop] + net.footSeconds[e];
+                if (a < q.best[target] && a < targetBound) {
+                    current[target] = a;
+                    q.best[target] = a;
+                    q.kind[k][target] = FOOT;
+                    q.from[k][target] = stop;
+                    q.mark(target);
+                }
+            }
+        }
+    }
+
+    // First trip in [0, limit) leaving the position at or after the given time, or -1
+    private static int earliestTrip(int[] departures, int timeBase, int length, int position, int time, int limit) {
+        int lo = 0;
+        int hi = limit;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (departures[timeBase + mid * length + position] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < limit ? lo : -1;
+    }
+
+    private Itinerary reconstruct(QueryState q, int rounds, int egressStop) {
+        TransitNetwork net = network;
+        List<Itinerary.Leg> legs = new ArrayList<>();
+        int arrival = q.arrival[rounds][egressStop];
+        legs.add(new Itinerary.Leg(Itinerary.LegType.EGRESS, egressStop, -1, -1, -1,
+                arrival, arrival + q.egress[egressStop]));
+
+        int k = rounds;
+        int stop = egressStop;
+        while (true) {
+            byte kind = q.kind[k][stop];
+            if (kind == NONE) {
+                k--;
+            } else if (kind == FOOT) {
+                int source = q.from[k][stop];
+                legs.add(new Itinerary.Leg(Itinerary.LegType.TRANSFER, source, stop, -1, -1,
+                        q.arrival[k][source], q.arrival[k][stop]));
+                stop = source;
+            } else if (kind == TRANSIT) {
+                int pattern = q.pattern[k][stop];
+                int trip = q.trip[k][stop];
+                int boardPosition = q.from[k][stop];
+                int length = net.patternStopOffsets[pattern + 1] - net.patternStopOffsets[pattern];
+                int board = net.patternStops[net.patternStopOffsets[pattern] + boardPosition];
+                int departure = net.departures[net.patternTimeBase[pattern] + trip * length + boardPosition];
+                legs.add(new Itinerary.Leg(Itinerary.LegType.TRANSIT, board, stop, pattern, trip,
+                        departure, q.arrival[k][stop]));
+                stop = board;
+                k--;
+            } else {
+                // Leave the origin just in time for the first vehicle rather than waiting at the stop
+                int accessSeconds = q.from[k][stop];
+                int firstDeparture = legs.get(legs.size() - 1).departure();
+                legs.add(new Itinerary.Leg(Itinerary.LegType.ACCESS, -1, stop, -1, -1,
+                        firstDeparture - accessSeconds, firstDeparture));
+                break;
+            }
+        }
+
+        Collections.reverse(legs);
+        return new Itinerary(legs.get(0).departure(), legs.get(legs.size() - 1).arrival(), rounds, legs);
+    }
+
+    private final class QueryState {
+        final int[][] arrival;
+        final byte[][] kind;
+        final int[][] pattern;
+        final int[][] trip;
+        final int[][] from;
+        final int[] best;
+        final int[] egress;
+        final int[] marked;
+        final boolean[] isMarked;
+        final int[] patternStart;
+        final int[] touchedPatterns;
+        int markedCount;
+
+        QueryState() {
+            int n = network.stopCount();
+            arrival = new int[maxRounds + 1][n];
+            kind = new byte[maxRounds + 1][n];
+            pattern = new int[maxRounds + 1][n];
+            trip = new int[maxRounds + 1][n];
+            from = new int[maxRounds + 1][n];
+            best = new int[n];
+            egress = new int[n];
+            marked = new int[n];
+            isMarked = new boolean[n];
+            patternStart = new int[network.patternCount()];
+            touchedPatterns = new int[network.patternCount()];
+            Arrays.fill(egress, INF);
+            Arrays.fill(patternStart, INF);
+        }
+
+        void reset() {
+            Arrays.fill(arrival[0], INF);
+            Arrays.fill(kind[0], NONE);
+            Arrays.fill(best, INF);
+            for (int i = 0; i < markedCount; i++) {
+                isMarked[marked[i]] = false;
+            }
+            markedCount = 0;
+        }
+
+        void mark(int stop) {
+            if (!isMarked[stop]) {
+                isMarked[stop] = true;
+                marked[markedCount++] = stop;
+            }
+        }
+    }
+}
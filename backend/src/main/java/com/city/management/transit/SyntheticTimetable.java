@@ -0,0 +1,91 @@
+package com.city.management.transit;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes a small GTFS-like timetable over the same area as the synthetic road grid: two tram
+ * lines crossing in the centre, one diagonal rail line and a lattice of bus routes, all running
+ * in both directions from 05:30 until midnight.
+ */
+public final class SyntheticTimetable {
+
+    private static final int FIRST_DEPARTURE = 5 * 3600 + 30 * 60;
+    private static final int LAST_DEPARTURE = 24 * 3600;
+    private static final int DWELL_SECONDS = 20;
+
+    // id, name, GTFS route_type, fromLat, fromLon, toLat, toLon, stop spacing m, km/h, headway min
+    private static final Object[][] LINES = {
+            {"T1", "Green", 0, 53.300, -6.260, 53.389, -6.260, 500, 22, 6},
+            {"T2", "Red", 0, 53.345, -6.350, 53.345, -6.2015, 500, 22, 6},
+            {"R1", "Coastal", 2, 53.300, -6.350, 53.389, -6.2015, 2000, 55, 15},
+            {"B1", "1", 3, 53.315, -6.350, 53.315, -6.2015, 350, 16, 10},
+            {"B2", "2", 3, 53.330, -6.350, 53.330, -6.2015, 350, 16, 10},
+            {"B3", "3", 3, 53.360, -6.350, 53.360, -6.2015, 350, 16, 10},
+            {"B4", "4", 3, 53.375, -6.350, 53.375, -6.2015, 350, 16, 10},
+            {"B5", "5", 3, 53.300, -6.320, 53.389, -6.320, 350, 16, 10},
+            {"B6", "6", 3, 53.300, -6.290, 53.389, -6.290, 350, 16, 10},
+            {"B7", "7", 3, 53.300, -6.230, 53.389, -6.230, 350, 16, 10},
+    };
+
+    private SyntheticTimetable() {
+    }
+
+    public static void write(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        try (BufferedWriter stops = Files.newBufferedWriter(dir.resolve("stops.txt"));
+             BufferedWriter routes = Files.newBufferedWriter(dir.resolve("routes.txt"));
+             BufferedWriter trips = Files.newBufferedWriter(dir.resolve("trips.txt"));
+             BufferedWriter stopTimes = Files.newBufferedWriter(dir.resolve("stop_times.txt"))) {
+            stops.write("stop_id,stop_name,stop_lat,stop_lon\n");
+            routes.write("route_id,route_short_name,route_type\n");
+            trips.write("route_id,trip_id\n");
+            stopTimes.write("trip_id,arrival_time,departure_time,stop_id,stop_sequence\n");
+
+            for (Object[] line : LINES) {
+                String id = (String) line[0];
+                double fromLat = (double) line[3];
+                double fromLon = (double) line[4];
+                double toLat = (double) line[5];
+                double toLon = (double) line[6];
+                int spacing = (int) line[7];
+                double metresPerSecond = (int) line[8] / 3.6;
+                int headway = (int) line[9] * 60;
+
+                double length = TransitNetwork.distanceMeters(fromLat, fromLon, toLat, toLon);
+                int stopCount = (int) Math.round(length / spacing) + 1;
+                int hop = (int) Math.round(length / (stopCount - 1) / metresPerSecond);
+
+                routes.write(id + "," + line[1] + "," + line[2] + "\n");
+                for (int i = 0; i < stopCount; i++) {
+                    double f = (double) i / (stopCount - 1);
+                    stops.write(String.format("%s-%02d,%s %s stop %d,%.6f,%.6f%n", id, i, id, line[1], i + 1,
+                            fromLat + f * (toLat - fromLat), fromLon + f * (toLon - fromLon)));
+                }
+
+                int tripNumber = 0;
+                for (int direction = 0; direction < 2; direction++) {
+                    // Offset the reverse direction by half a headway so the lines do not pulse together
+                    for (int start = FIRST_DEPARTURE + direction * headway / 2; start < LAST_DEPARTURE; start += headway) {
+                        String tripId = id + "-" + (++tripNumber);
+                        trips.write(id + "," + tripId + "\n");
+                        int time = start;
+                        for (int i = 0; i < stopCount; i++) {
+                            int stop = direction == 0 ? i : stopCount - 1 - i;
+                            int departure = i == 0 || i == stopCount - 1 ? time : time + DWELL_SECONDS;
+                            stopTimes.write(tripId + "," + clock(time) + "," + clock(departure) + ","
+                                    + String.format("%s-%02d", id, stop) + "," + (i + 1) + "\n");
+                            time = departure + hop;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static String clock(int seconds) {
+        return String.format("%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+}
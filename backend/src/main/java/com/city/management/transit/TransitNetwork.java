@@ -0,0 +1,448 @@
+package com.city.management.transit;
+
+import com.city.management.util.CsvUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Public-transport timetable held in flat arrays for RAPTOR. Trips sharing a route and stop
+ * sequence are grouped into patterns; within a pattern, trips are sorted by departure and never
+ * overtake each other, so the earliest catchable trip at any stop is a binary search away.
+ *
+ * Loaded from a GTFS-like directory: stops.txt, routes.txt, trips.txt and stop_times.txt, plus
+ * an optional transfers.txt. Calendars are ignored; every trip runs every day.
+ */
+public class TransitNetwork {
+
+    static final double WALK_SPEED = 1.3;
+
+    final String[] stopIds;
+    final String[] stopNames;
+    final float[] stopLat;
+    final float[] stopLon;
+
+    final String[] routeNames;
+    final String[] routeModes;
+
+    final int[] patternRoute;
+    final int[] patternStopOffsets;
+    final int[] patternStops;
+    final int[] patternTripOffsets;
+    final int[] patternTimeBase;
+    final String[] tripIds;
+    final int[] arrivals;
+    final int[] departures;
+
+    final int[] stopPatternOffsets;
+    final int[] stopPatterns;
+    final int[] stopPatternPositions;
+
+    final int[] footOffsets;
+    final int[] footTargets;
+    final int[] footSeconds;
+
+    private final int[] stopsByLat;
+    private final float[] sortedLat;
+
+    private TransitNetwork(Loader loader, double transferWalkMeters) {
+        int n = loader.stopIds.size();
+        stopIds = loader.stopIds.toArray(new String[0]);
+        stopNames = loader.stopNames.toArray(new String[0]);
+        stopLat = new float[n];
+        stopLon = new float[n];
+        for (int i = 0; i < n; i++) {
+            stopLat[i] = loader.lat.get(i);
+            stopLon[i] = loader.lon.get(i);
+        }
+        routeNames = loader.routeNames.toArray(new String[0]);
+        routeModes = loader.routeModes.toArray(new String[0]);
+
+        List<Pattern> patterns = loader.patterns();
+        int p = patterns.size();
+        patternRoute = new int[p];
+        patternStopOffsets = new int[p + 1];
+        patternTripOffsets = new int[p + 1];
+        patternTimeBase = new int[p + 1];
+        for (int i = 0; i < p; i++) {
+            Pattern pattern = patterns.get(i);
+            patternRoute[i] = pattern.route;
+            patternStopOffsets[i + 1] = patternStopOffsets[i] + pattern.stops.length;
+            patternTripOffsets[i + 1] = patternTripOffsets[i] + pattern.trips.size();
+            patternTimeBase[i + 1] = patternTimeBase[i] + pattern.stops.length * pattern.trips.size();
+        }
+
+        patternStops = new int[patternStopOffsets[p]];
+        tripIds = new String[patternTripOffsets[p]];
+        arrivals = new int[patternTimeBase[p]];
+        departures = new int[patternTimeBase[p]];
+        int[] stopPatternCount = new int[n + 1];
+        for (int i = 0; i < p; i++) {
+            Pattern pattern = patterns.get(i);
+            System.arraycopy(pattern.stops, 0, patternStops, patternStopOffsets[i], pattern.stops.length);
+            for (int t = 0; t < pattern.trips.size(); t++) {
+                Trip trip = pattern.trips.get(t);
+                tripIds[patternTripOffsets[i] + t] = trip.id;
+                int base = patternTimeBase[i] + t * pattern.stops.length;
+                System.arraycopy(trip.arrivals, 0, arrivals, base, trip.arrivals.length);
+                System.arraycopy(trip.departures, 0, departures, base, trip.departures.length);
+            }
+            for (int stop : pattern.stops) {
+                stopPatternCount[stop + 1]++;
+            }
+        }
+
+        stopPatternOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            stopPatternOffsets[i + 1] = stopPatternOffsets[i] + stopPatternCount[i + 1];
+        }
+        stopPatterns = new int[stopPatternOffsets[n]];
+        stopPatternPositions = new int[stopPatternOffsets[n]];
+        int[] fill = Arrays.copyOf(stopPatternOffsets, n);
+        for (int i = 0; i < p; i++) {
+            for (int pos = 0, len = patterns.get(i).stops.length; pos < len; pos++) {
+                int stop = patterns.get(i).stops[pos];
+                stopPatterns[fill[stop]] = i;
+                stopPatternPositions[fill[stop]++] = pos;
+            }
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> stopLat[i]));
+        stopsByLat = new int[n];
+        sortedLat = new float[n];
+        for (int i = 0; i < n; i++) {
+            stopsByLat[i] = order[i];
+            sortedLat[i] = stopLat[order[i]];
+        }
+
+        // Walking transfers between nearby stops, overridden by explicit transfers.txt entries
+        List<Map<Integer, Integer>> foot = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Map<Integer, Integer> edges = new LinkedHashMap<>();
+            int from = i;
+            forEachStopNear(stopLat[i], stopLon[i], transferWalkMeters, (stop, meters) -> {
+                if (stop != from) {
+                    edges.put(stop, walkSeconds(meters));
+                }
+            });
+            foot.add(edges);
+        }
+        for (int[] transfer : loader.transfers) {
+            foot.get(transfer[0]).put(transfer[1], transfer[2]);
+        }
+        footOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            footOffsets[i + 1] = footOffsets[i] + foot.get(i).size();
+        }
+        footTargets = new int[footOffsets[n]];
+        footSeconds = new int[footOffsets[n]];
+        for (int i = 0; i < n; i++) {
+            int e = footOffsets[i];
+            for (Map.Entry<Integer, Integer> edge : foot.get(i).entrySet()) {
+                footTargets[e] = edge.getKey();
+                footSeconds[e++] = edge.getValue();
+            }
+        }
+    }
+
+    public static TransitNetwork load(Path dir, double transferWalkMeters) throws IOException {
+        Loader loader = new Loader();
+        loader.readStops(dir.resolve("stops.txt"));
+        loader.readRoutes(dir.resolve("routes.txt"));
+        loader.readTrips(dir.resolve("trips.txt"));
+        loader.readStopTimes(dir.resolve("stop_times.txt"));
+        Path transfers = dir.resolve("transfers.txt");
+        if (Files.exists(transfers)) {
+            loader.readTransfers(transfers);
+        }
+        return new TransitNetwork(loader, transferWalkMeters);
+    }
+
+    public int stopCount() {
+        return stopIds.length;
+    }
+
+    public int patternCount() {
+        return patternRoute.length;
+    }
+
+    public int tripCount() {
+        return tripIds.length;
+    }
+
+    public String stopId(int stop) {
+        return stopIds[stop];
+    }
+
+    public String stopName(int stop) {
+        return stopNames[stop];
+    }
+
+    public float stopLat(int stop) {
+        return stopLat[stop];
+    }
+
+    public float stopLon(int stop) {
+        return stopLon[stop];
+    }
+
+    public String patternRouteName(int pattern) {
+        return routeNames[patternRoute[pattern]];
+    }
+
+    public String patternMode(int pattern) {
+        return routeModes[patternRoute[pattern]];
+    }
+
+    public String tripId(int pattern, int trip) {
+        return tripIds[patternTripOffsets[pattern] + trip];
+    }
+
+    /**
+     * Calls the consumer for every stop within the radius, scanning only the latitude band.
+     */
+    public void forEachStopNear(double lat, double lon, double radiusMeters, StopDistanceConsumer consumer) {
+        double dLat = radiusMeters / 111_320.0;
+        int i = lowerBound(sortedLat, (float) (lat - dLat));
+        for (; i < sortedLat.length && sortedLat[i] <= lat + dLat; i++) {
+            int stop = stopsByLat[i];
+            double meters = distanceMeters(lat, lon, stopLat[stop], stopLon[stop]);
+            if (meters <= radiusMeters) {
+                consumer.accept(stop, meters);
+            }
+        }
+    }
+
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * 6_371_000;
+    }
+
+    static int walkSeconds(double meters) {
+        return (int) Math.ceil(meters / WALK_SPEED);
+    }
+
+    private static int lowerBound(float[] values, float key) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    static int parseTime(String value) {
+        String[] parts = value.trim().split(":");
+        return Integer.parseInt(parts[0]) * 3600 + Integer.parseInt(parts[1]) * 60
+                + (parts.length > 2 ? Integer.parseInt(parts[2]) : 0);
+    }
+
+    @FunctionalInterface
+    public interface StopDistanceConsumer {
+        void accept(int stop, double meters);
+    }
+
+    private static final class Trip {
+        final String id;
+        final int route;
+        int[] arrivals;
+        int[] departures;
+        int[] stops;
+        final List<int[]> rows = new ArrayList<>();
+
+        Trip(String id, int route) {
+            this.id = id;
+            this.route = route;
+        }
+
+        boolean notOvertakenBy(Trip later) {
+            for (int i = 0; i < stops.length; i++) {
+                if (later.arrivals[i] < arrivals[i] || later.departures[i] < departures[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Pattern {
+        final int route;
+        final int[] stops;
+        final List<Trip> trips = new ArrayList<>();
+
+        Pattern(int route, int[] stops) {
+            this.route = route;
+            this.stops = stops;
+        }
+    }
+
+    private static final class Loader {
+        final Map<String, Integer> stopIndex = new HashMap<>();
+        final List<String> stopIds = new ArrayList<>();
+        final List<String> stopNames = new ArrayList<>();
+        final List<Float> lat = new ArrayList<>();
+        final List<Float> lon = new ArrayList<>();
+
+        final Map<String, Integer> routeIndex = new HashMap<>();
+        final List<String> routeNames = new ArrayList<>();
+        final List<String> routeModes = new ArrayList<>();
+
+        final Map<String, Trip> trips = new LinkedHashMap<>();
+        final List<int[]> transfers = new ArrayList<>();
+
+        void readStops(Path file) throws IOException {
+            read(file, row -> {
+                stopIndex.put(row.get("stop_id"), stopIds.size());
+                stopIds.add(row.get("stop_id"));
+                stopNames.add(row.getOrDefault("stop_name", row.get("stop_id")));
+                lat.add(Float.parseFloat(row.get("stop_lat")));
+                lon.add(Float.parseFloat(row.get("stop_lon")));
+            });
+        }
+
+        void readRoutes(Path file) throws IOException {
+            read(file, row -> {
+                routeIndex.put(row.get("route_id"), routeNames.size());
+                String name = row.get("route_short_name");
+                routeNames.add(name == null || name.isEmpty() ? row.get("route_id") : name);
+                routeModes.add(mode(row.getOrDefault("route_type", "3")));
+            });
+        }
+
+        void readTrips(Path file) throws IOException {
+            read(file, row -> {
+                Integer route = routeIndex.get(row.get("route_id"));
+                if (route != null) {
+                    trips.put(row.get("trip_id"), new Trip(row.get("trip_id"), route));
+                }
+            });
+        }
+
+        void readStopTimes(Path file) throws IOException {
+            read(file, row -> {
+                Trip trip = trips.get(row.get("trip_id"));
+                Integer stop = stopIndex.get(row.get("stop_id"));
+                if (trip == null || stop == null) {
+                    return;
+                }
+                String arrival = row.get("arrival_time");
+                String departure = row.get("departure_time");
+                int arr = parseTime(arrival == null || arrival.isEmpty() ? departure : arrival);
+                int dep = departure == null || departure.isEmpty() ? arr : parseTime(departure);
+                trip.rows.add(new int[]{Integer.parseInt(row.get("stop_sequence")), stop, arr, dep});
+            });
+        }
+
+        void readTransfers(Path file) throws IOException {
+            read(file, row -> {
+                Integer from = stopIndex.get(row.get("from_stop_id"));
+                Integer to = stopIndex.get(row.get("to_stop_id"));
+                String seconds = row.get("min_transfer_time");
+                if (from != null && to != null && seconds != null && !seconds.isEmpty()) {
+                    transfers.add(new int[]{from, to, Integer.parseInt(seconds)});
+                }
+            });
+        }
+
+        List<Pattern> patterns() {
+            Map<String, List<Trip>> byStops = new LinkedHashMap<>();
+            for (Trip trip : trips.values()) {
+                if (trip.rows.size() < 2) {
+                    continue;
+                }
+                trip.rows.sort(Comparator.comparingInt(r -> r[0]));
+                int len = trip.rows.size();
+                trip.stops = new int[len];
+                trip.arrivals = new int[len];
+                trip.departures = new int[len];
+                for (int i = 0; i < len; i++) {
+                    int[] r = trip.rows.get(i);
+                    trip.stops[i] = r[1];
+                    trip.arrivals[i] = r[2];
+                    trip.departures[i] = r[3];
+                }
+                trip.rows.clear();
+                byStops.computeIfAbsent(trip.route + ":" + Arrays.toString(trip.stops), k -> new ArrayList<>()).add(trip);
+            }
+
+            List<Pattern> patterns = new ArrayList<>();
+            for (List<Trip> group : byStops.values()) {
+                group.sort(Comparator.comparingInt(t -> t.departures[0]));
+                // Split into sub-patterns so that no trip overtakes an earlier one
+                List<Pattern> split = new ArrayList<>();
+                for (Trip trip : group) {
+                    Pattern target = null;
+                    for (Pattern candidate : split) {
+                        if (candidate.trips.get(candidate.trips.size() - 1).notOvertakenBy(trip)) {
+                            target = candidate;
+                            break;
+                        }
+                    }
+                    if (target == null) {
+                        target = new Pattern(trip.route, trip.stops);
+                        split.add(target);
+                    }
+                    target.trips.add(trip);
+                }
+                patterns.addAll(split);
+            }
+            return patterns;
+        }
+
+        private static String mode(String routeType) {
+            return switch (routeType.trim()) {
+                case "0", "5", "900" -> "tram";
+                case "1", "2", "100", "400" -> "train";
+                default -> "bus";
+            };
+        }
+
+        private static void read(Path file, RowHandler handler) throws IOException {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String header = reader.readLine();
+                if (header == null) {
+                    return;
+                }
+                List<String> columns = CsvUtil.parseLine(header.replace("\uFEFF", ""));
+                Map<String, String> row = new HashMap<>();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    List<String> fields = CsvUtil.parseLine(line);
+                    row.clear();
+                    for (int i = 0; i < columns.size() && i < fields.size(); i++) {
+                        row.put(columns.get(i).trim(), fields.get(i).trim());
+                    }
+                    handler.handle(row);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void handle(Map<String, String> row);
+    }
+}
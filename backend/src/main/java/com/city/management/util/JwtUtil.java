@@ -12,6 +12,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
@@ -41,6 +42,14 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
+    public Claims parseToken(String token) {
+        return extractAllClaims(token);
+    }
+
+    public boolean isExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
+    }
+
     private Claims extractAllClaims(String token) {
         return Jwts.parserBuilder()
                 .setSigningKey(getSigningKey())
@@ -65,6 +74,7 @@ public class JwtUtil {
 
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
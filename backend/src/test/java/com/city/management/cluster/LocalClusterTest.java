@@ -0,0 +1,180 @@
+package com.city.management.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Three nodes in one JVM over {@link LocalClusterTransport}, the way several application
+ * contexts would run with {@code cluster.transport=local}.
+ */
+class LocalClusterTest {
+
+    private static final String MEMBERS = "node-1,node-2,node-3";
+
+    @TempDir
+    Path idDirectory;
+
+    private final List<ClusterNode> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void startNodes() {
+        for (String nodeId : MEMBERS.split(",")) {
+            nodes.add(start(nodeId));
+        }
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(ClusterNode::shutdown);
+    }
+
+    @Test
+    void partitionedKeysLiveOnTheirOwnerOnly() {
+        List<PartitionedStateStore<String>> stores = new ArrayList<>();
+        for (ClusterNode node : nodes) {
+            stores.add(partitioned(node, "items"));
+        }
+
+        for (int i = 0; i < 300; i++) {
+            stores.get(i % stores.size()).put("key-" + i, "value-" + i);
+        }
+
+        Set<String> owners = new HashSet<>();
+        for (int i = 0; i < 300; i++) {
+            String key = "key-" + i;
+            String owner = nodes.get(0).ownerOf(key);
+            owners.add(owner);
+            for (int n = 0; n < nodes.size(); n++) {
+                assertThat(stores.get(n).local.containsKey(key)).isEqualTo(nodes.get(n).getNodeId().equals(owner));
+                assertThat(stores.get(n).get(key)).contains("value-" + i);
+            }
+        }
+        assertThat(owners).hasSize(nodes.size());
+        assertThat(stores.get(1).values()).hasSize(300);
+
+        stores.get(2).putAll(Map.of("key-0", "changed", "key-1", "changed"));
+        assertThat(stores.get(0).get("key-0")).contains("changed");
+        assertThat(stores.get(1).remove("key-1")).isTrue();
+        assertThat(stores.get(2).get("key-1")).isEmpty();
+    }
+
+    @Test
+    void putIfAbsentClaimsEachKeyOnce() {
+        List<PartitionedStateStore<String>> stores = new ArrayList<>();
+        for (ClusterNode node : nodes) {
+            stores.add(partitioned(node, "claims"));
+        }
+
+        Map<String, String> batch = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            batch.put("name-" + i, "first");
+        }
+        assertThat(stores.get(0).putAllIfAbsent(batch)).isEmpty();
+
+        Map<String, String> overlapping = new HashMap<>();
+        for (int i = 50; i < 150; i++) {
+            overlapping.put("name-" + i, "second");
+        }
+        Set<String> present = stores.get(1).putAllIfAbsent(overlapping);
+        assertThat(present).hasSize(50).allMatch(key -> Integer.parseInt(key.substring(5)) < 100);
+        assertThat(stores.get(2).get("name-60")).contains("first");
+        assertThat(stores.get(2).get("name-120")).contains("second");
+
+        assertThat(stores.get(2).putIfAbsent("name-0", "third")).isFalse();
+        assertThat(stores.get(2).putIfAbsent("name-150", "third")).isTrue();
+        assertThat(stores.get(0).get("name-150")).contains("third");
+    }
+
+    @Test
+    void replicatedWritesFanOutToEveryPeer() throws InterruptedException {
+        List<ReplicatedStateStore<String>> stores = new ArrayList<>();
+        for (ClusterNode node : nodes) {
+            ReplicatedStateStore<String> store = new ReplicatedStateStore<>("notes", String.class, node, new ObjectMapper());
+            node.register(store);
+            stores.add(store);
+        }
+
+        stores.get(0).put("a", "first");
+        stores.get(1).put("b", "second");
+        awaitCopies(stores, 2);
+        for (ReplicatedStateStore<String> store : stores) {
+            assertThat(store.get("a")).contains("first");
+            assertThat(store.get("b")).contains("second");
+        }
+
+        stores.get(2).remove("a");
+        awaitCopies(stores, 1);
+        for (ReplicatedStateStore<String> store : stores) {
+            assertThat(store.get("a")).isEmpty();
+        }
+    }
+
+    @Test
+    void idsAreUniqueAcrossNodesAndRestarts() {
+        Set<Long> issued = new HashSet<>();
+        for (ClusterNode node : nodes) {
+            IdGenerator ids = idGenerator(node, 3);
+            for (int i = 0; i < 25; i++) {
+                assertThat(issued.add(ids.nextId())).isTrue();
+            }
+        }
+
+        // node-2 restarts: its sequence carries on past everything it handed out before
+        nodes.get(1).shutdown();
+        nodes.set(1, start("node-2"));
+        IdGenerator restarted = idGenerator(nodes.get(1), 3);
+        for (int i = 0; i < 25; i++) {
+            assertThat(issued.add(restarted.nextId())).isTrue();
+        }
+    }
+
+    private ClusterNode start(String nodeId) {
+        ClusterNode node = new ClusterNode();
+        ReflectionTestUtils.setField(node, "enabled", true);
+        ReflectionTestUtils.setField(node, "nodeId", nodeId);
+        ReflectionTestUtils.setField(node, "nodes", MEMBERS);
+        ReflectionTestUtils.setField(node, "transportType", "local");
+        ReflectionTestUtils.setField(node, "secret", "test-secret");
+        ReflectionTestUtils.setField(node, "virtualNodes", 64);
+        ReflectionTestUtils.setField(node, "objectMapper", new ObjectMapper());
+        node.init();
+        return node;
+    }
+
+    private static PartitionedStateStore<String> partitioned(ClusterNode node, String name) {
+        PartitionedStateStore<String> store = new PartitionedStateStore<>(name, String.class, node, new ObjectMapper());
+        node.register(store);
+        return store;
+    }
+
+    private IdGenerator idGenerator(ClusterNode node, int blockSize) {
+        StateStoreFactory factory = new StateStoreFactory();
+        ReflectionTestUtils.setField(factory, "clusterNode", node);
+        ReflectionTestUtils.setField(factory, "maxNodes", 64);
+        ReflectionTestUtils.setField(factory, "idDirectory", idDirectory.toString());
+        ReflectionTestUtils.setField(factory, "idBlockSize", blockSize);
+        return factory.idGenerator("items", 1);
+    }
+
+    private static void awaitCopies(List<ReplicatedStateStore<String>> stores, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stores.stream().anyMatch(store -> store.values().size() != size)) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}